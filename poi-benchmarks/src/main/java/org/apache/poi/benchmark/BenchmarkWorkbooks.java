@@ -0,0 +1,96 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Creates the synthetic workbooks and loads the sample files which are used as input for the benchmarks
+ */
+final class BenchmarkWorkbooks {
+    /** parameter value for benchmarks, which use a generated workbook instead of a sample file */
+    static final String SYNTHETIC = "synthetic";
+
+    private BenchmarkWorkbooks() {}
+
+    /**
+     * Fills the sheet with a mix of numeric, string, boolean and date cells
+     */
+    static void fillSheet(Sheet sheet, int rows, int cols) {
+        Workbook wb = sheet.getWorkbook();
+        CellStyle dateStyle = wb.createCellStyle();
+        dateStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+
+        for (int r = 0; r < rows; r++) {
+            Row row = sheet.createRow(r);
+            for (int c = 0; c < cols; c++) {
+                Cell cell = row.createCell(c);
+                switch (c % 4) {
+                    case 0:
+                        cell.setCellValue(r * 1.25 + c);
+                        break;
+                    case 1:
+                        cell.setCellValue("Text " + (r % 1000) + "-" + c);
+                        break;
+                    case 2:
+                        cell.setCellValue((r + c) % 3 == 0);
+                        break;
+                    default:
+                        cell.setCellValue(40000 + (r % 3650));
+                        cell.setCellStyle(dateStyle);
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the sheet with a value column and formula columns, which reference the values
+     * via arithmetic, conditions, aggregates and lookups
+     */
+    static void fillFormulaSheet(Sheet sheet, int rows) {
+        for (int r = 0; r < rows; r++) {
+            int n = r + 1;
+            Row row = sheet.createRow(r);
+            row.createCell(0).setCellValue(n);
+            row.createCell(1).setCellFormula("A" + n + "*2+1");
+            row.createCell(2).setCellFormula("IF(B" + n + ">100,B" + n + "-A" + n + ",B" + n + "+A" + n + ")");
+            row.createCell(3).setCellFormula("SUM(A$1:A" + n + ")");
+            row.createCell(4).setCellFormula("VLOOKUP(MOD(A" + n + "*7," + rows + ")+1,A$1:B$" + rows + ",2,FALSE)");
+        }
+    }
+
+    static byte[] toByteArray(Workbook wb) throws IOException {
+        try (UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream()) {
+            wb.write(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    static byte[] readSpreadsheetSample(String fileName) {
+        return POIDataSamples.getSpreadSheetInstance().readFile(fileName);
+    }
+}
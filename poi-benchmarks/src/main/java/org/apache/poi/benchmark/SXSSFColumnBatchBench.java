@@ -0,0 +1,107 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.benchmark;
+
+import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.xssf.streaming.SXSSFColumnBatch;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes typed columns (number, date, string) through the cell API and through {@link SXSSFColumnBatch}
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SXSSFColumnBatchBench {
+    private static final int BATCH_SIZE = 1000;
+    private static final long START_MILLIS = 1_600_000_000_000L;
+
+    @Param({"100000"})
+    private int rows;
+
+    @Benchmark
+    public void writeCells() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(100)) {
+            CellStyle dateStyle = createDateStyle(wb);
+            SXSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < rows; r++) {
+                SXSSFRow row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r * 1.5);
+                row.createCell(1).setCellValue(new Date(START_MILLIS + r * 1000L));
+                row.getCell(1).setCellStyle(dateStyle);
+                row.createCell(2).setCellValue("value" + (r % 100));
+            }
+            wb.write(NULL_OUTPUT_STREAM);
+            wb.dispose();
+        }
+    }
+
+    @Benchmark
+    public void writeColumnBatch() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(100)) {
+            CellStyle dateStyle = createDateStyle(wb);
+            SXSSFSheet sheet = wb.createSheet();
+            double[] numbers = new double[BATCH_SIZE];
+            long[] dates = new long[BATCH_SIZE];
+            String[] strings = new String[BATCH_SIZE];
+            SXSSFColumnBatch batch = new SXSSFColumnBatch(BATCH_SIZE)
+                .addNumericColumn(numbers, null)
+                .addDateColumn(dates, dateStyle)
+                .addStringColumn(strings, null);
+            for (int first = 0; first < rows; first += BATCH_SIZE) {
+                int count = Math.min(BATCH_SIZE, rows - first);
+                for (int i = 0; i < count; i++) {
+                    int r = first + i;
+                    numbers[i] = r * 1.5;
+                    dates[i] = START_MILLIS + r * 1000L;
+                    strings[i] = "value" + (r % 100);
+                }
+                batch.setRowCount(count);
+                sheet.writeRows(first, batch);
+            }
+            wb.write(NULL_OUTPUT_STREAM);
+            wb.dispose();
+        }
+    }
+
+    private static CellStyle createDateStyle(SXSSFWorkbook wb) {
+        CellStyle dateStyle = wb.createCellStyle();
+        dateStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+        return dateStyle;
+    }
+}
@@ -0,0 +1,86 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullWriter;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializes in-memory rows through the {@link SheetDataWriter} into a discarding writer,
+ * i.e. only the cell serialization is measured - the score is given in cells per millisecond
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SheetDataWriterBench {
+    private static final int ROWS = 1000;
+    private static final int COLS = 20;
+
+    private SXSSFWorkbook wb;
+    private SXSSFRow[] rows;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // keep all rows in memory, so they can be serialized repeatedly
+        wb = new SXSSFWorkbook(-1);
+        SXSSFSheet sheet = wb.createSheet();
+        BenchmarkWorkbooks.fillSheet(sheet, ROWS, COLS);
+        rows = new SXSSFRow[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = sheet.getRow(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        wb.dispose();
+        wb.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS * COLS)
+    public void writeCells() throws IOException {
+        try (SheetDataWriter writer = new SheetDataWriter(NullWriter.NULL_WRITER)) {
+            for (int i = 0; i < ROWS; i++) {
+                writer.writeRow(i, rows[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A pivot-like summary sheet: a grid of {@value #REGIONS} x {@value #PRODUCTS} SUMIFS and a
+ * COUNTIFS per region, all aggregating the same ranges of a data sheet with different keys
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SummarySheetBench {
+    private static final int REGIONS = 20;
+    private static final int PRODUCTS = 50;
+
+    @Param({"HSSF", "XSSF"})
+    private String format;
+
+    @Param({"20000"})
+    private int rows;
+
+    private Workbook wb;
+    private FormulaEvaluator evaluator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        wb = "HSSF".equals(format) ? new HSSFWorkbook() : new XSSFWorkbook();
+        Sheet data = wb.createSheet("Data");
+        for (int r = 0; r < rows; r++) {
+            Row row = data.createRow(r);
+            row.createCell(0).setCellValue("Region " + (r * 7 % REGIONS));
+            row.createCell(1).setCellValue("Product " + (r * 13 % PRODUCTS));
+            row.createCell(2).setCellValue(r % 1000 * 0.25);
+        }
+
+        String region = "Data!$A$1:$A$" + rows;
+        String product = "Data!$B$1:$B$" + rows;
+        String amount = "Data!$C$1:$C$" + rows;
+        Sheet summary = wb.createSheet("Summary");
+        Row header = summary.createRow(0);
+        for (int p = 0; p < PRODUCTS; p++) {
+            header.createCell(p + 1).setCellValue("Product " + p);
+        }
+        for (int g = 0; g < REGIONS; g++) {
+            int n = g + 2;
+            Row row = summary.createRow(g + 1);
+            row.createCell(0).setCellValue("Region " + g);
+            for (int p = 0; p < PRODUCTS; p++) {
+                row.createCell(p + 1).setCellFormula("SUMIFS(" + amount + "," + region + ",$A" + n + ","
+                        + product + "," + header.getCell(p + 1).getAddress().formatAsString() + ")");
+            }
+            row.createCell(PRODUCTS + 1).setCellFormula("COUNTIFS(" + region + ",$A" + n + "," + amount + ",\">100\")");
+        }
+        evaluator = wb.getCreationHelper().createFormulaEvaluator();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        wb.close();
+    }
+
+    @Benchmark
+    public void evaluateAll() {
+        evaluator.clearAllCachedResultValues();
+        evaluator.evaluateAll();
+    }
+}
@@ -0,0 +1,145 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A what-if scenario: a model of {@value #SCENARIOS} independent scenario columns, each driven by
+ * one input cell. A few inputs are changed and the model is recalculated, either completely or
+ * only the dependents of the changed inputs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WhatIfRecalcBench {
+    private static final int SCENARIOS = 20;
+    private static final int CHANGED_INPUTS = 2;
+
+    @Param({"HSSF", "XSSF"})
+    private String format;
+
+    @Param({"2000"})
+    private int rows;
+
+    @Param({"false", "true"})
+    private boolean compile;
+
+    private Workbook wb;
+    private HSSFFormulaEvaluator hssfEvaluator;
+    private XSSFFormulaEvaluator xssfEvaluator;
+    private List<Cell> inputs;
+    private int inputValue;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        wb = "HSSF".equals(format) ? new HSSFWorkbook() : new XSSFWorkbook();
+        Sheet inputSheet = wb.createSheet("Inputs");
+        Cell[] inputCells = new Cell[CHANGED_INPUTS];
+        for (int s = 0; s < SCENARIOS; s++) {
+            Cell cell = inputSheet.createRow(s).createCell(0);
+            cell.setCellValue(s + 1);
+            if (s < CHANGED_INPUTS) {
+                inputCells[s] = cell;
+            }
+        }
+        inputs = Arrays.asList(inputCells);
+
+        Sheet model = wb.createSheet("Model");
+        for (int r = 0; r < rows; r++) {
+            int n = r + 1;
+            Row row = model.createRow(r);
+            row.createCell(0).setCellValue(n);
+            for (int s = 0; s < SCENARIOS; s++) {
+                String column = String.valueOf((char) ('B' + s));
+                String growth = "$A" + n + "*Inputs!$A$" + (s + 1) + "/100";
+                row.createCell(s + 1).setCellFormula(r == 0 ? growth : column + r + "+" + growth);
+            }
+        }
+
+        if (wb instanceof HSSFWorkbook) {
+            hssfEvaluator = ((HSSFWorkbook) wb).getCreationHelper().createFormulaEvaluator();
+            hssfEvaluator.setCompileFormulas(compile);
+            hssfEvaluator.evaluateDependents(inputs);
+        } else {
+            xssfEvaluator = ((XSSFWorkbook) wb).getCreationHelper().createFormulaEvaluator();
+            xssfEvaluator.setCompileFormulas(compile);
+            xssfEvaluator.evaluateDependents(inputs);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        wb.close();
+    }
+
+    @Benchmark
+    public void evaluateAll() {
+        changeInputs();
+        if (hssfEvaluator != null) {
+            hssfEvaluator.clearAllCachedResultValues();
+            hssfEvaluator.evaluateAll();
+        } else {
+            xssfEvaluator.clearAllCachedResultValues();
+            xssfEvaluator.evaluateAll();
+        }
+    }
+
+    @Benchmark
+    public Set<Cell> evaluateDependents() {
+        changeInputs();
+        return (hssfEvaluator != null)
+            ? hssfEvaluator.evaluateDependents(inputs)
+            : xssfEvaluator.evaluateDependents(inputs);
+    }
+
+    private void changeInputs() {
+        inputValue++;
+        for (Cell input : inputs) {
+            input.setCellValue(inputValue);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.xssf.binary.XSSFBRecordType;
+import org.apache.poi.xssf.binary.XSSFBSheetHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.TypedSheetContentsHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parses a generated xlsb sheet part of 50000 rows with 10 numeric and shared string cells
+ * and some formatting records with the typed {@link XSSFBSheetHandler}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XSSFBSheetReadBench {
+    private static final int ROWS = 50000;
+    private static final int COLS = 10;
+
+    private byte[] sheetData;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        try (UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream()) {
+            writeRecord(bos, XSSFBRecordType.BrtBeginSheet.getId(), new byte[0]);
+            writeRecord(bos, XSSFBRecordType.BrtWsProp.getId(), new byte[24]);
+            writeRecord(bos, XSSFBRecordType.BrtWsDim.getId(), new byte[16]);
+            for (int c = 0; c < COLS; c++) {
+                writeRecord(bos, XSSFBRecordType.BrtColInfo.getId(), new byte[18]);
+            }
+            writeRecord(bos, XSSFBRecordType.BrtBeginSheetData.getId(), new byte[0]);
+            byte[] rowHdr = new byte[17];
+            byte[] real = new byte[16];
+            byte[] isst = new byte[12];
+            for (int r = 0; r < ROWS; r++) {
+                LittleEndian.putInt(rowHdr, 0, r);
+                writeRecord(bos, XSSFBRecordType.BrtRowHdr.getId(), rowHdr);
+                for (int c = 0; c < COLS; c++) {
+                    if (c % 2 == 0) {
+                        LittleEndian.putInt(real, 0, c);
+                        LittleEndian.putDouble(real, 8, r * 1.25 + c);
+                        writeRecord(bos, XSSFBRecordType.BrtCellReal.getId(), real);
+                    } else {
+                        LittleEndian.putInt(isst, 0, c);
+                        LittleEndian.putInt(isst, 8, r % 1000);
+                        writeRecord(bos, XSSFBRecordType.BrtCellIsst.getId(), isst);
+                    }
+                }
+            }
+            writeRecord(bos, XSSFBRecordType.BrtEndSheetData.getId(), new byte[0]);
+            sheetData = bos.toByteArray();
+        }
+    }
+
+    private static void writeRecord(UnsynchronizedByteArrayOutputStream bos, int id, byte[] data) {
+        if (id < 0x80) {
+            bos.write(id);
+        } else {
+            bos.write((id & 0x7F) | 0x80);
+            bos.write(id >>> 7);
+        }
+        int length = data.length;
+        do {
+            int b = length & 0x7F;
+            length >>>= 7;
+            bos.write(length > 0 ? b | 0x80 : b);
+        } while (length > 0);
+        bos.write(data, 0, data.length);
+    }
+
+    @Benchmark
+    public void typedValues(Blackhole bh) throws IOException {
+        new XSSFBSheetHandler(new UnsynchronizedByteArrayInputStream(sheetData), null, null, null,
+            new TypedSheetContentsHandler() {
+                @Override
+                public void startRow(int rowNum) {}
+
+                @Override
+                public void endRow(int rowNum) {}
+
+                @Override
+                public void numericCell(int rowNum, int column, double value, int styleIndex) {
+                    bh.consume(value);
+                }
+
+                @Override
+                public void booleanCell(int rowNum, int column, boolean value) {
+                    bh.consume(value);
+                }
+
+                @Override
+                public void sharedStringCell(int rowNum, int column, int sstIndex) {
+                    bh.consume(sstIndex);
+                }
+
+                @Override
+                public void stringCell(int rowNum, int column, CharSequence value) {
+                    bh.consume(value);
+                }
+            }, new DataFormatter()).parse();
+    }
+}
@@ -0,0 +1,91 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.benchmark;
+
+import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.xssf.binary.XSSFBSheetWriter;
+import org.apache.poi.xssf.binary.XSSFBWorkbookWriter;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes the same generated sheet as xlsb with {@link XSSFBWorkbookWriter} and as xlsx with {@link SXSSFWorkbook}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XSSFBWriteBench {
+
+    @Param({"100000"})
+    private int rows;
+
+    @Param({"20"})
+    private int cols;
+
+    @Benchmark
+    public void writeXlsb() throws IOException {
+        try (XSSFBWorkbookWriter wb = new XSSFBWorkbookWriter()) {
+            int dateStyle = wb.createNumberFormatStyle("yyyy-mm-dd");
+            XSSFBSheetWriter sheet = wb.createSheet("Sheet0");
+            for (int r = 0; r < rows; r++) {
+                sheet.startRow(r);
+                for (int c = 0; c < cols; c++) {
+                    switch (c % 4) {
+                        case 0:
+                            sheet.writeNumber(c, r * 1.25 + c);
+                            break;
+                        case 1:
+                            sheet.writeString(c, "Text " + (r % 1000) + "-" + c);
+                            break;
+                        case 2:
+                            sheet.writeBoolean(c, (r + c) % 3 == 0);
+                            break;
+                        default:
+                            sheet.writeNumber(c, 40000 + (r % 3650), dateStyle);
+                            break;
+                    }
+                }
+            }
+            wb.write(NULL_OUTPUT_STREAM);
+        }
+    }
+
+    @Benchmark
+    public void writeXlsx() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(null, 100, false, true)) {
+            BenchmarkWorkbooks.fillSheet(wb.createSheet(), rows, cols);
+            wb.write(NULL_OUTPUT_STREAM);
+            wb.dispose();
+        }
+    }
+}
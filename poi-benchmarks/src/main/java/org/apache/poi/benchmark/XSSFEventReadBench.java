@@ -0,0 +1,195 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ColumnarBatchHandler;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetStreamReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.TypedSheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Parses the sheet data of a generated workbook with the event API - with the formatted values of the
+ * {@link SheetContentsHandler}, with the unformatted values of the {@link TypedSheetContentsHandler}
+ * into column batches of the {@link ColumnarBatchHandler} and with the pull-based {@link XSSFSheetStreamReader},
+ * which is also used to read a page of 1000 rows and 6 columns
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XSSFEventReadBench {
+
+    private static final BitSet PAGE_COLUMNS = new BitSet();
+    static {
+        PAGE_COLUMNS.set(0, 6);
+    }
+
+    private OPCPackage pkg;
+    private StylesTable styles;
+    private ReadOnlySharedStringsTable strings;
+    private byte[] sheetData;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            BenchmarkWorkbooks.fillSheet(wb.createSheet(), 20000, 20);
+            pkg = OPCPackage.open(new UnsynchronizedByteArrayInputStream(BenchmarkWorkbooks.toByteArray(wb)));
+        }
+        XSSFReader reader = new XSSFReader(pkg);
+        styles = reader.getStylesTable();
+        strings = new ReadOnlySharedStringsTable(pkg);
+        try (InputStream is = reader.getSheetsData().next()) {
+            sheetData = IOUtils.toByteArray(is);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pkg.revert();
+    }
+
+    @Benchmark
+    public void formattedValues(Blackhole bh) throws IOException, SAXException, ParserConfigurationException {
+        parse(new XSSFSheetXMLHandler(styles, null, strings, new SheetContentsHandler() {
+            @Override
+            public void startRow(int rowNum) {}
+
+            @Override
+            public void endRow(int rowNum) {}
+
+            @Override
+            public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+                bh.consume(cellReference);
+                bh.consume(formattedValue);
+            }
+        }, new DataFormatter(), false));
+    }
+
+    @Benchmark
+    public void typedValues(Blackhole bh) throws IOException, SAXException, ParserConfigurationException {
+        parse(new XSSFSheetXMLHandler(styles, null, strings, new TypedSheetContentsHandler() {
+            @Override
+            public void startRow(int rowNum) {}
+
+            @Override
+            public void endRow(int rowNum) {}
+
+            @Override
+            public void numericCell(int rowNum, int column, double value, int styleIndex) {
+                bh.consume(value);
+            }
+
+            @Override
+            public void booleanCell(int rowNum, int column, boolean value) {
+                bh.consume(value);
+            }
+
+            @Override
+            public void sharedStringCell(int rowNum, int column, int sstIndex) {
+                bh.consume(sstIndex);
+            }
+
+            @Override
+            public void stringCell(int rowNum, int column, CharSequence value) {
+                bh.consume(value);
+            }
+        }, new DataFormatter(), false));
+    }
+
+    @Benchmark
+    public void columnarBatches(Blackhole bh) throws IOException, SAXException, ParserConfigurationException {
+        ColumnarBatchHandler handler = new ColumnarBatchHandler(strings, ColumnarBatchHandler.DEFAULT_BATCH_SIZE,
+            batch -> bh.consume(batch.getColumn(0).getDoubles()));
+        parse(new XSSFSheetXMLHandler(styles, null, strings, handler, new DataFormatter(), false));
+    }
+
+    @Benchmark
+    public void streamReader(Blackhole bh) throws IOException {
+        try (XSSFSheetStreamReader reader = new XSSFSheetStreamReader(new UnsynchronizedByteArrayInputStream(sheetData), strings)) {
+            consume(reader, bh);
+        }
+    }
+
+    @Benchmark
+    public void streamReaderPage(Blackhole bh) throws IOException {
+        try (XSSFSheetStreamReader reader = new XSSFSheetStreamReader(new UnsynchronizedByteArrayInputStream(sheetData), strings)) {
+            reader.setRowRange(5000, 5999);
+            reader.setColumns(PAGE_COLUMNS);
+            consume(reader, bh);
+        }
+    }
+
+    private static void consume(XSSFSheetStreamReader reader, Blackhole bh) throws IOException {
+        while (reader.nextRow()) {
+            while (reader.nextCell()) {
+                switch (reader.getCellType()) {
+                    case NUMERIC:
+                        bh.consume(reader.getNumericCellValue());
+                        break;
+                    case BOOLEAN:
+                        bh.consume(reader.getBooleanCellValue());
+                        break;
+                    default:
+                        bh.consume(reader.getSharedStringIndex());
+                        break;
+                }
+            }
+        }
+    }
+
+    private void parse(XSSFSheetXMLHandler handler) throws IOException, SAXException, ParserConfigurationException {
+        XMLReader parser = XMLHelper.newXMLReader();
+        parser.setContentHandler(handler);
+        parser.parse(new InputSource(new UnsynchronizedByteArrayInputStream(sheetData)));
+    }
+}
@@ -19,16 +19,21 @@ package org.apache.poi.xssf.binary;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import com.zaxxer.sparsebits.SparseBitSet;
 import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.Internal;
-import org.apache.poi.util.LittleEndianInputStream;
 
 /**
  * Experimental parser for Microsoft's ooxml xlsb format.
  * Not thread safe, obviously.  Need to create a new one
  * for each thread.
+ * <p>
+ * The records are read into a reused buffer window. Subclasses, which override
+ * {@link #handleRecord(int, byte[], int, int)}, decode the records in place,
+ * the others get a copy of each record via {@link #handleRecord(int, byte[])}.
+ * Records, which are not in the record set of the parser, are skipped without copying.
  *
  * @since 3.16-beta3
  */
@@ -39,9 +44,15 @@ public abstract class XSSFBParser {
     private static final int DEFAULT_MAX_RECORD_LENGTH = 1_000_000;
     private static int MAX_RECORD_LENGTH = DEFAULT_MAX_RECORD_LENGTH;
 
-    private final LittleEndianInputStream is;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream is;
     private final SparseBitSet records;
 
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+
     /**
      * @param length the max record length allowed for XSSFBParser
      */
@@ -57,7 +68,7 @@ public abstract class XSSFBParser {
     }
 
     public XSSFBParser(InputStream is) {
-        this.is = new LittleEndianInputStream(is);
+        this.is = is;
         records = null;
     }
 
@@ -67,39 +78,38 @@ public abstract class XSSFBParser {
      * @param bitSet call {@link #handleRecord(int, byte[])} only on those records in this bitSet
      */
     protected XSSFBParser(InputStream is, SparseBitSet bitSet) {
-        this.is = new LittleEndianInputStream(is);
+        this.is = is;
         records = bitSet;
     }
 
     public void parse() throws IOException {
 
         while (true) {
-            int bInt = is.read();
-            if (bInt == -1) {
+            if (!fill(1)) {
                 return;
             }
-            readNext((byte) bInt);
+            readNext(buf[pos++]);
         }
     }
 
     private void readNext(byte b1) throws IOException {
-        int recordId = 0;
+        int recordId;
 
         //if highest bit == 1
         if ((b1 >> 7 & 1) == 1) {
-            byte b2 = is.readByte();
+            byte b2 = readByte();
             b1 &= ~(1<<7); //unset highest bit
             b2 &= ~(1<<7); //unset highest bit (if it exists?)
             recordId = ((int)b2 << 7)+(int)b1;
         } else {
-            recordId = (int)b1;
+            recordId = b1;
         }
 
         long recordLength = 0;
         int i = 0;
         boolean halt = false;
         while (i < 4 && ! halt) {
-            byte b = is.readByte();
+            byte b = readByte();
             halt = (b >> 7 & 1) == 0; //if highest bit !=1 then continue
             b &= ~(1<<7);
             recordLength += (int)b << (i*7); //multiply by 128^i
@@ -107,24 +117,93 @@ public abstract class XSSFBParser {
 
         }
         if (records == null || records.get(recordId)) {
-            byte[] buff = IOUtils.safelyAllocate(recordLength, MAX_RECORD_LENGTH);
-            is.readFully(buff);
-            handleRecord(recordId, buff);
+            IOUtils.safelyAllocateCheck(recordLength, MAX_RECORD_LENGTH);
+            int length = (int)recordLength;
+            if (!fill(length)) {
+                throw new XSSFBParseException("End of file reached before expected.\t"+
+                    "Tried to read "+recordLength + ", but only "+(limit - pos)+" bytes are left");
+            }
+            int offset = pos;
+            // advance first, so the record can't be read twice, if the handler throws an exception
+            pos += length;
+            handleRecord(recordId, buf, offset, length);
         } else {
-            long length = IOUtils.skipFully(is, recordLength);
-            if (length != recordLength) {
+            skip(recordLength);
+        }
+    }
+
+    private byte readByte() throws IOException {
+        if (!fill(1)) {
+            throw new XSSFBParseException("End of file reached before expected while reading a record header");
+        }
+        return buf[pos++];
+    }
+
+    /**
+     * Ensures that at least {@code length} bytes are available in the buffer window,
+     * which is compacted and grown if necessary
+     *
+     * @return {@code false}, if the end of the stream was reached before
+     */
+    private boolean fill(int length) throws IOException {
+        if (limit - pos >= length) {
+            return true;
+        }
+        if (length > buf.length) {
+            buf = Arrays.copyOfRange(buf, pos, pos + Math.max(length, 2 * buf.length));
+            limit -= pos;
+            pos = 0;
+        } else if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while (limit < length) {
+            int read = is.read(buf, limit, buf.length - limit);
+            if (read == -1) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    private void skip(long length) throws IOException {
+        int buffered = (int)Math.min(length, limit - pos);
+        pos += buffered;
+        long remaining = length - buffered;
+        if (remaining > 0) {
+            long skipped = IOUtils.skipFully(is, remaining);
+            if (skipped != remaining) {
                 throw new XSSFBParseException("End of file reached before expected.\t"+
-                "Tried to skip "+recordLength + ", but only skipped "+length);
+                "Tried to skip "+length + ", but only skipped "+(buffered + Math.max(skipped, 0)));
             }
         }
     }
 
+    /**
+     * Handles a record, which is decoded in place from the buffer window of the parser.
+     * The data is only valid during the call and must not be modified.
+     * <p>
+     * The default implementation copies the record for {@link #handleRecord(int, byte[])}.
+     *
+     * @param recordType the record id
+     * @param data the buffer window
+     * @param offset the offset of the record data in the buffer
+     * @param length the length of the record data
+     * @since POI 5.2.3
+     */
+    public void handleRecord(int recordType, byte[] data, int offset, int length) throws XSSFBParseException {
+        handleRecord(recordType, Arrays.copyOfRange(data, offset, offset + length));
+    }
+
     //It hurts, hurts, hurts to create a new byte array for every record.
     //However, on a large Excel spreadsheet, this parser was 1/3 faster than
     //the ooxml sax parser (5 seconds for xssfb and 7.5 seconds for xssf.
     //The code is far cleaner to have the parser read all
     //of the data rather than having every component promise that it will read
     //the correct amount.
+    //Performance critical parsers override handleRecord(int, byte[], int, int) instead.
     abstract public void handleRecord(int recordType, byte[] data) throws XSSFBParseException;
 
 }
@@ -0,0 +1,143 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.poi.util.LittleEndian;
+
+/**
+ * Serializes BIFF12 records, i.e. the variable length record type and size
+ * followed by the record data, as read by {@link XSSFBParser}.
+ * <p>
+ * The record data is collected in a reusable buffer between {@link #startRecord(int)}
+ * and {@link #endRecord()}, so a record is passed to the stream with a single write.
+ *
+ * @since POI 5.2.3
+ */
+final class XSSFBRecordWriter {
+    /** the maximum length of the record header - 2 bytes for the type and 4 bytes for the size */
+    private static final int HEADER_SIZE = 6;
+
+    private final OutputStream out;
+    private byte[] buffer = new byte[256];
+    private int position = HEADER_SIZE;
+    private int recordType = -1;
+
+    XSSFBRecordWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    void startRecord(int recordType) {
+        if (this.recordType != -1) {
+            throw new IllegalStateException("Record " + this.recordType + " is not finished");
+        }
+        this.recordType = recordType;
+        position = HEADER_SIZE;
+    }
+
+    void putByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte)value;
+    }
+
+    void putShort(int value) {
+        ensureCapacity(2);
+        LittleEndian.putShort(buffer, position, (short)value);
+        position += 2;
+    }
+
+    void putInt(int value) {
+        ensureCapacity(4);
+        LittleEndian.putInt(buffer, position, value);
+        position += 4;
+    }
+
+    void putDouble(double value) {
+        ensureCapacity(8);
+        LittleEndian.putDouble(buffer, position, value);
+        position += 8;
+    }
+
+    /**
+     * Writes an XLWideString, i.e. the number of characters followed by the UTF-16LE characters
+     */
+    void putWideString(String value) {
+        int length = value.length();
+        ensureCapacity(4 + 2 * length);
+        LittleEndian.putInt(buffer, position, length);
+        position += 4;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            buffer[position++] = (byte)c;
+            buffer[position++] = (byte)(c >>> 8);
+        }
+    }
+
+    void endRecord() throws IOException {
+        if (recordType == -1) {
+            throw new IllegalStateException("No record was started");
+        }
+        int size = position - HEADER_SIZE;
+        int headerSize = varintSize(recordType) + varintSize(size);
+        int start = HEADER_SIZE - headerSize;
+        int pos = putVarint(start, recordType);
+        putVarint(pos, size);
+        out.write(buffer, start, position - start);
+        recordType = -1;
+    }
+
+    /**
+     * Writes a record without data, e.g. the begin and end markers of the collections
+     */
+    void writeRecord(int recordType) throws IOException {
+        startRecord(recordType);
+        endRecord();
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    private int putVarint(int pos, int value) {
+        while (value >= 0x80) {
+            buffer[pos++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte)value;
+        return pos;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while (value >= 0x80) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (position + bytes > buffer.length) {
+            byte[] newBuffer = new byte[Math.max(buffer.length * 2, position + bytes)];
+            System.arraycopy(buffer, 0, newBuffer, 0, position);
+            buffer = newBuffer;
+        }
+    }
+}
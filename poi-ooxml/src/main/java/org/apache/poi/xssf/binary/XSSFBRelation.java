@@ -48,6 +48,12 @@ public class XSSFBRelation extends POIXMLRelation {
             "/xl/styles.bin"
     );
 
+    static final XSSFBRelation WORKSHEET_BINARY = new XSSFBRelation(
+            "application/vnd.ms-excel.worksheet",
+            XSSFRelation.WORKSHEET.getRelation(),
+            "/xl/worksheets/sheet#.bin"
+    );
+
     private XSSFBRelation(String type, String rel, String defaultName) {
         super(type, rel, defaultName);
     }
@@ -22,6 +22,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.zaxxer.sparsebits.SparseBitSet;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.openxml4j.opc.PackagePart;
 import org.apache.poi.ss.usermodel.RichTextString;
@@ -37,6 +38,12 @@ import org.xml.sax.SAXException;
 @Internal
 public class XSSFBSharedStringsTable implements SharedStrings {
 
+    private static final SparseBitSet SST_RECORDS = new SparseBitSet();
+    static {
+        SST_RECORDS.set(XSSFBRecordType.BrtBeginSst.getId());
+        SST_RECORDS.set(XSSFBRecordType.BrtSstItem.getId());
+    }
+
     /**
      * An integer representing the total count of strings in the workbook. This count does not
      * include any numbers, it counts only the total of text strings in the workbook.
@@ -119,21 +126,26 @@ public class XSSFBSharedStringsTable implements SharedStrings {
     private class SSTBinaryReader extends XSSFBParser {
 
         SSTBinaryReader(InputStream is) {
-            super(is);
+            super(is, SST_RECORDS);
         }
 
         @Override
         public void handleRecord(int recordType, byte[] data) throws XSSFBParseException {
+            handleRecord(recordType, data, 0, data.length);
+        }
+
+        @Override
+        public void handleRecord(int recordType, byte[] data, int offset, int length) throws XSSFBParseException {
             XSSFBRecordType type = XSSFBRecordType.lookup(recordType);
 
             switch (type) {
                 case BrtSstItem:
-                    XSSFBRichStr rstr = XSSFBRichStr.build(data, 0);
+                    XSSFBRichStr rstr = XSSFBRichStr.build(data, offset);
                     strings.add(rstr.getString());
                     break;
                 case BrtBeginSst:
-                    count = XSSFBUtils.castToInt(LittleEndian.getUInt(data,0));
-                    uniqueCount = XSSFBUtils.castToInt(LittleEndian.getUInt(data, 4));
+                    count = XSSFBUtils.castToInt(LittleEndian.getUInt(data, offset));
+                    uniqueCount = XSSFBUtils.castToInt(LittleEndian.getUInt(data, offset + 4));
                     break;
             }
 
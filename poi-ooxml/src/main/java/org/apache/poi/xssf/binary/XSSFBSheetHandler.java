@@ -19,15 +19,19 @@ package org.apache.poi.xssf.binary;
 
 
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Queue;
 
+import com.zaxxer.sparsebits.SparseBitSet;
 import org.apache.poi.ss.usermodel.BuiltinFormats;
 import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.FormulaError;
 import org.apache.poi.ss.usermodel.RichTextString;
 import org.apache.poi.ss.util.CellAddress;
 import org.apache.poi.util.Internal;
 import org.apache.poi.util.LittleEndian;
 import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.TypedSheetContentsHandler;
 import org.apache.poi.xssf.model.SharedStrings;
 import org.apache.poi.xssf.usermodel.XSSFComment;
 
@@ -39,8 +43,22 @@ public class XSSFBSheetHandler extends XSSFBParser {
 
     private static final int CHECK_ALL_ROWS = -1;
 
+    /** the handled records - the others, e.g. the formatting records, are skipped by the parser */
+    private static final SparseBitSet SHEET_RECORDS = new SparseBitSet();
+    static {
+        for (XSSFBRecordType type : new XSSFBRecordType[]{
+            XSSFBRecordType.BrtRowHdr, XSSFBRecordType.BrtCellIsst, XSSFBRecordType.BrtCellSt,
+            XSSFBRecordType.BrtCellRk, XSSFBRecordType.BrtCellReal, XSSFBRecordType.BrtCellBool,
+            XSSFBRecordType.BrtCellError, XSSFBRecordType.BrtCellBlank, XSSFBRecordType.BrtFmlaString,
+            XSSFBRecordType.BrtFmlaNum, XSSFBRecordType.BrtFmlaError, XSSFBRecordType.BrtEndSheetData,
+            XSSFBRecordType.BrtBeginHeaderFooter}) {
+            SHEET_RECORDS.set(type.getId());
+        }
+    }
+
     private final SharedStrings stringsTable;
     private final XSSFSheetXMLHandler.SheetContentsHandler handler;
+    private final TypedSheetContentsHandler typedHandler;
     private final XSSFBStylesTable styles;
     private final XSSFBCommentsTable comments;
     private final DataFormatter dataFormatter;
@@ -61,22 +79,53 @@ public class XSSFBSheetHandler extends XSSFBParser {
                              XSSFSheetXMLHandler.SheetContentsHandler sheetContentsHandler,
                              DataFormatter dataFormatter,
                              boolean formulasNotResults) {
-        super(is);
+        super(is, SHEET_RECORDS);
         this.styles = styles;
         this.comments = comments;
         this.stringsTable = strings;
         this.handler = sheetContentsHandler;
+        this.typedHandler = null;
         this.dataFormatter = dataFormatter;
         this.formulasNotResults = formulasNotResults;
     }
 
+    /**
+     * Creates a handler, which reports the cells with their unformatted, typed values
+     * like {@link XSSFSheetXMLHandler} does for xlsx files. The formulas of xlsb files
+     * are not decoded, so formula cells are reported with their cached results.
+     *
+     * @param comments the comments or {@code null}
+     * @param dataFormatter the formatter for the columns, which opt into formatted values
+     * @since POI 5.2.3
+     */
+    public XSSFBSheetHandler(InputStream is,
+                             XSSFBStylesTable styles,
+                             XSSFBCommentsTable comments,
+                             SharedStrings strings,
+                             TypedSheetContentsHandler typedContentsHandler,
+                             DataFormatter dataFormatter) {
+        super(is, SHEET_RECORDS);
+        this.styles = styles;
+        this.comments = comments;
+        this.stringsTable = strings;
+        this.handler = null;
+        this.typedHandler = typedContentsHandler;
+        this.dataFormatter = dataFormatter;
+        this.formulasNotResults = false;
+    }
+
     @Override
     public void handleRecord(int id, byte[] data) throws XSSFBParseException {
+        handleRecord(id, data, 0, data.length);
+    }
+
+    @Override
+    public void handleRecord(int id, byte[] data, int offset, int length) throws XSSFBParseException {
         XSSFBRecordType type = XSSFBRecordType.lookup(id);
 
         switch(type) {
             case BrtRowHdr:
-                int rw = XSSFBUtils.castToInt(LittleEndian.getUInt(data, 0));
+                int rw = XSSFBUtils.castToInt(LittleEndian.getUInt(data, offset));
                 if (rw > 0x00100000) {//could make sure this is larger than currentRow, according to spec?
                     throw new XSSFBParseException("Row number beyond allowable range: "+rw);
                 }
@@ -85,49 +134,52 @@ public class XSSFBSheetHandler extends XSSFBParser {
                 startRow(currentRow);
                 break;
             case BrtCellIsst:
-                handleBrtCellIsst(data);
+                handleBrtCellIsst(data, offset);
                 break;
             case BrtCellSt: //TODO: needs test
-                handleCellSt(data);
+                handleCellSt(data, offset);
                 break;
             case BrtCellRk:
-                handleCellRk(data);
+                handleCellRk(data, offset);
                 break;
             case BrtCellReal:
-                handleCellReal(data);
+                handleCellReal(data, offset);
                 break;
             case BrtCellBool:
-                handleBoolean(data);
+                handleBoolean(data, offset);
                 break;
             case BrtCellError:
-                handleCellError(data);
+                handleCellError(data, offset);
                 break;
             case BrtCellBlank:
-                beforeCellValue(data);//read cell info and check for missing comments
+                beforeCellValue(data, offset);//read cell info and check for missing comments
                 break;
             case BrtFmlaString:
-                handleFmlaString(data);
+                handleFmlaString(data, offset);
                 break;
             case BrtFmlaNum:
-                handleFmlaNum(data);
+                handleFmlaNum(data, offset);
                 break;
             case BrtFmlaError:
-                handleFmlaError(data);
+                handleFmlaError(data, offset);
                 break;
                 //TODO: All the PCDI and PCDIA
             case BrtEndSheetData:
                 checkMissedComments(CHECK_ALL_ROWS);
                 endRow(lastStartedRow);
+                if (typedHandler != null) {
+                    typedHandler.endSheet();
+                }
                 break;
             case BrtBeginHeaderFooter:
-                handleHeaderFooter(data);
+                handleHeaderFooter(data, offset, length);
                 break;
         }
     }
 
 
-    private void beforeCellValue(byte[] data) {
-        XSSFBCellHeader.parse(data, 0, currentRow, cellBuffer);
+    private void beforeCellValue(byte[] data, int offset) {
+        XSSFBCellHeader.parse(data, offset, currentRow, cellBuffer);
         checkMissedComments(currentRow, cellBuffer.getColNum());
     }
 
@@ -140,56 +192,121 @@ public class XSSFBSheetHandler extends XSSFBParser {
         handler.cell(cellAddress.formatAsString(), formattedValue, comment);
     }
 
-    private void handleFmlaNum(byte[] data) {
-        beforeCellValue(data);
+    /**
+     * Reports the comment of the current cell in typed mode
+     */
+    private void handleTypedComment() {
+        if (comments != null) {
+            XSSFBComment comment = comments.get(new CellAddress(currentRow, cellBuffer.getColNum()));
+            if (comment != null) {
+                typedHandler.comment(currentRow, cellBuffer.getColNum(), comment);
+            }
+        }
+    }
+
+    private void handleNumber(double val) {
+        if (typedHandler == null) {
+            handleCellValue(formatVal(val, cellBuffer.getStyleIdx()));
+            return;
+        }
+        int col = cellBuffer.getColNum();
+        if (typedHandler.isFormatted(col)) {
+            typedHandler.formattedCell(currentRow, col, formatVal(val, cellBuffer.getStyleIdx()));
+        } else {
+            typedHandler.numericCell(currentRow, col, val, cellBuffer.getStyleIdx());
+        }
+        handleTypedComment();
+    }
+
+    private void handleString(StringBuilder value) {
+        if (typedHandler == null) {
+            handleCellValue(value.toString());
+            return;
+        }
+        int col = cellBuffer.getColNum();
+        if (typedHandler.isFormatted(col)) {
+            typedHandler.formattedCell(currentRow, col, value.toString());
+        } else {
+            typedHandler.stringCell(currentRow, col, value);
+        }
+        handleTypedComment();
+    }
+
+    private void handleError(byte[] data, int offset) {
+        if (typedHandler == null) {
+            //TODO, read byte to figure out the type of error
+            handleCellValue("ERROR");
+            return;
+        }
+        int col = cellBuffer.getColNum();
+        byte code = data[offset + XSSFBCellHeader.length];
+        String error = FormulaError.isValidCode(code) ? FormulaError.forInt(code).getString() : "ERROR";
+        if (typedHandler.isFormatted(col)) {
+            typedHandler.formattedCell(currentRow, col, error);
+        } else {
+            typedHandler.errorCell(currentRow, col, error);
+        }
+        handleTypedComment();
+    }
+
+    private void handleFmlaNum(byte[] data, int offset) {
+        beforeCellValue(data, offset);
         //xNum
-        double val = LittleEndian.getDouble(data, XSSFBCellHeader.length);
-        handleCellValue(formatVal(val, cellBuffer.getStyleIdx()));
+        double val = LittleEndian.getDouble(data, offset + XSSFBCellHeader.length);
+        handleNumber(val);
     }
 
-    private void handleCellSt(byte[] data) {
-        beforeCellValue(data);
+    private void handleCellSt(byte[] data, int offset) {
+        beforeCellValue(data, offset);
         xlWideStringBuffer.setLength(0);
-        XSSFBUtils.readXLWideString(data, XSSFBCellHeader.length, xlWideStringBuffer);
-        handleCellValue(xlWideStringBuffer.toString());
+        XSSFBUtils.readXLWideString(data, offset + XSSFBCellHeader.length, xlWideStringBuffer);
+        handleString(xlWideStringBuffer);
     }
 
-    private void handleFmlaString(byte[] data) {
-        beforeCellValue(data);
+    private void handleFmlaString(byte[] data, int offset) {
+        beforeCellValue(data, offset);
         xlWideStringBuffer.setLength(0);
-        XSSFBUtils.readXLWideString(data, XSSFBCellHeader.length, xlWideStringBuffer);
-        handleCellValue(xlWideStringBuffer.toString());
+        XSSFBUtils.readXLWideString(data, offset + XSSFBCellHeader.length, xlWideStringBuffer);
+        handleString(xlWideStringBuffer);
     }
 
-    private void handleCellError(byte[] data) {
-        beforeCellValue(data);
-        //TODO, read byte to figure out the type of error
-        handleCellValue("ERROR");
+    private void handleCellError(byte[] data, int offset) {
+        beforeCellValue(data, offset);
+        handleError(data, offset);
     }
 
-    private void handleFmlaError(byte[] data) {
-        beforeCellValue(data);
-        //TODO, read byte to figure out the type of error
-        handleCellValue("ERROR");
+    private void handleFmlaError(byte[] data, int offset) {
+        beforeCellValue(data, offset);
+        handleError(data, offset);
     }
 
-    private void handleBoolean(byte[] data) {
-        beforeCellValue(data);
-        String formattedVal = (data[XSSFBCellHeader.length] == 1) ? "TRUE" : "FALSE";
-        handleCellValue(formattedVal);
+    private void handleBoolean(byte[] data, int offset) {
+        beforeCellValue(data, offset);
+        boolean val = data[offset + XSSFBCellHeader.length] == 1;
+        if (typedHandler == null) {
+            handleCellValue(val ? "TRUE" : "FALSE");
+            return;
+        }
+        int col = cellBuffer.getColNum();
+        if (typedHandler.isFormatted(col)) {
+            typedHandler.formattedCell(currentRow, col, val ? "TRUE" : "FALSE");
+        } else {
+            typedHandler.booleanCell(currentRow, col, val);
+        }
+        handleTypedComment();
     }
 
-    private void handleCellReal(byte[] data) {
-        beforeCellValue(data);
+    private void handleCellReal(byte[] data, int offset) {
+        beforeCellValue(data, offset);
         //xNum
-        double val = LittleEndian.getDouble(data, XSSFBCellHeader.length);
-        handleCellValue(formatVal(val, cellBuffer.getStyleIdx()));
+        double val = LittleEndian.getDouble(data, offset + XSSFBCellHeader.length);
+        handleNumber(val);
     }
 
-    private void handleCellRk(byte[] data) {
-        beforeCellValue(data);
-        double val = rkNumber(data, XSSFBCellHeader.length);
-        handleCellValue(formatVal(val, cellBuffer.getStyleIdx()));
+    private void handleCellRk(byte[] data, int offset) {
+        beforeCellValue(data, offset);
+        double val = rkNumber(data, offset + XSSFBCellHeader.length);
+        handleNumber(val);
     }
 
     private String formatVal(double val, int styleIdx) {
@@ -206,16 +323,26 @@ public class XSSFBSheetHandler extends XSSFBParser {
         return dataFormatter.formatRawCellContents(val, styleIndex, formatString);
     }
 
-    private void handleBrtCellIsst(byte[] data) {
-        beforeCellValue(data);
-        int idx = XSSFBUtils.castToInt(LittleEndian.getUInt(data, XSSFBCellHeader.length));
-        RichTextString rtss = stringsTable.getItemAt(idx);
-        handleCellValue(rtss.getString());
+    private void handleBrtCellIsst(byte[] data, int offset) {
+        beforeCellValue(data, offset);
+        int idx = XSSFBUtils.castToInt(LittleEndian.getUInt(data, offset + XSSFBCellHeader.length));
+        if (typedHandler == null) {
+            RichTextString rtss = stringsTable.getItemAt(idx);
+            handleCellValue(rtss.getString());
+            return;
+        }
+        int col = cellBuffer.getColNum();
+        if (typedHandler.isFormatted(col)) {
+            typedHandler.formattedCell(currentRow, col, stringsTable.getItemAt(idx).getString());
+        } else {
+            typedHandler.sharedStringCell(currentRow, col, idx);
+        }
+        handleTypedComment();
     }
 
 
-    private void handleHeaderFooter(byte[] data) {
-        XSSFBHeaderFooters headerFooter = XSSFBHeaderFooters.parse(data);
+    private void handleHeaderFooter(byte[] data, int offset, int length) {
+        XSSFBHeaderFooters headerFooter = XSSFBHeaderFooters.parse(Arrays.copyOfRange(data, offset, offset + length));
         outputHeaderFooter(headerFooter.getHeader());
         outputHeaderFooter(headerFooter.getFooter());
         outputHeaderFooter(headerFooter.getHeaderEven());
@@ -227,6 +354,10 @@ public class XSSFBSheetHandler extends XSSFBParser {
     private void outputHeaderFooter(XSSFBHeaderFooter headerFooter) {
         String text = headerFooter.getString();
         if (text != null && !text.trim().isEmpty()) {
+            if (typedHandler != null) {
+                typedHandler.headerFooter(text, headerFooter.isHeader(), headerFooter.getHeaderFooterTypeLabel());
+                return;
+            }
             handler.headerFooter(text, headerFooter.isHeader(), headerFooter.getHeaderFooterTypeLabel());
         }
     }
@@ -285,7 +416,11 @@ public class XSSFBSheetHandler extends XSSFBParser {
         if (lastStartedRow != lastEndedRow) {
             endRow(lastStartedRow);
         }
-        handler.startRow(row);
+        if (typedHandler != null) {
+            typedHandler.startRow(row);
+        } else {
+            handler.startRow(row);
+        }
         lastStartedRow = row;
     }
 
@@ -293,11 +428,19 @@ public class XSSFBSheetHandler extends XSSFBParser {
         if (lastEndedRow == row) {
             return;
         }
-        handler.endRow(row);
+        if (typedHandler != null) {
+            typedHandler.endRow(row);
+        } else {
+            handler.endRow(row);
+        }
         lastEndedRow = row;
     }
 
     private void dumpEmptyCellComment(CellAddress cellAddress, XSSFBComment comment) {
+        if (typedHandler != null) {
+            typedHandler.comment(cellAddress.getRow(), cellAddress.getColumn(), comment);
+            return;
+        }
         handler.cell(cellAddress.formatAsString(), null, comment);
     }
 
@@ -0,0 +1,303 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.TempFile;
+
+/**
+ * Streaming writer of a single xlsb worksheet, which is created by
+ * {@link XSSFBWorkbookWriter#createSheet(String)}.
+ * <p>
+ * Like the sheets of {@link org.apache.poi.xssf.streaming.SXSSFWorkbook}, the cells
+ * are not kept in memory, but directly serialized to a temporary file in the order they
+ * are written. Therefore the rows need to be started in ascending order and the cells of
+ * a row need to be written with ascending column indexes.
+ * <p>
+ * The cells are written with the values only - formulas are not supported.
+ * Dates are written as numbers, see {@link DateUtil#getExcelDate(java.util.Date)},
+ * with a date format style from {@link XSSFBWorkbookWriter#createNumberFormatStyle(String)}.
+ *
+ * @since POI 5.2.3
+ */
+@Beta
+public final class XSSFBSheetWriter {
+    private static final Logger LOG = LogManager.getLogger(XSSFBSheetWriter.class);
+
+    private static final int MAX_ROW = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+    private static final int MAX_COLUMN = SpreadsheetVersion.EXCEL2007.getLastColumnIndex();
+    private static final int MAX_TEXT_LENGTH = SpreadsheetVersion.EXCEL2007.getMaxTextLength();
+
+    /** the smallest and largest integer, which can be stored in a RkNumber */
+    private static final int MIN_RK_INT = -(1 << 29);
+    private static final int MAX_RK_INT = (1 << 29) - 1;
+
+    /** the default row height of 15 points in twips */
+    private static final int DEFAULT_ROW_HEIGHT = 300;
+
+    private final XSSFBWorkbookWriter workbook;
+    private final String sheetName;
+    private final File tempFile;
+    private final OutputStream stream;
+    private final XSSFBRecordWriter out;
+
+    private int currentRow = -1;
+    private int lastColumn = -1;
+    private int firstRow = -1;
+    private int firstColumn = Integer.MAX_VALUE;
+    private int maxColumn = -1;
+    private boolean closed;
+
+    XSSFBSheetWriter(XSSFBWorkbookWriter workbook, String sheetName) throws IOException {
+        this.workbook = workbook;
+        this.sheetName = sheetName;
+        this.tempFile = TempFile.createTempFile("poi-xssfb-sheet", ".bin");
+        this.stream = new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()));
+        this.out = new XSSFBRecordWriter(stream);
+    }
+
+    /**
+     * @return the name of the sheet
+     */
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    /**
+     * @return the 0-based index of the last started row or -1, if no row was started
+     */
+    public int getLastRowNum() {
+        return currentRow;
+    }
+
+    /**
+     * Starts a new row. The following cells are written to this row.
+     *
+     * @param rowNum the 0-based row index, which needs to be greater than the index of the previous row
+     * @throws IllegalArgumentException if the row index is out of range or not ascending
+     */
+    public void startRow(int rowNum) throws IOException {
+        checkOpen();
+        if (rowNum < 0 || rowNum > MAX_ROW) {
+            throw new IllegalArgumentException("Invalid row number (" + rowNum
+                    + ") outside allowable range (0.." + MAX_ROW + ")");
+        }
+        if (rowNum <= currentRow) {
+            throw new IllegalArgumentException("Attempting to write a row[" + rowNum + "] " +
+                    "in the range [0," + currentRow + "] that is already written to disk.");
+        }
+        if (firstRow == -1) {
+            firstRow = rowNum;
+        }
+        currentRow = rowNum;
+        lastColumn = -1;
+
+        // BrtRowHdr with the default style and height and without column spans
+        out.startRecord(XSSFBRecordType.BrtRowHdr.getId());
+        out.putInt(rowNum);
+        out.putInt(0);
+        out.putShort(DEFAULT_ROW_HEIGHT);
+        out.putByte(0);
+        out.putByte(0);
+        out.putByte(0);
+        out.putInt(0);
+        out.endRecord();
+    }
+
+    public void writeNumber(int column, double value) throws IOException {
+        writeNumber(column, value, 0);
+    }
+
+    /**
+     * Writes a numeric cell. Integers and numbers, which don't need the full precision,
+     * are stored in the compact RkNumber form.
+     * Like {@link org.apache.poi.xssf.usermodel.XSSFCell#setCellValue(double)}, infinite values
+     * are written as #DIV/0! and NaN as #NUM! error.
+     *
+     * @param column the 0-based column index
+     * @param value the value
+     * @param style the style index returned by {@link XSSFBWorkbookWriter#createNumberFormatStyle(String)}
+     */
+    public void writeNumber(int column, double value, int style) throws IOException {
+        if (Double.isInfinite(value)) {
+            writeError(column, FormulaError.DIV0, style);
+            return;
+        }
+        if (Double.isNaN(value)) {
+            writeError(column, FormulaError.NUM, style);
+            return;
+        }
+        long bits = Double.doubleToLongBits(value);
+        int intValue = (int)value;
+        if (intValue == value && intValue >= MIN_RK_INT && intValue <= MAX_RK_INT && bits != Long.MIN_VALUE) {
+            // 30-bit signed integer with the fInt flag
+            startCell(column, style, XSSFBRecordType.BrtCellRk);
+            out.putInt((intValue << 2) | 2);
+        } else if ((bits & 0x3_FFFF_FFFFL) == 0) {
+            // the 30 most significant bits of the double
+            startCell(column, style, XSSFBRecordType.BrtCellRk);
+            out.putInt((int)(bits >>> 32));
+        } else {
+            startCell(column, style, XSSFBRecordType.BrtCellReal);
+            out.putDouble(value);
+        }
+        out.endRecord();
+    }
+
+    public void writeString(int column, String value) throws IOException {
+        writeString(column, value, 0);
+    }
+
+    /**
+     * Writes a string cell. Depending on the workbook settings, the string is written to the
+     * shared strings table or inline.
+     *
+     * @param column the 0-based column index
+     * @param value the value, {@code null} writes a blank cell
+     * @param style the style index returned by {@link XSSFBWorkbookWriter#createNumberFormatStyle(String)}
+     * @throws IllegalArgumentException if the text exceeds the maximum length of a cell
+     */
+    public void writeString(int column, String value, int style) throws IOException {
+        if (value == null) {
+            writeBlank(column, style);
+            return;
+        }
+        if (value.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("The maximum length of cell contents (text) is " +
+                    MAX_TEXT_LENGTH + " characters");
+        }
+        if (workbook.isUsingSharedStrings()) {
+            startCell(column, style, XSSFBRecordType.BrtCellIsst);
+            out.putInt(workbook.addSharedString(value));
+        } else {
+            startCell(column, style, XSSFBRecordType.BrtCellSt);
+            out.putWideString(value);
+        }
+        out.endRecord();
+    }
+
+    public void writeBoolean(int column, boolean value) throws IOException {
+        writeBoolean(column, value, 0);
+    }
+
+    public void writeBoolean(int column, boolean value, int style) throws IOException {
+        startCell(column, style, XSSFBRecordType.BrtCellBool);
+        out.putByte(value ? 1 : 0);
+        out.endRecord();
+    }
+
+    public void writeError(int column, FormulaError error) throws IOException {
+        writeError(column, error, 0);
+    }
+
+    public void writeError(int column, FormulaError error, int style) throws IOException {
+        startCell(column, style, XSSFBRecordType.BrtCellError);
+        out.putByte(error.getCode());
+        out.endRecord();
+    }
+
+    /**
+     * Writes an empty cell, which only carries a style
+     */
+    public void writeBlank(int column, int style) throws IOException {
+        startCell(column, style, XSSFBRecordType.BrtCellBlank);
+        out.endRecord();
+    }
+
+    private void startCell(int column, int style, XSSFBRecordType type) {
+        checkOpen();
+        if (currentRow == -1) {
+            throw new IllegalStateException("No row was started");
+        }
+        if (column < 0 || column > MAX_COLUMN) {
+            throw new IllegalArgumentException("Invalid column index (" + column
+                    + ").  Allowable column range for EXCEL2007 is (0.." + MAX_COLUMN + ")");
+        }
+        if (column <= lastColumn) {
+            throw new IllegalArgumentException("Column " + column + " needs to be greater than the last written column "
+                    + lastColumn + " of row " + currentRow);
+        }
+        workbook.checkStyle(style);
+        lastColumn = column;
+        firstColumn = Math.min(firstColumn, column);
+        maxColumn = Math.max(maxColumn, column);
+
+        out.startRecord(type.getId());
+        out.putInt(column);
+        out.putInt(style & 0xFFFFFF);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The workbook writer is closed");
+        }
+    }
+
+    /**
+     * Writes the sheet part, i.e. the buffered rows embraced by the sheet records
+     */
+    void writeTo(OutputStream os) throws IOException {
+        stream.flush();
+
+        XSSFBRecordWriter part = new XSSFBRecordWriter(os);
+        part.writeRecord(XSSFBRecordType.BrtBeginSheet.getId());
+        part.startRecord(XSSFBRecordType.BrtWsDim.getId());
+        part.putInt(Math.max(firstRow, 0));
+        part.putInt(Math.max(currentRow, 0));
+        part.putInt(maxColumn == -1 ? 0 : firstColumn);
+        part.putInt(Math.max(maxColumn, 0));
+        part.endRecord();
+        part.writeRecord(XSSFBRecordType.BrtBeginSheetData.getId());
+        try (InputStream is = Files.newInputStream(tempFile.toPath())) {
+            IOUtils.copy(is, os);
+        }
+        part.writeRecord(XSSFBRecordType.BrtEndSheetData.getId());
+        part.writeRecord(XSSFBRecordType.BrtEndSheet.getId());
+        part.flush();
+    }
+
+    /**
+     * Closes the stream of the temporary file and deletes it
+     */
+    void dispose() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            stream.close();
+        } finally {
+            if (!tempFile.delete()) {
+                LOG.atWarn().log("Failed to delete the temporary sheet file {}", tempFile);
+            }
+        }
+    }
+}
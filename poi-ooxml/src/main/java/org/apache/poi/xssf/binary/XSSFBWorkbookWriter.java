@@ -0,0 +1,479 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.binary;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.poi.openxml4j.opc.ContentTypes;
+import org.apache.poi.openxml4j.opc.PackageNamespaces;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.util.Beta;
+import org.apache.poi.xssf.streaming.OpcZipArchiveOutputStream;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+
+/**
+ * Streaming writer of binary Excel workbooks (xlsb).
+ * <p>
+ * The sheets are written like with {@link org.apache.poi.xssf.streaming.SXSSFWorkbook}:
+ * the rows are serialized as BIFF12 records (BrtRowHdr and BrtCell*) to temporary files,
+ * which are copied into the package on {@link #write(OutputStream)}. The strings are
+ * collected in a shared strings table, which is kept in memory, and the styles are
+ * limited to number formats.
+ * <p>
+ * This is not a usermodel - the written cells can't be read or modified and formulas,
+ * merged regions, column widths and other sheet properties are not supported.
+ * The created file can be read with {@link org.apache.poi.xssf.eventusermodel.XSSFBReader}.
+ *
+ * <pre>{@code
+ * try (XSSFBWorkbookWriter wb = new XSSFBWorkbookWriter()) {
+ *     int dateStyle = wb.createNumberFormatStyle("yyyy-mm-dd");
+ *     XSSFBSheetWriter sheet = wb.createSheet("Data");
+ *     sheet.startRow(0);
+ *     sheet.writeString(0, "Delivery");
+ *     sheet.writeNumber(1, DateUtil.getExcelDate(LocalDate.now()), dateStyle);
+ *     try (OutputStream os = Files.newOutputStream(path)) {
+ *         wb.write(os);
+ *     }
+ * }
+ * }</pre>
+ *
+ * @since POI 5.2.3
+ */
+@Beta
+public final class XSSFBWorkbookWriter implements Closeable {
+    /** the first index of the custom number formats */
+    private static final int FIRST_CUSTOM_FORMAT = 164;
+
+    private static final String WORKBOOK_PART = XSSFRelation.XLSB_BINARY_WORKBOOK.getDefaultFileName().substring(1);
+    private static final String STYLES_PART = XSSFBRelation.STYLES_BINARY.getDefaultFileName().substring(1);
+    private static final String SHARED_STRINGS_PART = XSSFBRelation.SHARED_STRINGS_BINARY.getDefaultFileName().substring(1);
+
+    private final boolean useSharedStrings;
+    private final List<XSSFBSheetWriter> sheets = new ArrayList<>();
+
+    private final Map<String, Integer> sharedStrings = new LinkedHashMap<>();
+    private int sharedStringCount;
+
+    /** the format indexes of the custom number formats */
+    private final Map<String, Integer> numberFormats = new LinkedHashMap<>();
+    /** the cell style indexes by their number format index */
+    private final Map<Integer, Integer> styleByFormat = new HashMap<>();
+    /** the number format index of the cell styles, the first style is the default */
+    private final List<Integer> styleFormats = new ArrayList<>();
+
+    private boolean closed;
+
+    /**
+     * Creates a workbook writer, which stores the strings in a shared strings table
+     */
+    public XSSFBWorkbookWriter() {
+        this(true);
+    }
+
+    /**
+     * @param useSharedStrings whether to store the strings in a shared strings table (BrtCellIsst)
+     *        or inline in the cells (BrtCellSt). The shared strings table is kept in memory,
+     *        so the inline strings need less memory for many distinct strings,
+     *        but produce larger files for repeated strings.
+     */
+    public XSSFBWorkbookWriter(boolean useSharedStrings) {
+        this.useSharedStrings = useSharedStrings;
+        styleFormats.add(0);
+        styleByFormat.put(0, 0);
+    }
+
+    /**
+     * Creates a sheet, which is appended to the sheets of the workbook
+     *
+     * @param sheetName the name of the sheet
+     * @return the sheet writer
+     * @throws IllegalArgumentException if the name is invalid or already used by another sheet
+     */
+    public XSSFBSheetWriter createSheet(String sheetName) throws IOException {
+        checkOpen();
+        WorkbookUtil.validateSheetName(sheetName);
+        for (XSSFBSheetWriter sheet : sheets) {
+            if (sheet.getSheetName().equalsIgnoreCase(sheetName)) {
+                throw new IllegalArgumentException("The workbook already contains a sheet named '" + sheetName + "'");
+            }
+        }
+        XSSFBSheetWriter sheet = new XSSFBSheetWriter(this, sheetName);
+        sheets.add(sheet);
+        return sheet;
+    }
+
+    public int getNumberOfSheets() {
+        return sheets.size();
+    }
+
+    public XSSFBSheetWriter getSheetAt(int index) {
+        return sheets.get(index);
+    }
+
+    /**
+     * Returns the index of a cell style with the given number format. The style is created,
+     * if it wasn't requested before.
+     *
+     * @param format a built-in or custom number format, e.g. {@code "yyyy-mm-dd"}
+     * @return the style index, which can be passed to the cell writing methods of {@link XSSFBSheetWriter}
+     */
+    public int createNumberFormatStyle(String format) {
+        checkOpen();
+        int formatIndex = BuiltinFormats.getBuiltinFormat(format);
+        if (formatIndex == -1) {
+            formatIndex = numberFormats.computeIfAbsent(format, f -> FIRST_CUSTOM_FORMAT + numberFormats.size());
+        }
+        return styleByFormat.computeIfAbsent(formatIndex, idx -> {
+            styleFormats.add(idx);
+            return styleFormats.size() - 1;
+        });
+    }
+
+    /**
+     * @return the number of cell styles including the default style
+     */
+    public int getNumCellStyles() {
+        return styleFormats.size();
+    }
+
+    /**
+     * @return the number of distinct strings in the shared strings table
+     */
+    public int getUniqueSharedStringCount() {
+        return sharedStrings.size();
+    }
+
+    boolean isUsingSharedStrings() {
+        return useSharedStrings;
+    }
+
+    int addSharedString(String value) {
+        sharedStringCount++;
+        Integer index = sharedStrings.get(value);
+        if (index == null) {
+            index = sharedStrings.size();
+            sharedStrings.put(value, index);
+        }
+        return index;
+    }
+
+    void checkStyle(int style) {
+        if (style < 0 || style >= styleFormats.size()) {
+            throw new IllegalArgumentException("Invalid style index " + style + ", the workbook has "
+                    + styleFormats.size() + " styles");
+        }
+    }
+
+    /**
+     * Writes the workbook with the rows written so far. The sheets can be continued afterwards,
+     * but usually this is called once after all rows were written.
+     *
+     * @param stream the stream to write to, which is not closed
+     */
+    public void write(OutputStream stream) throws IOException {
+        checkOpen();
+        ZipArchiveOutputStream zos = new OpcZipArchiveOutputStream(stream);
+        putEntry(zos, "[Content_Types].xml", contentTypes().getBytes(UTF_8));
+        putEntry(zos, "_rels/.rels", relationships(
+                relationship("rId1", PackageRelationshipTypes.CORE_DOCUMENT, WORKBOOK_PART)).getBytes(UTF_8));
+        putEntry(zos, "xl/_rels/workbook.bin.rels", workbookRelationships().getBytes(UTF_8));
+
+        zos.putArchiveEntry(new ZipArchiveEntry(WORKBOOK_PART));
+        writeWorkbook(new XSSFBRecordWriter(zos));
+        zos.closeArchiveEntry();
+
+        zos.putArchiveEntry(new ZipArchiveEntry(STYLES_PART));
+        writeStyles(new XSSFBRecordWriter(zos));
+        zos.closeArchiveEntry();
+
+        zos.putArchiveEntry(new ZipArchiveEntry(SHARED_STRINGS_PART));
+        writeSharedStrings(new XSSFBRecordWriter(zos));
+        zos.closeArchiveEntry();
+
+        for (int i = 0; i < sheets.size(); i++) {
+            zos.putArchiveEntry(new ZipArchiveEntry(sheetPart(i)));
+            sheets.get(i).writeTo(zos);
+            zos.closeArchiveEntry();
+        }
+        // on failure the archive is left unfinished, so the exception isn't masked by closing an open entry
+        zos.finish();
+    }
+
+    /**
+     * Deletes the temporary files of the sheets
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOException ex = null;
+        for (XSSFBSheetWriter sheet : sheets) {
+            try {
+                sheet.dispose();
+            } catch (IOException e) {
+                ex = e;
+            }
+        }
+        if (ex != null) {
+            throw ex;
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The workbook writer is closed");
+        }
+    }
+
+    private void writeWorkbook(XSSFBRecordWriter out) throws IOException {
+        out.writeRecord(XSSFBRecordType.BrtBeginBook.getId());
+        out.writeRecord(XSSFBRecordType.BrtBeginBundleShs.getId());
+        for (int i = 0; i < sheets.size(); i++) {
+            out.startRecord(XSSFBRecordType.BrtBundleSh.getId());
+            // hsState - visible
+            out.putInt(0);
+            out.putInt(i + 1);
+            out.putWideString(sheetRelId(i));
+            out.putWideString(sheets.get(i).getSheetName());
+            out.endRecord();
+        }
+        out.writeRecord(XSSFBRecordType.BrtEndBundleShs.getId());
+        out.writeRecord(XSSFBRecordType.BrtEndBook.getId());
+        out.flush();
+    }
+
+    /**
+     * Writes the default font, fill, border and cell style and a cell format for each number format style
+     */
+    private void writeStyles(XSSFBRecordWriter out) throws IOException {
+        out.writeRecord(XSSFBRecordType.BrtBeginStyleSheet.getId());
+
+        if (!numberFormats.isEmpty()) {
+            beginCollection(out, XSSFBRecordType.BrtBeginFmts, numberFormats.size());
+            for (Map.Entry<String, Integer> me : numberFormats.entrySet()) {
+                out.startRecord(XSSFBRecordType.BrtFmt.getId());
+                out.putShort(me.getValue());
+                out.putWideString(me.getKey());
+                out.endRecord();
+            }
+            out.writeRecord(XSSFBRecordType.BrtEndFmts.getId());
+        }
+
+        beginCollection(out, XSSFBRecordType.BrtBeginFonts, 1);
+        out.startRecord(XSSFBRecordType.BrtFont.getId());
+        // 11pt in twips, no grbit flags, normal weight, no super-/subscript and underline
+        out.putShort(220);
+        out.putShort(0);
+        out.putShort(400);
+        out.putShort(0);
+        out.putByte(0);
+        // swiss font family, ANSI charset, unused byte
+        out.putByte(2);
+        out.putByte(0);
+        out.putByte(0);
+        putAutoColor(out);
+        // no font scheme
+        out.putByte(0);
+        out.putWideString("Calibri");
+        out.endRecord();
+        out.writeRecord(XSSFBRecordType.BrtEndFonts.getId());
+
+        // the fill patterns none and gray125 are required by Excel
+        beginCollection(out, XSSFBRecordType.BrtBeginFills, 2);
+        writeFill(out, 0x00);
+        writeFill(out, 0x11);
+        out.writeRecord(XSSFBRecordType.BrtEndFills.getId());
+
+        beginCollection(out, XSSFBRecordType.BrtBeginBorders, 1);
+        out.startRecord(XSSFBRecordType.BrtBorder.getId());
+        out.putByte(0);
+        // top, bottom, left, right and diagonal without line style
+        for (int i = 0; i < 5; i++) {
+            out.putByte(0);
+            out.putByte(0);
+            putAutoColor(out);
+        }
+        out.endRecord();
+        out.writeRecord(XSSFBRecordType.BrtEndBorders.getId());
+
+        beginCollection(out, XSSFBRecordType.BrtBeginCellStyleXFS, 1);
+        writeXf(out, 0xFFFF, 0);
+        out.writeRecord(XSSFBRecordType.BrtEndCellStyleXFS.getId());
+
+        beginCollection(out, XSSFBRecordType.BrtBeginCellXFs, styleFormats.size());
+        for (int formatIndex : styleFormats) {
+            writeXf(out, 0, formatIndex);
+        }
+        out.writeRecord(XSSFBRecordType.BrtEndCellXFs.getId());
+
+        beginCollection(out, XSSFBRecordType.BrtBeginStyles, 1);
+        out.startRecord(XSSFBRecordType.BrtStyle.getId());
+        out.putInt(0);
+        // fBuiltIn, the built-in style "Normal" and no outline level
+        out.putShort(1);
+        out.putByte(0);
+        out.putByte(0xFF);
+        out.putWideString("Normal");
+        out.endRecord();
+        out.writeRecord(XSSFBRecordType.BrtEndStyles.getId());
+
+        out.writeRecord(XSSFBRecordType.BrtEndStyleSheet.getId());
+        out.flush();
+    }
+
+    private static void beginCollection(XSSFBRecordWriter out, XSSFBRecordType type, int count) throws IOException {
+        out.startRecord(type.getId());
+        out.putInt(count);
+        out.endRecord();
+    }
+
+    private static void writeFill(XSSFBRecordWriter out, int pattern) throws IOException {
+        out.startRecord(XSSFBRecordType.BrtFill.getId());
+        out.putInt(pattern);
+        // the system foreground and background colors
+        putIndexedColor(out, 64);
+        putIndexedColor(out, 65);
+        // no gradient: type, degree, left, right, top, bottom and no stops
+        out.putInt(0);
+        for (int i = 0; i < 5; i++) {
+            out.putDouble(0);
+        }
+        out.putInt(0);
+        out.endRecord();
+    }
+
+    private static void writeXf(XSSFBRecordWriter out, int parent, int formatIndex) throws IOException {
+        out.startRecord(XSSFBRecordType.BrtXf.getId());
+        out.putShort(parent);
+        out.putShort(formatIndex);
+        // font, fill, border, rotation, indent
+        out.putShort(0);
+        out.putShort(0);
+        out.putShort(0);
+        out.putByte(0);
+        out.putByte(0);
+        // bottom vertical alignment and locked
+        out.putShort(0x1010);
+        // xfGrbitAtr - apply the number format
+        out.putShort(formatIndex == 0 ? 0 : 1);
+        out.endRecord();
+    }
+
+    private static void putAutoColor(XSSFBRecordWriter out) {
+        out.putInt(0);
+        out.putInt(0);
+    }
+
+    private static void putIndexedColor(XSSFBRecordWriter out, int index) {
+        // xColorType 1 = indexed
+        out.putByte(1 << 1);
+        out.putByte(index);
+        out.putShort(0);
+        out.putInt(0);
+    }
+
+    private void writeSharedStrings(XSSFBRecordWriter out) throws IOException {
+        out.startRecord(XSSFBRecordType.BrtBeginSst.getId());
+        out.putInt(sharedStringCount);
+        out.putInt(sharedStrings.size());
+        out.endRecord();
+        for (String value : sharedStrings.keySet()) {
+            out.startRecord(XSSFBRecordType.BrtSstItem.getId());
+            // RichStr without formatting runs and phonetic string
+            out.putByte(0);
+            out.putWideString(value);
+            out.endRecord();
+        }
+        out.writeRecord(XSSFBRecordType.BrtEndSst.getId());
+        out.flush();
+    }
+
+    private String contentTypes() {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n")
+          .append("<Types xmlns=\"").append(PackageNamespaces.CONTENT_TYPES).append("\">")
+          .append("<Default Extension=\"rels\" ContentType=\"").append(ContentTypes.RELATIONSHIPS_PART).append("\"/>")
+          .append("<Default Extension=\"xml\" ContentType=\"").append(ContentTypes.PLAIN_OLD_XML).append("\"/>");
+        appendOverride(sb, WORKBOOK_PART, XSSFRelation.XLSB_BINARY_WORKBOOK.getContentType());
+        for (int i = 0; i < sheets.size(); i++) {
+            appendOverride(sb, sheetPart(i), XSSFBRelation.WORKSHEET_BINARY.getContentType());
+        }
+        appendOverride(sb, STYLES_PART, XSSFBRelation.STYLES_BINARY.getContentType());
+        appendOverride(sb, SHARED_STRINGS_PART, XSSFBRelation.SHARED_STRINGS_BINARY.getContentType());
+        return sb.append("</Types>").toString();
+    }
+
+    private static void appendOverride(StringBuilder sb, String partName, String contentType) {
+        sb.append("<Override PartName=\"/").append(partName)
+          .append("\" ContentType=\"").append(contentType).append("\"/>");
+    }
+
+    private String workbookRelationships() {
+        StringBuilder rels = new StringBuilder();
+        for (int i = 0; i < sheets.size(); i++) {
+            rels.append(relationship(sheetRelId(i), XSSFBRelation.WORKSHEET_BINARY.getRelation(),
+                    sheetPart(i).substring("xl/".length())));
+        }
+        int nextId = sheets.size() + 1;
+        rels.append(relationship("rId" + nextId, XSSFBRelation.STYLES_BINARY.getRelation(),
+                STYLES_PART.substring("xl/".length())));
+        rels.append(relationship("rId" + (nextId + 1), XSSFBRelation.SHARED_STRINGS_BINARY.getRelation(),
+                SHARED_STRINGS_PART.substring("xl/".length())));
+        return relationships(rels.toString());
+    }
+
+    private static String relationships(String relationships) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Relationships xmlns=\"" + PackageNamespaces.RELATIONSHIPS + "\">"
+                + relationships + "</Relationships>";
+    }
+
+    private static String relationship(String id, String type, String target) {
+        return String.format(Locale.ROOT, "<Relationship Id=\"%s\" Type=\"%s\" Target=\"%s\"/>", id, type, target);
+    }
+
+    private static String sheetRelId(int index) {
+        return "rId" + (index + 1);
+    }
+
+    private static String sheetPart(int index) {
+        return XSSFBRelation.WORKSHEET_BINARY.getFileName(index + 1).substring(1);
+    }
+
+    private static void putEntry(ZipArchiveOutputStream zos, String name, byte[] data) throws IOException {
+        zos.putArchiveEntry(new ZipArchiveEntry(name));
+        zos.write(data);
+        zos.closeArchiveEntry();
+    }
+}
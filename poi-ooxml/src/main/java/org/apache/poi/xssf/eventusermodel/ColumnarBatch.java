@@ -0,0 +1,427 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.xssf.model.SharedStrings;
+
+/**
+ * A batch of consecutive rows of a sheet in columnar form, as produced by {@link ColumnarBatchHandler}.
+ * <p>
+ * Each column is a typed vector with a validity bitmap. The type of a column is inferred from its values
+ * and only widens while the sheet is read, i.e. a column starts as {@link ColumnType#LONG}, if all numbers
+ * are integral, becomes {@link ColumnType#DOUBLE} with the first fractional number and
+ * {@link ColumnType#STRING}, when strings are mixed with numbers or booleans. Already delivered batches
+ * keep the narrower type. Strings are dictionary encoded per batch. Error cells and blank cells are null,
+ * dates are numbers.
+ * <p>
+ * The batch and its arrays are reused for the next batch, so they are only valid until the consumer returns.
+ *
+ * @since POI 5.2.3
+ */
+public final class ColumnarBatch {
+
+    /** the inferred type of a column */
+    public enum ColumnType {
+        /** the column has no values yet */
+        EMPTY,
+        /** booleans, which are available as 0 / 1 via {@link Column#getLongs()} */
+        BOOLEAN,
+        /** integral numbers, which are available via {@link Column#getLongs()} and {@link Column#getDoubles()} */
+        LONG,
+        /** numbers, which are available via {@link Column#getDoubles()} */
+        DOUBLE,
+        /** dictionary encoded strings */
+        STRING
+    }
+
+    /** size of the direct mapped cache of resolved shared strings, which is kept across batches */
+    private static final int STRING_CACHE_SIZE = 8192;
+
+    private final int capacity;
+    private final SharedStrings strings;
+    private final int[] cachedIndexes = new int[STRING_CACHE_SIZE];
+    private final String[] cachedStrings = new String[STRING_CACHE_SIZE];
+    private final int[] rowNums;
+    private int rowCount;
+    private Column[] columns = new Column[0];
+
+    ColumnarBatch(int capacity, SharedStrings strings) {
+        this.capacity = capacity;
+        this.strings = strings;
+        this.rowNums = new int[capacity];
+        Arrays.fill(cachedIndexes, -1);
+    }
+
+    /**
+     * @return the maximum number of rows of a batch
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of rows in this batch
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param row the index of the row in this batch
+     * @return the zero based row number in the sheet
+     */
+    public int getRowNum(int row) {
+        checkRow(row);
+        return rowNums[row];
+    }
+
+    /**
+     * @return the number of columns, i.e. the highest column index seen so far plus one
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @param column the zero based column index
+     * @return the column vector
+     */
+    public Column getColumn(int column) {
+        if (column < 0 || column >= columns.length) {
+            throw new IndexOutOfBoundsException("Column: " + column + ", Columns: " + columns.length);
+        }
+        return columns[column];
+    }
+
+    boolean isFull() {
+        return rowCount == capacity;
+    }
+
+    void startRow(int rowNum) {
+        rowNums[rowCount++] = rowNum;
+    }
+
+    /**
+     * @return the column, which receives the values of the current row
+     */
+    Column column(int column) {
+        if (column >= columns.length) {
+            int length = columns.length;
+            columns = Arrays.copyOf(columns, column + 1);
+            for (int i = length; i <= column; i++) {
+                columns[i] = new Column(this);
+            }
+        }
+        return columns[column];
+    }
+
+    String sharedString(int sstIndex) {
+        int slot = sstIndex & (STRING_CACHE_SIZE - 1);
+        if (cachedIndexes[slot] != sstIndex) {
+            cachedStrings[slot] = strings.getItemAt(sstIndex).getString();
+            cachedIndexes[slot] = sstIndex;
+        }
+        return cachedStrings[slot];
+    }
+
+    int currentRow() {
+        return rowCount - 1;
+    }
+
+    void clear() {
+        for (Column column : columns) {
+            column.clear();
+        }
+        rowCount = 0;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Rows: " + rowCount);
+        }
+    }
+
+    /**
+     * A typed column vector of a batch
+     */
+    public static final class Column {
+        private final ColumnarBatch batch;
+        private ColumnType type = ColumnType.EMPTY;
+        private final long[] validity;
+        private final double[] doubles;
+        private final long[] longs;
+        private final int[] codes;
+        private final List<String> dictionary = new ArrayList<>();
+        private final Map<String, Integer> dictionaryCodes = new HashMap<>();
+        private final IntIntMap sharedStringCodes = new IntIntMap();
+
+        private Column(ColumnarBatch batch) {
+            this.batch = batch;
+            int capacity = batch.capacity;
+            validity = new long[(capacity + 63) >>> 6];
+            doubles = new double[capacity];
+            longs = new long[capacity];
+            codes = new int[capacity];
+        }
+
+        /**
+         * @return the inferred type of the column
+         */
+        public ColumnType getType() {
+            return type;
+        }
+
+        /**
+         * @param row the index of the row in the batch
+         * @return whether the cell is blank, an error or missing
+         */
+        public boolean isNull(int row) {
+            batch.checkRow(row);
+            return (validity[row >>> 6] & (1L << row)) == 0;
+        }
+
+        /**
+         * @return the validity bitmap - bit {@code row % 64} of word {@code row / 64} is set for non-null cells
+         */
+        public long[] getValidity() {
+            return validity;
+        }
+
+        /**
+         * @return the values of {@link ColumnType#LONG} and {@link ColumnType#DOUBLE} columns
+         */
+        public double[] getDoubles() {
+            return doubles;
+        }
+
+        /**
+         * @return the values of {@link ColumnType#LONG} columns and 0 / 1 for {@link ColumnType#BOOLEAN} columns
+         */
+        public long[] getLongs() {
+            return longs;
+        }
+
+        /**
+         * @return the dictionary codes of {@link ColumnType#STRING} columns
+         */
+        public int[] getDictionaryCodes() {
+            return codes;
+        }
+
+        /**
+         * @return the distinct strings of this column in this batch, which are referenced by the dictionary codes
+         */
+        public List<String> getDictionary() {
+            return Collections.unmodifiableList(dictionary);
+        }
+
+        /**
+         * @param row the index of the row in the batch
+         * @return the string of a {@link ColumnType#STRING} column or {@code null} for null cells
+         */
+        public String getString(int row) {
+            if (type != ColumnType.STRING) {
+                throw new IllegalStateException("Cannot get a string from a " + type + " column");
+            }
+            return isNull(row) ? null : dictionary.get(codes[row]);
+        }
+
+        void addNumber(int row, double value) {
+            boolean integral = value == Math.rint(value) && Math.abs(value) < 0x1p53;
+            switch (type) {
+                case EMPTY:
+                    type = integral ? ColumnType.LONG : ColumnType.DOUBLE;
+                    break;
+                case LONG:
+                    if (!integral) {
+                        type = ColumnType.DOUBLE;
+                    }
+                    break;
+                case DOUBLE:
+                    break;
+                case BOOLEAN:
+                    toStrings();
+                    // fall through
+                default:
+                    addString(row, NumberToTextConverter.toText(value));
+                    return;
+            }
+            doubles[row] = value;
+            longs[row] = (long)value;
+            setValid(row);
+        }
+
+        void addBoolean(int row, boolean value) {
+            switch (type) {
+                case EMPTY:
+                    type = ColumnType.BOOLEAN;
+                    // fall through
+                case BOOLEAN:
+                    longs[row] = value ? 1 : 0;
+                    setValid(row);
+                    break;
+                case LONG:
+                case DOUBLE:
+                    toStrings();
+                    // fall through
+                default:
+                    addString(row, value ? "TRUE" : "FALSE");
+                    break;
+            }
+        }
+
+        void addSharedString(int row, int sstIndex) {
+            int code = sharedStringCodes.get(sstIndex);
+            if (code < 0) {
+                code = code(batch.sharedString(sstIndex));
+                sharedStringCodes.put(sstIndex, code);
+            }
+            setString(row, code);
+        }
+
+        void addString(int row, String value) {
+            setString(row, code(value));
+        }
+
+        private void setString(int row, int code) {
+            if (type != ColumnType.STRING) {
+                toStrings();
+            }
+            codes[row] = code;
+            setValid(row);
+        }
+
+        private int code(String value) {
+            Integer code = dictionaryCodes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                dictionaryCodes.put(value, code);
+            }
+            return code;
+        }
+
+        /**
+         * Converts the values of the current batch to strings
+         */
+        private void toStrings() {
+            ColumnType previous = type;
+            type = ColumnType.STRING;
+            if (previous == ColumnType.EMPTY || previous == ColumnType.STRING) {
+                return;
+            }
+            for (int row = 0; row < batch.rowCount; row++) {
+                if ((validity[row >>> 6] & (1L << row)) == 0) {
+                    continue;
+                }
+                final String value;
+                if (previous == ColumnType.BOOLEAN) {
+                    value = (longs[row] != 0) ? "TRUE" : "FALSE";
+                } else {
+                    value = NumberToTextConverter.toText(doubles[row]);
+                }
+                codes[row] = code(value);
+            }
+        }
+
+        private void setValid(int row) {
+            validity[row >>> 6] |= 1L << row;
+        }
+
+        private void clear() {
+            Arrays.fill(validity, 0);
+            dictionary.clear();
+            dictionaryCodes.clear();
+            sharedStringCodes.clear();
+        }
+    }
+
+    /**
+     * An open addressing map of non-negative int keys to non-negative int values
+     */
+    private static final class IntIntMap {
+        private int[] keys = new int[64];
+        private int[] values = new int[64];
+        private int size;
+
+        IntIntMap() {
+            Arrays.fill(keys, -1);
+        }
+
+        /**
+         * @return the value or -1, if the key isn't contained
+         */
+        int get(int key) {
+            int mask = keys.length - 1;
+            for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                if (keys[slot] < 0) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(int key, int value) {
+            if (2 * (size + 1) > keys.length) {
+                int[] oldKeys = keys;
+                int[] oldValues = values;
+                keys = new int[2 * oldKeys.length];
+                values = new int[keys.length];
+                Arrays.fill(keys, -1);
+                size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] >= 0) {
+                        put(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] >= 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] < 0) {
+                size++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        void clear() {
+            if (size > 0) {
+                Arrays.fill(keys, -1);
+                size = 0;
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
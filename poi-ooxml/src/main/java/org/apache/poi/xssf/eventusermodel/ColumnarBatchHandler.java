@@ -0,0 +1,106 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.util.function.Consumer;
+
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.TypedSheetContentsHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+
+/**
+ * Collects the typed cells of a sheet into {@link ColumnarBatch}es of a fixed number of rows.
+ * <p>
+ * The handler can be used with {@link XSSFSheetXMLHandler} for xlsx files,
+ * {@link org.apache.poi.xssf.binary.XSSFBSheetHandler} for xlsb files and {@link XSSFParallelSheetReader}.
+ * Numbers and booleans are stored in primitive arrays and the strings of the shared strings table
+ * are resolved once per batch, so there is no allocation per cell.
+ * <p>
+ * <pre>{@code
+ * ColumnarBatchHandler batches = new ColumnarBatchHandler(strings, 4096, batch -> {
+ *     ColumnarBatch.Column amounts = batch.getColumn(2);
+ *     ...
+ * });
+ * parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings, batches, new DataFormatter(), false));
+ * }</pre>
+ *
+ * @since POI 5.2.3
+ */
+public class ColumnarBatchHandler implements TypedSheetContentsHandler {
+    /** the default number of rows of a batch */
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private final ColumnarBatch batch;
+    private final Consumer<ColumnarBatch> consumer;
+
+    /**
+     * @param strings the shared strings table of the workbook
+     * @param batchSize the maximum number of rows of a batch
+     * @param consumer receives the batches in sheet order - the batch is reused after the consumer returns
+     */
+    public ColumnarBatchHandler(SharedStrings strings, int batchSize, Consumer<ColumnarBatch> consumer) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batch = new ColumnarBatch(batchSize, strings);
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void startRow(int rowNum) {
+        batch.startRow(rowNum);
+    }
+
+    @Override
+    public void endRow(int rowNum) {
+        if (batch.isFull()) {
+            flush();
+        }
+    }
+
+    @Override
+    public void numericCell(int rowNum, int column, double value, int styleIndex) {
+        batch.column(column).addNumber(batch.currentRow(), value);
+    }
+
+    @Override
+    public void booleanCell(int rowNum, int column, boolean value) {
+        batch.column(column).addBoolean(batch.currentRow(), value);
+    }
+
+    @Override
+    public void sharedStringCell(int rowNum, int column, int sstIndex) {
+        batch.column(column).addSharedString(batch.currentRow(), sstIndex);
+    }
+
+    @Override
+    public void stringCell(int rowNum, int column, CharSequence value) {
+        batch.column(column).addString(batch.currentRow(), value.toString());
+    }
+
+    @Override
+    public void endSheet() {
+        if (batch.getRowCount() > 0) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        consumer.accept(batch);
+        batch.clear();
+    }
+}
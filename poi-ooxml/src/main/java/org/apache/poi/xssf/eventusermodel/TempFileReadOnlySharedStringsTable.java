@@ -0,0 +1,435 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.poifs.nio.CleanerUtil;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A variant of {@link ReadOnlySharedStringsTable}, which keeps the strings off the heap.
+ * <p>
+ * While the shared strings table is parsed, the text of each {@code <si>} entry is appended
+ * to a temp file as UTF-8 and its offset is written to a second temp file. Both files are
+ * memory-mapped afterwards, so a large table lives in the page cache instead of the heap.
+ * The entries are decoded lazily by {@link #getItemAt(int)} and a small number of recently
+ * used strings is cached on the heap.
+ * <p>
+ * Like {@link ReadOnlySharedStringsTable}, only the text of the entries is kept, i.e. the
+ * formatting runs are dropped. {@link #getItemAt(int)} can be called from several threads
+ * concurrently.
+ * <p>
+ * The temp files are deleted when the table is closed.
+ *
+ * @see XSSFReader#setUseTempFileSharedStringsTable(boolean)
+ * @since POI 5.2.3
+ */
+public class TempFileReadOnlySharedStringsTable extends DefaultHandler implements SharedStrings, Closeable {
+    private static final Logger LOG = LogManager.getLogger(TempFileReadOnlySharedStringsTable.class);
+
+    /** the default number of strings, which are cached on the heap */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_LENGTH = 1L << SEGMENT_SHIFT;
+
+    protected final boolean includePhoneticRuns;
+
+    /**
+     * An integer representing the total count of strings in the workbook. This count does not
+     * include any numbers, it counts only the total of text strings in the workbook.
+     */
+    protected int count;
+
+    /**
+     * An integer representing the total count of unique strings in the Shared String Table.
+     * A string is unique even if it is a copy of another string, but has different formatting applied
+     * at the character level.
+     */
+    protected int uniqueCount;
+
+    private final int cacheSize;
+    private final Map<Integer, String> cache;
+
+    private final File bodyFile;
+    private final File offsetsFile;
+    private DataOutputStream bodyOut;
+    private DataOutputStream offsetsOut;
+    private long bodyLength;
+    private int entries;
+
+    private final List<MappedByteBuffer> bodySegments = new ArrayList<>();
+    private final List<MappedByteBuffer> offsetSegments = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * Calls {@link #TempFileReadOnlySharedStringsTable(OPCPackage, boolean)} with
+     * a value of <code>true</code> for including phonetic runs
+     *
+     * @param pkg The {@link OPCPackage} to use as basis for the shared-strings table.
+     * @throws IOException If reading the data from the package fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileReadOnlySharedStringsTable(OPCPackage pkg) throws IOException, SAXException {
+        this(pkg, true);
+    }
+
+    /**
+     * @param pkg The {@link OPCPackage} to use as basis for the shared-strings table.
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @throws IOException If reading the data from the package fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileReadOnlySharedStringsTable(OPCPackage pkg, boolean includePhoneticRuns)
+            throws IOException, SAXException {
+        this(firstPart(pkg), includePhoneticRuns, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param part the shared strings part or {@code null}, if the workbook has no shared strings table
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @param cacheSize the number of recently used strings, which are cached on the heap - {@code 0} disables the cache
+     * @throws IOException If reading the data from the package fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileReadOnlySharedStringsTable(PackagePart part, boolean includePhoneticRuns, int cacheSize)
+            throws IOException, SAXException {
+        this(includePhoneticRuns, cacheSize);
+        if (part != null) {
+            try (InputStream stream = part.getInputStream()) {
+                load(stream);
+            }
+        } else {
+            load(null);
+        }
+    }
+
+    /**
+     * @param stream the shared strings XML
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @param cacheSize the number of recently used strings, which are cached on the heap - {@code 0} disables the cache
+     * @throws IOException If reading the data fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileReadOnlySharedStringsTable(InputStream stream, boolean includePhoneticRuns, int cacheSize)
+            throws IOException, SAXException {
+        this(includePhoneticRuns, cacheSize);
+        load(stream);
+    }
+
+    private TempFileReadOnlySharedStringsTable(boolean includePhoneticRuns, int cacheSize) throws IOException {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must not be negative");
+        }
+        this.includePhoneticRuns = includePhoneticRuns;
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > TempFileReadOnlySharedStringsTable.this.cacheSize;
+            }
+        };
+        bodyFile = TempFile.createTempFile("poi-sst-body", ".tmp");
+        offsetsFile = TempFile.createTempFile("poi-sst-offsets", ".tmp");
+    }
+
+    private static PackagePart firstPart(OPCPackage pkg) {
+        ArrayList<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+        // Some workbooks have no shared strings table.
+        return parts.isEmpty() ? null : parts.get(0);
+    }
+
+    private void load(InputStream is) throws IOException, SAXException {
+        boolean loaded = false;
+        try {
+            bodyOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(bodyFile), 64 * 1024));
+            offsetsOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(offsetsFile), 64 * 1024));
+            if (is != null) {
+                readFrom(is);
+            }
+            // the end offset of the last entry
+            offsetsOut.writeLong(bodyLength);
+            bodyOut.close();
+            offsetsOut.close();
+            map(bodyFile, bodySegments);
+            map(offsetsFile, offsetSegments);
+            loaded = true;
+        } finally {
+            if (!loaded) {
+                close();
+            }
+        }
+    }
+
+    private void readFrom(InputStream is) throws IOException, SAXException {
+        // test if the file is empty, otherwise parse it
+        PushbackInputStream pis = new PushbackInputStream(is, 1);
+        int emptyTest = pis.read();
+        if (emptyTest > -1) {
+            pis.unread(emptyTest);
+            InputSource sheetSource = new InputSource(pis);
+            try {
+                XMLReader sheetParser = XMLHelper.newXMLReader();
+                sheetParser.setContentHandler(this);
+                sheetParser.parse(sheetSource);
+            } catch(ParserConfigurationException e) {
+                throw new SAXException("SAX parser appears to be broken - " + e.getMessage());
+            }
+        }
+    }
+
+    private static void map(File file, List<MappedByteBuffer> segments) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            // the mappings stay valid after the channel is closed
+            for (long position = 0; position < size; position += SEGMENT_LENGTH) {
+                segments.add(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_LENGTH, size - position)));
+            }
+        }
+    }
+
+    /**
+     * Return an integer representing the total count of strings in the workbook. This count does not
+     * include any numbers, it counts only the total of text strings in the workbook.
+     *
+     * @return the total count of strings in the workbook
+     */
+    @Override
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns an integer representing the total count of unique strings in the Shared String Table.
+     * A string is unique even if it is a copy of another string, but has different formatting applied
+     * at the character level.
+     *
+     * @return the total count of unique strings in the workbook
+     */
+    @Override
+    public int getUniqueCount() {
+        return this.uniqueCount;
+    }
+
+    @Override
+    public RichTextString getItemAt(int idx) {
+        return new XSSFRichTextString(getString(idx));
+    }
+
+    /**
+     * Returns the text of an entry without wrapping it into a rich text string
+     *
+     * @param idx index of the entry
+     * @return the text of the entry
+     */
+    public String getString(int idx) {
+        if (idx < 0 || idx >= entries) {
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + entries);
+        }
+        if (cacheSize > 0) {
+            synchronized (cache) {
+                String cached = cache.get(idx);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        }
+        String value = decode(idx);
+        if (cacheSize > 0) {
+            synchronized (cache) {
+                cache.put(idx, value);
+            }
+        }
+        return value;
+    }
+
+    private String decode(int idx) {
+        if (closed) {
+            throw new IllegalStateException("The shared strings table is closed");
+        }
+        long start = getOffset(idx);
+        int length = (int)(getOffset(idx + 1L) - start);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; ) {
+            long position = start + i;
+            ByteBuffer segment = bodySegments.get((int)(position >>> SEGMENT_SHIFT)).duplicate();
+            segment.position((int)(position & (SEGMENT_LENGTH - 1)));
+            int chunk = Math.min(length - i, segment.remaining());
+            segment.get(bytes, i, chunk);
+            i += chunk;
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    private long getOffset(long idx) {
+        long position = idx * Long.BYTES;
+        return offsetSegments.get((int)(position >>> SEGMENT_SHIFT)).getLong((int)(position & (SEGMENT_LENGTH - 1)));
+    }
+
+    /**
+     * Unmaps and deletes the temp files
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        synchronized (cache) {
+            cache.clear();
+        }
+        try {
+            if (bodyOut != null) {
+                bodyOut.close();
+            }
+            if (offsetsOut != null) {
+                offsetsOut.close();
+            }
+        } finally {
+            unmap(bodySegments);
+            unmap(offsetSegments);
+            delete(bodyFile);
+            delete(offsetsFile);
+        }
+    }
+
+    private static void unmap(List<MappedByteBuffer> segments) {
+        if (CleanerUtil.UNMAP_SUPPORTED) {
+            for (ByteBuffer segment : segments) {
+                try {
+                    CleanerUtil.getCleaner().freeBuffer(segment);
+                } catch (IOException e) {
+                    LOG.atWarn().withThrowable(e).log("Failed to unmap the buffer");
+                }
+            }
+        }
+        segments.clear();
+    }
+
+    private static void delete(File file) {
+        if (!file.delete() && file.exists()) {
+            LOG.atWarn().log("Failed to delete the temp file {}", file);
+        }
+    }
+
+    //// ContentHandler methods ////
+
+    private StringBuilder characters;
+    private boolean tIsOpen;
+    private boolean inRPh;
+
+    @Override
+    public void startElement(String uri, String localName, String name,
+                             Attributes attributes) throws SAXException {
+        if (uri != null && ! uri.equals(NS_SPREADSHEETML)) {
+            return;
+        }
+
+        if ("sst".equals(localName)) {
+            String count = attributes.getValue("count");
+            if(count != null) this.count = Integer.parseInt(count);
+            String uniqueCount = attributes.getValue("uniqueCount");
+            if(uniqueCount != null) this.uniqueCount = Integer.parseInt(uniqueCount);
+
+            characters = new StringBuilder(64);
+        } else if ("si".equals(localName)) {
+            characters.setLength(0);
+        } else if ("t".equals(localName)) {
+            tIsOpen = true;
+        } else if ("rPh".equals(localName)) {
+            inRPh = true;
+            //append space...this assumes that rPh always comes after regular <t>
+            if (includePhoneticRuns && characters.length() > 0) {
+                characters.append(" ");
+            }
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String name) throws SAXException {
+        if (uri != null && ! uri.equals(NS_SPREADSHEETML)) {
+            return;
+        }
+
+        if ("si".equals(localName)) {
+            try {
+                offsetsOut.writeLong(bodyLength);
+                byte[] bytes = characters.toString().getBytes(UTF_8);
+                bodyOut.write(bytes);
+                bodyLength += bytes.length;
+                entries++;
+            } catch (IOException e) {
+                throw new SAXException("Failed to write the shared strings temp file", e);
+            }
+        } else if ("t".equals(localName)) {
+            tIsOpen = false;
+        } else if ("rPh".equals(localName)) {
+            inRPh = false;
+        }
+    }
+
+    /**
+     * Captures characters only if a t(ext) element is open.
+     */
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (tIsOpen) {
+            if (inRPh && includePhoneticRuns) {
+                characters.append(ch, start, length);
+            } else if (! inRPh){
+                characters.append(ch, start, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,476 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.TypedSheetContentsHandler;
+
+/**
+ * Parses a single sheet#.xml sheet part with several threads.
+ * <p>
+ * The sheet part is copied to a temp file, which is split into chunks of whole {@code row} elements.
+ * The split points are found by searching the next row start tag after every {@code chunkSize} bytes,
+ * so the sheet isn't scanned up front. The chunks are parsed concurrently by
+ * {@link XSSFSheetStreamReader}s into row batches, which are replayed to a {@link TypedSheetContentsHandler}
+ * in sheet order on the calling thread. Only a bounded number of parsed batches is kept in memory.
+ * <p>
+ * The handler receives the same typed cell events as from a {@link XSSFSheetXMLHandler} in typed mode,
+ * apart from the formatted cells, comments and headers / footers, which are not reported.
+ * <p>
+ * The split relies on the {@code <} character being escaped in the cell values, so sheets with
+ * {@code <row} inside of comments or CDATA sections within {@code sheetData} are not supported.
+ * <p>
+ * <pre>{@code
+ * XSSFReader reader = new XSSFReader(pkg);
+ * ExecutorService executor = Executors.newFixedThreadPool(threads);
+ * try (XSSFParallelSheetReader sheet = new XSSFParallelSheetReader(reader.getSheet(relId))) {
+ *     sheet.read(executor, threads, false, handler);
+ * }
+ * }</pre>
+ *
+ * @since POI 5.2.3
+ */
+public class XSSFParallelSheetReader implements Closeable {
+    private static final Logger LOG = LogManager.getLogger(XSSFParallelSheetReader.class);
+
+    /** the default number of bytes of the chunks */
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File _file;
+    private final RandomAccessFile _raf;
+    private final FileChannel _channel;
+    private final long[] _chunks;
+
+    /**
+     * Copies the sheet to a temp file and determines the chunks with {@link #DEFAULT_CHUNK_SIZE}
+     *
+     * @param sheetData the stream of the sheet part, which is read completely and closed
+     */
+    public XSSFParallelSheetReader(InputStream sheetData) throws IOException {
+        this(sheetData, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Copies the sheet to a temp file and determines the chunks
+     *
+     * @param sheetData the stream of the sheet part, which is read completely and closed
+     * @param chunkSize the minimum number of bytes of a chunk
+     */
+    public XSSFParallelSheetReader(InputStream sheetData, int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        _file = TempFile.createTempFile("poi-sheet", ".xml");
+        RandomAccessFile raf = null;
+        try {
+            try (InputStream is = XSSFSheetStreamReader.toUTF8(sheetData);
+                 OutputStream os = new FileOutputStream(_file)) {
+                IOUtils.copy(is, os);
+            }
+            raf = new RandomAccessFile(_file, "r");
+            _raf = raf;
+            _channel = raf.getChannel();
+            _chunks = split(chunkSize);
+        } catch (IOException | RuntimeException e) {
+            if (raf != null) {
+                raf.close();
+            }
+            delete();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of chunks, which can be parsed concurrently
+     */
+    public int getChunkCount() {
+        return _chunks.length - 1;
+    }
+
+    /**
+     * Parses the chunks on the executor and reports the cells to the handler in sheet order.
+     * The handler is called on the calling thread only.
+     *
+     * @param executor the executor, which parses the chunks
+     * @param parallelism the maximum number of chunks, which are parsed or buffered at the same time
+     * @param formulasNotResults whether the formulas are reported instead of their cached results
+     * @param handler the handler receiving the rows and cells
+     * @throws IOException if the sheet can't be read or the reading was interrupted
+     */
+    public void read(Executor executor, int parallelism, boolean formulasNotResults, TypedSheetContentsHandler handler)
+            throws IOException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        final int chunkCount = getChunkCount();
+        Deque<FutureTask<RowBatch>> pending = new ArrayDeque<>();
+        int submitted = 0;
+        int currentRow = -1;
+        try {
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                while (submitted < chunkCount && pending.size() < parallelism) {
+                    final int next = submitted++;
+                    FutureTask<RowBatch> task = new FutureTask<>(() -> parseChunk(next, formulasNotResults));
+                    pending.add(task);
+                    executor.execute(task);
+                }
+                currentRow = pending.peekFirst().get().replay(handler, currentRow);
+                pending.removeFirst();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading the sheet");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            for (FutureTask<RowBatch> task : pending) {
+                task.cancel(true);
+            }
+        }
+        handler.endSheet();
+    }
+
+    /**
+     * Deletes the temp file
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            _raf.close();
+        } finally {
+            delete();
+        }
+    }
+
+    private void delete() {
+        if (!_file.delete() && _file.exists()) {
+            LOG.atWarn().log("Failed to delete the temp file {}", _file);
+        }
+    }
+
+    private RowBatch parseChunk(int chunk, boolean formulasNotResults) throws IOException {
+        RowBatch batch = new RowBatch();
+        InputStream is = new RegionInputStream(_channel, _chunks[chunk], _chunks[chunk + 1]);
+        try (XSSFSheetStreamReader reader = new XSSFSheetStreamReader(is, null)) {
+            while (reader.nextRow()) {
+                batch.startRow(reader.isRowNumExplicit() ? reader.getRowNum() : -1);
+                while (reader.nextCell()) {
+                    batch.addCell(reader, formulasNotResults);
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Determines the start offsets of the chunks
+     *
+     * @return the start offsets and the file length as last element
+     */
+    private long[] split(int chunkSize) throws IOException {
+        final long length = _channel.size();
+        long sheetData = indexOf(new byte[][]{bytes("sheetData")}, 0, length);
+        if (sheetData < 0) {
+            return new long[]{length};
+        }
+        // determine the namespace prefix of the sheetData element, e.g. "x:"
+        byte[] before = new byte[(int)Math.min(sheetData, 32)];
+        read(sheetData - before.length, before);
+        int lt = before.length - 1;
+        while (lt >= 0 && before[lt] != '<') {
+            lt--;
+        }
+        String prefix = new String(before, lt + 1, before.length - lt - 1, US_ASCII);
+        byte[][] rowTags = {
+            bytes("<" + prefix + "row "), bytes("<" + prefix + "row>"), bytes("<" + prefix + "row/"),
+            bytes("<" + prefix + "row\t"), bytes("<" + prefix + "row\n"), bytes("<" + prefix + "row\r")
+        };
+
+        List<Long> chunks = new ArrayList<>();
+        long start = indexOf(rowTags, sheetData, length);
+        while (start >= 0) {
+            chunks.add(start);
+            start = (start + chunkSize < length) ? indexOf(rowTags, start + chunkSize, length) : -1;
+        }
+        long[] result = new long[chunks.size() + 1];
+        for (int i = 0; i < chunks.size(); i++) {
+            result[i] = chunks.get(i);
+        }
+        result[chunks.size()] = length;
+        return result;
+    }
+
+    /**
+     * @return the offset of the first occurrence of one of the patterns or -1
+     */
+    private long indexOf(byte[][] patterns, long from, long to) throws IOException {
+        int maxLength = 0;
+        for (byte[] p : patterns) {
+            maxLength = Math.max(maxLength, p.length);
+        }
+        byte[] buf = new byte[BUFFER_SIZE];
+        long position = from;
+        while (position < to) {
+            int length = (int)Math.min(buf.length, to - position);
+            read(position, buf, length);
+            for (int i = 0; i < length; i++) {
+                for (byte[] p : patterns) {
+                    if (matches(buf, i, length, p)) {
+                        return position + i;
+                    }
+                }
+            }
+            if (position + length >= to) {
+                break;
+            }
+            // overlap the next buffer, so patterns at the buffer end are found
+            position += length - maxLength + 1;
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] buf, int offset, int length, byte[] pattern) {
+        if (offset + pattern.length > length) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (buf[offset + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void read(long position, byte[] buf) throws IOException {
+        read(position, buf, buf.length);
+    }
+
+    private void read(long position, byte[] buf, int length) throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(buf, 0, length);
+        while (bb.hasRemaining()) {
+            if (_channel.read(bb, position + bb.position()) < 0) {
+                throw new IOException("Unexpected end of the sheet temp file");
+            }
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(US_ASCII);
+    }
+
+    /**
+     * Reads a region of the temp file via positional reads, so several regions can be read concurrently
+     */
+    private static final class RegionInputStream extends InputStream {
+        private final FileChannel _channel;
+        private long _position;
+        private final long _end;
+
+        RegionInputStream(FileChannel channel, long start, long end) {
+            _channel = channel;
+            _position = start;
+            _end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return (read(b, 0, 1) < 0) ? -1 : (b[0] & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (_position >= _end) {
+                return -1;
+            }
+            int length = (int)Math.min(len, _end - _position);
+            int read = _channel.read(ByteBuffer.wrap(b, off, length), _position);
+            if (read > 0) {
+                _position += read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * The recorded rows and cells of a chunk
+     */
+    private static final class RowBatch {
+        private static final byte ROW = 0;
+        private static final byte NUMERIC = 1;
+        private static final byte BOOLEAN = 2;
+        private static final byte SHARED_STRING = 3;
+        private static final byte STRING = 4;
+        private static final byte ERROR = 5;
+        private static final byte FORMULA = 6;
+
+        private int _size;
+        private byte[] _kinds = new byte[1024];
+        /** the row number or the column */
+        private int[] _positions = new int[1024];
+        /** the style index or the shared string index */
+        private int[] _indexes = new int[1024];
+        private double[] _numbers = new double[1024];
+        private final List<String> _strings = new ArrayList<>();
+
+        void startRow(int rowNum) {
+            add(ROW, rowNum, 0, 0);
+        }
+
+        void addCell(XSSFSheetStreamReader reader, boolean formulasNotResults) {
+            final int column = reader.getColumn();
+            final CellType type = reader.getCachedFormulaResultType();
+            // like XSSFSheetXMLHandler, boolean and error formulas are reported with their result
+            if (formulasNotResults && reader.getCellType() == CellType.FORMULA
+                    && type != CellType.BOOLEAN && type != CellType.ERROR) {
+                addString(FORMULA, column, reader.getCellFormula());
+                return;
+            }
+            switch (type) {
+                case NUMERIC:
+                    CharSequence raw = reader.getRawValue();
+                    if (raw.length() == 0) {
+                        break;
+                    }
+                    try {
+                        add(NUMERIC, column, reader.getStyleIndex(), XSSFSheetXMLHandler.parseDouble(raw));
+                    } catch (NumberFormatException e) {
+                        // Formula is a String result not a Numeric one
+                        addString(STRING, column, raw.toString());
+                    }
+                    break;
+                case BOOLEAN:
+                    add(BOOLEAN, column, 0, reader.getBooleanCellValue() ? 1 : 0);
+                    break;
+                case ERROR:
+                    addString(ERROR, column, reader.getErrorCellString());
+                    break;
+                case STRING:
+                    int idx = reader.getSharedStringIndex();
+                    if (idx >= 0) {
+                        add(SHARED_STRING, column, idx, 0);
+                    } else {
+                        addString(STRING, column, reader.getStringCellValue());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void addString(byte kind, int column, String value) {
+            add(kind, column, _strings.size(), 0);
+            _strings.add(value);
+        }
+
+        private void add(byte kind, int position, int index, double number) {
+            if (_size == _kinds.length) {
+                int capacity = 2 * _size;
+                _kinds = Arrays.copyOf(_kinds, capacity);
+                _positions = Arrays.copyOf(_positions, capacity);
+                _indexes = Arrays.copyOf(_indexes, capacity);
+                _numbers = Arrays.copyOf(_numbers, capacity);
+            }
+            _kinds[_size] = kind;
+            _positions[_size] = position;
+            _indexes[_size] = index;
+            _numbers[_size] = number;
+            _size++;
+        }
+
+        /**
+         * @param previousRow the number of the last row of the previous chunk
+         * @return the number of the last row of this chunk
+         */
+        int replay(TypedSheetContentsHandler handler, int previousRow) {
+            int row = previousRow;
+            boolean inRow = false;
+            for (int i = 0; i < _size; i++) {
+                final int position = _positions[i];
+                switch (_kinds[i]) {
+                    case ROW:
+                        if (inRow) {
+                            handler.endRow(row);
+                        }
+                        // rows without row number follow the previous one
+                        row = (position >= 0) ? position : row + 1;
+                        handler.startRow(row);
+                        inRow = true;
+                        break;
+                    case NUMERIC:
+                        handler.numericCell(row, position, _numbers[i], _indexes[i]);
+                        break;
+                    case BOOLEAN:
+                        handler.booleanCell(row, position, _numbers[i] != 0);
+                        break;
+                    case SHARED_STRING:
+                        handler.sharedStringCell(row, position, _indexes[i]);
+                        break;
+                    case STRING:
+                        handler.stringCell(row, position, _strings.get(_indexes[i]));
+                        break;
+                    case ERROR:
+                        handler.errorCell(row, position, _strings.get(_indexes[i]));
+                        break;
+                    default:
+                        handler.formulaCell(row, position, _strings.get(_indexes[i]));
+                        break;
+                }
+            }
+            if (inRow) {
+                handler.endRow(row);
+            }
+            return row;
+        }
+    }
+}
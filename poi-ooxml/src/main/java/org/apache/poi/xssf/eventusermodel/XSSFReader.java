@@ -18,6 +18,7 @@ package org.apache.poi.xssf.eventusermodel;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -28,6 +29,13 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -75,6 +83,7 @@ public class XSSFReader {
     protected OPCPackage pkg;
     protected PackagePart workbookPart;
     protected boolean useReadOnlySharedStringsTable;
+    protected boolean useTempFileSharedStringsTable;
 
     /**
      * Creates a new XSSFReader, for the given package
@@ -137,16 +146,40 @@ public class XSSFReader {
         return useReadOnlySharedStringsTable;
     }
 
+    /**
+     * Controls whether {@link #getSharedStringsTable()} uses {@link TempFileReadOnlySharedStringsTable},
+     * which keeps the strings in memory-mapped temp files instead of the heap.
+     * This takes precedence over {@link #setUseReadOnlySharedStringsTable(boolean)}.
+     * The caller is responsible for closing the returned table.
+     *
+     * @param useTempFileSharedStringsTable if true, the TempFileReadOnlySharedStringsTable is used
+     * @since POI 5.2.3
+     */
+    public void setUseTempFileSharedStringsTable(boolean useTempFileSharedStringsTable) {
+        this.useTempFileSharedStringsTable = useTempFileSharedStringsTable;
+    }
+
+    /**
+     * @return whether {@link #getSharedStringsTable()} uses {@link TempFileReadOnlySharedStringsTable}
+     * @since POI 5.2.3
+     */
+    public boolean useTempFileSharedStringsTable() {
+        return useTempFileSharedStringsTable;
+    }
+
     /**
      * Opens up the Shared Strings Table, parses it, and
      * returns a handy object for working with
      * shared strings.
      * @see #setUseReadOnlySharedStringsTable(boolean)
+     * @see #setUseTempFileSharedStringsTable(boolean)
      */
     public SharedStrings getSharedStringsTable() throws IOException, InvalidFormatException {
         ArrayList<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
         try {
             return parts.isEmpty() ? null :
+                    useTempFileSharedStringsTable ? new TempFileReadOnlySharedStringsTable(
+                            parts.get(0), true, TempFileReadOnlySharedStringsTable.DEFAULT_CACHE_SIZE) :
                     useReadOnlySharedStringsTable ? new ReadOnlySharedStringsTable(parts.get(0)) :
                             new SharedStringsTable(parts.get(0));
         } catch (SAXException se) {
@@ -236,6 +269,160 @@ public class XSSFReader {
         return new SheetIterator(workbookPart);
     }
 
+    /**
+     * Processes all sheets concurrently on the given executor.
+     * <p>
+     * Each sheet part is opened independently within its task, so the sheets can be parsed in parallel,
+     * e.g. with one {@link XSSFSheetXMLHandler} per sheet. Read-only data like the shared strings table
+     * and the styles table should be loaded once beforehand and shared by the tasks. The
+     * {@link ReadOnlySharedStringsTable} and {@link TempFileReadOnlySharedStringsTable} can be read
+     * concurrently, while stateful helpers like a {@link org.apache.poi.ss.usermodel.DataFormatter}
+     * need to be created per task.
+     * <p>
+     * The sheet streams are closed after the processor returns. If a processor fails,
+     * the tasks which haven't started yet are cancelled without interrupting the running ones,
+     * which would close the channel of a file based package. The failure is rethrown after
+     * the running tasks have finished, so the package can be closed safely afterwards.
+     *
+     * @param executor the executor running the tasks, e.g. a fixed thread pool or a virtual thread executor
+     * @param processor the processor, which is called once per sheet
+     * @param <T> the result type of the processor
+     * @return the results of the processor in sheet order
+     * @throws IOException if a sheet can't be read or the processing was interrupted
+     * @throws SAXException if the processor fails to parse a sheet
+     * @throws InvalidFormatException if a sheet part is missing
+     * @since POI 5.2.3
+     */
+    public <T> List<T> processSheets(Executor executor, SheetProcessor<T> processor)
+            throws IOException, SAXException, InvalidFormatException {
+        SheetIterator iter = (SheetIterator)getSheetsData();
+        List<FutureTask<T>> tasks = new ArrayList<>();
+        List<SheetCall<T>> calls = new ArrayList<>();
+        int sheetIndex = 0;
+        while (iter.sheetIterator.hasNext()) {
+            final XSSFSheetRef sheetRef = iter.sheetIterator.next();
+            final PackagePart sheetPart = iter.sheetMap.get(sheetRef.getId());
+            final int index = sheetIndex++;
+            if (sheetPart == null) {
+                throw new InvalidFormatException("Missing sheet part for sheet " + sheetRef.getName());
+            }
+            SheetCall<T> call = new SheetCall<>(() -> {
+                InputStream sheetData;
+                // opening a part isn't guaranteed to be thread-safe, reading the opened streams is
+                synchronized (pkg) {
+                    sheetData = sheetPart.getInputStream();
+                }
+                try (InputStream is = sheetData) {
+                    return processor.process(index, sheetRef, sheetPart, is);
+                }
+            });
+            calls.add(call);
+            tasks.add(new FutureTask<>(call));
+        }
+
+        try {
+            for (FutureTask<T> task : tasks) {
+                executor.execute(task);
+            }
+            List<T> results = new ArrayList<>(tasks.size());
+            for (FutureTask<T> task : tasks) {
+                results.add(task.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while processing the sheets");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new POIXMLException(cause);
+        } finally {
+            boolean interrupted = false;
+            for (int i = 0; i < tasks.size(); i++) {
+                tasks.get(i).cancel(false);
+                interrupted |= calls.get(i).skipOrAwait();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runs the processing of a sheet, unless it was skipped before it started.
+     * A cancelled {@link FutureTask} doesn't wait for its running callable, so this tracks the
+     * running processor to let {@link #processSheets(Executor, SheetProcessor)} wait for it.
+     */
+    private static final class SheetCall<T> implements Callable<T> {
+        private final Callable<T> body;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        SheetCall(Callable<T> body) {
+            this.body = body;
+        }
+
+        @Override
+        public T call() throws Exception {
+            if (!claimed.compareAndSet(false, true)) {
+                throw new CancellationException();
+            }
+            try {
+                return body.call();
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        /**
+         * Prevents that the processing starts or waits until the started processing has finished
+         *
+         * @return whether the current thread was interrupted while waiting
+         */
+        boolean skipOrAwait() {
+            if (claimed.compareAndSet(false, true)) {
+                return false;
+            }
+            boolean interrupted = false;
+            for (;;) {
+                try {
+                    finished.await();
+                    return interrupted;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Callback for {@link #processSheets(Executor, SheetProcessor)}, which is called
+     * concurrently for the different sheets.
+     *
+     * @param <T> the result type
+     * @since POI 5.2.3
+     */
+    @FunctionalInterface
+    public interface SheetProcessor<T> {
+        /**
+         * @param sheetIndex the index of the sheet in workbook order
+         * @param sheetRef the relationship id and the name of the sheet
+         * @param sheetPart the sheet part, e.g. to look up the comments
+         * @param sheetData the sheet data, which is closed after the method returns
+         * @return the result for this sheet
+         */
+        T process(int sheetIndex, XSSFSheetRef sheetRef, PackagePart sheetPart, InputStream sheetData)
+                throws IOException, SAXException;
+    }
+
     /**
      * Iterator over sheet data.
      */
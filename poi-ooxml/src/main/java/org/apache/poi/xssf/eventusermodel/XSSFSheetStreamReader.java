@@ -0,0 +1,960 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.input.ReaderInputStream;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+/**
+ * A pull-based reader of the rows and cells of a sheet#.xml sheet part, e.g. as returned by
+ * {@link XSSFReader#getSheetsData()}.
+ * <p>
+ * The caller moves through the sheet with {@link #nextRow()} and {@link #nextCell()} and reads the
+ * values of the current cell, so the processing can be paused and resumed at any row, e.g. for back-pressure.
+ * Instead of a generic XML parser, a byte-level scanner decodes the {@code sheetData} elements
+ * ({@code row}, {@code c}, {@code v}, {@code f} and {@code is}) directly from the UTF-8 input and
+ * skips the other elements. The values are kept in reused buffers, so no strings are created for
+ * numeric, boolean and shared string cells.
+ * <p>
+ * Comments, processing instructions, CDATA sections, the predefined and numeric entities and
+ * namespace prefixes are supported. Sheets in other encodings than UTF-8 are transcoded.
+ * <p>
+ * <pre>{@code
+ * XSSFReader reader = new XSSFReader(pkg);
+ * SharedStrings strings = new ReadOnlySharedStringsTable(pkg);
+ * try (XSSFSheetStreamReader sheet = new XSSFSheetStreamReader(reader.getSheetsData().next(), strings)) {
+ *     while (sheet.nextRow()) {
+ *         while (sheet.nextCell()) {
+ *             if (sheet.getCellType() == CellType.NUMERIC) {
+ *                 process(sheet.getRowNum(), sheet.getColumn(), sheet.getNumericCellValue());
+ *             }
+ *         }
+ *     }
+ * }
+ * }</pre>
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @since POI 5.2.3
+ */
+public class XSSFSheetStreamReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int EOF = -1;
+    private static final int START_TAG = 1;
+    private static final int END_TAG = 2;
+
+    private static final byte[] ROW = bytes("row");
+    private static final byte[] SHEET_DATA = bytes("sheetData");
+    private static final byte[] C = bytes("c");
+    private static final byte[] V = bytes("v");
+    private static final byte[] F = bytes("f");
+    private static final byte[] IS = bytes("is");
+    private static final byte[] T = bytes("t");
+    private static final byte[] R = bytes("r");
+    private static final byte[] S = bytes("s");
+    private static final byte[] RPH = bytes("rPh");
+    private static final byte[] HIDDEN = bytes("hidden");
+    private static final byte[] HT = bytes("ht");
+    private static final byte[] OUTLINE_LEVEL = bytes("outlineLevel");
+    private static final byte[] CDATA = bytes("<![CDATA[");
+    /** the rest of the end of a CDATA section after the first ']' */
+    private static final byte[] CDATA_END = bytes("]>");
+    private static final byte[] BOM = {(byte)0xEF, (byte)0xBB, (byte)0xBF};
+
+    private static final Pattern ENCODING = Pattern.compile("encoding\\s*=\\s*[\"']([^\"']+)[\"']");
+
+    /** the values of the cell type attribute */
+    private enum ValueType { NUMBER, SHARED_STRING, INLINE_STRING, FORMULA_STRING, BOOLEAN, ERROR, DATE }
+
+    private final InputStream _in;
+    private final SharedStrings _strings;
+
+    private final byte[] _buf = new byte[BUFFER_SIZE];
+    private int _pos;
+    private int _limit;
+
+    /** the local name of the last tag and attribute */
+    private final byte[] _name = new byte[32];
+    private int _nameLength;
+    private final byte[] _attrName = new byte[32];
+    private int _attrNameLength;
+    private final StringBuilder _attr = new StringBuilder(32);
+    private boolean _attributesPending;
+    private boolean _emptyElement;
+
+    /** the requested rows and columns */
+    private int _firstRow;
+    private int _lastRow = Integer.MAX_VALUE;
+    private BitSet _columns;
+
+    private boolean _inRow;
+    private boolean _finished;
+    private int _rowNum = -1;
+    private boolean _rowNumExplicit;
+    private boolean _rowHidden;
+    private double _rowHeight;
+    private int _rowStyleIndex;
+    private int _rowOutlineLevel;
+
+    private int _column;
+    private ValueType _valueType;
+    private int _styleIndex;
+    private boolean _hasValue;
+    private boolean _hasFormula;
+    private final StringBuilder _value = new StringBuilder(64);
+    private final StringBuilder _formula = new StringBuilder(64);
+
+    /**
+     * @param sheetData the stream of the sheet part, which is closed by {@link #close()}
+     * @param strings the shared strings table for resolving the shared string cells, may be null if
+     *  only {@link #getSharedStringIndex()} is used
+     */
+    public XSSFSheetStreamReader(InputStream sheetData, SharedStrings strings) throws IOException {
+        _strings = strings;
+        _in = toUTF8(sheetData);
+        if (startsWith(BOM)) {
+            _pos += BOM.length;
+        }
+    }
+
+    /**
+     * Restricts the rows, which are returned by {@link #nextRow()}. The other rows are skipped
+     * without decoding their cells and the reading stops after the last requested row.
+     * This needs to be called before the first row is read.
+     *
+     * @param firstRow the zero based number of the first requested row
+     * @param lastRow the zero based number of the last requested row (inclusive)
+     * @since POI 5.2.3
+     */
+    public void setRowRange(int firstRow, int lastRow) {
+        if (firstRow < 0 || lastRow < firstRow) {
+            throw new IllegalArgumentException("Invalid row range " + firstRow + ":" + lastRow);
+        }
+        _firstRow = firstRow;
+        _lastRow = lastRow;
+    }
+
+    /**
+     * Restricts the cells, which are returned by {@link #nextCell()}. The cells of other columns
+     * are skipped without decoding their values.
+     *
+     * @param columns the zero based indexes of the requested columns or {@code null} for all columns
+     * @since POI 5.2.3
+     */
+    public void setColumns(BitSet columns) {
+        _columns = (columns == null) ? null : (BitSet)columns.clone();
+    }
+
+    /**
+     * Moves to the next row and skips the remaining cells of the current row.
+     *
+     * @return false, if there are no more rows
+     */
+    public boolean nextRow() throws IOException {
+        if (_finished) {
+            return false;
+        }
+        while (_inRow) {
+            nextCell();
+        }
+        for (;;) {
+            int tag = nextTag();
+            if (tag == EOF) {
+                _finished = true;
+                return false;
+            }
+            if (tag == START_TAG && nameIs(_name, _nameLength, ROW)) {
+                int rowNum = -1;
+                _rowHidden = false;
+                _rowHeight = -1;
+                _rowStyleIndex = -1;
+                _rowOutlineLevel = 0;
+                while (nextAttribute()) {
+                    if (nameIs(_attrName, _attrNameLength, R)) {
+                        rowNum = XSSFSheetXMLHandler.parseIndex(_attr) - 1;
+                    } else if (nameIs(_attrName, _attrNameLength, HIDDEN)) {
+                        _rowHidden = parseBoolean(_attr);
+                    } else if (nameIs(_attrName, _attrNameLength, HT)) {
+                        _rowHeight = XSSFSheetXMLHandler.parseDouble(_attr);
+                    } else if (nameIs(_attrName, _attrNameLength, S)) {
+                        _rowStyleIndex = XSSFSheetXMLHandler.parseIndex(_attr);
+                    } else if (nameIs(_attrName, _attrNameLength, OUTLINE_LEVEL)) {
+                        _rowOutlineLevel = Math.max(0, XSSFSheetXMLHandler.parseIndex(_attr));
+                    }
+                }
+                // some sheets do not have row numbers, Excel can read them so we should try to handle them as well
+                _rowNum = (rowNum >= 0) ? rowNum : _rowNum + 1;
+                _rowNumExplicit = rowNum >= 0;
+                if (_rowNum > _lastRow) {
+                    // the rows are sorted, so the rest of the stream isn't read
+                    _finished = true;
+                    return false;
+                }
+                if (_rowNum < _firstRow) {
+                    if (!_emptyElement) {
+                        skipElement();
+                    }
+                    continue;
+                }
+                _inRow = !_emptyElement;
+                _column = -1;
+                return true;
+            }
+            if (tag == END_TAG && nameIs(_name, _nameLength, SHEET_DATA)) {
+                _finished = true;
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Moves to the next cell of the current row.
+     *
+     * @return false, if there are no more cells in the current row
+     */
+    public boolean nextCell() throws IOException {
+        while (_inRow) {
+            int tag = nextTag();
+            if (tag == EOF) {
+                _inRow = false;
+                _finished = true;
+            } else if (tag == END_TAG) {
+                if (nameIs(_name, _nameLength, ROW)) {
+                    _inRow = false;
+                }
+            } else if (nameIs(_name, _nameLength, C)) {
+                if (readCell()) {
+                    return true;
+                }
+            } else {
+                skipElement();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the zero based number of the current row
+     */
+    public int getRowNum() {
+        return _rowNum;
+    }
+
+    /**
+     * @return whether the current row has a row number attribute
+     */
+    boolean isRowNumExplicit() {
+        return _rowNumExplicit;
+    }
+
+    /**
+     * @return whether the current row is hidden
+     */
+    public boolean isRowHidden() {
+        return _rowHidden;
+    }
+
+    /**
+     * @return the height of the current row in points or {@code -1}, if the row has the default height
+     */
+    public double getRowHeight() {
+        return _rowHeight;
+    }
+
+    /**
+     * @return the index of the cell style of the current row or {@code -1}, if the row has no style
+     */
+    public int getRowStyleIndex() {
+        return _rowStyleIndex;
+    }
+
+    /**
+     * @return the outline level of the current row
+     */
+    public int getRowOutlineLevel() {
+        return _rowOutlineLevel;
+    }
+
+    /**
+     * @return the zero based column of the current cell
+     */
+    public int getColumn() {
+        return _column;
+    }
+
+    /**
+     * @return the index of the cell style of the current cell
+     */
+    public int getStyleIndex() {
+        return _styleIndex;
+    }
+
+    /**
+     * @return the type of the current cell - {@link CellType#FORMULA} for formula cells
+     */
+    public CellType getCellType() {
+        return _hasFormula ? CellType.FORMULA : getCachedFormulaResultType();
+    }
+
+    /**
+     * @return the type of the value of the current cell, i.e. the result type for formula cells
+     */
+    public CellType getCachedFormulaResultType() {
+        if (!_hasValue) {
+            return CellType.BLANK;
+        }
+        switch (_valueType) {
+            case BOOLEAN:
+                return CellType.BOOLEAN;
+            case ERROR:
+                return CellType.ERROR;
+            case NUMBER:
+                return CellType.NUMERIC;
+            default:
+                return CellType.STRING;
+        }
+    }
+
+    /**
+     * @return the numeric value of the current cell, {@code 0} for blank cells
+     * @throws IllegalStateException if the cell has no numeric value
+     * @throws NumberFormatException if the value is no valid number
+     */
+    public double getNumericCellValue() {
+        CellType type = getCachedFormulaResultType();
+        if (type == CellType.BLANK) {
+            return 0;
+        }
+        if (type != CellType.NUMERIC) {
+            throw typeMismatch(CellType.NUMERIC, type);
+        }
+        return XSSFSheetXMLHandler.parseDouble(_value);
+    }
+
+    /**
+     * @return the boolean value of the current cell, {@code false} for blank cells
+     * @throws IllegalStateException if the cell has no boolean value
+     */
+    public boolean getBooleanCellValue() {
+        CellType type = getCachedFormulaResultType();
+        if (type == CellType.BLANK) {
+            return false;
+        }
+        if (type != CellType.BOOLEAN) {
+            throw typeMismatch(CellType.BOOLEAN, type);
+        }
+        return _value.length() > 0 && _value.charAt(0) != '0';
+    }
+
+    /**
+     * @return the string value of the current cell, which is looked up for shared strings,
+     *  an empty string for blank cells
+     * @throws IllegalStateException if the cell has no string value
+     */
+    public String getStringCellValue() {
+        CellType type = getCachedFormulaResultType();
+        if (type == CellType.BLANK) {
+            return "";
+        }
+        if (type != CellType.STRING) {
+            throw typeMismatch(CellType.STRING, type);
+        }
+        if (_valueType == ValueType.SHARED_STRING) {
+            int idx = getSharedStringIndex();
+            if (idx < 0) {
+                throw new IllegalStateException("Invalid shared string index '" + _value + "'");
+            }
+            return _strings.getItemAt(idx).getString();
+        }
+        // decode the escaped characters like _x000D_
+        String value = _value.toString();
+        return value.contains("_x") ? new XSSFRichTextString(value).getString() : value;
+    }
+
+    /**
+     * @return the index into the shared strings table or -1, if the current cell is no shared string cell
+     */
+    public int getSharedStringIndex() {
+        return (_hasValue && _valueType == ValueType.SHARED_STRING) ? XSSFSheetXMLHandler.parseIndex(_value) : -1;
+    }
+
+    /**
+     * @return the error code, e.g. "#DIV/0!", of the current cell
+     * @throws IllegalStateException if the cell has no error value
+     */
+    public String getErrorCellString() {
+        CellType type = getCachedFormulaResultType();
+        if (type != CellType.ERROR) {
+            throw typeMismatch(CellType.ERROR, type);
+        }
+        return _value.toString();
+    }
+
+    /**
+     * @return the formula of the current cell or {@code null} - the formula is empty for cells,
+     *  which refer to a shared formula
+     */
+    public String getCellFormula() {
+        return _hasFormula ? _formula.toString() : null;
+    }
+
+    /**
+     * @return the raw text of the value of the current cell, which is only valid until the next cell
+     */
+    public CharSequence getRawValue() {
+        return _value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _finished = true;
+        _inRow = false;
+        _in.close();
+    }
+
+    private static IllegalStateException typeMismatch(CellType expected, CellType actual) {
+        return new IllegalStateException("Cannot get a " + expected + " value from a " + actual + " cell");
+    }
+
+    /**
+     * @return false, if the cell was skipped, because its column wasn't requested
+     */
+    private boolean readCell() throws IOException {
+        _valueType = ValueType.NUMBER;
+        _styleIndex = 0;
+        _hasValue = false;
+        _hasFormula = false;
+        _value.setLength(0);
+        _formula.setLength(0);
+        int column = -1;
+        while (nextAttribute()) {
+            if (nameIs(_attrName, _attrNameLength, R)) {
+                column = XSSFSheetXMLHandler.parseColumn(_attr);
+            } else if (nameIs(_attrName, _attrNameLength, T)) {
+                _valueType = parseValueType(_attr);
+            } else if (nameIs(_attrName, _attrNameLength, S)) {
+                _styleIndex = Math.max(0, XSSFSheetXMLHandler.parseIndex(_attr));
+            }
+        }
+        // cells without reference follow the previous one
+        _column = (column >= 0) ? column : _column + 1;
+        if (_columns != null && !_columns.get(_column)) {
+            if (!_emptyElement) {
+                skipElement();
+            }
+            return false;
+        }
+        if (_emptyElement) {
+            return true;
+        }
+        for (;;) {
+            int tag = nextTag();
+            if (tag == EOF) {
+                return true;
+            }
+            if (tag == END_TAG) {
+                if (nameIs(_name, _nameLength, C)) {
+                    return true;
+                }
+            } else if (nameIs(_name, _nameLength, V)) {
+                skipAttributes();
+                _hasValue = true;
+                if (!_emptyElement) {
+                    readText(_value);
+                }
+            } else if (nameIs(_name, _nameLength, F)) {
+                skipAttributes();
+                _hasFormula = true;
+                if (!_emptyElement) {
+                    readText(_formula);
+                }
+            } else if (nameIs(_name, _nameLength, IS)) {
+                skipAttributes();
+                _hasValue = true;
+                if (!_emptyElement) {
+                    readInlineString();
+                }
+            } else {
+                skipElement();
+            }
+        }
+    }
+
+    /**
+     * Concatenates the text of the runs of an inline string - the phonetic runs are skipped
+     */
+    private void readInlineString() throws IOException {
+        for (;;) {
+            int tag = nextTag();
+            if (tag == EOF || (tag == END_TAG && nameIs(_name, _nameLength, IS))) {
+                return;
+            }
+            if (tag != START_TAG) {
+                continue;
+            }
+            if (nameIs(_name, _nameLength, T)) {
+                skipAttributes();
+                if (!_emptyElement) {
+                    readText(_value);
+                }
+            } else if (!nameIs(_name, _nameLength, R)) {
+                // rPr, rPh and phoneticPr
+                skipElement();
+            }
+        }
+    }
+
+    private static ValueType parseValueType(CharSequence type) {
+        switch (type.length() > 0 ? type.charAt(0) : ' ') {
+            case 's':
+                return (type.length() == 1) ? ValueType.SHARED_STRING
+                    : contentEquals(type, "str") ? ValueType.FORMULA_STRING : ValueType.NUMBER;
+            case 'i':
+                return contentEquals(type, "inlineStr") ? ValueType.INLINE_STRING : ValueType.NUMBER;
+            case 'b':
+                return ValueType.BOOLEAN;
+            case 'e':
+                return ValueType.ERROR;
+            case 'd':
+                return ValueType.DATE;
+            default:
+                return ValueType.NUMBER;
+        }
+    }
+
+    private static boolean parseBoolean(CharSequence value) {
+        return contentEquals(value, "1") || contentEquals(value, "true");
+    }
+
+    private static boolean contentEquals(CharSequence cs, String s) {
+        if (cs.length() != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (cs.charAt(i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skips the text, comments and processing instructions up to the next tag.
+     * The attributes of a start tag are read by {@link #nextAttribute()}.
+     */
+    private int nextTag() throws IOException {
+        skipAttributes();
+        for (;;) {
+            int b = read();
+            if (b == EOF) {
+                return EOF;
+            }
+            if (b != '<') {
+                continue;
+            }
+            b = read();
+            if (b == '/') {
+                _nameLength = readName(_name, read());
+                skipTo('>');
+                return END_TAG;
+            } else if (b == '?') {
+                skipTo('?', '>');
+            } else if (b == '!') {
+                if (startsWith(CDATA, 2)) {
+                    skipTo(']', ']', '>');
+                } else if (peek() == '-') {
+                    skipTo('-', '-', '>');
+                } else {
+                    skipDeclaration();
+                }
+            } else if (b != EOF) {
+                _nameLength = readName(_name, b);
+                _attributesPending = true;
+                _emptyElement = false;
+                return START_TAG;
+            }
+        }
+    }
+
+    /**
+     * Reads the next attribute of the current start tag into {@link #_attrName} and {@link #_attr}
+     *
+     * @return false, if the start tag is finished - {@link #_emptyElement} is set then
+     */
+    private boolean nextAttribute() throws IOException {
+        if (!_attributesPending) {
+            return false;
+        }
+        int b = read();
+        while (isWhitespace(b)) {
+            b = read();
+        }
+        if (b == '>' || b == EOF) {
+            _attributesPending = false;
+            return false;
+        }
+        if (b == '/') {
+            skipTo('>');
+            _attributesPending = false;
+            _emptyElement = true;
+            return false;
+        }
+        _attrNameLength = readName(_attrName, b);
+        int quote = read();
+        while (quote != '"' && quote != '\'' && quote != EOF) {
+            quote = read();
+        }
+        _attr.setLength(0);
+        for (;;) {
+            b = read();
+            if (b == quote || b == EOF) {
+                return true;
+            }
+            if (b == '&') {
+                readEntity(_attr);
+            } else {
+                appendChar(_attr, b);
+            }
+        }
+    }
+
+    private void skipAttributes() throws IOException {
+        while (nextAttribute()) {
+            // skip
+        }
+    }
+
+    /**
+     * Skips the current start tag with all children
+     */
+    private void skipElement() throws IOException {
+        skipAttributes();
+        if (_emptyElement) {
+            return;
+        }
+        int depth = 1;
+        while (depth > 0) {
+            int tag = nextTag();
+            if (tag == EOF) {
+                return;
+            }
+            if (tag == END_TAG) {
+                depth--;
+            } else {
+                skipAttributes();
+                if (!_emptyElement) {
+                    depth++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a name, which starts with the given byte, and keeps only the local part without the namespace prefix.
+     * The terminating byte is left in the buffer.
+     */
+    private int readName(byte[] name, int first) throws IOException {
+        int length = 0;
+        int b = first;
+        while (b != EOF && b != '>' && b != '/' && b != '=' && !isWhitespace(b)) {
+            if (b == ':') {
+                length = 0;
+            } else if (length < name.length) {
+                name[length] = (byte)b;
+                length++;
+            } else {
+                // longer than any of the names we're looking for
+                length = name.length;
+            }
+            b = read();
+        }
+        if (b != EOF) {
+            _pos--;
+        }
+        return length;
+    }
+
+    /**
+     * Appends the text up to the next tag, which might contain entities and CDATA sections
+     */
+    private void readText(StringBuilder sb) throws IOException {
+        for (;;) {
+            int b = peek();
+            if (b == EOF) {
+                return;
+            }
+            if (b == '<') {
+                if (!startsWith(CDATA)) {
+                    return;
+                }
+                _pos += CDATA.length;
+                readCData(sb);
+                continue;
+            }
+            _pos++;
+            if (b == '&') {
+                readEntity(sb);
+            } else {
+                appendChar(sb, b);
+            }
+        }
+    }
+
+    private void readCData(StringBuilder sb) throws IOException {
+        for (;;) {
+            int b = read();
+            if (b == EOF) {
+                return;
+            }
+            if (b == ']' && startsWith(CDATA_END)) {
+                _pos += CDATA_END.length;
+                return;
+            }
+            appendChar(sb, b);
+        }
+    }
+
+    /**
+     * Appends the character of an entity, whose '&amp;' was already read
+     */
+    private void readEntity(StringBuilder sb) throws IOException {
+        final StringBuilder entity = new StringBuilder(8);
+        int b = read();
+        while (b != ';' && b != EOF && entity.length() < 10) {
+            entity.append((char)b);
+            b = read();
+        }
+        String e = entity.toString();
+        switch (e) {
+            case "lt": sb.append('<'); return;
+            case "gt": sb.append('>'); return;
+            case "amp": sb.append('&'); return;
+            case "quot": sb.append('"'); return;
+            case "apos": sb.append('\''); return;
+            default:
+                break;
+        }
+        if (e.startsWith("#")) {
+            try {
+                int cp = (e.startsWith("#x") || e.startsWith("#X"))
+                    ? Integer.parseInt(e.substring(2), 16) : Integer.parseInt(e.substring(1));
+                sb.appendCodePoint(cp);
+                return;
+            } catch (IllegalArgumentException ex) {
+                // invalid character reference, which is kept as is
+            }
+        }
+        sb.append('&').append(e);
+        if (b == ';') {
+            sb.append(';');
+        }
+    }
+
+    /**
+     * Decodes the UTF-8 sequence, which starts with the given byte
+     */
+    private void appendChar(StringBuilder sb, int b) throws IOException {
+        if (b < 0x80) {
+            sb.append((char)b);
+        } else if (b < 0xE0) {
+            sb.append((char)(((b & 0x1F) << 6) | (read() & 0x3F)));
+        } else if (b < 0xF0) {
+            int b2 = read();
+            int b3 = read();
+            sb.append((char)(((b & 0x0F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F)));
+        } else {
+            int b2 = read();
+            int b3 = read();
+            int b4 = read();
+            sb.appendCodePoint(((b & 0x07) << 18) | ((b2 & 0x3F) << 12) | ((b3 & 0x3F) << 6) | (b4 & 0x3F));
+        }
+    }
+
+    /**
+     * Skips a declaration like DOCTYPE, which might contain an internal subset in brackets
+     */
+    private void skipDeclaration() throws IOException {
+        int depth = 0;
+        for (;;) {
+            int b = read();
+            if (b == EOF || (b == '>' && depth == 0)) {
+                return;
+            }
+            if (b == '[') {
+                depth++;
+            } else if (b == ']') {
+                depth--;
+            }
+        }
+    }
+
+    private void skipTo(int... terminator) throws IOException {
+        int matched = 0;
+        for (;;) {
+            int b = read();
+            if (b == EOF) {
+                return;
+            }
+            if (b == terminator[matched]) {
+                matched++;
+                if (matched == terminator.length) {
+                    return;
+                }
+            } else if (matched > 0) {
+                // the terminators only repeat their first character, e.g. "-->" after "---"
+                if (b != terminator[matched - 1]) {
+                    matched = (b == terminator[0]) ? 1 : 0;
+                }
+            }
+        }
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private static boolean nameIs(byte[] name, int length, byte[] expected) {
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name[i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int read() throws IOException {
+        if (_pos == _limit && !fill()) {
+            return EOF;
+        }
+        return _buf[_pos++] & 0xFF;
+    }
+
+    private int peek() throws IOException {
+        if (_pos == _limit && !fill()) {
+            return EOF;
+        }
+        return _buf[_pos] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = _in.read(_buf, 0, _buf.length);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        _pos = 0;
+        _limit = read;
+        return true;
+    }
+
+    private boolean startsWith(byte[] prefix) throws IOException {
+        return startsWith(prefix, 0);
+    }
+
+    /**
+     * @param offset the number of bytes of the prefix, which were already read
+     */
+    private boolean startsWith(byte[] prefix, int offset) throws IOException {
+        final int length = prefix.length - offset;
+        if (_limit - _pos < length) {
+            // compact the buffer and read ahead
+            System.arraycopy(_buf, _pos, _buf, 0, _limit - _pos);
+            _limit -= _pos;
+            _pos = 0;
+            while (_limit < length) {
+                int read = _in.read(_buf, _limit, _buf.length - _limit);
+                if (read < 0) {
+                    return false;
+                }
+                _limit += read;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            if (_buf[_pos + i] != prefix[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the start of the stream and transcodes it to UTF-8, if the byte order mark
+     * or the XML declaration specify another encoding
+     *
+     * @return the complete stream in UTF-8
+     */
+    static InputStream toUTF8(InputStream in) throws IOException {
+        byte[] head = new byte[256];
+        int length = 0;
+        while (length < head.length) {
+            int read = in.read(head, length, head.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        Charset charset = null;
+        if (length >= 2 && (head[0] == (byte)0xFE && head[1] == (byte)0xFF || head[0] == 0 && head[1] == '<')) {
+            charset = StandardCharsets.UTF_16BE;
+        } else if (length >= 2 && (head[0] == (byte)0xFF && head[1] == (byte)0xFE || head[0] == '<' && head[1] == 0)) {
+            charset = StandardCharsets.UTF_16LE;
+        } else {
+            String prolog = new String(head, 0, length, US_ASCII);
+            int end = prolog.indexOf("?>");
+            if (prolog.startsWith("<?xml") && end > 0) {
+                Matcher m = ENCODING.matcher(prolog.substring(0, end));
+                if (m.find()) {
+                    String name = m.group(1).toUpperCase(Locale.ROOT);
+                    if (!name.equals("UTF-8") && !name.equals("UTF8")) {
+                        charset = Charset.forName(name);
+                    }
+                }
+            }
+        }
+        InputStream all = new SequenceInputStream(new ByteArrayInputStream(head, 0, length), in);
+        return (charset == null) ? all : new ReaderInputStream(new InputStreamReader(all, charset), UTF_8);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(US_ASCII);
+    }
+}
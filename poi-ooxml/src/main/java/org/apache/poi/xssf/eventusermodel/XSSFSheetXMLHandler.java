@@ -18,6 +18,7 @@ package org.apache.poi.xssf.eventusermodel;
 
 import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
 
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Queue;
@@ -85,6 +86,11 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
     */
    private final SheetContentsHandler output;
 
+   /**
+    * Where our typed values are going, if the typed callbacks are used instead of {@link #output}
+    */
+   private final TypedSheetContentsHandler typedOutput;
+
    // Set when V start element is seen
    private boolean vIsOpen;
    // Set when F start element is seen
@@ -106,6 +112,10 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
    private int nextRowNum;      // some sheets do not have rowNums, Excel can read them so we should try to handle them correctly as well
    private String cellRef;
    private final boolean formulasNotResults;
+   // only maintained for the typed callbacks
+   private int columnNum;
+   private int styleIndex;
+   private boolean stringResult;
 
    // Gathers characters as they are seen.
    private final StringBuilder value = new StringBuilder(64);
@@ -114,6 +124,14 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
 
    private Queue<CellAddress> commentCellRefs;
 
+   // the requested rows and columns
+   private int firstRow;
+   private int lastRow = Integer.MAX_VALUE;
+   private BitSet columns;
+   // Set while the elements of a row or cell outside of the requested area are skipped
+   private boolean skipRow;
+   private boolean skipCell;
+
    /**
     * Accepts objects needed while parsing.
     *
@@ -131,6 +149,36 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        this.comments = comments;
        this.sharedStringsTable = strings;
        this.output = sheetContentsHandler;
+       this.typedOutput = null;
+       this.formulasNotResults = formulasNotResults;
+       this.nextDataType = xssfDataType.NUMBER;
+       this.formatter = dataFormatter;
+       init(comments);
+   }
+
+   /**
+    * Accepts objects needed while parsing and reports the cells with their unformatted, typed values.
+    *
+    * @param styles  Table of styles
+    * @param comments Table of cell comments, may be null
+    * @param strings Table of shared strings
+    * @param typedContentsHandler the handler of the typed values
+    * @param dataFormatter the formatter for the columns, which opt into formatted values
+    * @param formulasNotResults whether the formulas are reported instead of their results
+    * @since POI 5.2.3
+    */
+   public XSSFSheetXMLHandler(
+           Styles styles,
+           Comments comments,
+           SharedStrings strings,
+           TypedSheetContentsHandler typedContentsHandler,
+           DataFormatter dataFormatter,
+           boolean formulasNotResults) {
+       this.stylesTable = styles;
+       this.comments = comments;
+       this.sharedStringsTable = strings;
+       this.output = null;
+       this.typedOutput = typedContentsHandler;
        this.formulasNotResults = formulasNotResults;
        this.nextDataType = xssfDataType.NUMBER;
        this.formatter = dataFormatter;
@@ -175,6 +223,47 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        }
    }
 
+   /**
+    * Restricts the reported rows. The cells of the other rows are skipped without looking up
+    * or formatting their values and their comments are not reported.
+    * This needs to be called before the parsing starts.
+    *
+    * @param firstRow the zero based number of the first requested row
+    * @param lastRow the zero based number of the last requested row (inclusive)
+    * @since POI 5.2.3
+    */
+   public void setRowRange(int firstRow, int lastRow) {
+       if (firstRow < 0 || lastRow < firstRow) {
+           throw new IllegalArgumentException("Invalid row range " + firstRow + ":" + lastRow);
+       }
+       this.firstRow = firstRow;
+       this.lastRow = lastRow;
+       removeSkippedComments();
+   }
+
+   /**
+    * Restricts the reported cells to the given columns. The cells of the other columns are
+    * skipped without looking up or formatting their values and their comments are not reported.
+    * This needs to be called before the parsing starts.
+    *
+    * @param columns the zero based indexes of the requested columns or {@code null} for all columns
+    * @since POI 5.2.3
+    */
+   public void setColumns(BitSet columns) {
+       this.columns = (columns == null) ? null : (BitSet)columns.clone();
+       removeSkippedComments();
+   }
+
+   private boolean isRequested(int row, int column) {
+       return row >= firstRow && row <= lastRow && (columns == null || columns.get(column));
+   }
+
+   private void removeSkippedComments() {
+       if (commentCellRefs != null) {
+           commentCellRefs.removeIf(ref -> !isRequested(ref.getRow(), ref.getColumn()));
+       }
+   }
+
    private boolean isTextTag(String name) {
       if("v".equals(name)) {
          // Easy, normal v text tag
@@ -200,6 +289,9 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        if (uri != null && ! uri.equals(NS_SPREADSHEETML)) {
            return;
        }
+       if (skipRow || skipCell) {
+           return;
+       }
 
        if (isTextTag(localName)) {
            vIsOpen = true;
@@ -259,7 +351,14 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
            } else {
                rowNum = nextRowNum;
            }
-           output.startRow(rowNum);
+           columnNum = -1;
+           if (rowNum < firstRow || rowNum > lastRow) {
+               skipRow = true;
+           } else if (typedOutput != null) {
+               typedOutput.startRow(rowNum);
+           } else {
+               output.startRow(rowNum);
+           }
        }
        // c => cell
        else if ("c".equals(localName)) {
@@ -268,8 +367,22 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
            this.formatIndex = -1;
            this.formatString = null;
            cellRef = attributes.getValue("r");
+           // cells without reference follow the previous one
+           columnNum = (cellRef != null) ? parseColumn(cellRef) : columnNum + 1;
+           if (columns != null && !columns.get(columnNum)) {
+               skipCell = true;
+               // report the comments of requested empty cells before this one
+               if (cellRef != null) {
+                   checkForEmptyCellComments(EmptyCellCommentsCheckType.CELL);
+               }
+               return;
+           }
            String cellType = attributes.getValue("t");
            String cellStyleStr = attributes.getValue("s");
+           if (typedOutput != null) {
+               styleIndex = (cellStyleStr != null) ? Integer.parseInt(cellStyleStr) : 0;
+               stringResult = "str".equals(cellType);
+           }
            if ("b".equals(cellType))
                nextDataType = xssfDataType.BOOLEAN;
            else if ("e".equals(cellType))
@@ -283,7 +396,8 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
            else {
                // Number, but almost certainly with a special style or format
                XSSFCellStyle style = null;
-               if (stylesTable != null) {
+               // the format is only needed for formatted values
+               if (stylesTable != null && (typedOutput == null || typedOutput.isFormatted(columnNum))) {
                    if (cellStyleStr != null) {
                        int styleIndex = Integer.parseInt(cellStyleStr);
                        style = stylesTable.getStyleAt(styleIndex);
@@ -308,6 +422,17 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        if (uri != null && ! uri.equals(NS_SPREADSHEETML)) {
            return;
        }
+       if (skipCell) {
+           skipCell = !"c".equals(localName);
+           return;
+       }
+       if (skipRow) {
+           if ("row".equals(localName)) {
+               skipRow = false;
+               nextRowNum = rowNum + 1;
+           }
+           return;
+       }
 
        // v => contents of a cell
        if (isTextTag(localName)) {
@@ -328,7 +453,11 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
           checkForEmptyCellComments(EmptyCellCommentsCheckType.END_OF_ROW);
 
           // Finish up the row
-          output.endRow(rowNum);
+          if (typedOutput != null) {
+              typedOutput.endRow(rowNum);
+          } else {
+              output.endRow(rowNum);
+          }
 
           // some sheets do not have rowNum set in the XML, Excel can read them so we should try to read them as well
           nextRowNum = rowNum + 1;
@@ -337,17 +466,21 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
            checkForEmptyCellComments(EmptyCellCommentsCheckType.END_OF_SHEET_DATA);
 
            // indicate that this sheet is now done
-           output.endSheet();
+           if (typedOutput != null) {
+               typedOutput.endSheet();
+           } else {
+               output.endSheet();
+           }
        }
        else if("oddHeader".equals(localName) || "evenHeader".equals(localName) ||
              "firstHeader".equals(localName)) {
           hfIsOpen = false;
-          output.headerFooter(headerFooter.toString(), true, localName);
+          outputHeaderFooter(true, localName);
        }
        else if("oddFooter".equals(localName) || "evenFooter".equals(localName) ||
              "firstFooter".equals(localName)) {
           hfIsOpen = false;
-          output.headerFooter(headerFooter.toString(), false, localName);
+          outputHeaderFooter(false, localName);
        }
    }
 
@@ -369,7 +502,111 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        }
    }
 
+   private void outputHeaderFooter(boolean isHeader, String tagName) {
+       if (typedOutput != null) {
+           typedOutput.headerFooter(headerFooter.toString(), isHeader, tagName);
+       } else {
+           output.headerFooter(headerFooter.toString(), isHeader, tagName);
+       }
+   }
+
    private void outputCell() {
+       if (typedOutput != null) {
+           outputTypedCell();
+           return;
+       }
+
+       String thisStr = formatValue();
+
+       // Do we have a comment for this cell?
+       checkForEmptyCellComments(EmptyCellCommentsCheckType.CELL);
+       XSSFComment comment = comments != null ? comments.findCellComment(new CellAddress(cellRef)) : null;
+
+       // Output
+       output.cell(cellRef, thisStr, comment);
+   }
+
+   private void outputTypedCell() {
+       // Do we have a comment for this cell?
+       XSSFComment comment = null;
+       if (comments != null) {
+           checkForEmptyCellComments(EmptyCellCommentsCheckType.CELL);
+           comment = comments.findCellComment(new CellAddress(cellRef));
+       }
+
+       final int column = columnNum;
+       if (typedOutput.isFormatted(column)) {
+           typedOutput.formattedCell(rowNum, column, formatValue());
+       } else {
+           switch (nextDataType) {
+               case BOOLEAN:
+                   typedOutput.booleanCell(rowNum, column, value.charAt(0) != '0');
+                   break;
+
+               case ERROR:
+                   typedOutput.errorCell(rowNum, column, value);
+                   break;
+
+               case FORMULA:
+                   if (formulasNotResults) {
+                       typedOutput.formulaCell(rowNum, column, formula);
+                   } else if (stringResult) {
+                       typedOutput.stringCell(rowNum, column, value);
+                   } else {
+                       outputTypedNumber(column);
+                   }
+                   break;
+
+               case INLINE_STRING:
+                   // only decode the escaped characters, if there are any
+                   typedOutput.stringCell(rowNum, column, value.indexOf("_x") < 0
+                       ? value : new XSSFRichTextString(value.toString()).getString());
+                   break;
+
+               case SST_STRING:
+                   if (value.length() > 0) {
+                       int idx = parseIndex(value);
+                       if (idx >= 0) {
+                           typedOutput.sharedStringCell(rowNum, column, idx);
+                       } else {
+                           LOG.atError().log("Failed to parse SST index '{}'", value);
+                       }
+                   }
+                   break;
+
+               case NUMBER:
+                   outputTypedNumber(column);
+                   break;
+
+               default:
+                   break;
+           }
+       }
+
+       if (comment != null) {
+           typedOutput.comment(rowNum, column, comment);
+       }
+   }
+
+   private void outputTypedNumber(int column) {
+       if (value.length() == 0) {
+           return;
+       }
+       final double d;
+       try {
+           d = parseDouble(value);
+       } catch (NumberFormatException e) {
+           // Formula is a String result not a Numeric one
+           typedOutput.stringCell(rowNum, column, value);
+           return;
+       }
+       typedOutput.numericCell(rowNum, column, d, styleIndex);
+   }
+
+   /**
+    * @return the formatted value of the current cell
+    */
+   private String formatValue() {
        String thisStr = null;
 
        // Process the value contents as required, now we have it all
@@ -436,13 +673,93 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
                thisStr = "(TODO: Unexpected type: " + nextDataType + ")";
                break;
        }
+       return thisStr;
+   }
 
-       // Do we have a comment for this cell?
-       checkForEmptyCellComments(EmptyCellCommentsCheckType.CELL);
-       XSSFComment comment = comments != null ? comments.findCellComment(new CellAddress(cellRef)) : null;
+   /**
+    * @return the zero based column index of a cell reference like "AB12"
+    */
+   static int parseColumn(CharSequence cellRef) {
+       int col = 0;
+       for (int i = 0; i < cellRef.length(); i++) {
+           char c = cellRef.charAt(i);
+           if (c >= 'A' && c <= 'Z') {
+               col = col * 26 + (c - 'A' + 1);
+           } else if (c >= 'a' && c <= 'z') {
+               col = col * 26 + (c - 'a' + 1);
+           } else if (c != '$') {
+               break;
+           }
+       }
+       return col - 1;
+   }
 
-       // Output
-       output.cell(cellRef, thisStr, comment);
+   /**
+    * @return the non-negative integer or -1, if the text is no such number
+    */
+   static int parseIndex(CharSequence text) {
+       final int length = text.length();
+       if (length == 0 || length > 9) {
+           return -1;
+       }
+       int idx = 0;
+       for (int i = 0; i < length; i++) {
+           char c = text.charAt(i);
+           if (c < '0' || c > '9') {
+               return -1;
+           }
+           idx = idx * 10 + (c - '0');
+       }
+       return idx;
+   }
+
+   private static final double[] POWERS_OF_TEN = {
+       1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+       1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+   };
+
+   /**
+    * Parses a number without creating a string for the common plain decimals.
+    * <p>
+    * Decimals with up to 15 digits and no exponent are converted by a single division of two exactly
+    * representable doubles, which is correctly rounded and gives the same result as
+    * {@link Double#parseDouble(String)}. Other notations fall back to it.
+    */
+   static double parseDouble(CharSequence text) {
+       final int length = text.length();
+       int i = 0;
+       boolean negative = false;
+       if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+           negative = text.charAt(0) == '-';
+           i++;
+       }
+       long mantissa = 0;
+       int digits = 0;
+       int fractionDigits = -1;
+       boolean anyDigit = false;
+       for (; i < length; i++) {
+           char c = text.charAt(i);
+           if (c >= '0' && c <= '9') {
+               anyDigit = true;
+               if (mantissa != 0 || c != '0') {
+                   digits++;
+               }
+               mantissa = mantissa * 10 + (c - '0');
+               if (fractionDigits >= 0) {
+                   fractionDigits++;
+               }
+           } else if (c == '.' && fractionDigits < 0) {
+               fractionDigits = 0;
+           } else {
+               break;
+           }
+       }
+       // without any digit, e.g. "+" or "-.", the text is invalid and the fallback throws
+       if (i < length || !anyDigit || digits > 15 || fractionDigits >= POWERS_OF_TEN.length) {
+           return Double.parseDouble(text.toString());
+       }
+       double d = (fractionDigits > 0) ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+       return negative ? -d : d;
    }
 
    /**
@@ -506,7 +823,11 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
     */
    private void outputEmptyCellComment(CellAddress cellRef) {
        XSSFComment comment = comments.findCellComment(cellRef);
-       output.cell(cellRef.formatAsString(), null, comment);
+       if (typedOutput != null) {
+           typedOutput.comment(cellRef.getRow(), cellRef.getColumn(), comment);
+       } else {
+           output.cell(cellRef.formatAsString(), null, comment);
+       }
    }
 
    private enum EmptyCellCommentsCheckType {
@@ -548,4 +869,71 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
       /** Signal that the end of a sheet was been reached */
       default void endSheet() {}
    }
+
+   /**
+    * This interface allows to provide typed callbacks when reading
+    * a sheet in streaming mode.
+    *
+    * Unlike {@link SheetContentsHandler}, the values are passed without
+    * formatting and the cell positions as zero based indexes, so no
+    * strings need to be created for numeric and shared string cells.
+    * The {@link CharSequence} values are only valid during the call.
+    *
+    * Single columns can opt into the formatted values via
+    * {@link #isFormatted(int)}.
+    *
+    * @since POI 5.2.3
+    */
+   public interface TypedSheetContentsHandler {
+      /** A row with the (zero based) row number has started */
+      void startRow(int rowNum);
+
+      /** A row with the (zero based) row number has ended */
+      void endRow(int rowNum);
+
+      /**
+       * A numeric cell or numeric formula result was encountered.
+       * The style index allows to detect dates, e.g. via
+       * {@link org.apache.poi.ss.usermodel.DateUtil#isADateFormat(int, String)}.
+       */
+      void numericCell(int rowNum, int column, double value, int styleIndex);
+
+      /** A boolean cell or boolean formula result was encountered */
+      void booleanCell(int rowNum, int column, boolean value);
+
+      /**
+       * A shared string cell was encountered - the index refers to the
+       * shared strings table, which was passed to the handler
+       */
+      void sharedStringCell(int rowNum, int column, int sstIndex);
+
+      /** An inline string cell or string formula result was encountered */
+      void stringCell(int rowNum, int column, CharSequence value);
+
+      /** An error cell with the error code, e.g. "#DIV/0!", was encountered */
+      default void errorCell(int rowNum, int column, CharSequence error) {}
+
+      /** A formula was encountered, if the formulas are reported instead of their results */
+      default void formulaCell(int rowNum, int column, CharSequence formula) {}
+
+      /**
+       * @return whether the cells of the column are reported via {@link #formattedCell(int, int, String)}
+       *  with the same value as {@link SheetContentsHandler#cell(String, String, XSSFComment)}
+       */
+      default boolean isFormatted(int column) {
+         return false;
+      }
+
+      /** A cell of a formatted column with the given formatted value (may be null) was encountered */
+      default void formattedCell(int rowNum, int column, String formattedValue) {}
+
+      /** A cell comment was encountered - the cell itself might be empty */
+      default void comment(int rowNum, int column, XSSFComment comment) {}
+
+      /** A header or footer has been encountered */
+      default void headerFooter(String text, boolean isHeader, String tagName) {}
+
+      /** Signal that the end of a sheet was been reached */
+      default void endSheet() {}
+   }
 }
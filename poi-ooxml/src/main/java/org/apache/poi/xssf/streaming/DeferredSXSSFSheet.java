@@ -51,6 +51,16 @@ public class DeferredSXSSFSheet extends SXSSFSheet {
         throw new RuntimeException("Not supported by DeferredSXSSFSheet");
     }
 
+    /**
+     * Unsupported in DeferredSXSSFSheet
+     *
+     * @throws RuntimeException this is unsupported
+     */
+    @Override
+    public SXSSFRowPartition createRowPartition(int firstRow, int lastRow) {
+        throw new RuntimeException("Not supported by DeferredSXSSFSheet");
+    }
+
     /**
      * Add a function to generate rows for the sheet. This function should only create rows and cells.
      * Any other settings like creating cell styles should be done in separate calls outside this function.
@@ -0,0 +1,112 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.poi.util.TempFile;
+
+/**
+ * A zip entry, which was deflated into a temp file ahead of writing the zip archive.
+ * <p>
+ * This allows to compress the entries on multiple threads and to copy the raw
+ * deflated data into the archive afterwards.
+ */
+final class DeflatedEntryFile {
+    interface EntryWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private final File file;
+    private final long crc;
+    private final long size;
+    private final long compressedSize;
+
+    private DeflatedEntryFile(File file, long crc, long size, long compressedSize) {
+        this.file = file;
+        this.crc = crc;
+        this.size = size;
+        this.compressedSize = compressedSize;
+    }
+
+    /**
+     * Deflates the data provided by the writer into a new temp file
+     *
+     * @param level the compression level, see {@link Deflater#setLevel(int)}
+     * @param writer the provider of the uncompressed data
+     */
+    static DeflatedEntryFile deflate(int level, EntryWriter writer) throws IOException {
+        File file = TempFile.createTempFile("poi-sxssf-entry", ".deflate");
+        Deflater deflater = new Deflater(level, true);
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream os = new CheckedOutputStream(new DeflaterOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file)), deflater, 64 * 1024), crc)) {
+                writer.write(os);
+            }
+            return new DeflatedEntryFile(file, crc.getValue(), deflater.getBytesRead(), deflater.getBytesWritten());
+        } catch (IOException|RuntimeException e) {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+            throw e;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @return a new zip entry with the name, the method, the checksum and the sizes of the deflated data
+     */
+    ZipArchiveEntry createArchiveEntry(String name) {
+        ZipArchiveEntry ze = new ZipArchiveEntry(name);
+        ze.setMethod(ZipEntry.DEFLATED);
+        ze.setCrc(crc);
+        ze.setSize(size);
+        ze.setCompressedSize(compressedSize);
+        return ze;
+    }
+
+    /**
+     * @return a stream of the raw deflated data
+     */
+    InputStream getRawInputStream() throws IOException {
+        return new FileInputStream(file);
+    }
+
+    /**
+     * Deletes the temp file
+     *
+     * @return true if the file was deleted
+     */
+    boolean dispose() {
+        return file.delete();
+    }
+}
@@ -0,0 +1,112 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.poifs.nio.CleanerUtil;
+import org.apache.poi.util.TempFile;
+
+/**
+ * A growable array of longs, which is memory-mapped from a temp file.
+ * <p>
+ * The file is mapped in segments of 8 MB, so the data lives in the page cache instead of the heap.
+ * New elements are initialized with zero.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class MappedLongArray implements Closeable {
+    private static final Logger LOG = LogManager.getLogger(MappedLongArray.class);
+
+    private static final int SEGMENT_SHIFT = 20;
+    private static final int SEGMENT_LENGTH = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_LENGTH - 1;
+
+    private final File _file;
+    private final RandomAccessFile _raf;
+    private final List<MappedByteBuffer> _segments = new ArrayList<>();
+
+    MappedLongArray(String prefix, long length) throws IOException {
+        _file = TempFile.createTempFile(prefix, ".tmp");
+        _raf = new RandomAccessFile(_file, "rw");
+        ensureCapacity(length);
+    }
+
+    /**
+     * @return the number of elements, which can be accessed without growing the array
+     */
+    long capacity() {
+        return (long)_segments.size() << SEGMENT_SHIFT;
+    }
+
+    /**
+     * Maps further segments until the array has room for the given number of elements
+     *
+     * @param length the number of elements
+     */
+    void ensureCapacity(long length) throws IOException {
+        FileChannel channel = _raf.getChannel();
+        while (capacity() < length) {
+            long position = capacity() * Long.BYTES;
+            _segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, (long)SEGMENT_LENGTH * Long.BYTES));
+        }
+    }
+
+    long get(long index) {
+        return _segments.get((int)(index >>> SEGMENT_SHIFT)).getLong((int)(index & SEGMENT_MASK) * Long.BYTES);
+    }
+
+    void set(long index, long value) {
+        _segments.get((int)(index >>> SEGMENT_SHIFT)).putLong((int)(index & SEGMENT_MASK) * Long.BYTES, value);
+    }
+
+    /**
+     * Unmaps the segments and deletes the temp file
+     */
+    @Override
+    public void close() throws IOException {
+        for (ByteBuffer segment : _segments) {
+            unmap(segment);
+        }
+        _segments.clear();
+        _raf.close();
+        if (!_file.delete() && _file.exists()) {
+            LOG.atWarn().log("Failed to delete the temp file {}", _file);
+        }
+    }
+
+    private static void unmap(ByteBuffer buffer) {
+        if (CleanerUtil.UNMAP_SUPPORTED) {
+            try {
+                CleanerUtil.getCleaner().freeBuffer(buffer);
+            } catch (IOException e) {
+                LOG.atWarn().withThrowable(e).log("Failed to unmap the buffer");
+            }
+        }
+    }
+}
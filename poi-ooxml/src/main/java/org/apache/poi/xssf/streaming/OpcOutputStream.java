@@ -17,12 +17,15 @@
 
 package org.apache.poi.xssf.streaming;
 
+import org.apache.poi.util.IOUtils;
 import org.apache.poi.xssf.streaming.Zip64Impl.Entry;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.zip.*;
 
 /**
@@ -39,6 +42,9 @@ class OpcOutputStream extends DeflaterOutputStream {
     private Entry current;
     private int written = 0;
     private boolean finished = false;
+    private int level = Deflater.DEFAULT_COMPRESSION;
+    private Executor deflateExecutor;
+    private ParallelDeflaterOutputStream parallel;
 
     /**
      * Creates ZIP64 output stream
@@ -55,6 +61,18 @@ class OpcOutputStream extends DeflaterOutputStream {
      */
     public void setLevel(int level) {
         super.def.setLevel(level);
+        this.level = level;
+    }
+
+    /**
+     * Sets the executor for compressing the entries in parallel blocks.
+     * This applies to entries, which are started after this call.
+     *
+     * @param executor the executor or {@code null} to compress on the writing thread
+     * @see ParallelDeflaterOutputStream
+     */
+    public void setDeflateExecutor(Executor executor) {
+        this.deflateExecutor = executor;
     }
 
     /**
@@ -68,6 +86,37 @@ class OpcOutputStream extends DeflaterOutputStream {
         current.offset = written;
         written += spec.writeLFH(current);
         entries.add(current);
+        if (deflateExecutor != null) {
+            parallel = new ParallelDeflaterOutputStream(out, deflateExecutor, level);
+        }
+    }
+
+    /**
+     * Adds an entry with already deflated data, which is copied unchanged
+     *
+     * @param name the entry name
+     * @param crc the CRC-32 of the uncompressed data
+     * @param size the size of the uncompressed data
+     * @param compressedSize the size of the raw deflated data
+     * @param raw the raw deflated data
+     */
+    public void putRawEntry(String name, long crc, long size, long compressedSize, InputStream raw) throws IOException {
+        if (current != null) {
+            closeEntry();
+        }
+        Entry entry = new Entry(name);
+        entry.offset = written;
+        written += spec.writeLFH(entry);
+        long copied = IOUtils.copy(raw, out);
+        if (copied != compressedSize) {
+            throw new IOException("Expected " + compressedSize + " deflated bytes for entry " + name + ", but got " + copied);
+        }
+        entry.size = size;
+        entry.compressedSize = Math.toIntExact(compressedSize);
+        entry.crc = crc;
+        written += entry.compressedSize;
+        written += spec.writeDAT(entry);
+        entries.add(entry);
     }
 
     /**
@@ -77,13 +126,19 @@ class OpcOutputStream extends DeflaterOutputStream {
         if (current == null) {
             throw new IllegalStateException("not current zip current");
         }
-        def.finish();
-        while (!def.finished()) {
-            deflate();
+        if (parallel != null) {
+            parallel.finish();
+            current.size = parallel.getBytesRead();
+            current.compressedSize = Math.toIntExact(parallel.getBytesWritten());
+            parallel = null;
+        } else {
+            def.finish();
+            while (!def.finished()) {
+                deflate();
+            }
+            current.size = def.getBytesRead();
+            current.compressedSize = Math.toIntExact(def.getBytesWritten());
         }
-
-        current.size = def.getBytesRead();
-        current.compressedSize = Math.toIntExact(def.getBytesWritten());
         current.crc = crc.getValue();
 
         written += current.compressedSize;
@@ -123,7 +178,11 @@ class OpcOutputStream extends DeflaterOutputStream {
         } else if (len == 0) {
             return;
         }
-        super.write(b, off, len);
+        if (parallel != null) {
+            parallel.write(b, off, len);
+        } else {
+            super.write(b, off, len);
+        }
         crc.update(b, off, len);
     }
 
@@ -18,30 +18,67 @@
 package org.apache.poi.xssf.streaming;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-
-class OpcZipArchiveOutputStream extends ZipArchiveOutputStream {
+import java.util.concurrent.Executor;
+
+/**
+ * Zip archive output stream, which writes an Excel compatible ZIP64 archive.
+ * <p>
+ * Besides being used by {@link SXSSFWorkbook}, it can be passed to
+ * {@link org.apache.poi.ooxml.POIXMLDocument#write(OutputStream)} (e.g. {@code XSSFWorkbook.write})
+ * to control the compression level and to deflate the parts on multiple threads.
+ *
+ * @see #setLevel(int)
+ * @see #setDeflateExecutor(Executor)
+ */
+public class OpcZipArchiveOutputStream extends ZipArchiveOutputStream {
     private final OpcOutputStream out;
 
-    OpcZipArchiveOutputStream(OutputStream out) {
+    public OpcZipArchiveOutputStream(OutputStream out) {
         super(out);
         this.out = new OpcOutputStream(out);
     }
 
+    /**
+     * Sets the compression level of the following entries.
+     * Level {@link java.util.zip.Deflater#NO_COMPRESSION} only stores the data in
+     * uncompressed deflate blocks, which is the fastest option for intermediate files.
+     *
+     * @param level the compression level, between -1 ({@link java.util.zip.Deflater#DEFAULT_COMPRESSION}) and 9
+     */
     @Override
     public void setLevel(int level) {
         out.setLevel(level);
     }
 
+    /**
+     * Sets an executor for compressing the following entries in parallel.
+     * The entry data is split into blocks of 128 KiB, which are deflated concurrently
+     * and concatenated into a single deflate stream (like pigz).
+     *
+     * @param executor the executor, or {@code null} to deflate on the writing thread (the default)
+     * @since POI 5.2.3
+     */
+    public void setDeflateExecutor(Executor executor) {
+        out.setDeflateExecutor(executor);
+    }
+
 
     @Override
     public void putArchiveEntry(ArchiveEntry archiveEntry) throws IOException {
         out.putNextEntry(archiveEntry.getName());
     }
 
+    @Override
+    public void addRawArchiveEntry(ZipArchiveEntry entry, InputStream rawStream) throws IOException {
+        out.putRawEntry(entry.getName(), entry.getCrc(), entry.getSize(), entry.getCompressedSize(), rawStream);
+    }
+
     @Override
     public void closeArchiveEntry() throws IOException {
         out.closeEntry();
@@ -0,0 +1,209 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream, which compresses the data into a raw deflate stream on multiple threads.
+ * <p>
+ * Like pigz, the data is split into blocks, which are compressed independently
+ * with the last 32k of the preceding block as dictionary. All blocks but the last are
+ * terminated with a sync flush, so they end on a byte boundary and can simply be concatenated.
+ * The compressed blocks are written to the underlying stream in order.
+ * <p>
+ * This class is not thread-safe - the writing thread needs to be the same for all calls.
+ */
+final class ParallelDeflaterOutputStream extends OutputStream {
+    static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    /** the maximum distance of a back reference in deflate */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private final OutputStream out;
+    private final Executor executor;
+    private final int level;
+    private final int blockSize;
+    private final int maxPendingBlocks;
+    private final ArrayDeque<FutureTask<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] block;
+    private int blockLength;
+    private byte[] dictionary;
+    private long bytesRead;
+    private long bytesWritten;
+    private boolean finished;
+
+    /**
+     * @param out the stream to write the raw deflate data to - it's not closed by this stream
+     * @param executor the executor, which compresses the blocks
+     * @param level the compression level, see {@link Deflater#setLevel(int)}
+     */
+    ParallelDeflaterOutputStream(OutputStream out, Executor executor, int level) {
+        this(out, executor, level, DEFAULT_BLOCK_SIZE);
+    }
+
+    ParallelDeflaterOutputStream(OutputStream out, Executor executor, int level, int blockSize) {
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("block size needs to be at least " + DICTIONARY_SIZE);
+        }
+        this.out = out;
+        this.executor = executor;
+        this.level = level;
+        this.blockSize = blockSize;
+        // limit the memory of the blocks, which are compressed or waiting to be written
+        this.maxPendingBlocks = 2 * Runtime.getRuntime().availableProcessors();
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte)b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("write beyond end of stream");
+        }
+        while (len > 0) {
+            int chunk = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, chunk);
+            blockLength += chunk;
+            bytesRead += chunk;
+            off += chunk;
+            len -= chunk;
+            if (blockLength == blockSize) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Compresses the remaining data, terminates the deflate stream and writes all pending blocks.
+     * The underlying stream is neither flushed nor closed.
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        submitBlock(true);
+        while (!pending.isEmpty()) {
+            writeNextBlock();
+        }
+    }
+
+    /**
+     * @return the number of uncompressed bytes
+     */
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return the number of compressed bytes, which were written to the underlying stream
+     */
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        final byte[] data = block;
+        final int length = blockLength;
+        final byte[] dict = dictionary;
+        final FutureTask<byte[]> task = new FutureTask<>(() -> deflate(data, length, dict, last));
+        executor.execute(task);
+        pending.add(task);
+
+        if (!last) {
+            dictionary = Arrays.copyOfRange(data, length - DICTIONARY_SIZE, length);
+            block = new byte[blockSize];
+            blockLength = 0;
+        }
+
+        while (pending.size() > maxPendingBlocks) {
+            writeNextBlock();
+        }
+    }
+
+    private void writeNextBlock() throws IOException {
+        final byte[] compressed;
+        try {
+            compressed = pending.remove().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the compressed data");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress data", e.getCause());
+        }
+        out.write(compressed);
+        bytesWritten += compressed.length;
+    }
+
+    private byte[] deflate(byte[] data, int length, byte[] dict, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dict != null) {
+                deflater.setDictionary(dict);
+            }
+            deflater.setInput(data, 0, length);
+            if (last) {
+                deflater.finish();
+            }
+            // the compressed data is usually smaller than the input, stored blocks add 5 bytes per 64k
+            byte[] buf = new byte[length + (length >> 4) + 64];
+            int pos = 0;
+            while (true) {
+                if (pos == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+                int space = buf.length - pos;
+                if (last) {
+                    pos += deflater.deflate(buf, pos, space);
+                    if (deflater.finished()) {
+                        break;
+                    }
+                } else {
+                    int count = deflater.deflate(buf, pos, space, Deflater.SYNC_FLUSH);
+                    pos += count;
+                    // a sync flush is complete, if the output didn't fill the available space
+                    if (count < space) {
+                        break;
+                    }
+                }
+            }
+            return Arrays.copyOf(buf, pos);
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -584,6 +584,14 @@ public class SXSSFCell extends CellBase {
         }
     }
 
+    /**
+     * @return the index of the cell style, without looking up the default style for unstyled cells
+     */
+    int getCellStyleIndex() {
+        // need to convert the short to unsigned short as the indexes can be up to 64k
+        return _style == null ? 0 : _style.getIndex() & 0xffff;
+    }
+
     /**
      * {@inheritDoc}
      */
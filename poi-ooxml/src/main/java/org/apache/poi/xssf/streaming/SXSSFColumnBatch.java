@@ -0,0 +1,172 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+
+package org.apache.poi.xssf.streaming;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+
+/**
+ * A batch of rows given as typed column arrays, which is written by
+ * {@link SXSSFSheet#writeRows(int, SXSSFColumnBatch)} without creating row or cell objects.
+ * <p>
+ * The column arrays are referenced, not copied - so a batch can be refilled and written again,
+ * e.g. with the next rows of a result set. Each array needs at least {@link #getRowCount()} elements.
+ * <pre>{@code
+ * double[] amounts = new double[1000];
+ * long[] timestamps = new long[1000];
+ * String[] names = new String[1000];
+ * SXSSFColumnBatch batch = new SXSSFColumnBatch(1000)
+ *     .addStringColumn(names, null)
+ *     .addNumericColumn(amounts, amountStyle)
+ *     .addDateColumn(timestamps, dateStyle);
+ * int rownum = 1;
+ * while (...) {
+ *     // fill the arrays and set the number of filled rows
+ *     batch.setRowCount(filled);
+ *     sheet.writeRows(rownum, batch);
+ *     rownum += filled;
+ * }
+ * }</pre>
+ *
+ * @since POI 5.2.3
+ */
+public final class SXSSFColumnBatch {
+    enum ColumnType {NUMERIC, DATE, STRING}
+
+    static final class Column {
+        final ColumnType type;
+        final double[] numbers;
+        final long[] dates;
+        final String[] strings;
+        final int styleIndex;
+
+        private Column(ColumnType type, double[] numbers, long[] dates, String[] strings, CellStyle style) {
+            this.type = type;
+            this.numbers = numbers;
+            this.dates = dates;
+            this.strings = strings;
+            // need to convert the short to unsigned short as the indexes can be up to 64k
+            this.styleIndex = (style == null) ? 0 : style.getIndex() & 0xffff;
+        }
+
+        int length() {
+            switch (type) {
+                case NUMERIC: return numbers.length;
+                case DATE: return dates.length;
+                default: return strings.length;
+            }
+        }
+    }
+
+    private final List<Column> _columns = new ArrayList<>();
+    private int _rowCount;
+
+    /**
+     * @param rowCount the number of rows to write
+     */
+    public SXSSFColumnBatch(int rowCount) {
+        setRowCount(rowCount);
+    }
+
+    /**
+     * Adds a numeric column. Like {@link org.apache.poi.ss.usermodel.Cell#setCellValue(double)},
+     * NaN is written as #NUM! and infinite values as #DIV/0! error.
+     *
+     * @param values the cell values
+     * @param style the style of the cells or {@code null} for the default style
+     * @return this batch
+     */
+    public SXSSFColumnBatch addNumericColumn(double[] values, CellStyle style) {
+        return addColumn(new Column(ColumnType.NUMERIC, values, null, null, style));
+    }
+
+    /**
+     * Adds a date column. The dates are converted to Excel dates in the user time zone
+     * ({@link org.apache.poi.util.LocaleUtil#getUserTimeZone()}), like
+     * {@link org.apache.poi.ss.usermodel.Cell#setCellValue(java.util.Date)}.
+     * The style should have a date format, otherwise the dates are displayed as numbers.
+     *
+     * @param epochMillis the dates as milliseconds since 1970-01-01T00:00:00Z
+     * @param style the style of the cells or {@code null} for the default style
+     * @return this batch
+     */
+    public SXSSFColumnBatch addDateColumn(long[] epochMillis, CellStyle style) {
+        return addColumn(new Column(ColumnType.DATE, null, epochMillis, null, style));
+    }
+
+    /**
+     * Adds a string column. {@code null} values are skipped, i.e. no cell is written.
+     *
+     * @param values the cell values
+     * @param style the style of the cells or {@code null} for the default style
+     * @return this batch
+     */
+    public SXSSFColumnBatch addStringColumn(String[] values, CellStyle style) {
+        return addColumn(new Column(ColumnType.STRING, null, null, values, style));
+    }
+
+    /**
+     * @param rowCount the number of rows to write - e.g. for the last, partially filled batch
+     */
+    public void setRowCount(int rowCount) {
+        if (rowCount < 0) {
+            throw new IllegalArgumentException("The row count must not be negative: " + rowCount);
+        }
+        _rowCount = rowCount;
+    }
+
+    /**
+     * @return the number of rows to write
+     */
+    public int getRowCount() {
+        return _rowCount;
+    }
+
+    /**
+     * @return the number of columns
+     */
+    public int getColumnCount() {
+        return _columns.size();
+    }
+
+    List<Column> getColumns() {
+        return _columns;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a column array is shorter than the row count
+     */
+    void validate() {
+        for (int i = 0; i < _columns.size(); i++) {
+            if (_columns.get(i).length() < _rowCount) {
+                throw new IllegalArgumentException("Column " + i + " has less than " + _rowCount + " values");
+            }
+        }
+    }
+
+    private SXSSFColumnBatch addColumn(Column column) {
+        if (column.numbers == null && column.dates == null && column.strings == null) {
+            throw new IllegalArgumentException("The column values must not be null");
+        }
+        _columns.add(column);
+        return this;
+    }
+}
@@ -43,6 +43,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     private static final Boolean UNDEFINED = null;
 
     private final SXSSFSheet _sheet; // parent sheet
+    private final SXSSFRowPartition _partition; // owning partition or null for the rows of the sheet
     private final SortedMap<Integer, SXSSFCell> _cells = new TreeMap<>();
     private short _style = -1; // index of cell style in style table
     private short _height = -1; // row height in twips (1/20 point)
@@ -54,8 +55,22 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     private int _rowNum;
 
     public SXSSFRow(SXSSFSheet sheet)
+    {
+        this(sheet, null);
+    }
+
+    SXSSFRow(SXSSFSheet sheet, SXSSFRowPartition partition)
     {
         _sheet=sheet;
+        _partition=partition;
+    }
+
+    /**
+     * @return the row partition, which created this row, or null for the rows of the sheet
+     */
+    SXSSFRowPartition getPartition()
+    {
+        return _partition;
     }
 
     public Iterator<Cell> allCellsIterator()
@@ -191,10 +206,14 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
      *
      * @param rowNum  the row number (0-based)
      * @throws IllegalArgumentException if rowNum &lt; 0
+     * @throws IllegalStateException if the row belongs to a {@link SXSSFRowPartition}
      */
     @Override
     public void setRowNum(int rowNum)
     {
+        if (_partition != null) {
+            throw new IllegalStateException("The row number of a row of a row partition can't be changed");
+        }
         this._rowNum = rowNum;
         _sheet.changeRowNum(this, rowNum);
     }
@@ -0,0 +1,169 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.poi.util.IntSortedMap;
+
+/**
+ * A range of rows of a {@link SXSSFSheet}, which is filled independently of the sheet and
+ * of the other partitions - typically by its own producer thread.
+ * <p>
+ * The rows of a partition are buffered and flushed to a separate temp file, using the same
+ * random access window as the sheet. When the partition is closed, its rows are stitched into
+ * the sheet data in row order, once the sheet rows and partitions before it are written.
+ * <p>
+ * A partition itself is not thread-safe and should only be used by one thread.
+ * Cell styles, fonts and other workbook level objects need to be created before the producers
+ * are started, as the workbook is not thread-safe. The row numbers of partition rows can't be
+ * changed, the rows can't be removed from the sheet and they don't contribute to the auto-sizing
+ * of columns.
+ *
+ * @see SXSSFSheet#createRowPartition(int, int)
+ * @since POI 5.2.3
+ */
+public final class SXSSFRowPartition implements Closeable {
+    private final SXSSFSheet _sheet;
+    private final int _firstRow;
+    private final int _lastRow;
+    private final IntSortedMap<SXSSFRow> _rows = new IntSortedMap<>();
+    private final SheetDataWriter _writer;
+    private final int _randomAccessWindowSize;
+    private volatile boolean _closed;
+
+    SXSSFRowPartition(SXSSFSheet sheet, int firstRow, int lastRow, SheetDataWriter writer, int randomAccessWindowSize) {
+        _sheet = sheet;
+        _firstRow = firstRow;
+        _lastRow = lastRow;
+        _writer = writer;
+        _randomAccessWindowSize = randomAccessWindowSize;
+    }
+
+    /**
+     * Create a new row within this partition
+     *
+     * @param rownum row number, between {@link #getFirstRow()} and {@link #getLastRow()}
+     * @return the new row
+     * @throws IllegalArgumentException if the row number is outside the partition or the row
+     *      was already flushed to disk
+     * @throws IllegalStateException if the partition is closed
+     */
+    public SXSSFRow createRow(int rownum) {
+        if (_closed) {
+            throw new IllegalStateException("Row partition [" + _firstRow + "," + _lastRow + "] is closed");
+        }
+        if (rownum < _firstRow || rownum > _lastRow) {
+            throw new IllegalArgumentException("Invalid row number (" + rownum
+                    + ") outside the partition range (" + _firstRow + ".." + _lastRow + ")");
+        }
+        if (rownum <= _writer.getLastFlushedRow()) {
+            throw new IllegalArgumentException(
+                    "Attempting to write a row[" + rownum + "] " +
+                            "in the range [" + _firstRow + "," + _writer.getLastFlushedRow() + "] that is already written to disk.");
+        }
+
+        SXSSFRow newRow = new SXSSFRow(_sheet, this);
+        newRow.setRowNumWithoutUpdatingSheet(rownum);
+        _rows.put(rownum, newRow);
+        if (_randomAccessWindowSize >= 0 && _rows.size() > _randomAccessWindowSize) {
+            try {
+                flushRows(_randomAccessWindowSize);
+            } catch (IOException ioe) {
+                throw new RuntimeException(ioe);
+            }
+        }
+        return newRow;
+    }
+
+    /**
+     * @param rownum row number (0-based)
+     * @return the row of this partition, which is not flushed yet or null
+     */
+    public SXSSFRow getRow(int rownum) {
+        return _rows.get(rownum);
+    }
+
+    /**
+     * @return the sheet of this partition
+     */
+    public SXSSFSheet getSheet() {
+        return _sheet;
+    }
+
+    /**
+     * @return the first row number of this partition (0-based)
+     */
+    public int getFirstRow() {
+        return _firstRow;
+    }
+
+    /**
+     * @return the last row number of this partition (0-based)
+     */
+    public int getLastRow() {
+        return _lastRow;
+    }
+
+    /**
+     * @return true, if the partition is complete and can be written as part of the sheet
+     */
+    public boolean isClosed() {
+        return _closed;
+    }
+
+    /**
+     * Flushes the remaining rows and marks the partition as complete.
+     * After this call no rows can be created in this partition.
+     *
+     * @throws IOException If an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (_closed) {
+            return;
+        }
+        try {
+            flushRows(0);
+        } finally {
+            _writer.close();
+            _closed = true;
+        }
+    }
+
+    private void flushRows(int remaining) throws IOException {
+        while (_rows.size() > remaining) {
+            int firstRowNum = _rows.firstKey();
+            _writer.writeRow(firstRowNum, _rows.remove(firstRowNum));
+        }
+    }
+
+    SheetDataWriter getSheetDataWriter() {
+        return _writer;
+    }
+
+    boolean overlaps(int firstRow, int lastRow) {
+        return firstRow <= _lastRow && lastRow >= _firstRow;
+    }
+
+    boolean dispose() throws IOException {
+        return _writer.dispose();
+    }
+}
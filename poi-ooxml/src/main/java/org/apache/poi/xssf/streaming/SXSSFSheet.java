@@ -19,13 +19,13 @@ package org.apache.poi.xssf.streaming;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Spliterator;
-import java.util.TreeMap;
 
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
@@ -34,6 +34,7 @@ import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.ss.util.PaneInformation;
 import org.apache.poi.ss.util.SheetUtil;
 import org.apache.poi.util.Internal;
+import org.apache.poi.util.IntSortedMap;
 import org.apache.poi.util.NotImplemented;
 import org.apache.poi.xssf.usermodel.*;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTColor;
@@ -48,13 +49,15 @@ import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
 public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
     /*package*/ final XSSFSheet _sh;
     protected final SXSSFWorkbook _workbook;
-    private final TreeMap<Integer,SXSSFRow> _rows = new TreeMap<>();
+    private final IntSortedMap<SXSSFRow> _rows = new IntSortedMap<>();
     protected SheetDataWriter _writer;
     private int _randomAccessWindowSize = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
     protected final AutoSizeColumnTracker _autoSizeColumnTracker;
     private int outlineLevelRow;
     private int lastFlushedRowNumber = -1;
     private boolean allFlushed;
+    /** the row partitions, which are not yet appended to the sheet data - ordered by their first row */
+    private final List<SXSSFRowPartition> _rowPartitions = new ArrayList<>();
 
     protected SXSSFSheet(SXSSFWorkbook workbook, XSSFSheet xSheet, int randomAccessWindowSize) {
         _workbook = workbook;
@@ -83,6 +86,9 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
     public InputStream getWorksheetXMLInputStream() throws IOException {
         // flush all remaining data and close the temp file writer
         flushRows(0);
+        if (!appendRowPartitions(Integer.MAX_VALUE)) {
+            throw new IllegalStateException("All row partitions of sheet '" + getSheetName() + "' need to be closed before it is written");
+        }
         _writer.close();
         return _writer.getWorksheetXMLInputStream();
     }
@@ -119,6 +125,14 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
                             "in the range [0," + _sh.getLastRowNum() + "] that is already written to disk.");
         }
 
+        for (SXSSFRowPartition partition : _rowPartitions) {
+            if (partition.overlaps(rownum, rownum)) {
+                throw new IllegalArgumentException(
+                        "Attempting to write a row["+rownum+"] " +
+                                "in the range [" + partition.getFirstRow() + "," + partition.getLastRow() + "] of a row partition.");
+            }
+        }
+
         SXSSFRow newRow = new SXSSFRow(this);
         newRow.setRowNumWithoutUpdatingSheet(rownum);
         _rows.put(rownum, newRow);
@@ -133,20 +147,150 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
         return newRow;
     }
 
+    /**
+     * Create a partition for the given range of rows, which can be filled independently of this sheet,
+     * e.g. by a separate producer thread.
+     * <p>
+     * The partitions are stitched into the sheet data in row order: when rows of this sheet are flushed,
+     * the closed partitions before them are appended first. Rows of this sheet after a partition, which is
+     * still open, are kept in memory until the partition is closed. All partitions need to be closed before
+     * the workbook is written.
+     * <p>
+     * The partitions need to be created by the thread, which uses this sheet - only the returned partitions
+     * can be handed over to other threads.
+     *
+     * @param firstRow the first row number of the partition (0-based)
+     * @param lastRow the last row number of the partition (0-based, inclusive)
+     * @return the new row partition
+     * @throws IllegalArgumentException if the range is invalid, is already written to disk or overlaps
+     *      existing rows or partitions
+     * @throws IOException if the temp file of the partition can't be created
+     * @see SXSSFRowPartition
+     * @since POI 5.2.3
+     */
+    public SXSSFRowPartition createRowPartition(int firstRow, int lastRow) throws IOException {
+        int maxrow = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+        if (firstRow < 0 || lastRow < firstRow || lastRow > maxrow) {
+            throw new IllegalArgumentException("Invalid row range (" + firstRow + ".." + lastRow
+                    + ") - needs to be ascending and within (0.." + maxrow + ")");
+        }
+        if(firstRow <= _writer.getLastFlushedRow()) {
+            throw new IllegalArgumentException(
+                    "Attempting to write a row[" + firstRow + "] " +
+                            "in the range [0," + _writer.getLastFlushedRow() + "] that is already written to disk.");
+        }
+        if(_sh.getPhysicalNumberOfRows() > 0 && firstRow <= _sh.getLastRowNum()) {
+            throw new IllegalArgumentException(
+                    "Attempting to write a row[" + firstRow + "] " +
+                            "in the range [0," + _sh.getLastRowNum() + "] that is already written to disk.");
+        }
+        if (!_rows.values(firstRow, lastRow + 1).isEmpty()) {
+            throw new IllegalArgumentException(
+                    "The row range [" + firstRow + "," + lastRow + "] contains existing rows.");
+        }
+        int index = 0;
+        for (SXSSFRowPartition partition : _rowPartitions) {
+            if (partition.overlaps(firstRow, lastRow)) {
+                throw new IllegalArgumentException("The row range [" + firstRow + "," + lastRow + "] overlaps " +
+                        "the row partition [" + partition.getFirstRow() + "," + partition.getLastRow() + "].");
+            }
+            if (partition.getFirstRow() < firstRow) {
+                index++;
+            }
+        }
+
+        SXSSFRowPartition partition = new SXSSFRowPartition(this, firstRow, lastRow,
+                _workbook.createSheetDataWriter(), _randomAccessWindowSize);
+        _rowPartitions.add(index, partition);
+        allFlushed = false;
+        return partition;
+    }
+
+    /**
+     * Writes a batch of rows given as column arrays directly to the sheet data, without creating
+     * row and cell objects. The cells of the columns are written to the columns 0 to
+     * {@code batch.getColumnCount() - 1}.
+     * <p>
+     * All rows in memory are flushed before the batch is written, so the batch rows need to follow
+     * the existing rows. The batch rows can't be accessed via {@link #getRow(int)} and don't
+     * contribute to the auto-sizing of columns.
+     *
+     * @param firstRow the row number of the first row of the batch (0-based)
+     * @param batch the rows to write
+     * @throws IllegalArgumentException if the rows would overwrite existing rows or exceed the maximum
+     *      number of rows or columns
+     * @throws IllegalStateException if an open row partition precedes the batch
+     * @throws IOException if writing to the temp file fails
+     * @since POI 5.2.3
+     */
+    public void writeRows(int firstRow, SXSSFColumnBatch batch) throws IOException {
+        if (_writer == null) {
+            throw new IllegalStateException("The sheet data writer isn't available yet");
+        }
+        final SpreadsheetVersion version = SpreadsheetVersion.EXCEL2007;
+        final int lastRow = firstRow + batch.getRowCount() - 1;
+        if (firstRow < 0 || lastRow > version.getLastRowIndex()) {
+            throw new IllegalArgumentException("Invalid row range (" + firstRow + ".." + lastRow
+                    + ") outside allowable range (0.." + version.getLastRowIndex() + ")");
+        }
+        if (batch.getColumnCount() > version.getMaxColumns()) {
+            throw new IllegalArgumentException("Invalid column count (" + batch.getColumnCount()
+                    + ") exceeds the maximum of " + version.getMaxColumns() + " columns");
+        }
+        batch.validate();
+        if (!_rows.isEmpty() && _rows.lastKey() >= firstRow) {
+            throw new IllegalArgumentException(
+                    "Attempting to write a row[" + firstRow + "] before the existing row[" + _rows.lastKey() + "].");
+        }
+
+        flushRows(0);
+        if (!_rows.isEmpty()) {
+            throw new IllegalStateException("An open row partition precedes row " + firstRow);
+        }
+        if (firstRow <= _writer.getLastFlushedRow()) {
+            throw new IllegalArgumentException(
+                    "Attempting to write a row[" + firstRow + "] " +
+                            "in the range [0," + _writer.getLastFlushedRow() + "] that is already written to disk.");
+        }
+        if (_sh.getPhysicalNumberOfRows() > 0 && firstRow <= _sh.getLastRowNum()) {
+            throw new IllegalArgumentException(
+                    "Attempting to write a row[" + firstRow + "] " +
+                            "in the range [0," + _sh.getLastRowNum() + "] that is already written to disk.");
+        }
+        for (SXSSFRowPartition partition : _rowPartitions) {
+            if (partition.overlaps(firstRow, lastRow)) {
+                throw new IllegalArgumentException("The row range [" + firstRow + "," + lastRow + "] overlaps " +
+                        "the row partition [" + partition.getFirstRow() + "," + partition.getLastRow() + "].");
+            }
+        }
+        if (!appendRowPartitions(firstRow)) {
+            throw new IllegalStateException("An open row partition precedes row " + firstRow);
+        }
+        if (batch.getRowCount() == 0) {
+            return;
+        }
+
+        _writer.writeColumns(firstRow, batch, _workbook.isDate1904());
+        lastFlushedRowNumber = lastRow;
+    }
+
     /**
      * Remove a row from this sheet.  All cells contained in the row are removed as well
      *
      * @param row   representing a row to remove.
+     * @throws IllegalArgumentException if the row doesn't belong to this sheet or was created by a {@link SXSSFRowPartition}
      */
     @Override
     public void removeRow(Row row) {
         if (row.getSheet() != this) {
             throw new IllegalArgumentException("Specified row does not belong to this sheet");
         }
+        if (row instanceof SXSSFRow && ((SXSSFRow)row).getPartition() != null) {
+            throw new IllegalArgumentException("Specified row belongs to a row partition and can't be removed");
+        }
 
-        for(Iterator<Map.Entry<Integer, SXSSFRow>> iter = _rows.entrySet().iterator(); iter.hasNext();) {
-            Map.Entry<Integer, SXSSFRow> entry = iter.next();
-            if(entry.getValue() == row) {
+        for(Iterator<SXSSFRow> iter = _rows.values().iterator(); iter.hasNext();) {
+            if(iter.next() == row) {
                 iter.remove();
                 return;
             }
@@ -1206,7 +1350,7 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
      */
     @Override
     public void groupRow(int fromRow, int toRow) {
-        for(SXSSFRow row : _rows.subMap(fromRow, toRow + 1).values()){
+        for(SXSSFRow row : _rows.values(fromRow, toRow + 1)){
             int level = row.getOutlineLevel() + 1;
             row.setOutlineLevel(level);
 
@@ -1773,7 +1917,10 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
      */
     public void flushRows(int remaining) throws IOException {
         while(_rows.size() > remaining) {
-            flushOneRow();
+            if (!flushOneRow()) {
+                // the following rows have to wait for an open row partition
+                return;
+            }
         }
         if (remaining == 0) {
             allFlushed = true;
@@ -1798,17 +1945,40 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
         this._writer.flush();
     }
 
-    private void flushOneRow() throws IOException {
-        Integer firstRowNum = _rows.firstKey();
-        if (firstRowNum!=null) {
-            int rowIndex = firstRowNum;
-            SXSSFRow row = _rows.get(firstRowNum);
+    private boolean flushOneRow() throws IOException {
+        if (!_rows.isEmpty()) {
+            int rowIndex = _rows.firstKey();
+            if (!appendRowPartitions(rowIndex)) {
+                return false;
+            }
+            SXSSFRow row = _rows.valueAt(0);
             // Update the best fit column widths for auto-sizing just before the rows are flushed
             _autoSizeColumnTracker.updateColumnWidths(row);
             if (_writer != null) _writer.writeRow(rowIndex, row);
-            _rows.remove(firstRowNum);
+            _rows.remove(rowIndex);
             lastFlushedRowNumber = rowIndex;
         }
+        return true;
+    }
+
+    /**
+     * Appends the closed row partitions, which start before the given row, to the sheet data
+     *
+     * @param beforeRow the row number, which is about to be written
+     * @return false, if an open partition prevents writing the row
+     */
+    private boolean appendRowPartitions(int beforeRow) throws IOException {
+        while (!_rowPartitions.isEmpty() && _rowPartitions.get(0).getFirstRow() < beforeRow) {
+            SXSSFRowPartition partition = _rowPartitions.get(0);
+            if (!partition.isClosed()) {
+                return false;
+            }
+            _writer.appendRows(partition.getSheetDataWriter());
+            _rowPartitions.remove(0);
+            partition.dispose();
+            lastFlushedRowNumber = Math.max(lastFlushedRowNumber, _writer.getLastFlushedRow());
+        }
+        return true;
     }
 
     public void changeRowNum(SXSSFRow row, int newRowNum) {
@@ -1832,6 +2002,10 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
                 flushRows();
             }
         } finally {
+            for (SXSSFRowPartition partition : _rowPartitions) {
+                partition.dispose();
+            }
+            _rowPartitions.clear();
             ret = _writer == null || _writer.dispose();
         }
         return ret;
@@ -0,0 +1,50 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+/**
+ * Specifies how {@link SXSSFWorkbook} stores the values of string cells.
+ *
+ * @since POI 5.2.3
+ */
+public enum SXSSFStringStorage {
+    /**
+     * The strings are written as inline strings into the sheet data. This needs no memory for
+     * the strings, but repeated values are written again for each cell.
+     */
+    INLINE,
+
+    /**
+     * The strings are added to the shared strings table of the workbook, which is kept on the heap.
+     */
+    SHARED,
+
+    /**
+     * The strings are added to a {@link TempFileSharedStringsTable}, which keeps the memory bounded
+     * by storing the entries and the lookup index in temp files.
+     */
+    SHARED_TEMP_FILE,
+
+    /**
+     * The strings are added to the shared strings table of the workbook, until a column turns out to
+     * have a high cardinality - then its strings are written as inline strings. This deduplicates the
+     * repeated values of enum-like columns without keeping unique values like ids on the heap.
+     * Formatted rich text is always added to the shared strings table.
+     */
+    ADAPTIVE
+}
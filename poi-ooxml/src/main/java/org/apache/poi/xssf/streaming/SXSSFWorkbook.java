@@ -17,13 +17,14 @@
 
 package org.apache.poi.xssf.streaming;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -32,16 +33,23 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Spliterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.Deflater;
 
-import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.Zip64Mode;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.internal.ZipHelper;
 import org.apache.poi.openxml4j.util.ZipArchiveThresholdInputStream;
 import org.apache.poi.openxml4j.util.ZipEntrySource;
 import org.apache.poi.openxml4j.util.ZipFileZipEntrySource;
@@ -110,6 +118,11 @@ public class SXSSFWorkbook implements Workbook {
     public static final int DEFAULT_WINDOW_SIZE = 100;
     private static final Logger LOG = LogManager.getLogger(SXSSFWorkbook.class);
 
+    private static final byte[] SHEET_DATA_START = "<sheetData".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SHEET_DATA_START_LF = "<sheetData>\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SHEET_DATA_END = "</sheetData>".getBytes(StandardCharsets.US_ASCII);
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
     protected final XSSFWorkbook _wb;
 
     private final Map<SXSSFSheet,XSSFSheet> _sxFromXHash = new HashMap<>();
@@ -131,11 +144,31 @@ public class SXSSFWorkbook implements Workbook {
      */
     protected final SharedStringsTable _sharedStringSource;
 
+    /**
+     * how the string values are stored
+     */
+    private final SXSSFStringStorage _stringStorage;
+
     /**
      * controls whether Zip64 mode is used - Always became the default in POI 5.0.0
      */
     protected Zip64Mode zip64Mode = Zip64Mode.Always;
 
+    /**
+     * executor for compressing the sheet data concurrently - null for compressing the sheets sequentially
+     */
+    private Executor _sheetWriteExecutor;
+
+    /**
+     * compression level of the zip entries
+     */
+    private int _compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * executor for deflating the zip entries in parallel blocks - null for deflating on the writing thread
+     */
+    private Executor _deflateExecutor;
+
     /**
      * Construct a new workbook with default row window size
      */
@@ -256,14 +289,38 @@ public class SXSSFWorkbook implements Workbook {
      * @param useSharedStringsTable whether to use a shared strings table
      */
     public SXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean compressTmpFiles, boolean useSharedStringsTable) {
+        this(workbook, rowAccessWindowSize, compressTmpFiles,
+            useSharedStringsTable ? SXSSFStringStorage.SHARED : SXSSFStringStorage.INLINE);
+    }
+
+    /**
+     * Constructs an workbook from an existing workbook and specifies how the string values are stored.
+     * <p>
+     * {@link SXSSFStringStorage#SHARED_TEMP_FILE} adds the strings to a {@link TempFileSharedStringsTable},
+     * which replaces the shared strings part of the template when the workbook is written. It keeps the
+     * memory bounded for any number of distinct strings, while the repeated values are still deduplicated.
+     * </p>
+     * <p>
+     * {@link SXSSFStringStorage#ADAPTIVE} uses the shared strings table only for the columns with a low
+     * number of distinct values and writes the other columns as inline strings.
+     * </p>
+     *
+     * @param workbook  the template workbook
+     * @param rowAccessWindowSize the number of rows that are kept in memory until flushed out, see the other constructors.
+     * @param compressTmpFiles whether to use gzip compression for temporary files
+     * @param stringStorage how the string values are stored
+     * @since POI 5.2.3
+     */
+    public SXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean compressTmpFiles, SXSSFStringStorage stringStorage) {
+        if (stringStorage == null) {
+            throw new IllegalArgumentException("stringStorage must not be null");
+        }
         setRandomAccessWindowSize(rowAccessWindowSize);
         setCompressTempFiles(compressTmpFiles);
-        if (workbook == null) {
-            _wb = new XSSFWorkbook();
-            _sharedStringSource = useSharedStringsTable ? _wb.getSharedStringSource() : null;
-        } else {
-            _wb=workbook;
-            _sharedStringSource = useSharedStringsTable ? _wb.getSharedStringSource() : null;
+        _wb = (workbook == null) ? new XSSFWorkbook() : workbook;
+        _stringStorage = stringStorage;
+        _sharedStringSource = createSharedStringSource(stringStorage);
+        if (workbook != null) {
             for ( Sheet sheet : _wb ) {
                 createAndRegisterSXSSFSheet( (XSSFSheet)sheet );
             }
@@ -350,17 +407,129 @@ public class SXSSFWorkbook implements Workbook {
         _compressTmpFiles = compress;
     }
 
+    /**
+     * Sets the executor, which compresses the data of the sheets concurrently when the workbook is written.
+     * <p>
+     * Each sheet is deflated into a temp file on the executor and the compressed data is then copied
+     * into the zip archive in the original entry order, so writing the workbook scales with the number
+     * of sheets and threads. The workbook is written sequentially if no executor is set (the default).
+     * <p>
+     * The executor is not shut down by the workbook. For {@link DeferredSXSSFWorkbook}, the row generators
+     * of the sheets are called on the executor threads and need to be independent of each other.
+     *
+     * @param executor the executor or {@code null} to write the sheets sequentially
+     * @since POI 5.2.3
+     */
+    public void setSheetWriteExecutor(Executor executor) {
+        _sheetWriteExecutor = executor;
+    }
+
+    /**
+     * @return the executor, which compresses the sheet data concurrently or {@code null} if the sheets
+     *  are written sequentially
+     * @see #setSheetWriteExecutor(Executor)
+     * @since POI 5.2.3
+     */
+    public Executor getSheetWriteExecutor() {
+        return _sheetWriteExecutor;
+    }
+
+    /**
+     * Sets the compression level of the written zip archive.
+     * <p>
+     * Level {@link Deflater#NO_COMPRESSION} only stores the data, which is the fastest option
+     * for intermediate files, while {@link Deflater#BEST_COMPRESSION} produces the smallest files.
+     *
+     * @param level the compression level, between -1 ({@link Deflater#DEFAULT_COMPRESSION}, the default) and 9
+     * @throws IllegalArgumentException if the level is out of range
+     * @since POI 5.2.3
+     */
+    public void setCompressionLevel(int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        _compressionLevel = level;
+    }
+
+    /**
+     * @return the compression level of the written zip archive
+     * @see #setCompressionLevel(int)
+     * @since POI 5.2.3
+     */
+    public int getCompressionLevel() {
+        return _compressionLevel;
+    }
+
+    /**
+     * Sets the executor, which deflates the zip entries in parallel blocks when the workbook is written.
+     * <p>
+     * Unlike {@link #setSheetWriteExecutor(Executor)}, this speeds up writing a single large sheet:
+     * the entry data is split into blocks, which are compressed concurrently and concatenated into
+     * one deflate stream. This is only supported with {@link Zip64Mode#Always} (the default) and ignored
+     * otherwise. The executor is not shut down by the workbook.
+     *
+     * @param executor the executor or {@code null} to deflate on the writing thread
+     * @since POI 5.2.3
+     */
+    public void setDeflateExecutor(Executor executor) {
+        _deflateExecutor = executor;
+    }
+
+    /**
+     * @return the executor, which deflates the zip entries in parallel blocks or {@code null}
+     * @see #setDeflateExecutor(Executor)
+     * @since POI 5.2.3
+     */
+    public Executor getDeflateExecutor() {
+        return _deflateExecutor;
+    }
+
     @Internal
     protected SharedStringsTable getSharedStringSource() {
         return _sharedStringSource;
     }
 
-    protected SheetDataWriter createSheetDataWriter() throws IOException {
-        if(_compressTmpFiles) {
-            return new GZIPSheetDataWriter(_sharedStringSource);
+    private SharedStringsTable createSharedStringSource(SXSSFStringStorage stringStorage) {
+        switch (stringStorage) {
+            case SHARED:
+            case ADAPTIVE:
+                return _wb.getSharedStringSource();
+            case SHARED_TEMP_FILE:
+                try {
+                    return new TempFileSharedStringsTable(_wb.getSharedStringSource());
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            default:
+                return null;
         }
+    }
+
+    /**
+     * @return whether the entry is the shared strings part, which is replaced by the temp file table
+     */
+    private boolean isTempFileSharedStrings(ZipArchiveEntry ze) {
+        if (!(_sharedStringSource instanceof TempFileSharedStringsTable)) {
+            return false;
+        }
+        PackagePart part = _wb.getSharedStringSource().getPackagePart();
+        return part != null && ze.getName().equals(ZipHelper.getZipItemNameFromOPCName(part.getPartName().getName()));
+    }
 
-        return new SheetDataWriter(_sharedStringSource);
+    protected SheetDataWriter createSheetDataWriter() throws IOException {
+        SheetDataWriter writer = _compressTmpFiles
+            ? new GZIPSheetDataWriter(_sharedStringSource)
+            : new SheetDataWriter(_sharedStringSource);
+        writer.setAdaptiveSharedStrings(_stringStorage == SXSSFStringStorage.ADAPTIVE);
+        return writer;
+    }
+
+    /**
+     * @return how the string values are stored
+     * @since POI 5.2.3
+     */
+    public SXSSFStringStorage getStringStorage() {
+        return _stringStorage;
     }
 
     XSSFSheet getXSSFSheet(SXSSFSheet sheet)
@@ -402,11 +571,38 @@ public class SXSSFWorkbook implements Workbook {
     }
 
     protected void injectData(ZipEntrySource zipEntrySource, OutputStream out) throws IOException {
-        ArchiveOutputStream zos = createArchiveOutputStream(out);
+        ZipArchiveOutputStream zos = createArchiveOutputStream(out);
+        Map<String, Future<DeflatedEntryFile>> deflatedSheets = new HashMap<>();
         try {
+            deflateSheets(zipEntrySource, deflatedSheets);
             Enumeration<? extends ZipArchiveEntry> en = zipEntrySource.getEntries();
             while (en.hasMoreElements()) {
                 ZipArchiveEntry ze = en.nextElement();
+                Future<DeflatedEntryFile> deflatedSheet = deflatedSheets.get(ze.getName());
+                if (deflatedSheet != null) {
+                    DeflatedEntryFile def = getDeflatedEntry(deflatedSheet);
+                    // from now on the entry is disposed here and not by the cleanup below
+                    deflatedSheets.remove(ze.getName());
+                    try (InputStream raw = def.getRawInputStream()) {
+                        ZipArchiveEntry zeOut = def.createArchiveEntry(ze.getName());
+                        if (ze.getTime() >= 0) zeOut.setTime(ze.getTime());
+                        zos.addRawArchiveEntry(zeOut, raw);
+                    } finally {
+                        def.dispose();
+                    }
+                    continue;
+                }
+                if (isTempFileSharedStrings(ze)) {
+                    ZipArchiveEntry zeOut = new ZipArchiveEntry(ze.getName());
+                    if (ze.getTime() >= 0) zeOut.setTime(ze.getTime());
+                    zos.putArchiveEntry(zeOut);
+                    try {
+                        _sharedStringSource.writeTo(zos);
+                    } finally {
+                        zos.closeArchiveEntry();
+                    }
+                    continue;
+                }
                 ZipArchiveEntry zeOut = new ZipArchiveEntry(ze.getName());
                 if (ze.getSize() >= 0) zeOut.setSize(ze.getSize());
                 if (ze.getTime() >= 0) zeOut.setTime(ze.getTime());
@@ -430,62 +626,147 @@ public class SXSSFWorkbook implements Workbook {
                 }
             }
         } finally {
+            // remove the leftovers of the compressed sheets, which weren't written, if writing the archive failed
+            boolean interrupted = false;
+            for (Future<DeflatedEntryFile> deflatedSheet : deflatedSheets.values()) {
+                for (;;) {
+                    try {
+                        deflatedSheet.get().dispose();
+                        break;
+                    } catch (InterruptedException e) {
+                        // keep waiting, otherwise the temp file of the sheet would leak
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        LOG.atDebug().withThrowable(e.getCause()).log("Failed to compress sheet data");
+                        break;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
             zos.finish();
             zipEntrySource.close();
         }
     }
 
+    /**
+     * Submits the sheet entries to the sheet write executor, which deflates them into temp files
+     *
+     * @param zipEntrySource the template entries
+     * @param deflatedSheets the map of the entry names to the pending results, which is filled by this method
+     */
+    private void deflateSheets(ZipEntrySource zipEntrySource, Map<String, Future<DeflatedEntryFile>> deflatedSheets)
+    throws IOException {
+        final Executor executor = _sheetWriteExecutor;
+        if (executor == null) {
+            return;
+        }
+        Enumeration<? extends ZipArchiveEntry> en = zipEntrySource.getEntries();
+        while (en.hasMoreElements()) {
+            ZipArchiveEntry ze = en.nextElement();
+            XSSFSheet xSheet = getSheetFromZipEntryName(ze.getName());
+            // See bug 56557, we should not inject data into the special ChartSheets
+            if (xSheet == null || xSheet instanceof XSSFChartSheet) {
+                continue;
+            }
+            // the template is read upfront, as the entry source is not meant to be used concurrently
+            final byte[] template;
+            try (InputStream is = zipEntrySource.getInputStream(ze);
+                 UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream()) {
+                if (is instanceof ZipArchiveThresholdInputStream) {
+                    ((ZipArchiveThresholdInputStream)is).setGuardState(false);
+                }
+                IOUtils.copy(is, bos);
+                template = bos.toByteArray();
+            }
+            final ISheetInjector injector = createSheetInjector(getSXSSFSheet(xSheet));
+            FutureTask<DeflatedEntryFile> task = new FutureTask<>(() ->
+                DeflatedEntryFile.deflate(_compressionLevel, (os) ->
+                    copyStreamAndInjectWorksheet(new UnsynchronizedByteArrayInputStream(template), os, injector)
+                )
+            );
+            executor.execute(task);
+            deflatedSheets.put(ze.getName(), task);
+        }
+    }
+
+    private static DeflatedEntryFile getDeflatedEntry(Future<DeflatedEntryFile> deflatedSheet) throws IOException {
+        try {
+            return deflatedSheet.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the sheet data");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress sheet data", e.getCause());
+        }
+    }
+
     protected ZipArchiveOutputStream createArchiveOutputStream(OutputStream out) {
+        final ZipArchiveOutputStream zos;
         if (Zip64Mode.Always.equals(zip64Mode)) {
-            return new OpcZipArchiveOutputStream(out);
+            OpcZipArchiveOutputStream opcZos = new OpcZipArchiveOutputStream(out);
+            opcZos.setDeflateExecutor(_deflateExecutor);
+            zos = opcZos;
         } else {
-            ZipArchiveOutputStream zos = new ZipArchiveOutputStream(out);
+            zos = new ZipArchiveOutputStream(out);
             zos.setUseZip64(zip64Mode);
-            return zos;
         }
+        zos.setLevel(_compressionLevel);
+        return zos;
     }
 
     protected ISheetInjector createSheetInjector(SXSSFSheet sxSheet) throws IOException {
         return (output) -> {
             try (InputStream xis = sxSheet.getWorksheetXMLInputStream()) {
-                // Copy the worksheet data to "output".
-                IOUtils.copy(xis, output);
+                // Copy the worksheet data to "output" in large blocks, as the temp file is usually big
+                copyLarge(xis, output);
             }
         };
     }
 
+    private static void copyLarge(InputStream in, OutputStream out) throws IOException {
+        final byte[] buf = new byte[COPY_BUFFER_SIZE];
+        int readBytes;
+        while ((readBytes = in.read(buf)) != -1) {
+            out.write(buf, 0, readBytes);
+        }
+    }
+
     // private static void copyStreamAndInjectWorksheet(InputStream in, OutputStream out, InputStream worksheetData) throws IOException {
     private static void copyStreamAndInjectWorksheet(InputStream in, OutputStream out, ISheetInjector sheetInjector) throws IOException {
-        InputStreamReader inReader = new InputStreamReader(in, StandardCharsets.UTF_8);
-        OutputStreamWriter outWriter = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        // the markers are plain ASCII and UTF-8 multibyte sequences never contain ASCII bytes,
+        // so the template is searched and copied as bytes without decoding and encoding it
+        InputStream inBuf = new BufferedInputStream(in);
+        BufferedOutputStream outBuf = new BufferedOutputStream(out);
         boolean needsStartTag = true;
         int c;
         int pos=0;
-        String s="<sheetData";
-        int n=s.length();
+        byte[] s=SHEET_DATA_START;
+        int n=s.length;
         //Copy from "in" to "out" up to the string "<sheetData/>" or "</sheetData>" (excluding).
-        while(((c=inReader.read())!=-1))
+        while(((c=inBuf.read())!=-1))
         {
-            if(c==s.charAt(pos))
+            if(c==s[pos])
             {
                 pos++;
                 if(pos==n)
                 {
-                    if ("<sheetData".equals(s))
+                    if (s == SHEET_DATA_START)
                     {
-                        c = inReader.read();
+                        c = inBuf.read();
                         if (c == -1)
                         {
-                            outWriter.write(s);
+                            outBuf.write(s);
                             break;
                         }
                         if (c == '>')
                         {
                             // Found <sheetData>
-                            outWriter.write(s);
-                            outWriter.write(c);
-                            s = "</sheetData>";
-                            n = s.length();
+                            outBuf.write(s);
+                            outBuf.write(c);
+                            s = SHEET_DATA_END;
+                            n = s.length;
                             pos = 0;
                             needsStartTag = false;
                             continue;
@@ -493,10 +774,10 @@ public class SXSSFWorkbook implements Workbook {
                         if (c == '/')
                         {
                             // Found <sheetData/
-                            c = inReader.read();
+                            c = inBuf.read();
                             if (c == -1)
                             {
-                                outWriter.write(s);
+                                outBuf.write(s);
                                 break;
                             }
                             if (c == '>')
@@ -505,16 +786,16 @@ public class SXSSFWorkbook implements Workbook {
                                 break;
                             }
 
-                            outWriter.write(s);
-                            outWriter.write('/');
-                            outWriter.write(c);
+                            outBuf.write(s);
+                            outBuf.write('/');
+                            outBuf.write(c);
                             pos = 0;
                             continue;
                         }
 
-                        outWriter.write(s);
-                        outWriter.write('/');
-                        outWriter.write(c);
+                        outBuf.write(s);
+                        outBuf.write('/');
+                        outBuf.write(c);
                         pos = 0;
                         continue;
                     }
@@ -528,33 +809,31 @@ public class SXSSFWorkbook implements Workbook {
             else
             {
                 if(pos>0) {
-                    outWriter.write(s,0,pos);
+                    outBuf.write(s,0,pos);
                 }
-                if(c==s.charAt(0))
+                if(c==s[0])
                 {
                     pos=1;
                 }
                 else
                 {
-                    outWriter.write(c);
+                    outBuf.write(c);
                     pos=0;
                 }
             }
         }
-        outWriter.flush();
         if (needsStartTag)
         {
-            outWriter.write("<sheetData>\n");
-            outWriter.flush();
+            outBuf.write(SHEET_DATA_START_LF);
         }
+        outBuf.flush();
         sheetInjector.writeSheetData(out);
-        outWriter.write("</sheetData>");
-        outWriter.flush();
+        outBuf.write(SHEET_DATA_END);
         //Copy the rest of "in" to "out".
-        while(((c=inReader.read())!=-1)) {
-            outWriter.write(c);
+        while(((c=inBuf.read())!=-1)) {
+            outBuf.write(c);
         }
-        outWriter.flush();
+        outBuf.flush();
     }
 
     public XSSFWorkbook getXSSFWorkbook()
@@ -946,6 +1225,10 @@ public class SXSSFWorkbook implements Workbook {
         }
 
 
+        if (_sharedStringSource instanceof TempFileSharedStringsTable) {
+            _sharedStringSource.close();
+        }
+
         // Tell the base workbook to close, does nothing if
         //  it's a newly created one
         _wb.close();
@@ -1034,6 +1317,14 @@ public class SXSSFWorkbook implements Workbook {
                 success = false;
             }
         }
+        if (_sharedStringSource instanceof TempFileSharedStringsTable) {
+            try {
+                _sharedStringSource.close();
+            } catch (IOException e) {
+                LOG.atWarn().withThrowable(e).log("Failed to dispose the shared strings table");
+                success = false;
+            }
+        }
         return success;
     }
 
@@ -19,28 +19,29 @@
 
 package org.apache.poi.xssf.streaming;
 
-import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
+import java.util.List;
+import java.util.TimeZone;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
 import org.apache.poi.ss.usermodel.FormulaError;
 import org.apache.poi.ss.usermodel.RichTextString;
-import org.apache.poi.ss.util.CellReference;
-import org.apache.poi.util.CodepointsUtil;
+import org.apache.poi.util.LocaleUtil;
 import org.apache.poi.util.Removal;
 import org.apache.poi.util.TempFile;
 import org.apache.poi.xssf.model.SharedStringsTable;
@@ -56,6 +57,22 @@ import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
 public class SheetDataWriter implements Closeable {
     private static final Logger LOG = LogManager.getLogger(SheetDataWriter.class);
 
+    /** the powers of ten, which can be represented exactly as double */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    /** 2^53 - the integral values below this limit are exactly representable as double */
+    private static final double MAX_EXACT_INTEGER = 9007199254740992d;
+
+    /** the days from the start of the 1900 date system to 1970-01-01, with 1900-01-01 as day 1 */
+    private static final long DAYS_1900_TO_1970 = 25568;
+
+    /** the days from 1904-01-01 to 1970-01-01 */
+    private static final long DAYS_1904_TO_1970 = 24107;
+
+    private static final double BAD_DATE = -1;
+
     private final File _fd;
     protected final Writer _out;
     private int _rownum;
@@ -64,12 +81,20 @@ public class SheetDataWriter implements Closeable {
     private int _numberOfCellsOfLastFlushedRow; // meaningful only of _numberOfFlushedRows>0
     private int _numberLastFlushedRow = -1; // meaningful only of _numberOfFlushedRows>0
 
+    /** scratch buffer for formatting cell references and numbers without creating temporary strings */
+    private final char[] _buf = new char[32];
+
     /**
      * Table of strings shared across this workbook.
      * If two cells contain the same string, then the cell value is the same index into SharedStringsTable
      */
     private SharedStringsTable _sharedStringSource;
 
+    /**
+     * Tracks the cardinality of the string columns, if the strings are only shared for low cardinality columns
+     */
+    private StringColumnCardinality _stringColumns;
+
     public SheetDataWriter() throws IOException {
         _fd = createTempFile();
         _out = createWriter(_fd);
@@ -85,6 +110,16 @@ public class SheetDataWriter implements Closeable {
         this._sharedStringSource = sharedStringsTable;
     }
 
+    /**
+     * Sets whether the shared strings table is only used for the low cardinality string columns,
+     * see {@link SXSSFStringStorage#ADAPTIVE}
+     *
+     * @param adaptive whether the high cardinality columns are written as inline strings
+     */
+    void setAdaptiveSharedStrings(boolean adaptive) {
+        _stringColumns = adaptive ? new StringColumnCardinality() : null;
+    }
+
     /**
      * Create a temp file to write sheet data.
      * By default, temp files are created in the default temporary-file directory
@@ -117,8 +152,7 @@ public class SheetDataWriter implements Closeable {
             fos.close();
             throw e;
         }
-        return new BufferedWriter(
-                new OutputStreamWriter(decorated, StandardCharsets.UTF_8));
+        return new UTF8Writer(decorated);
     }
 
     /**
@@ -218,9 +252,41 @@ public class SheetDataWriter implements Closeable {
         endRow();
     }
 
+    /**
+     * Appends the rows of another writer, e.g. of a {@link SXSSFRowPartition}.
+     * The other writer needs to be closed and its rows need to follow the rows of this writer.
+     *
+     * @param rows the writer with the rows to append
+     * @throws IOException If an I/O error occurs
+     */
+    void appendRows(SheetDataWriter rows) throws IOException {
+        if (rows._numberOfFlushedRows == 0) {
+            return;
+        }
+        if (_numberOfFlushedRows == 0) {
+            _lowestIndexOfFlushedRows = rows._lowestIndexOfFlushedRows;
+        }
+        _numberLastFlushedRow = Math.max(rows._numberLastFlushedRow, _numberLastFlushedRow);
+        _numberOfCellsOfLastFlushedRow = rows._numberOfCellsOfLastFlushedRow;
+        _numberOfFlushedRows += rows._numberOfFlushedRows;
+        try (InputStream is = rows.getWorksheetXMLInputStream()) {
+            if (_out instanceof UTF8Writer) {
+                ((UTF8Writer) _out).writeEncoded(is);
+            } else {
+                try (Reader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
+                    final char[] buf = new char[8192];
+                    int readChars;
+                    while ((readChars = reader.read(buf)) != -1) {
+                        _out.write(buf, 0, readChars);
+                    }
+                }
+            }
+        }
+    }
+
     void beginRow(int rownum, SXSSFRow row) throws IOException {
         _out.write("<row");
-        writeAttribute("r", Integer.toString(rownum + 1));
+        writeAttribute("r", rownum + 1);
         if (row.hasCustomHeight()) {
             writeAttribute("customHeight", "true");
             writeAttribute("ht", Float.toString(row.getHeightInPoints()));
@@ -229,11 +295,11 @@ public class SheetDataWriter implements Closeable {
             writeAttribute("hidden", "true");
         }
         if (row.isFormatted()) {
-            writeAttribute("s", Integer.toString(row.getRowStyleIndex()));
+            writeAttribute("s", row.getRowStyleIndex());
             writeAttribute("customFormat", "1");
         }
         if (row.getOutlineLevel() != 0) {
-            writeAttribute("outlineLevel", Integer.toString(row.getOutlineLevel()));
+            writeAttribute("outlineLevel", row.getOutlineLevel());
         }
         if(row.getHidden() != null) {
             writeAttribute("hidden", row.getHidden() ? "1" : "0");
@@ -254,16 +320,13 @@ public class SheetDataWriter implements Closeable {
         if (cell == null) {
             return;
         }
-        String ref = new CellReference(_rownum, columnIndex).formatAsString();
-        _out.write("<c");
-        writeAttribute("r", ref);
-        CellStyle cellStyle = cell.getCellStyle();
-        if (cellStyle.getIndex() != 0) {
-            // need to convert the short to unsigned short as the indexes can be up to 64k
-            // ideally we would use int for this index, but that would need changes to some more
-            // APIs
-            writeAttribute("s", Integer.toString(cellStyle.getIndex() & 0xffff));
-        }
+        // need to convert the short to unsigned short as the indexes can be up to 64k
+        // ideally we would use int for this index, but that would need changes to some more
+        // APIs
+        final int styleIndex = (cell instanceof SXSSFCell)
+                ? ((SXSSFCell) cell).getCellStyleIndex()
+                : cell.getCellStyle().getIndex() & 0xffff;
+        beginCell(columnIndex, styleIndex);
         CellType cellType = cell.getCellType();
         switch (cellType) {
             case BLANK: {
@@ -293,7 +356,7 @@ public class SheetDataWriter implements Closeable {
                         double nval = cell.getNumericCellValue();
                         if (!Double.isNaN(nval)) {
                             _out.write("<v>");
-                            _out.write(Double.toString(nval));
+                            writeDouble(nval);
                             _out.write("</v>");
                         }
                         break;
@@ -324,28 +387,19 @@ public class SheetDataWriter implements Closeable {
             case STRING: {
                 if (_sharedStringSource != null) {
                     RichTextString rt = cell.getRichStringCellValue();
-                    int sRef = _sharedStringSource.addSharedStringItem(rt);
-
-                    writeAttribute("t", STCellType.S.toString());
-                    _out.write("><v>");
-                    _out.write(String.valueOf(sRef));
-                    _out.write("</v>");
-                } else {
-                    writeAttribute("t", "inlineStr");
-                    _out.write("><is><t");
-                    if (hasLeadingTrailingSpaces(cell.getStringCellValue())) {
-                        writeAttribute("xml:space", "preserve");
+                    // formatted text can't be written as inline string
+                    if (_stringColumns == null || _stringColumns.isShared(columnIndex) || rt.numFormattingRuns() > 0) {
+                        writeSharedString(columnIndex, rt, null);
+                        break;
                     }
-                    _out.write(">");
-                    outputEscapedString(cell.getStringCellValue());
-                    _out.write("</t></is>");
                 }
+                writeInlineString(cell.getStringCellValue());
                 break;
             }
             case NUMERIC: {
                 writeAttribute("t", "n");
                 _out.write("><v>");
-                _out.write(Double.toString(cell.getNumericCellValue()));
+                writeDouble(cell.getNumericCellValue());
                 _out.write("</v>");
                 break;
             }
@@ -380,6 +434,85 @@ public class SheetDataWriter implements Closeable {
         _out.write('\"');
     }
 
+    private void writeAttribute(String name, int value) throws IOException {
+        _out.write(' ');
+        _out.write(name);
+        _out.write("=\"");
+        writeInt(value);
+        _out.write('\"');
+    }
+
+    /**
+     * Writes the A1-style reference of the cell, e.g. "AB12"
+     */
+    void writeCellReference(int rownum, int columnIndex) throws IOException {
+        int pos = fillDigits(rownum + 1L, _buf.length);
+        for (int col = columnIndex + 1; col > 0; col = (col - 1) / 26) {
+            _buf[--pos] = (char) ('A' + (col - 1) % 26);
+        }
+        _out.write(_buf, pos, _buf.length - pos);
+    }
+
+    /**
+     * Writes a non-negative integer
+     */
+    void writeInt(int value) throws IOException {
+        int pos = fillDigits(value, _buf.length);
+        _out.write(_buf, pos, _buf.length - pos);
+    }
+
+    /**
+     * Writes the shortest decimal representation of the value, which parses back to the same double.
+     * Values with up to 15 fraction digits and less than 2^53 significant digits are formatted
+     * in place, the other values (exponents, NaN, infinity and -0.0) are formatted by {@link Double#toString(double)}
+     */
+    void writeDouble(double value) throws IOException {
+        final double abs = Math.abs(value);
+        // the check for 1/value excludes -0.0, which would lose its sign otherwise
+        if (abs < POWERS_OF_TEN[POWERS_OF_TEN.length - 1] && (value != 0 || 1 / value > 0)) {
+            for (int scale = 0; scale < POWERS_OF_TEN.length; scale++) {
+                final double scaled = abs * POWERS_OF_TEN[scale];
+                if (scaled >= MAX_EXACT_INTEGER) {
+                    break;
+                }
+                long mantissa = Math.round(scaled);
+                // mantissa and power of ten are exact doubles, so the division is rounded the same
+                // way as the parsing of the decimal string and the value survives the round trip
+                if (mantissa / POWERS_OF_TEN[scale] == abs) {
+                    int pos = _buf.length;
+                    for (int i = 0; i < scale; i++) {
+                        _buf[--pos] = (char) ('0' + mantissa % 10);
+                        mantissa /= 10;
+                    }
+                    if (scale > 0) {
+                        _buf[--pos] = '.';
+                    }
+                    pos = fillDigits(mantissa, pos);
+                    if (value < 0) {
+                        _buf[--pos] = '-';
+                    }
+                    _out.write(_buf, pos, _buf.length - pos);
+                    return;
+                }
+            }
+        }
+        _out.write(Double.toString(value));
+    }
+
+    /**
+     * Fills the digits of the non-negative value into the scratch buffer, ending before the given position
+     *
+     * @return the position of the first digit
+     */
+    private int fillDigits(long value, int end) {
+        int pos = end;
+        do {
+            _buf[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        return pos;
+    }
+
     /**
      * @return  whether the string has leading / trailing spaces that
      *  need to be preserved with the xml:space=\"preserve\" attribute
@@ -398,50 +531,212 @@ public class SheetDataWriter implements Closeable {
             return;
         }
 
-        for (Iterator<String> iter = CodepointsUtil.iteratorFor(s); iter.hasNext(); ) {
-            String codepoint = iter.next();
-            switch (codepoint) {
-                case "<":
-                    _out.write("&lt;");
+        // characters which don't need escaping are written in runs, surrogate pairs are not
+        // affected by the escaping and pass through unchanged
+        final int length = s.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            final String escaped;
+            switch (c) {
+                case '<':
+                    escaped = "&lt;";
                     break;
-                case ">":
-                    _out.write("&gt;");
+                case '>':
+                    escaped = "&gt;";
                     break;
-                case "&":
-                    _out.write("&amp;");
+                case '&':
+                    escaped = "&amp;";
                     break;
-                case "\"":
-                    _out.write("&quot;");
+                case '"':
+                    escaped = "&quot;";
                     break;
                 // Special characters
-                case "\n":
-                    _out.write("&#xa;");
+                case '\n':
+                    escaped = "&#xa;";
                     break;
-                case "\r":
-                    _out.write("&#xd;");
+                case '\r':
+                    escaped = "&#xd;";
                     break;
-                case "\t":
-                    _out.write("&#x9;");
+                case '\t':
+                    escaped = "&#x9;";
                     break;
-                case "\u00A0": // NO-BREAK SPACE
-                    _out.write("&#xa0;");
+                case '\u00A0': // NO-BREAK SPACE
+                    escaped = "&#xa0;";
                     break;
                 default:
-                    if (codepoint.length() == 1) {
-                        char c = codepoint.charAt(0);
-                        // YK: XmlBeans silently replaces all ISO control characters ( < 32) with question marks.
-                        // the same rule applies to "not a character" symbols.
-                        if (replaceWithQuestionMark(c)) {
-                            _out.write('?');
+                    // YK: XmlBeans silently replaces all ISO control characters ( < 32) with question marks.
+                    // the same rule applies to "not a character" symbols.
+                    escaped = replaceWithQuestionMark(c) ? "?" : null;
+                    break;
+            }
+            if (escaped != null) {
+                if (i > start) {
+                    _out.write(s, start, i - start);
+                }
+                _out.write(escaped);
+                start = i + 1;
+            }
+        }
+        if (start < length) {
+            _out.write(s, start, length - start);
+        }
+    }
+
+    /**
+     * Writes the rows of a column batch, which need to follow the rows written so far
+     *
+     * @param firstRow the 0-based row number of the first row of the batch
+     * @param batch the rows
+     * @param date1904 true, if the workbook uses the 1904 date windowing
+     * @throws IOException If an I/O error occurs
+     */
+    void writeColumns(int firstRow, SXSSFColumnBatch batch, boolean date1904) throws IOException {
+        final int rowCount = batch.getRowCount();
+        if (rowCount == 0) {
+            return;
+        }
+        final List<SXSSFColumnBatch.Column> columns = batch.getColumns();
+        final int columnCount = columns.size();
+        final TimeZone timeZone = LocaleUtil.getUserTimeZone();
+        if (_numberOfFlushedRows == 0) {
+            _lowestIndexOfFlushedRows = firstRow;
+        }
+        _numberLastFlushedRow = Math.max(firstRow + rowCount - 1, _numberLastFlushedRow);
+        _numberOfFlushedRows += rowCount;
+
+        for (int r = 0; r < rowCount; r++) {
+            _rownum = firstRow + r;
+            _out.write("<row");
+            writeAttribute("r", _rownum + 1);
+            _out.write(">\n");
+            int lastCellNum = -1;
+            for (int c = 0; c < columnCount; c++) {
+                final SXSSFColumnBatch.Column column = columns.get(c);
+                switch (column.type) {
+                    case NUMERIC:
+                        beginCell(c, column.styleIndex);
+                        writeNumericValue(column.numbers[r]);
+                        break;
+                    case DATE:
+                        beginCell(c, column.styleIndex);
+                        writeNumericValue(toExcelDate(column.dates[r], timeZone, date1904));
+                        break;
+                    default: {
+                        final String value = column.strings[r];
+                        if (value == null) {
+                            continue;
+                        }
+                        beginCell(c, column.styleIndex);
+                        if (_sharedStringSource != null && (_stringColumns == null || _stringColumns.isShared(c))) {
+                            writeSharedString(c, null, value);
                         } else {
-                            _out.write(c);
+                            writeInlineString(value);
                         }
-                    } else {
-                        _out.write(codepoint);
+                        break;
                     }
-                    break;
+                }
+                _out.write("</c>");
+                lastCellNum = c + 1;
             }
+            _numberOfCellsOfLastFlushedRow = lastCellNum;
+            endRow();
+        }
+    }
+
+    /**
+     * Converts the epoch milliseconds to an Excel date in the given time zone - the same as
+     * {@link DateUtil#getExcelDate(java.util.Date, boolean)}, but without temporary calendars
+     */
+    static double toExcelDate(long epochMillis, TimeZone timeZone, boolean date1904) {
+        final long localMillis = epochMillis + timeZone.getOffset(epochMillis);
+        final long days = Math.floorDiv(localMillis, DateUtil.DAY_MILLISECONDS);
+        final double fraction = Math.floorMod(localMillis, DateUtil.DAY_MILLISECONDS) / (double)DateUtil.DAY_MILLISECONDS;
+        if (date1904) {
+            // 1904-01-01 is day 0
+            final long day = days + DAYS_1904_TO_1970;
+            return (day < 0) ? BAD_DATE : day + fraction;
+        }
+        // 1900-01-01 is day 1 and Excel treats 1900 as leap year
+        long day = days + DAYS_1900_TO_1970;
+        if (day < 1) {
+            return BAD_DATE;
+        }
+        if (day >= 60) {
+            day++;
+        }
+        return day + fraction;
+    }
+
+    private void beginCell(int columnIndex, int styleIndex) throws IOException {
+        _out.write("<c r=\"");
+        writeCellReference(_rownum, columnIndex);
+        _out.write('\"');
+        if (styleIndex != 0) {
+            writeAttribute("s", styleIndex);
+        }
+    }
+
+    /**
+     * Writes a numeric cell value - NaN and infinite values are written as error like
+     * {@link org.apache.poi.ss.usermodel.CellBase#setCellValue(double)} does
+     */
+    private void writeNumericValue(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            final FormulaError error = Double.isNaN(value) ? FormulaError.NUM : FormulaError.DIV0;
+            writeAttribute("t", "e");
+            _out.write("><v>");
+            outputEscapedString(error.getString());
+            _out.write("</v>");
+        } else {
+            writeAttribute("t", "n");
+            _out.write("><v>");
+            writeDouble(value);
+            _out.write("</v>");
+        }
+    }
+
+    /**
+     * Adds the string to the shared strings table and writes the reference
+     *
+     * @param columnIndex the column of the cell
+     * @param rt the rich text or {@code null} to add the plain {@code value}
+     * @param value the plain string, if {@code rt} is {@code null}
+     */
+    private void writeSharedString(int columnIndex, RichTextString rt, String value) throws IOException {
+        final int sRef;
+        final boolean newEntry;
+        // the table is shared by all sheets and row partitions, which might be written concurrently
+        synchronized (_sharedStringSource) {
+            final int uniqueCount = _sharedStringSource.getUniqueCount();
+            if (rt != null) {
+                sRef = _sharedStringSource.addSharedStringItem(rt);
+            } else if (_sharedStringSource instanceof TempFileSharedStringsTable) {
+                sRef = ((TempFileSharedStringsTable)_sharedStringSource).addString(value);
+            } else {
+                sRef = _sharedStringSource.addSharedStringItem(new XSSFRichTextString(value));
+            }
+            newEntry = _sharedStringSource.getUniqueCount() != uniqueCount;
+        }
+        if (_stringColumns != null) {
+            _stringColumns.record(columnIndex, newEntry);
+        }
+
+        writeAttribute("t", STCellType.S.toString());
+        _out.write("><v>");
+        writeInt(sRef);
+        _out.write("</v>");
+    }
+
+    private void writeInlineString(String value) throws IOException {
+        writeAttribute("t", "inlineStr");
+        _out.write("><is><t");
+        if (hasLeadingTrailingSpaces(value)) {
+            writeAttribute("xml:space", "preserve");
         }
+        _out.write(">");
+        outputEscapedString(value);
+        _out.write("</t></is>");
     }
 
     static boolean replaceWithQuestionMark(char c) {
@@ -0,0 +1,393 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Hyperlink;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.LocaleUtil;
+import org.apache.poi.util.Removal;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetStreamReader;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+/**
+ * A read-only cell of a {@link StreamingReadRow}, which holds the cached value of the cell.
+ * <p>
+ * All modifying methods throw an {@link UnsupportedOperationException}.
+ *
+ * @since POI 5.2.3
+ */
+public class StreamingReadCell implements Cell {
+    private final StreamingReadRow row;
+    private final int column;
+    private final CellType type;
+    private final CellType valueType;
+    private final int styleIndex;
+    private final double numericValue;
+    private final boolean booleanValue;
+    /** the string, error code or {@code null} for shared strings */
+    private final String stringValue;
+    private final int sharedStringIndex;
+    private final String formula;
+
+    /**
+     * Creates a cell from the current cell of the reader
+     */
+    StreamingReadCell(StreamingReadRow row, XSSFSheetStreamReader reader) {
+        this.row = row;
+        this.column = reader.getColumn();
+        this.type = reader.getCellType();
+        this.valueType = reader.getCachedFormulaResultType();
+        this.styleIndex = reader.getStyleIndex();
+        this.formula = reader.getCellFormula();
+        double num = 0;
+        boolean bool = false;
+        String str = null;
+        int sstIndex = -1;
+        switch (valueType) {
+            case NUMERIC:
+                num = reader.getNumericCellValue();
+                break;
+            case BOOLEAN:
+                bool = reader.getBooleanCellValue();
+                break;
+            case ERROR:
+                str = reader.getErrorCellString();
+                break;
+            case STRING:
+                sstIndex = reader.getSharedStringIndex();
+                if (sstIndex < 0) {
+                    str = reader.getStringCellValue();
+                }
+                break;
+            default:
+                break;
+        }
+        this.numericValue = num;
+        this.booleanValue = bool;
+        this.stringValue = str;
+        this.sharedStringIndex = sstIndex;
+    }
+
+    /**
+     * Creates a blank cell for {@link org.apache.poi.ss.usermodel.Row.MissingCellPolicy#CREATE_NULL_AS_BLANK}
+     */
+    StreamingReadCell(StreamingReadRow row, int column) {
+        this.row = row;
+        this.column = column;
+        this.type = CellType.BLANK;
+        this.valueType = CellType.BLANK;
+        this.styleIndex = 0;
+        this.numericValue = 0;
+        this.booleanValue = false;
+        this.stringValue = null;
+        this.sharedStringIndex = -1;
+        this.formula = null;
+    }
+
+    @Override
+    public int getColumnIndex() {
+        return column;
+    }
+
+    @Override
+    public int getRowIndex() {
+        return row.getRowNum();
+    }
+
+    @Override
+    public StreamingReadSheet getSheet() {
+        return row.getSheet();
+    }
+
+    @Override
+    public StreamingReadRow getRow() {
+        return row;
+    }
+
+    @Override
+    public CellType getCellType() {
+        return type;
+    }
+
+    @Override
+    public CellType getCachedFormulaResultType() {
+        if (type != CellType.FORMULA) {
+            throw new IllegalStateException("Only formula cells have cached results");
+        }
+        return valueType;
+    }
+
+    /**
+     * @return the formula of the cell - this is an empty string for cells, which refer to a shared formula
+     * @throws IllegalStateException if the cell is no formula cell
+     */
+    @Override
+    public String getCellFormula() {
+        if (type != CellType.FORMULA) {
+            throw typeMismatch(CellType.FORMULA);
+        }
+        return formula;
+    }
+
+    @Override
+    public double getNumericCellValue() {
+        switch (valueType) {
+            case BLANK:
+                return 0.0;
+            case NUMERIC:
+                return numericValue;
+            default:
+                throw typeMismatch(CellType.NUMERIC);
+        }
+    }
+
+    @Override
+    public Date getDateCellValue() {
+        if (valueType == CellType.BLANK) {
+            return null;
+        }
+        return DateUtil.getJavaDate(getNumericCellValue(), getSheet().getWorkbook().isDate1904());
+    }
+
+    @Override
+    public LocalDateTime getLocalDateTimeCellValue() {
+        if (valueType == CellType.BLANK) {
+            return null;
+        }
+        return DateUtil.getLocalDateTime(getNumericCellValue(), getSheet().getWorkbook().isDate1904());
+    }
+
+    @Override
+    public RichTextString getRichStringCellValue() {
+        switch (valueType) {
+            case BLANK:
+                return new XSSFRichTextString("");
+            case STRING:
+                return (sharedStringIndex >= 0)
+                    ? getSheet().getWorkbook().getSharedStrings().getItemAt(sharedStringIndex)
+                    : new XSSFRichTextString(stringValue);
+            default:
+                throw typeMismatch(CellType.STRING);
+        }
+    }
+
+    @Override
+    public String getStringCellValue() {
+        switch (valueType) {
+            case BLANK:
+                return "";
+            case STRING:
+                return (sharedStringIndex >= 0)
+                    ? getSheet().getWorkbook().getSharedStrings().getItemAt(sharedStringIndex).getString()
+                    : stringValue;
+            default:
+                throw typeMismatch(CellType.STRING);
+        }
+    }
+
+    @Override
+    public boolean getBooleanCellValue() {
+        switch (valueType) {
+            case BLANK:
+                return false;
+            case BOOLEAN:
+                return booleanValue;
+            default:
+                throw typeMismatch(CellType.BOOLEAN);
+        }
+    }
+
+    @Override
+    public byte getErrorCellValue() {
+        if (valueType != CellType.ERROR) {
+            throw typeMismatch(CellType.ERROR);
+        }
+        return FormulaError.forString(stringValue).getCode();
+    }
+
+    @Override
+    public CellStyle getCellStyle() {
+        return getSheet().getWorkbook().getCellStyleAt(styleIndex);
+    }
+
+    @Override
+    public CellAddress getAddress() {
+        return new CellAddress(getRowIndex(), column);
+    }
+
+    @Override
+    public Comment getCellComment() {
+        return getSheet().getCellComment(getAddress());
+    }
+
+    @Override
+    @Deprecated
+    @Removal(version = "5.0")
+    public void setCellType(CellType cellType) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setBlank() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setCellValue(double value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setCellValue(Date value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setCellValue(LocalDateTime value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setCellValue(Calendar value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setCellValue(RichTextString value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setCellValue(String value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setCellValue(boolean value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setCellErrorValue(byte value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setCellFormula(String formula) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void removeFormula() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setCellStyle(CellStyle style) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setAsActiveCell() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setCellComment(Comment comment) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void removeCellComment() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public Hyperlink getHyperlink() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setHyperlink(Hyperlink link) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void removeHyperlink() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public CellRangeAddress getArrayFormulaRange() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean isPartOfArrayFormulaGroup() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    /**
+     * Returns a string representation of the cell like {@link org.apache.poi.xssf.usermodel.XSSFCell}
+     */
+    @Override
+    public String toString() {
+        switch (type) {
+            case NUMERIC:
+                if (DateUtil.isCellDateFormatted(this)) {
+                    DateFormat sdf = new SimpleDateFormat("dd-MMM-yyyy", LocaleUtil.getUserLocale());
+                    sdf.setTimeZone(LocaleUtil.getUserTimeZone());
+                    return sdf.format(getDateCellValue());
+                }
+                return Double.toString(getNumericCellValue());
+            case STRING:
+                return getStringCellValue();
+            case FORMULA:
+                return getCellFormula();
+            case BLANK:
+                return "";
+            case BOOLEAN:
+                return getBooleanCellValue() ? "TRUE" : "FALSE";
+            case ERROR:
+                return ErrorEval.getText(getErrorCellValue());
+            default:
+                return "Unknown Cell Type: " + type;
+        }
+    }
+
+    private RuntimeException typeMismatch(CellType expectedType) {
+        String msg = "Cannot get a " + expectedType + " value from a " + valueType + " " +
+            (type == CellType.FORMULA ? "formula " : "") + "cell";
+        return new IllegalStateException(msg);
+    }
+}
@@ -0,0 +1,230 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetStreamReader;
+
+/**
+ * A read-only row of a {@link StreamingReadSheet}, which holds the cells of the row.
+ * <p>
+ * All modifying methods throw an {@link UnsupportedOperationException}.
+ *
+ * @since POI 5.2.3
+ */
+public class StreamingReadRow implements Row {
+    private final StreamingReadSheet sheet;
+    private final int rowNum;
+    private final boolean hidden;
+    /** the height in points or {@code -1} for the default height of the sheet */
+    private final double height;
+    private final int styleIndex;
+    private final int outlineLevel;
+    /** the cells in column order */
+    private final List<Cell> cells = new ArrayList<>();
+
+    /**
+     * Creates a row without cells from the current row of the reader
+     */
+    StreamingReadRow(StreamingReadSheet sheet, XSSFSheetStreamReader reader) {
+        this.sheet = sheet;
+        this.rowNum = reader.getRowNum();
+        this.hidden = reader.isRowHidden();
+        this.height = reader.getRowHeight();
+        this.styleIndex = reader.getRowStyleIndex();
+        this.outlineLevel = reader.getRowOutlineLevel();
+    }
+
+    void addCell(StreamingReadCell cell) {
+        int size = cells.size();
+        if (size == 0 || cells.get(size - 1).getColumnIndex() < cell.getColumnIndex()) {
+            cells.add(cell);
+            return;
+        }
+        // cells out of column order are unusual, but valid
+        int idx = indexOf(cell.getColumnIndex());
+        if (idx >= 0) {
+            cells.set(idx, cell);
+        } else {
+            cells.add(-idx - 1, cell);
+        }
+    }
+
+    @Override
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    @Override
+    public Cell getCell(int cellnum) {
+        return getCell(cellnum, sheet.getWorkbook().getMissingCellPolicy());
+    }
+
+    @Override
+    public Cell getCell(int cellnum, MissingCellPolicy policy) {
+        int idx = indexOf(cellnum);
+        Cell cell = (idx >= 0) ? cells.get(idx) : null;
+        switch (policy) {
+            case RETURN_NULL_AND_BLANK:
+                return cell;
+            case RETURN_BLANK_AS_NULL:
+                return (cell == null || cell.getCellType() == CellType.BLANK) ? null : cell;
+            case CREATE_NULL_AS_BLANK:
+                return (cell == null) ? new StreamingReadCell(this, cellnum) : cell;
+            default:
+                throw new IllegalArgumentException("Illegal policy " + policy);
+        }
+    }
+
+    @Override
+    public short getFirstCellNum() {
+        return (short)(cells.isEmpty() ? -1 : cells.get(0).getColumnIndex());
+    }
+
+    @Override
+    public short getLastCellNum() {
+        return (short)(cells.isEmpty() ? -1 : cells.get(cells.size() - 1).getColumnIndex() + 1);
+    }
+
+    @Override
+    public int getPhysicalNumberOfCells() {
+        return cells.size();
+    }
+
+    @Override
+    public Iterator<Cell> cellIterator() {
+        return Collections.unmodifiableList(cells).iterator();
+    }
+
+    @Override
+    public StreamingReadSheet getSheet() {
+        return sheet;
+    }
+
+    @Override
+    public Cell createCell(int column) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public Cell createCell(int column, CellType type) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void removeCell(Cell cell) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setRowNum(int rowNum) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setHeight(short height) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setZeroHeight(boolean zHeight) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean getZeroHeight() {
+        return hidden;
+    }
+
+    @Override
+    public void setHeightInPoints(float height) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public short getHeight() {
+        return (short)(getHeightInPoints() * Font.TWIPS_PER_POINT);
+    }
+
+    /**
+     * @return the height of the row or the default row height of the sheet, if the row has no height
+     */
+    @Override
+    public float getHeightInPoints() {
+        return (height >= 0) ? (float)height : sheet.getDefaultRowHeightInPoints();
+    }
+
+    @Override
+    public boolean isFormatted() {
+        return styleIndex >= 0;
+    }
+
+    @Override
+    public CellStyle getRowStyle() {
+        return isFormatted() ? sheet.getWorkbook().getCellStyleAt(styleIndex) : null;
+    }
+
+    @Override
+    public void setRowStyle(CellStyle style) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public int getOutlineLevel() {
+        return outlineLevel;
+    }
+
+    @Override
+    public void shiftCellsRight(int firstShiftColumnIndex, int lastShiftColumnIndex, int step) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void shiftCellsLeft(int firstShiftColumnIndex, int lastShiftColumnIndex, int step) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    /**
+     * @return the index of the cell of the column or {@code -(insertion point) - 1}
+     */
+    private int indexOf(int column) {
+        int low = 0;
+        int high = cells.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midColumn = cells.get(mid).getColumnIndex();
+            if (midColumn < column) {
+                low = mid + 1;
+            } else if (midColumn > column) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,930 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.ss.usermodel.AutoFilter;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellRange;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.DataValidation;
+import org.apache.poi.ss.usermodel.DataValidationHelper;
+import org.apache.poi.ss.usermodel.Drawing;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Footer;
+import org.apache.poi.ss.usermodel.Header;
+import org.apache.poi.ss.usermodel.Hyperlink;
+import org.apache.poi.ss.usermodel.PrintSetup;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.PaneInformation;
+import org.apache.poi.util.Units;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetStreamReader;
+import org.apache.poi.xssf.model.Comments;
+import org.apache.poi.xssf.model.CommentsTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+
+/**
+ * A read-only sheet of a {@link StreamingReadWorkbook}, which parses the sheet part
+ * each time its rows are iterated.
+ * <p>
+ * Only one row is held in memory at a time, so the rows can only be accessed via
+ * {@link #rowIterator()} - the random access methods like {@link #getRow(int)} and
+ * all modifying methods throw an {@link UnsupportedOperationException}.
+ * <p>
+ * The properties, which precede the rows in the sheet part, i.e. the outline and page setup
+ * properties, the sheet view, the default row height and the columns, are read on their first access.
+ * The elements following the rows, like the merged regions, the header and footer, the margins,
+ * the print setup, the page breaks, the data validations and the hyperlinks, would require a pass
+ * over the whole sheet part, so their getters throw an {@link UnsupportedOperationException} as well.
+ *
+ * @since POI 5.2.3
+ */
+public class StreamingReadSheet implements Sheet {
+    private final StreamingReadWorkbook workbook;
+    private final String sheetName;
+    private final PackagePart sheetPart;
+    private Comments comments;
+    private boolean commentsLoaded;
+    private SheetProperties properties;
+
+    StreamingReadSheet(StreamingReadWorkbook workbook, String sheetName, PackagePart sheetPart) {
+        this.workbook = workbook;
+        this.sheetName = sheetName;
+        this.sheetPart = sheetPart;
+    }
+
+    /**
+     * Returns a forward-only iterator over the rows of the sheet, which parses the sheet part
+     * while iterating. Every call starts a new pass over the sheet.
+     * <p>
+     * The sheet part is closed, when the last row has been read or the workbook is closed.
+     *
+     * @throws POIXMLException if the sheet part can't be read
+     */
+    @Override
+    public Iterator<Row> rowIterator() {
+        try {
+            return new RowIterator(new XSSFSheetStreamReader(sheetPart.getInputStream(), workbook.getSharedStrings()));
+        } catch (IOException e) {
+            throw new POIXMLException(e);
+        }
+    }
+
+    /**
+     * The number of rows is unknown before the rows have been read
+     */
+    @Override
+    public Spliterator<Row> spliterator() {
+        return Spliterators.spliteratorUnknownSize(rowIterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    @Override
+    public StreamingReadWorkbook getWorkbook() {
+        return workbook;
+    }
+
+    @Override
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    /**
+     * @return the package part of the sheet
+     */
+    public PackagePart getSheetPart() {
+        return sheetPart;
+    }
+
+    @Override
+    public boolean isSelected() {
+        return getProperties().selected;
+    }
+
+    @Override
+    public Comment getCellComment(CellAddress ref) {
+        Comments c = getComments();
+        return (c == null) ? null : c.findCellComment(ref);
+    }
+
+    @Override
+    public Map<CellAddress, ? extends Comment> getCellComments() {
+        Comments c = getComments();
+        if (c == null) {
+            return Collections.emptyMap();
+        }
+        Map<CellAddress, XSSFComment> map = new HashMap<>();
+        for (Iterator<CellAddress> iter = c.getCellAddresses(); iter.hasNext(); ) {
+            CellAddress address = iter.next();
+            map.put(address, c.findCellComment(address));
+        }
+        return map;
+    }
+
+    /**
+     * @return the comments of the sheet or {@code null}, which are loaded on the first access
+     */
+    private Comments getComments() {
+        if (!commentsLoaded) {
+            commentsLoaded = true;
+            try {
+                PackageRelationshipCollection rels =
+                    sheetPart.getRelationshipsByType(XSSFRelation.SHEET_COMMENTS.getRelation());
+                if (!rels.isEmpty()) {
+                    PackageRelationship rel = rels.getRelationship(0);
+                    PackagePart commentsPart = sheetPart.getRelatedPart(rel);
+                    comments = new CommentsTable(commentsPart);
+                }
+            } catch (InvalidFormatException | IOException e) {
+                throw new POIXMLException("Failed to load the comments of sheet " + sheetName, e);
+            }
+        }
+        return comments;
+    }
+
+    /**
+     * @return the properties of the sheet, which are loaded on the first access
+     */
+    private SheetProperties getProperties() {
+        if (properties == null) {
+            try (InputStream is = sheetPart.getInputStream()) {
+                properties = new SheetProperties(is);
+            } catch (IOException | XMLStreamException e) {
+                throw new POIXMLException("Failed to read the properties of sheet " + sheetName, e);
+            }
+        }
+        return properties;
+    }
+
+    private class RowIterator implements Iterator<Row> {
+        private final XSSFSheetStreamReader reader;
+        private StreamingReadRow next;
+        private boolean finished;
+
+        RowIterator(XSSFSheetStreamReader reader) {
+            this.reader = reader;
+            workbook.register(reader);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    if (reader.nextRow()) {
+                        next = new StreamingReadRow(StreamingReadSheet.this, reader);
+                        while (reader.nextCell()) {
+                            next.addCell(new StreamingReadCell(next, reader));
+                        }
+                    } else {
+                        finished = true;
+                        workbook.unregister(reader);
+                        reader.close();
+                    }
+                } catch (IOException e) {
+                    throw new POIXMLException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row row = next;
+            next = null;
+            return row;
+        }
+    }
+
+    /**
+     * The properties of the sheet, which precede the {@code sheetData} element
+     */
+    private static final class SheetProperties {
+        private boolean autobreaks = true;
+        private boolean fitToPage;
+        private boolean displayGuts = true;
+        private boolean rowSumsBelow = true;
+        private boolean rowSumsRight = true;
+        private boolean selected;
+        private boolean rightToLeft;
+        private boolean displayGridlines = true;
+        private boolean displayZeros = true;
+        private boolean displayFormulas;
+        private boolean displayRowColHeadings = true;
+        private CellReference topLeftCell;
+        private float defaultRowHeight;
+        private int defaultColumnWidth = 8;
+        private final List<ColumnProperties> columns = new ArrayList<>();
+
+        /**
+         * Reads the start of the sheet part up to the rows
+         */
+        SheetProperties(InputStream is) throws XMLStreamException {
+            XMLStreamReader reader = XMLHelper.newXMLInputFactory().createXMLStreamReader(is);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    switch (reader.getLocalName()) {
+                        case "sheetData":
+                            return;
+                        case "outlinePr":
+                            displayGuts = getBoolean(reader, "showOutlineSymbols", true);
+                            rowSumsBelow = getBoolean(reader, "summaryBelow", true);
+                            rowSumsRight = getBoolean(reader, "summaryRight", true);
+                            break;
+                        case "pageSetUpPr":
+                            autobreaks = getBoolean(reader, "autoPageBreaks", true);
+                            fitToPage = getBoolean(reader, "fitToPage", false);
+                            break;
+                        case "sheetView":
+                            // like XSSFSheet, the last sheet view is used
+                            selected = getBoolean(reader, "tabSelected", false);
+                            rightToLeft = getBoolean(reader, "rightToLeft", false);
+                            displayGridlines = getBoolean(reader, "showGridLines", true);
+                            displayZeros = getBoolean(reader, "showZeros", true);
+                            displayFormulas = getBoolean(reader, "showFormulas", false);
+                            displayRowColHeadings = getBoolean(reader, "showRowColHeaders", true);
+                            String ref = reader.getAttributeValue(null, "topLeftCell");
+                            topLeftCell = (ref == null) ? null : new CellReference(ref);
+                            break;
+                        case "sheetFormatPr":
+                            String height = reader.getAttributeValue(null, "defaultRowHeight");
+                            defaultRowHeight = (height == null) ? 0 : Float.parseFloat(height);
+                            String width = reader.getAttributeValue(null, "baseColWidth");
+                            defaultColumnWidth = (width == null) ? 8 : Integer.parseInt(width);
+                            break;
+                        case "col":
+                            columns.add(new ColumnProperties(reader));
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        /**
+         * @return the properties of the column or {@code null}, if the column has no properties
+         */
+        ColumnProperties getColumn(int columnIndex) {
+            // the column elements use one-based column numbers
+            int column = columnIndex + 1;
+            for (ColumnProperties col : columns) {
+                if (col.min <= column && column <= col.max) {
+                    return col;
+                }
+            }
+            return null;
+        }
+
+        private static boolean getBoolean(XMLStreamReader reader, String name, boolean defaultValue) {
+            String value = reader.getAttributeValue(null, name);
+            return (value == null) ? defaultValue : ("1".equals(value) || "true".equals(value));
+        }
+
+        private static int getInt(XMLStreamReader reader, String name, int defaultValue) {
+            String value = reader.getAttributeValue(null, name);
+            return (value == null) ? defaultValue : Integer.parseInt(value);
+        }
+    }
+
+    /**
+     * The properties of a {@code col} element, i.e. of a range of columns
+     */
+    private static final class ColumnProperties {
+        private final int min;
+        private final int max;
+        /** the width in characters or {@code -1}, if the width isn't set */
+        private final double width;
+        private final boolean hidden;
+        private final int style;
+        private final int outlineLevel;
+
+        ColumnProperties(XMLStreamReader reader) {
+            min = SheetProperties.getInt(reader, "min", 0);
+            max = SheetProperties.getInt(reader, "max", 0);
+            String w = reader.getAttributeValue(null, "width");
+            width = (w == null) ? -1 : Double.parseDouble(w);
+            hidden = SheetProperties.getBoolean(reader, "hidden", false);
+            style = SheetProperties.getInt(reader, "style", -1);
+            outlineLevel = SheetProperties.getInt(reader, "outlineLevel", 0);
+        }
+    }
+
+    @Override
+    public Row createRow(int rownum) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void removeRow(Row row) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public Row getRow(int rownum) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public int getPhysicalNumberOfRows() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public int getFirstRowNum() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public int getLastRowNum() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setColumnHidden(int columnIndex, boolean hidden) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean isColumnHidden(int columnIndex) {
+        ColumnProperties col = getProperties().getColumn(columnIndex);
+        return col != null && col.hidden;
+    }
+
+    @Override
+    public void setRightToLeft(boolean value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean isRightToLeft() {
+        return getProperties().rightToLeft;
+    }
+
+    @Override
+    public void setColumnWidth(int columnIndex, int width) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public int getColumnWidth(int columnIndex) {
+        ColumnProperties col = getProperties().getColumn(columnIndex);
+        double width = (col == null || col.width < 0) ? getDefaultColumnWidth() : col.width;
+        return Math.toIntExact(Math.round(width * 256));
+    }
+
+    @Override
+    public float getColumnWidthInPixels(int columnIndex) {
+        float widthIn256 = getColumnWidth(columnIndex);
+        return (float)(widthIn256 / 256.0 * Units.DEFAULT_CHARACTER_WIDTH);
+    }
+
+    @Override
+    public void setDefaultColumnWidth(int width) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public int getDefaultColumnWidth() {
+        return getProperties().defaultColumnWidth;
+    }
+
+    @Override
+    public short getDefaultRowHeight() {
+        return (short)(getDefaultRowHeightInPoints() * Font.TWIPS_PER_POINT);
+    }
+
+    @Override
+    public float getDefaultRowHeightInPoints() {
+        return getProperties().defaultRowHeight;
+    }
+
+    @Override
+    public void setDefaultRowHeight(short height) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setDefaultRowHeightInPoints(float height) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public CellStyle getColumnStyle(int column) {
+        ColumnProperties col = getProperties().getColumn(column);
+        return workbook.getCellStyleAt((col == null || col.style < 0) ? 0 : col.style);
+    }
+
+    @Override
+    public int addMergedRegion(CellRangeAddress region) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public int addMergedRegionUnsafe(CellRangeAddress region) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void validateMergedRegions() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setVerticallyCenter(boolean value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setHorizontallyCenter(boolean value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean getHorizontallyCenter() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean getVerticallyCenter() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void removeMergedRegion(int index) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void removeMergedRegions(Collection<Integer> indices) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public int getNumMergedRegions() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public CellRangeAddress getMergedRegion(int index) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public List<CellRangeAddress> getMergedRegions() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setForceFormulaRecalculation(boolean value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean getForceFormulaRecalculation() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setAutobreaks(boolean value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setDisplayGuts(boolean value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setDisplayZeros(boolean value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean isDisplayZeros() {
+        return getProperties().displayZeros;
+    }
+
+    @Override
+    public void setFitToPage(boolean value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setRowSumsBelow(boolean value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setRowSumsRight(boolean value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean getAutobreaks() {
+        return getProperties().autobreaks;
+    }
+
+    @Override
+    public boolean getDisplayGuts() {
+        return getProperties().displayGuts;
+    }
+
+    @Override
+    public boolean getFitToPage() {
+        return getProperties().fitToPage;
+    }
+
+    @Override
+    public boolean getRowSumsBelow() {
+        return getProperties().rowSumsBelow;
+    }
+
+    @Override
+    public boolean getRowSumsRight() {
+        return getProperties().rowSumsRight;
+    }
+
+    @Override
+    public boolean isPrintGridlines() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setPrintGridlines(boolean show) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean isPrintRowAndColumnHeadings() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setPrintRowAndColumnHeadings(boolean show) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public PrintSetup getPrintSetup() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public Header getHeader() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public Footer getFooter() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setSelected(boolean value) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public double getMargin(short margin) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setMargin(short margin, double size) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean getProtect() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void protectSheet(String password) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean getScenarioProtect() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setZoom(int scale) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public short getTopRow() {
+        CellReference topLeft = getProperties().topLeftCell;
+        return (short)((topLeft == null) ? 0 : topLeft.getRow());
+    }
+
+    @Override
+    public short getLeftCol() {
+        CellReference topLeft = getProperties().topLeftCell;
+        return (topLeft == null) ? 0 : topLeft.getCol();
+    }
+
+    @Override
+    public void showInPane(int topRow, int leftCol) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void shiftRows(int startRow, int endRow, int n) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void shiftRows(int startRow, int endRow, int n, boolean copyRowHeight, boolean resetOriginalRowHeight) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void shiftColumns(int startColumn, int endColumn, int n) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void createFreezePane(int colSplit, int rowSplit, int leftmostColumn, int topRow) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void createFreezePane(int colSplit, int rowSplit) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void createSplitPane(int xSplitPos, int ySplitPos, int leftmostColumn, int topRow, int activePane) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public PaneInformation getPaneInformation() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setDisplayGridlines(boolean show) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean isDisplayGridlines() {
+        return getProperties().displayGridlines;
+    }
+
+    @Override
+    public void setDisplayFormulas(boolean show) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean isDisplayFormulas() {
+        return getProperties().displayFormulas;
+    }
+
+    @Override
+    public void setDisplayRowColHeadings(boolean show) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean isDisplayRowColHeadings() {
+        return getProperties().displayRowColHeadings;
+    }
+
+    @Override
+    public void setRowBreak(int row) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean isRowBroken(int row) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void removeRowBreak(int row) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public int[] getRowBreaks() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public int[] getColumnBreaks() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setColumnBreak(int column) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public boolean isColumnBroken(int column) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void removeColumnBreak(int column) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setColumnGroupCollapsed(int columnNumber, boolean collapsed) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void groupColumn(int fromColumn, int toColumn) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void ungroupColumn(int fromColumn, int toColumn) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void groupRow(int fromRow, int toRow) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void ungroupRow(int fromRow, int toRow) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setRowGroupCollapsed(int row, boolean collapse) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setDefaultColumnStyle(int column, CellStyle style) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void autoSizeColumn(int column) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void autoSizeColumn(int column, boolean useMergedCells) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public Drawing<?> getDrawingPatriarch() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public Drawing<?> createDrawingPatriarch() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public CellRange<? extends Cell> setArrayFormula(String formula, CellRangeAddress range) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public CellRange<? extends Cell> removeArrayFormula(Cell cell) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public DataValidationHelper getDataValidationHelper() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public List<? extends DataValidation> getDataValidations() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void addValidationData(DataValidation dataValidation) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public AutoFilter setAutoFilter(CellRangeAddress range) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public SheetConditionalFormatting getSheetConditionalFormatting() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public CellRangeAddress getRepeatingRows() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public CellRangeAddress getRepeatingColumns() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setRepeatingRows(CellRangeAddress rowRangeRef) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setRepeatingColumns(CellRangeAddress columnRangeRef) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public int getColumnOutlineLevel(int columnIndex) {
+        ColumnProperties col = getProperties().getColumn(columnIndex);
+        return (col == null) ? 0 : col.outlineLevel;
+    }
+
+    @Override
+    public Hyperlink getHyperlink(int row, int column) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public Hyperlink getHyperlink(CellAddress addr) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public List<? extends Hyperlink> getHyperlinkList() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public CellAddress getActiveCell() {
+        throw StreamingReadWorkbook.unsupported();
+    }
+
+    @Override
+    public void setActiveCell(CellAddress address) {
+        throw StreamingReadWorkbook.unsupported();
+    }
+}
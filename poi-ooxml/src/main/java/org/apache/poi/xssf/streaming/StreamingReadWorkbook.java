@@ -0,0 +1,556 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.EvaluationWorkbook;
+import org.apache.poi.ss.formula.udf.UDFFinder;
+import org.apache.poi.ss.usermodel.CellReferenceType;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.PictureData;
+import org.apache.poi.ss.usermodel.Row.MissingCellPolicy;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetVisibility;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.Removal;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A read-only implementation of the {@link Workbook} interface, which streams the rows of its sheets
+ * from the package instead of loading the sheets into memory like {@link org.apache.poi.xssf.usermodel.XSSFWorkbook}.
+ * <p>
+ * The rows of a sheet are parsed forward-only by {@link Sheet#rowIterator()}, so existing code,
+ * which iterates over the rows and cells, can process big files with constant memory:
+ * <pre>{@code
+ * try (Workbook wb = WorkbookFactory.create(file, null, true, true)) {
+ *     for (Row row : wb.getSheetAt(0)) {
+ *         for (Cell cell : row) {
+ *             ...
+ *         }
+ *     }
+ * }
+ * }</pre>
+ * <p>
+ * The workbook holds the shared strings table and the styles in memory. Methods, which need random access
+ * to the rows or modify the workbook, throw an {@link UnsupportedOperationException}, as well as the getters
+ * of the sheet properties, which follow the rows in the sheet part - see {@link StreamingReadSheet}.
+ * Open the package from a file to avoid, that the whole package is buffered in memory.
+ *
+ * @since POI 5.2.3
+ */
+public class StreamingReadWorkbook implements Workbook {
+    private static final String WORKBOOK_PR = "workbookPr";
+    private static final String WORKBOOK_VIEW = "workbookView";
+    private static final String SHEET = "sheet";
+
+    private final OPCPackage pkg;
+    private final SharedStrings sharedStrings;
+    private final StylesTable styles;
+    private final List<StreamingReadSheet> sheets = new ArrayList<>();
+    private final List<SheetVisibility> visibilities = new ArrayList<>();
+    private final Set<Closeable> openReaders = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean date1904;
+    private int activeSheet;
+    private int firstVisibleTab;
+    private MissingCellPolicy missingCellPolicy = MissingCellPolicy.RETURN_NULL_AND_BLANK;
+
+    /**
+     * Opens the workbook with the shared strings in memory
+     *
+     * @param pkg the package, which is reverted when the workbook is closed
+     */
+    public StreamingReadWorkbook(OPCPackage pkg) throws IOException {
+        this(pkg, false);
+    }
+
+    /**
+     * @param pkg the package, which is reverted when the workbook is closed
+     * @param useTempFileSharedStrings whether the shared strings are buffered in temp files,
+     *  see {@link XSSFReader#setUseTempFileSharedStringsTable(boolean)}
+     */
+    public StreamingReadWorkbook(OPCPackage pkg, boolean useTempFileSharedStrings) throws IOException {
+        this.pkg = pkg;
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            reader.setUseReadOnlySharedStringsTable(true);
+            reader.setUseTempFileSharedStringsTable(useTempFileSharedStrings);
+            sharedStrings = reader.getSharedStringsTable();
+            styles = reader.getStylesTable();
+
+            PackageRelationship coreDocRelationship = pkg.getRelationshipsByType(
+                PackageRelationshipTypes.CORE_DOCUMENT).getRelationship(0);
+            readWorkbook(pkg.getPart(coreDocRelationship));
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void readWorkbook(PackagePart workbookPart)
+    throws IOException, InvalidFormatException, SAXException, ParserConfigurationException {
+        List<String[]> sheetRefs = new ArrayList<>();
+        XMLReader xmlReader = XMLHelper.newXMLReader();
+        xmlReader.setContentHandler(new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attrs) {
+                switch (localName) {
+                    case WORKBOOK_PR:
+                        String date1904Attr = attrs.getValue("date1904");
+                        date1904 = "1".equals(date1904Attr) || "true".equals(date1904Attr);
+                        break;
+                    case WORKBOOK_VIEW:
+                        activeSheet = parseInt(attrs.getValue("activeTab"));
+                        firstVisibleTab = parseInt(attrs.getValue("firstSheet"));
+                        break;
+                    case SHEET:
+                        String id = null;
+                        for (int i = 0; i < attrs.getLength(); i++) {
+                            if ("id".equals(attrs.getLocalName(i))) {
+                                id = attrs.getValue(i);
+                            }
+                        }
+                        sheetRefs.add(new String[]{attrs.getValue("name"), id, attrs.getValue("state")});
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
+        try (InputStream is = workbookPart.getInputStream()) {
+            xmlReader.parse(new InputSource(is));
+        }
+
+        for (String[] ref : sheetRefs) {
+            String name = ref[0];
+            String id = ref[1];
+            // like XSSFReader, silently skip sheets without a relationship id
+            if (name == null || id == null || id.isEmpty()) {
+                continue;
+            }
+            PackageRelationship rel = workbookPart.getRelationship(id);
+            PackagePart sheetPart = (rel == null) ? null : workbookPart.getRelatedPart(rel);
+            if (sheetPart == null) {
+                throw new POIXMLException("No data found for sheet " + name + " with r:id " + id);
+            }
+            sheets.add(new StreamingReadSheet(this, name, sheetPart));
+            visibilities.add("hidden".equals(ref[2]) ? SheetVisibility.HIDDEN
+                : "veryHidden".equals(ref[2]) ? SheetVisibility.VERY_HIDDEN : SheetVisibility.VISIBLE);
+        }
+    }
+
+    private static int parseInt(String value) {
+        return (value == null) ? 0 : Integer.parseInt(value);
+    }
+
+    static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Not supported by the read-only, forward-only streaming workbook");
+    }
+
+    /**
+     * @return the shared strings of the workbook or {@code null}
+     */
+    public SharedStrings getSharedStrings() {
+        return sharedStrings;
+    }
+
+    /**
+     * @return the styles of the workbook or {@code null}
+     */
+    public StylesTable getStylesSource() {
+        return styles;
+    }
+
+    /**
+     * @return whether the dates of the workbook use the 1904 date windowing
+     */
+    public boolean isDate1904() {
+        return date1904;
+    }
+
+    void register(Closeable reader) {
+        synchronized (openReaders) {
+            openReaders.add(reader);
+        }
+    }
+
+    void unregister(Closeable reader) {
+        synchronized (openReaders) {
+            openReaders.remove(reader);
+        }
+    }
+
+    @Override
+    public int getActiveSheetIndex() {
+        return activeSheet;
+    }
+
+    @Override
+    public int getFirstVisibleTab() {
+        return firstVisibleTab;
+    }
+
+    @Override
+    public String getSheetName(int sheet) {
+        return getSheetAt(sheet).getSheetName();
+    }
+
+    @Override
+    public int getSheetIndex(String name) {
+        for (int i = 0; i < sheets.size(); i++) {
+            if (sheets.get(i).getSheetName().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getSheetIndex(Sheet sheet) {
+        return sheets.indexOf(sheet);
+    }
+
+    @Override
+    public Iterator<Sheet> sheetIterator() {
+        return Collections.<Sheet>unmodifiableList(sheets).iterator();
+    }
+
+    @Override
+    public int getNumberOfSheets() {
+        return sheets.size();
+    }
+
+    @Override
+    public StreamingReadSheet getSheetAt(int index) {
+        if (index < 0 || index >= sheets.size()) {
+            throw new IllegalArgumentException("Sheet index (" + index + ") is out of range (0.." + (sheets.size() - 1) + ")");
+        }
+        return sheets.get(index);
+    }
+
+    @Override
+    public StreamingReadSheet getSheet(String name) {
+        int idx = getSheetIndex(name);
+        return (idx < 0) ? null : sheets.get(idx);
+    }
+
+    @Override
+    public int getNumberOfFonts() {
+        return (styles == null) ? 0 : styles.getFonts().size();
+    }
+
+    @Override
+    @Deprecated
+    @Removal(version = "6.0.0")
+    public int getNumberOfFontsAsInt() {
+        return getNumberOfFonts();
+    }
+
+    @Override
+    public XSSFFont getFontAt(int idx) {
+        return (styles == null) ? null : styles.getFontAt(idx);
+    }
+
+    @Override
+    public int getNumCellStyles() {
+        return (styles == null) ? 0 : styles.getNumCellStyles();
+    }
+
+    @Override
+    public XSSFCellStyle getCellStyleAt(int idx) {
+        return (styles == null) ? null : styles.getStyleAt(idx);
+    }
+
+    /**
+     * Closes the open sheet parts, the shared strings and reverts the package
+     */
+    @Override
+    public void close() throws IOException {
+        List<Closeable> readers;
+        synchronized (openReaders) {
+            readers = new ArrayList<>(openReaders);
+            openReaders.clear();
+        }
+        for (Closeable reader : readers) {
+            reader.close();
+        }
+        if (sharedStrings instanceof Closeable) {
+            ((Closeable)sharedStrings).close();
+        }
+        pkg.revert();
+    }
+
+    @Override
+    public MissingCellPolicy getMissingCellPolicy() {
+        return missingCellPolicy;
+    }
+
+    @Override
+    public void setMissingCellPolicy(MissingCellPolicy missingCellPolicy) {
+        this.missingCellPolicy = missingCellPolicy;
+    }
+
+    @Override
+    public boolean isHidden() {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isSheetHidden(int sheetIx) {
+        return getSheetVisibility(sheetIx) == SheetVisibility.HIDDEN;
+    }
+
+    @Override
+    public boolean isSheetVeryHidden(int sheetIx) {
+        return getSheetVisibility(sheetIx) == SheetVisibility.VERY_HIDDEN;
+    }
+
+    @Override
+    public SheetVisibility getSheetVisibility(int sheetIx) {
+        getSheetAt(sheetIx);
+        return visibilities.get(sheetIx);
+    }
+
+    @Override
+    public SpreadsheetVersion getSpreadsheetVersion() {
+        return SpreadsheetVersion.EXCEL2007;
+    }
+
+    @Override
+    public CellReferenceType getCellReferenceType() {
+        return CellReferenceType.UNKNOWN;
+    }
+
+    @Override
+    public void setActiveSheet(int sheetIndex) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setFirstVisibleTab(int sheetIndex) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setSheetOrder(String sheetname, int pos) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setSelectedTab(int index) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setSheetName(int sheet, String name) {
+        throw unsupported();
+    }
+
+    @Override
+    public Sheet createSheet() {
+        throw unsupported();
+    }
+
+    @Override
+    public Sheet createSheet(String sheetname) {
+        throw unsupported();
+    }
+
+    @Override
+    public Sheet cloneSheet(int sheetNum) {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeSheetAt(int index) {
+        throw unsupported();
+    }
+
+    @Override
+    public Font createFont() {
+        throw unsupported();
+    }
+
+    @Override
+    public Font findFont(boolean bold, short color, short fontHeight, String name, boolean italic,
+                         boolean strikeout, short typeOffset, byte underline) {
+        throw unsupported();
+    }
+
+    @Override
+    public CellStyle createCellStyle() {
+        throw unsupported();
+    }
+
+    @Override
+    public void write(OutputStream stream) {
+        throw unsupported();
+    }
+
+    @Override
+    public int getNumberOfNames() {
+        throw unsupported();
+    }
+
+    @Override
+    public Name getName(String name) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<? extends Name> getNames(String name) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<? extends Name> getAllNames() {
+        throw unsupported();
+    }
+
+    @Override
+    public Name createName() {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeName(Name name) {
+        throw unsupported();
+    }
+
+    @Override
+    public int linkExternalWorkbook(String name, Workbook workbook) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setPrintArea(int sheetIndex, String reference) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setPrintArea(int sheetIndex, int startColumn, int endColumn, int startRow, int endRow) {
+        throw unsupported();
+    }
+
+    @Override
+    public String getPrintArea(int sheetIndex) {
+        throw unsupported();
+    }
+
+    @Override
+    public void removePrintArea(int sheetIndex) {
+        throw unsupported();
+    }
+
+    @Override
+    public DataFormat createDataFormat() {
+        throw unsupported();
+    }
+
+    @Override
+    public int addPicture(byte[] pictureData, int format) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<? extends PictureData> getAllPictures() {
+        throw unsupported();
+    }
+
+    @Override
+    public CreationHelper getCreationHelper() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setHidden(boolean hiddenFlag) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setSheetHidden(int sheetIx, boolean hidden) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setSheetVisibility(int sheetIx, SheetVisibility visibility) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addToolPack(UDFFinder toolpack) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setForceFormulaRecalculation(boolean value) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean getForceFormulaRecalculation() {
+        throw unsupported();
+    }
+
+    @Override
+    public int addOlePackage(byte[] oleData, String label, String fileName, String command) {
+        throw unsupported();
+    }
+
+    @Override
+    public EvaluationWorkbook createEvaluationWorkbook() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setCellReferenceType(CellReferenceType cellReferenceType) {
+        throw unsupported();
+    }
+}
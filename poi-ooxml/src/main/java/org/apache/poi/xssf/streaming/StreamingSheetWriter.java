@@ -17,12 +17,10 @@
 
 package org.apache.poi.xssf.streaming;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
 
 import org.apache.logging.log4j.LogManager;
@@ -64,7 +62,7 @@ public class StreamingSheetWriter extends SheetDataWriter {
      * @param out the output stream to write to
      */
     protected static Writer createWriter(OutputStream out) throws IOException {
-        return new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+        return new UTF8Writer(out);
     }
 
     @Override
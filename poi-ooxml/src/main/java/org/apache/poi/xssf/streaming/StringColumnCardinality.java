@@ -0,0 +1,70 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.util.Arrays;
+
+/**
+ * Decides per column, whether the strings of a sheet are added to the shared strings table or
+ * written as inline strings.
+ * <p>
+ * The strings of a column are counted in windows of {@value #WINDOW_SIZE} cells. A column starts
+ * with shared strings and switches to inline strings for good, when more than half of the strings
+ * of a window were new entries of the shared strings table, e.g. for an id column. So the table
+ * only grows by a window per high cardinality column, while the repeated values of the low cardinality
+ * columns are still deduplicated.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class StringColumnCardinality {
+    static final int WINDOW_SIZE = 1024;
+
+    private int[] _counts = new int[16];
+    private int[] _newEntries = new int[16];
+    private boolean[] _inline = new boolean[16];
+
+    /**
+     * @return whether the strings of the column are added to the shared strings table
+     */
+    boolean isShared(int column) {
+        return column >= _inline.length || !_inline[column];
+    }
+
+    /**
+     * Records a string, which was added to the shared strings table
+     *
+     * @param column the column of the cell
+     * @param newEntry whether the string was a new entry of the table
+     */
+    void record(int column, boolean newEntry) {
+        if (column >= _counts.length) {
+            int length = Math.max(column + 1, 2 * _counts.length);
+            _counts = Arrays.copyOf(_counts, length);
+            _newEntries = Arrays.copyOf(_newEntries, length);
+            _inline = Arrays.copyOf(_inline, length);
+        }
+        if (newEntry) {
+            _newEntries[column]++;
+        }
+        if (++_counts[column] == WINDOW_SIZE) {
+            _inline[column] = 2 * _newEntries[column] > WINDOW_SIZE;
+            _counts[column] = 0;
+            _newEntries[column] = 0;
+        }
+    }
+}
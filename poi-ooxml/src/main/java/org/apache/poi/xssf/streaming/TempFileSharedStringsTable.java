@@ -0,0 +1,526 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.poi.ooxml.POIXMLTypeLoader.DEFAULT_XML_OPTIONS;
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRst;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSst;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.SstDocument;
+
+/**
+ * A shared strings table for {@link SXSSFWorkbook}, which keeps the heap usage bounded regardless
+ * of the number of distinct strings.
+ * <p>
+ * The serialized {@code <si>} entries are appended to a temp file. They are deduplicated through an
+ * open addressing hash index, which lives in a memory-mapped temp file and holds the 64-bit hash,
+ * the length and the number of each entry. A hash match is verified against the bytes of the entry,
+ * and only a small number of recently used strings is cached on the heap. When the workbook is written,
+ * the entries are streamed from the temp file into {@code sharedStrings.xml}.
+ * <p>
+ * The entries of the template table are copied when the table is created, so the string indexes used
+ * by the existing cells stay valid.
+ * <p>
+ * The table is used by {@link SXSSFWorkbook} when it is created with
+ * {@link SXSSFStringStorage#SHARED_TEMP_FILE}. Reading entries back through {@link #getItemAt(int)}
+ * parses them from the temp file and is only meant for occasional access.
+ *
+ * @since POI 5.2.3
+ */
+public class TempFileSharedStringsTable extends SharedStringsTable {
+    private static final Logger LOG = LogManager.getLogger(TempFileSharedStringsTable.class);
+
+    /** the default number of strings, which are cached on the heap */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_INDEX_SLOTS = 1 << 16;
+    private static final String SI_START = "<si>";
+    private static final XmlOptions SAVE_OPTIONS = new XmlOptions();
+    private static final XmlOptions PARSE_OPTIONS = new XmlOptions(DEFAULT_XML_OPTIONS);
+    static {
+        SAVE_OPTIONS.setSaveOuter();
+        SAVE_OPTIONS.setSaveAggressiveNamespaces();
+        SAVE_OPTIONS.setUseDefaultNamespace(true);
+        SAVE_OPTIONS.setSaveImplicitNamespaces(Collections.singletonMap("", NS_SPREADSHEETML));
+        // parse the si element as the CTRst itself instead of a document containing it
+        PARSE_OPTIONS.setLoadReplaceDocumentElement(null);
+    }
+
+    private final File _bodyFile;
+    private final RandomAccessFile _body;
+    /** the buffered tail of the body file */
+    private final byte[] _buffer = new byte[BUFFER_SIZE];
+    private int _bufferLength;
+    private long _flushedLength;
+
+    /** the offsets of the entries in the body file */
+    private final MappedLongArray _offsets;
+    /** two longs per slot: the hash and the entry number + 1 in the high / the length in the low 32 bits */
+    private MappedLongArray _index;
+    private long _indexMask;
+
+    private final int _cacheSize;
+    private final Map<String, Integer> _cache;
+
+    /** the entry, which is currently added, and the writers to serialize it */
+    private final EntryBuffer _entry = new EntryBuffer();
+    private final UTF8Writer _entryWriter = new UTF8Writer(_entry);
+    private final SheetDataWriter _escaper = new SheetDataWriter(_entryWriter);
+    private final CTSst _scratch = SstDocument.Factory.newInstance().addNewSst();
+    private byte[] _readBuffer = new byte[256];
+
+    private boolean _closed;
+
+    /**
+     * Creates an empty table
+     */
+    public TempFileSharedStringsTable() throws IOException {
+        this(null, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param template the table of the template workbook, whose entries are copied, or {@code null}
+     */
+    public TempFileSharedStringsTable(SharedStringsTable template) throws IOException {
+        this(template, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param template the table of the template workbook, whose entries are copied, or {@code null}
+     * @param cacheSize the number of recently used strings, which are cached on the heap - {@code 0} disables the cache
+     */
+    public TempFileSharedStringsTable(SharedStringsTable template, int cacheSize) throws IOException {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must not be negative");
+        }
+        _cacheSize = cacheSize;
+        _cache = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > _cacheSize;
+            }
+        };
+        _bodyFile = TempFile.createTempFile("poi-sxssf-sst", ".xml");
+        _body = new RandomAccessFile(_bodyFile, "rw");
+        MappedLongArray offsets = null;
+        try {
+            offsets = new MappedLongArray("poi-sxssf-sst-offsets", 0);
+            _index = new MappedLongArray("poi-sxssf-sst-index", 2L * INITIAL_INDEX_SLOTS);
+            _indexMask = INITIAL_INDEX_SLOTS - 1;
+        } catch (IOException e) {
+            if (offsets != null) {
+                offsets.close();
+            }
+            _body.close();
+            deleteBodyFile();
+            throw e;
+        }
+        _offsets = offsets;
+
+        if (template != null) {
+            for (RichTextString item : template.getSharedStringItems()) {
+                encodeEntry(((XSSFRichTextString)item).getCTRst());
+                // the existing indexes must not move, even if the template contains duplicates
+                addEntry(false);
+            }
+            count = template.getCount();
+        }
+    }
+
+    /**
+     * Add an entry to this Shared String table (a new value is appended to the end).
+     * <p>
+     * If the Shared String table already contains this string entry, its index is returned.
+     * Otherwise a new entry is added.
+     *
+     * @param string the entry to add
+     * @return index the index of added entry
+     */
+    @Override
+    public synchronized int addSharedStringItem(RichTextString string) {
+        if (!(string instanceof XSSFRichTextString)) {
+            throw new IllegalArgumentException("Only XSSFRichTextString argument is supported");
+        }
+        CTRst st = ((XSSFRichTextString) string).getCTRst();
+        if (st.isSetT() && st.sizeOfRArray() == 0 && st.sizeOfRPhArray() == 0 && !st.isSetPhoneticPr()) {
+            return addString(st.getT());
+        }
+        ensureOpen();
+        count++;
+        try {
+            encodeEntry(st);
+            return addEntry(true);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Adds an unformatted string without creating a rich text instance
+     *
+     * @param string the string
+     * @return the index of the entry
+     */
+    synchronized int addString(String string) {
+        ensureOpen();
+        count++;
+        Integer cached = _cache.get(string);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            _entry.reset();
+            _entryWriter.write("<si><t");
+            if (_escaper.hasLeadingTrailingSpaces(string)) {
+                _entryWriter.write(" xml:space=\"preserve\"");
+            }
+            _entryWriter.write('>');
+            _escaper.outputEscapedString(string);
+            _entryWriter.write("</t></si>");
+            _entryWriter.flush();
+            int idx = addEntry(true);
+            if (_cacheSize > 0) {
+                _cache.put(string, idx);
+            }
+            return idx;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Return a string item by index.
+     * <p>
+     * The entry is read from the temp file and parsed on each call.
+     *
+     * @param idx index of item to return.
+     * @return the item at the specified position in this Shared String table.
+     */
+    @Override
+    public synchronized RichTextString getItemAt(int idx) {
+        ensureOpen();
+        if (idx < 0 || idx >= uniqueCount) {
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + uniqueCount);
+        }
+        try {
+            flushBuffer();
+            long offset = _offsets.get(idx);
+            long end = (idx + 1 < uniqueCount) ? _offsets.get(idx + 1L) : _flushedLength;
+            int length = (int)(end - offset);
+            byte[] bytes = readEntry(offset, length);
+            // the entries are stored without the namespace, which is declared by the root element
+            String xml = "<si xmlns=\"" + NS_SPREADSHEETML + "\">"
+                + new String(bytes, SI_START.length(), length - SI_START.length(), UTF_8);
+            return new XSSFRichTextString(CTRst.Factory.parse(xml, PARSE_OPTIONS));
+        } catch (IOException | XmlException e) {
+            throw new RuntimeException("Failed to read the shared string " + idx, e);
+        }
+    }
+
+    /**
+     * Provide access to the strings in the SharedStringsTable.
+     * <p>
+     * All entries are read from the temp file, so this should be avoided for large tables.
+     *
+     * @return list of shared string instances
+     */
+    @Override
+    public synchronized List<RichTextString> getSharedStringItems() {
+        List<RichTextString> items = new ArrayList<>(uniqueCount);
+        for (int i = 0; i < uniqueCount; i++) {
+            items.add(getItemAt(i));
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Write this table out as XML by streaming the entries from the temp file.
+     *
+     * @param out The stream to write to.
+     * @throws IOException if an error occurs while writing.
+     */
+    @Override
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        ensureOpen();
+        flushBuffer();
+        String start = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<sst xmlns=\"" + NS_SPREADSHEETML + "\" count=\"" + count + "\" uniqueCount=\"" + uniqueCount + "\">";
+        out.write(start.getBytes(UTF_8));
+        FileChannel channel = _body.getChannel();
+        ByteBuffer bb = ByteBuffer.wrap(_buffer);
+        long position = 0;
+        while (position < _flushedLength) {
+            bb.clear();
+            bb.limit((int)Math.min(_buffer.length, _flushedLength - position));
+            int read = channel.read(bb, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of the shared strings temp file");
+            }
+            out.write(_buffer, 0, read);
+            position += read;
+        }
+        out.write("</sst>".getBytes(UTF_8));
+    }
+
+    /**
+     * Deletes the temp files
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        _cache.clear();
+        try {
+            _offsets.close();
+            _index.close();
+        } finally {
+            _body.close();
+            deleteBodyFile();
+        }
+    }
+
+    private void deleteBodyFile() {
+        if (!_bodyFile.delete() && _bodyFile.exists()) {
+            LOG.atWarn().log("Failed to delete the temp file {}", _bodyFile);
+        }
+    }
+
+    private void ensureOpen() {
+        if (_closed) {
+            throw new IllegalStateException("The shared strings table is closed");
+        }
+    }
+
+    private void encodeEntry(CTRst st) throws IOException {
+        // the entry is serialized as a child of the sst element, so it uses the default namespace of sharedStrings.xml
+        CTRst si = _scratch.addNewSi();
+        si.set(st);
+        String xml = si.xmlText(SAVE_OPTIONS);
+        _scratch.removeSi(0);
+        _entry.reset();
+        _entryWriter.write(xml);
+        _entryWriter.flush();
+    }
+
+    /**
+     * Looks up the encoded entry in the index and appends it to the temp file, if it's new
+     *
+     * @param dedup if {@code false}, the entry is always appended
+     * @return the index of the entry
+     */
+    private int addEntry(boolean dedup) throws IOException {
+        final byte[] bytes = _entry._buf;
+        final int length = _entry._length;
+        final long hash = hash(bytes, length);
+        long slot = hash & _indexMask;
+        for (;;) {
+            long value = _index.get(2 * slot + 1);
+            if (value == 0) {
+                break;
+            }
+            if (dedup && _index.get(2 * slot) == hash && (int)value == length) {
+                int idx = (int)(value >>> 32) - 1;
+                if (entryEquals(_offsets.get(idx), bytes, length)) {
+                    return idx;
+                }
+            }
+            slot = (slot + 1) & _indexMask;
+        }
+
+        int idx = uniqueCount;
+        _offsets.ensureCapacity(idx + 1L);
+        _offsets.set(idx, _flushedLength + _bufferLength);
+        append(bytes, length);
+        _index.set(2 * slot, hash);
+        _index.set(2 * slot + 1, ((long)(idx + 1) << 32) | (length & 0xFFFFFFFFL));
+        uniqueCount++;
+        if (2L * uniqueCount > _indexMask + 1) {
+            growIndex();
+        }
+        return idx;
+    }
+
+    /**
+     * Doubles the slots of the hash index, when the load factor exceeds 0.5
+     */
+    private void growIndex() throws IOException {
+        long slots = 2 * (_indexMask + 1);
+        long mask = slots - 1;
+        MappedLongArray index = new MappedLongArray("poi-sxssf-sst-index", 2 * slots);
+        try {
+            for (long i = 0; i <= _indexMask; i++) {
+                long value = _index.get(2 * i + 1);
+                if (value == 0) {
+                    continue;
+                }
+                long hash = _index.get(2 * i);
+                long slot = hash & mask;
+                while (index.get(2 * slot + 1) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                index.set(2 * slot, hash);
+                index.set(2 * slot + 1, value);
+            }
+        } catch (RuntimeException e) {
+            index.close();
+            throw e;
+        }
+        _index.close();
+        _index = index;
+        _indexMask = mask;
+    }
+
+    private void append(byte[] bytes, int length) throws IOException {
+        if (_bufferLength + length > _buffer.length) {
+            flushBuffer();
+        }
+        if (length > _buffer.length) {
+            _body.getChannel().write(ByteBuffer.wrap(bytes, 0, length), _flushedLength);
+            _flushedLength += length;
+        } else {
+            System.arraycopy(bytes, 0, _buffer, _bufferLength, length);
+            _bufferLength += length;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (_bufferLength == 0) {
+            return;
+        }
+        ByteBuffer bb = ByteBuffer.wrap(_buffer, 0, _bufferLength);
+        long position = _flushedLength;
+        while (bb.hasRemaining()) {
+            position += _body.getChannel().write(bb, position);
+        }
+        _flushedLength = position;
+        _bufferLength = 0;
+    }
+
+    private boolean entryEquals(long offset, byte[] bytes, int length) throws IOException {
+        if (offset >= _flushedLength) {
+            int start = (int)(offset - _flushedLength);
+            for (int i = 0; i < length; i++) {
+                if (_buffer[start + i] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (offset + length > _flushedLength) {
+            flushBuffer();
+        }
+        byte[] stored = readEntry(offset, length);
+        for (int i = 0; i < length; i++) {
+            if (stored[i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads an entry of the flushed part of the temp file into the shared read buffer
+     */
+    private byte[] readEntry(long offset, int length) throws IOException {
+        if (_readBuffer.length < length) {
+            _readBuffer = new byte[Math.max(length, 2 * _readBuffer.length)];
+        }
+        ByteBuffer bb = ByteBuffer.wrap(_readBuffer, 0, length);
+        FileChannel channel = _body.getChannel();
+        while (bb.hasRemaining()) {
+            if (channel.read(bb, offset + bb.position()) < 0) {
+                throw new IOException("Unexpected end of the shared strings temp file");
+            }
+        }
+        return _readBuffer;
+    }
+
+    /**
+     * FNV-1a with the final mix of MurmurHash3, so the low bits can be used for the slots
+     */
+    private static long hash(byte[] bytes, int length) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            h ^= bytes[i];
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * A growable byte array, which receives the serialized entry
+     */
+    private static final class EntryBuffer extends OutputStream {
+        private byte[] _buf = new byte[256];
+        private int _length;
+
+        void reset() {
+            _length = 0;
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(_length + 1);
+            _buf[_length++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(_length + len);
+            System.arraycopy(b, off, _buf, _length, len);
+            _length += len;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > _buf.length) {
+                _buf = Arrays.copyOf(_buf, Math.max(capacity, 2 * _buf.length));
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Writer which encodes the characters as UTF-8 directly into its byte buffer.
+ * <p>
+ * This replaces the chain of {@code BufferedWriter} and {@code OutputStreamWriter}
+ * for the sheet data, which buffers the characters first and then runs them through
+ * a {@code CharsetEncoder}. Unpaired surrogates are replaced by '?' - the same as
+ * the replacement of the UTF-8 {@code OutputStreamWriter}.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class UTF8Writer extends Writer {
+    private static final int BUFFER_SIZE = 32 * 1024;
+
+    private final OutputStream _out;
+    private final byte[] _buf = new byte[BUFFER_SIZE];
+    private int _pos;
+    /** the high surrogate of a pair, which was split across write calls */
+    private char _highSurrogate;
+    private boolean _closed;
+
+    UTF8Writer(OutputStream out) {
+        _out = out;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        if (_pos > BUFFER_SIZE - 4) {
+            flushBuffer();
+        }
+        encode((char)c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (_pos > BUFFER_SIZE - 4) {
+                flushBuffer();
+            }
+            final char c = cbuf[i];
+            if (c < 0x80 && _highSurrogate == 0) {
+                _buf[_pos++] = (byte)c;
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (_pos > BUFFER_SIZE - 4) {
+                flushBuffer();
+            }
+            final char c = str.charAt(i);
+            if (c < 0x80 && _highSurrogate == 0) {
+                _buf[_pos++] = (byte)c;
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+    /**
+     * Copies already UTF-8 encoded data, e.g. the rows of another sheet data writer.
+     * The copied data needs to consist of complete characters.
+     *
+     * @param in the stream with the UTF-8 encoded data
+     */
+    void writeEncoded(InputStream in) throws IOException {
+        ensureOpen();
+        if (_highSurrogate != 0) {
+            _highSurrogate = 0;
+            _buf[_pos++] = '?';
+        }
+        int readBytes;
+        while ((readBytes = in.read(_buf, _pos, BUFFER_SIZE - _pos)) != -1) {
+            _pos += readBytes;
+            if (_pos == BUFFER_SIZE) {
+                flushBuffer();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushBuffer();
+        _out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_closed) {
+            return;
+        }
+        try {
+            if (_highSurrogate != 0) {
+                _highSurrogate = 0;
+                _buf[_pos++] = '?';
+            }
+            flushBuffer();
+        } finally {
+            _closed = true;
+            _out.close();
+        }
+    }
+
+    /**
+     * Encodes a single character - the caller needs to make sure, that there's space
+     * for at least 4 bytes in the buffer
+     */
+    private void encode(char c) {
+        if (_highSurrogate != 0) {
+            final char high = _highSurrogate;
+            _highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                final int cp = Character.toCodePoint(high, c);
+                _buf[_pos++] = (byte)(0xF0 | (cp >> 18));
+                _buf[_pos++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+                _buf[_pos++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+                _buf[_pos++] = (byte)(0x80 | (cp & 0x3F));
+                return;
+            }
+            // the replacement and the following character need at most 4 bytes
+            _buf[_pos++] = '?';
+        }
+
+        if (c < 0x80) {
+            _buf[_pos++] = (byte)c;
+        } else if (c < 0x800) {
+            _buf[_pos++] = (byte)(0xC0 | (c >> 6));
+            _buf[_pos++] = (byte)(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            _highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            _buf[_pos++] = '?';
+        } else {
+            _buf[_pos++] = (byte)(0xE0 | (c >> 12));
+            _buf[_pos++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+            _buf[_pos++] = (byte)(0x80 | (c & 0x3F));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (_pos > 0) {
+            _out.write(_buf, 0, _pos);
+            _pos = 0;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (_closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -17,8 +17,8 @@
 
 package org.apache.poi.xssf.usermodel;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.EvaluationSheet;
@@ -80,8 +80,9 @@ final class XSSFEvaluationSheet implements EvaluationSheet {
         }
 
         // cache for performance: ~30% speedup due to caching
+        // concurrent, as cache misses can happen during a parallel evaluation
         if (_cellCache == null) {
-            _cellCache = new HashMap<>(_xs.getLastRowNum() * 3);
+            _cellCache = new ConcurrentHashMap<>(_xs.getLastRowNum() * 3);
             for (final Row row : _xs) {
                 final int rowNum = row.getRowNum();
                 for (final Cell cell : row) {
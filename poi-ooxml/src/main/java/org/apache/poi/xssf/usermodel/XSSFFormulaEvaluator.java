@@ -17,6 +17,10 @@
 
 package org.apache.poi.xssf.usermodel;
 
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.poi.ss.formula.BaseFormulaEvaluator;
 import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.IStabilityClassifier;
@@ -100,6 +104,36 @@ public final class XSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
         evaluateAllFormulaCells(_book, this);
     }
 
+    /**
+     * Loops over all cells in all sheets of the associated workbook like {@link #evaluateAll()},
+     * but evaluates formula cells, which don't depend on each other, in parallel in the given pool.
+     *
+     * @param pool the pool to evaluate the formula cells in, or {@code null} to evaluate sequentially
+     *
+     * @see BaseFormulaEvaluator#evaluateAllFormulaCells(org.apache.poi.ss.usermodel.Workbook, ForkJoinPool)
+     * @since POI 5.2.3
+     */
+    public void evaluateAll(ForkJoinPool pool) {
+        evaluateAllFormulaCells(_book, this, pool);
+    }
+
+    /**
+     * Recalculates only the formula cells, which depend on the given changed cells, and saves their
+     * results in the cells. The dependencies of the formula cells are determined on the first call
+     * and kept until formulas are changed or {@link #clearAllCachedResultValues()} is called.<p>
+     *
+     * The cells don't need to be notified with {@link #notifyUpdateCell(Cell)} before.
+     *
+     * @param changedCells the cells, whose values were changed since the last evaluation
+     * @return the formula cells, whose values have changed, or all formula cells, if the
+     * dependencies were (re-)built
+     *
+     * @since POI 5.2.3
+     */
+    public Set<Cell> evaluateDependents(Collection<? extends Cell> changedCells) {
+        return evaluateDependents(_book, changedCells);
+    }
+
     /**
      * Turns a XSSFCell into a XSSFEvaluationCell
      */
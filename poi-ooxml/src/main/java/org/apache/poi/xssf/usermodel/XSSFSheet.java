@@ -55,6 +55,7 @@ import org.apache.poi.ss.util.SSCellRange;
 import org.apache.poi.ss.util.SheetUtil;
 import org.apache.poi.util.Beta;
 import org.apache.poi.util.Internal;
+import org.apache.poi.util.IntSortedMap;
 import org.apache.poi.util.Units;
 import org.apache.poi.xssf.model.Comments;
 import org.apache.poi.xssf.usermodel.XSSFPivotTable.PivotTableReferenceConfigurator;
@@ -92,7 +93,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
     protected CTSheet sheet;
     protected CTWorksheet worksheet;
 
-    private final SortedMap<Integer, XSSFRow> _rows = new TreeMap<>();
+    private final IntSortedMap<XSSFRow> _rows = new IntSortedMap<>();
     private List<XSSFHyperlink> hyperlinks;
     private ColumnHelper columnHelper;
     private Comments sheetComments;
@@ -202,10 +203,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         arrayFormulas = new ArrayList<>();
         for (CTRow row : worksheetParam.getSheetData().getRowArray()) {
             XSSFRow r = new XSSFRow(row, this);
-            // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-            //noinspection UnnecessaryBoxing
-            final Integer rownumI = Integer.valueOf(r.getRowNum()); // NOSONAR
-            _rows.put(rownumI, r);
+            _rows.put(r.getRowNum(), r);
         }
     }
 
@@ -702,11 +700,8 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
      */
     @Override
     public XSSFRow createRow(int rownum) {
-        // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-        //noinspection UnnecessaryBoxing
-        final Integer rownumI = Integer.valueOf(rownum); // NOSONAR
         CTRow ctRow;
-        XSSFRow prev = _rows.get(rownumI);
+        XSSFRow prev = _rows.get(rownum);
         if(prev != null){
             // the Cells in an existing row are invalidated on-purpose, in order to clean up correctly, we
             // need to call the remove, so things like ArrayFormulas and CalculationChain updates are done
@@ -726,13 +721,13 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
             } else {
                 // get number of rows where row index < rownum
                 // --> this tells us where our row should go
-                int idx = _rows.headMap(rownumI).size();
+                int idx = _rows.countLowerKeys(rownum);
                 ctRow = worksheet.getSheetData().insertNewRow(idx);
             }
         }
         XSSFRow r = new XSSFRow(ctRow, this);
         r.setRowNum(rownum);
-        _rows.put(rownumI, r);
+        _rows.put(rownum, r);
         return r;
     }
 
@@ -1151,10 +1146,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
 
     @Override
     public int getLastRowNum() {
-        // _rows.getLastKey() (O(logN)) or caching last row (O(1))?
-        // A test with 1_000_000 rows shows that querying getLastRowNum with lastKey() implementation takes ~40 ms,
-        // and ~1.2 ms with cached implementation. 40 ms is negligible compared to the time of evaluation a million
-        // cells, and the lastKey implementation is much more elegant and less error prone than caching.
+        // lastKey() is a constant time array access - no need for caching the last row
         return _rows.isEmpty() ? -1 : _rows.lastKey();
     }
 
@@ -1413,10 +1405,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
      */
     @Override
     public XSSFRow getRow(int rownum) {
-        // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-        //noinspection UnnecessaryBoxing
-        final Integer rownumI = Integer.valueOf(rownum); // NOSONAR
-        return _rows.get(rownumI);
+        return _rows.get(rownum);
     }
 
     /**
@@ -1446,12 +1435,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
             }
         }
         else {
-            // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-            //noinspection UnnecessaryBoxing
-            final Integer startI = Integer.valueOf(startRowNum); // NOSONAR
-            //noinspection UnnecessaryBoxing
-            final Integer endI = Integer.valueOf(endRowNum+1); // NOSONAR
-            final Collection<XSSFRow> inclusive = _rows.subMap(startI, endI).values();
+            final Collection<XSSFRow> inclusive = _rows.values(startRowNum, endRowNum+1);
             rows.addAll(inclusive);
         }
         return rows;
@@ -1961,12 +1945,9 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         }
 
         final int rowNum = row.getRowNum();
-        // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-        //noinspection UnnecessaryBoxing
-        final Integer rowNumI = Integer.valueOf(rowNum); // NOSONAR
         // this is not the physical row number!
-        final int idx = _rows.headMap(rowNumI).size();
-        _rows.remove(rowNumI);
+        final int idx = _rows.countLowerKeys(rowNum);
+        _rows.remove(rowNum);
         worksheet.getSheetData().removeRow(idx);
 
         // also remove any comment located in that row
@@ -3028,8 +3009,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         _rows.clear();
         for (CTRow ctRow : sheetData.getRowList()) {
             XSSFRow row = new XSSFRow(ctRow, this);
-            Integer rownumI = Math.toIntExact(row.getRowNum());
-            _rows.put(rownumI, row);
+            _rows.put(row.getRowNum(), row);
         }
     }
 
@@ -3051,10 +3031,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
                     }
                 }
                 // remove row from worksheet.getSheetData row array
-                // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-                //noinspection UnnecessaryBoxing
-                final Integer rownumI = Integer.valueOf(row.getRowNum()); // NOSONAR
-                int idx = _rows.headMap(rownumI).size();
+                int idx = _rows.countLowerKeys(row.getRowNum());
                 worksheet.getSheetData().removeRow(idx);
 
                 // remove row from _rows
@@ -3673,8 +3650,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         }
 
         int minCell = Integer.MAX_VALUE, maxCell = Integer.MIN_VALUE;
-        for(Map.Entry<Integer, XSSFRow> entry : _rows.entrySet()) {
-            XSSFRow row = entry.getValue();
+        for(XSSFRow row : _rows.values()) {
 
             // first perform the normal write actions for the row
             row.onDocumentWrite();
@@ -32,6 +32,7 @@ import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookProvider;
 import org.apache.poi.util.Internal;
+import org.apache.poi.xssf.streaming.StreamingReadWorkbook;
 
 @Internal
 public class XSSFWorkbookFactory implements WorkbookProvider {
@@ -158,4 +159,66 @@ public class XSSFWorkbookFactory implements WorkbookProvider {
             throw new IOException(e);
         }
     }
+
+    /**
+     * Creates a read-only {@link StreamingReadWorkbook} from the given InputStream,
+     * which is buffered in memory as package
+     *
+     * @since POI 5.2.3
+     */
+    @SuppressWarnings("resource")
+    @Override
+    public StreamingReadWorkbook createStreaming(InputStream stream) throws IOException {
+        try {
+            return createStreamingWorkbook(OPCPackage.open(stream));
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Creates a read-only {@link StreamingReadWorkbook} from the encrypted package in the given container
+     *
+     * @since POI 5.2.3
+     */
+    @Override
+    public StreamingReadWorkbook createStreaming(DirectoryNode root, String password) throws IOException {
+        try (InputStream stream = DocumentFactoryHelper.getDecryptedStream(root, password)) {
+            return createStreaming(stream);
+        }
+    }
+
+    /**
+     * Creates a read-only {@link StreamingReadWorkbook} from the given File, which must exist and be readable.
+     * Unencrypted files are read directly from the file, so only the shared strings and styles are held in memory.
+     *
+     * @since POI 5.2.3
+     */
+    @SuppressWarnings("resource")
+    @Override
+    public StreamingReadWorkbook createStreaming(File file, String password) throws IOException {
+        FileMagic fm = FileMagic.valueOf(file);
+
+        if (fm == FileMagic.OLE2) {
+            try (POIFSFileSystem poifs = new POIFSFileSystem(file, true)) {
+                return createStreaming(poifs.getRoot(), password);
+            }
+        }
+
+        try {
+            return createStreamingWorkbook(OPCPackage.open(file, PackageAccess.READ));
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static StreamingReadWorkbook createStreamingWorkbook(OPCPackage pkg) throws IOException {
+        try {
+            return new StreamingReadWorkbook(pkg);
+        } catch (IOException | RuntimeException e) {
+            // ensure that file handles are closed (use revert() to not re-write the file)
+            pkg.revert();
+            throw e;
+        }
+    }
 }
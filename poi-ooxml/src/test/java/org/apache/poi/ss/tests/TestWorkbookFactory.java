@@ -48,6 +48,7 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.util.SuppressForbidden;
 import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.streaming.StreamingReadWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbookFactory;
 import org.junit.jupiter.api.Test;
@@ -146,6 +147,31 @@ public final class TestWorkbookFactory {
         }
     }
 
+    @Test
+    void testCreateStreaming() throws Exception {
+        // POIFS -> hssf, as there is no streaming implementation
+        try (Workbook wb = WorkbookFactory.create(HSSFTestDataSamples.getSampleFile(xls), null, true, true)) {
+            assertTrue(wb instanceof HSSFWorkbook);
+            assertCloseDoesNotModifyFile(xls, wb);
+        }
+
+        // Package -> streaming xssf
+        try (Workbook wb = WorkbookFactory.create(HSSFTestDataSamples.getSampleFile(xlsx), null, false, true)) {
+            assertTrue(wb instanceof StreamingReadWorkbook);
+            assertTrue(wb.getSheetAt(0).iterator().hasNext());
+        }
+
+        try (Workbook wb = WorkbookFactory.create(HSSFTestDataSamples.openSampleFileStream(xlsx), null, true)) {
+            assertTrue(wb instanceof StreamingReadWorkbook);
+        }
+
+        // Encrypted package -> streaming xssf
+        File protectedFile = POIDataSamples.getSpreadSheetInstance().getFile(xlsx_protected[0]);
+        try (Workbook wb = WorkbookFactory.create(protectedFile, xlsx_protected[1], true, true)) {
+            assertTrue(wb instanceof StreamingReadWorkbook);
+        }
+    }
+
     /**
      * Creates the appropriate kind of Workbook, but
      * checking the mime magic at the start of the
@@ -0,0 +1,139 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.binary;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.zaxxer.sparsebits.SparseBitSet;
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.junit.jupiter.api.Test;
+
+class TestXSSFBParser {
+
+    @Test
+    void recordsAcrossBufferBoundaries() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        List<byte[]> expected = new ArrayList<>();
+        // small records, a record larger than the buffer window and a two byte record id
+        for (int i = 0; i < 20000; i++) {
+            byte[] data = filled(i % 17, i);
+            writeRecord(bos, 5, data);
+            expected.add(data);
+        }
+        byte[] large = filled(200_000, 7);
+        writeRecord(bos, 494, large);
+        expected.add(large);
+        writeRecord(bos, 5, filled(3, 1));
+        expected.add(filled(3, 1));
+
+        // zero-copy and copying handlers get the same records
+        List<byte[]> inPlace = new ArrayList<>();
+        new XSSFBParser(bos.toInputStream()) {
+            @Override
+            public void handleRecord(int recordType, byte[] data, int offset, int length) {
+                inPlace.add(Arrays.copyOfRange(data, offset, offset + length));
+            }
+
+            @Override
+            public void handleRecord(int recordType, byte[] data) {
+                throw new IllegalStateException();
+            }
+        }.parse();
+
+        List<byte[]> copied = new ArrayList<>();
+        new XSSFBParser(bos.toInputStream()) {
+            @Override
+            public void handleRecord(int recordType, byte[] data) {
+                copied.add(data);
+            }
+        }.parse();
+
+        assertEquals(expected.size(), inPlace.size());
+        assertEquals(expected.size(), copied.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), inPlace.get(i));
+            assertArrayEquals(expected.get(i), copied.get(i));
+        }
+    }
+
+    @Test
+    void skipRecords() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        writeRecord(bos, 1, filled(2, 1));
+        writeRecord(bos, 494, filled(300_000, 2));
+        writeRecord(bos, 2, filled(4, 3));
+
+        SparseBitSet records = new SparseBitSet();
+        records.set(1);
+        records.set(2);
+        List<Integer> types = new ArrayList<>();
+        new XSSFBParser(bos.toInputStream(), records) {
+            @Override
+            public void handleRecord(int recordType, byte[] data) {
+                types.add(recordType);
+            }
+        }.parse();
+        assertEquals(Arrays.asList(1, 2), types);
+    }
+
+    @Test
+    void truncatedRecord() {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        writeRecord(bos, 1, filled(10, 1));
+        byte[] data = Arrays.copyOf(bos.toByteArray(), 6);
+        InputStream is = new UnsynchronizedByteArrayInputStream(data);
+        XSSFBParser parser = new XSSFBParser(is) {
+            @Override
+            public void handleRecord(int recordType, byte[] data) {}
+        };
+        assertThrows(XSSFBParseException.class, parser::parse);
+    }
+
+    private static byte[] filled(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte)(seed + i);
+        }
+        return data;
+    }
+
+    private static void writeRecord(UnsynchronizedByteArrayOutputStream bos, int id, byte[] data) {
+        if (id < 0x80) {
+            bos.write(id);
+        } else {
+            bos.write((id & 0x7F) | 0x80);
+            bos.write(id >>> 7);
+        }
+        int length = data.length;
+        do {
+            int b = length & 0x7F;
+            length >>>= 7;
+            bos.write(length > 0 ? b | 0x80 : b);
+        } while (length > 0);
+        bos.write(data, 0, data.length);
+    }
+}
@@ -0,0 +1,213 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.binary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.xssf.eventusermodel.XSSFBReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.junit.jupiter.api.Test;
+
+class TestXSSFBWorkbookWriter {
+
+    @Test
+    void roundTrip() throws Exception {
+        byte[] data;
+        try (XSSFBWorkbookWriter wb = new XSSFBWorkbookWriter()) {
+            int dateStyle = wb.createNumberFormatStyle("yyyy-mm-dd");
+            int percentStyle = wb.createNumberFormatStyle("0.00%");
+            assertEquals(dateStyle, wb.createNumberFormatStyle("yyyy-mm-dd"));
+            assertEquals(3, wb.getNumCellStyles());
+
+            XSSFBSheetWriter sheet = wb.createSheet("Data");
+            sheet.startRow(0);
+            sheet.writeString(0, "text");
+            sheet.writeNumber(1, 42);
+            sheet.writeNumber(2, -7);
+            sheet.writeNumber(3, 0.5);
+            sheet.writeNumber(4, 3.14159);
+            sheet.writeNumber(5, 1e10);
+            sheet.startRow(2);
+            sheet.writeBoolean(0, true);
+            sheet.writeError(1, FormulaError.NA);
+            sheet.writeNumber(2, 44256, dateStyle);
+            sheet.writeNumber(3, 0.125, percentStyle);
+            sheet.writeString(4, "text");
+            sheet.writeNumber(5, Double.POSITIVE_INFINITY);
+
+            XSSFBSheetWriter second = wb.createSheet("Second");
+            second.startRow(5);
+            second.writeString(3, "日本");
+            assertEquals(5, second.getLastRowNum());
+            assertEquals(2, wb.getUniqueSharedStringCount());
+
+            data = write(wb);
+        }
+
+        List<List<String>> sheets = read(data);
+        assertEquals(Arrays.asList(
+            "Data", "A1=text", "B1=42", "C1=-7", "D1=0.5", "E1=3.14159", "F1=10000000000",
+            "A3=TRUE", "B3=ERROR", "C3=2021-03-01", "D3=12.50%", "E3=text", "F3=ERROR"), sheets.get(0));
+        assertEquals(Arrays.asList("Second", "D6=日本"), sheets.get(1));
+
+        try (OPCPackage pkg = OPCPackage.open(new ByteArrayInputStream(data))) {
+            XSSFBSharedStringsTable sst = new XSSFBSharedStringsTable(pkg);
+            assertEquals(3, sst.getCount());
+            assertEquals(2, sst.getUniqueCount());
+        }
+    }
+
+    @Test
+    void inlineStrings() throws Exception {
+        byte[] data;
+        try (XSSFBWorkbookWriter wb = new XSSFBWorkbookWriter(false)) {
+            XSSFBSheetWriter sheet = wb.createSheet("Inline");
+            for (int i = 0; i < 1000; i++) {
+                sheet.startRow(i);
+                sheet.writeString(0, "row " + i);
+                sheet.writeNumber(1, i * 1.5);
+            }
+            assertEquals(0, wb.getUniqueSharedStringCount());
+            data = write(wb);
+        }
+
+        List<String> cells = read(data).get(0);
+        assertEquals(2001, cells.size());
+        assertEquals("A1000=row 999", cells.get(1999));
+        assertEquals("B1000=1498.5", cells.get(2000));
+    }
+
+    @Test
+    void invalidOrder() throws IOException {
+        try (XSSFBWorkbookWriter wb = new XSSFBWorkbookWriter()) {
+            XSSFBSheetWriter sheet = wb.createSheet("Sheet1");
+            assertThrows(IllegalArgumentException.class, () -> wb.createSheet("SHEET1"));
+            assertThrows(IllegalStateException.class, () -> sheet.writeNumber(0, 1));
+            sheet.startRow(3);
+            sheet.writeNumber(2, 1);
+            assertThrows(IllegalArgumentException.class, () -> sheet.writeNumber(2, 1));
+            assertThrows(IllegalArgumentException.class, () -> sheet.writeNumber(1, 1));
+            assertThrows(IllegalArgumentException.class, () -> sheet.writeNumber(3, 1, 1));
+            assertThrows(IllegalArgumentException.class, () -> sheet.startRow(3));
+            sheet.startRow(4);
+            sheet.writeNumber(1, 1);
+            wb.close();
+            assertThrows(IllegalStateException.class, () -> sheet.startRow(5));
+            assertThrows(IllegalStateException.class, () -> wb.write(new UnsynchronizedByteArrayOutputStream()));
+        }
+    }
+
+    @Test
+    void writeFailure() throws IOException {
+        try (XSSFBWorkbookWriter wb = new XSSFBWorkbookWriter()) {
+            XSSFBSheetWriter sheet = wb.createSheet("Sheet1");
+            for (int i = 0; i < 1000; i++) {
+                sheet.startRow(i);
+                sheet.writeString(0, "row " + i);
+            }
+            // the first failure is reported and not masked by finishing the archive
+            List<IOException> failures = new ArrayList<>();
+            OutputStream failing = new OutputStream() {
+                private int written;
+
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte)b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    written += len;
+                    if (written > 1000) {
+                        IOException ex = new IOException("disk full");
+                        failures.add(ex);
+                        throw ex;
+                    }
+                }
+            };
+            IOException ex = assertThrows(IOException.class, () -> wb.write(failing));
+            assertSame(failures.get(0), ex);
+        }
+    }
+
+    private static byte[] write(XSSFBWorkbookWriter wb) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        wb.write(bos);
+        return bos.toByteArray();
+    }
+
+    private static List<List<String>> read(byte[] data) throws Exception {
+        List<List<String>> sheets = new ArrayList<>();
+        try (OPCPackage pkg = OPCPackage.open(new ByteArrayInputStream(data))) {
+            XSSFBReader reader = new XSSFBReader(pkg);
+            XSSFBSharedStringsTable sst = new XSSFBSharedStringsTable(pkg);
+            XSSFBStylesTable styles = reader.getXSSFBStylesTable();
+            XSSFBReader.SheetIterator it = (XSSFBReader.SheetIterator) reader.getSheetsData();
+            while (it.hasNext()) {
+                List<String> cells = new ArrayList<>();
+                try (InputStream is = it.next()) {
+                    cells.add(it.getSheetName());
+                    new XSSFBSheetHandler(is, styles, null, sst, new CellCollector(cells),
+                            new DataFormatter(), false).parse();
+                }
+                sheets.add(cells);
+            }
+        }
+        assertFalse(sheets.isEmpty());
+        return sheets;
+    }
+
+    private static class CellCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final List<String> cells;
+
+        CellCollector(List<String> cells) {
+            this.cells = cells;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            assertTrue(formattedValue != null);
+            cells.add(cellReference + "=" + formattedValue);
+        }
+    }
+}
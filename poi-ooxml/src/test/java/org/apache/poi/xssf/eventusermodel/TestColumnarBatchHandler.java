@@ -0,0 +1,166 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.binary.XSSFBSharedStringsTable;
+import org.apache.poi.xssf.binary.XSSFBSheetHandler;
+import org.apache.poi.xssf.eventusermodel.ColumnarBatch.Column;
+import org.apache.poi.xssf.eventusermodel.ColumnarBatch.ColumnType;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+class TestColumnarBatchHandler {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @Test
+    void typeInference() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            for (int i = 0; i < 5; i++) {
+                Row row = sheet.createRow(i == 4 ? 6 : i);
+                // integral numbers with a gap
+                if (i != 1) {
+                    row.createCell(0).setCellValue(i * 10);
+                }
+                // integral, then fractional in the second batch
+                row.createCell(1).setCellValue(i == 3 ? 2.5 : i);
+                // repeated strings
+                row.createCell(2).setCellValue(i % 2 == 0 ? "even" : "odd");
+                // booleans
+                row.createCell(3).setCellValue(i % 2 == 0);
+                // numbers followed by a string in the first batch
+                if (i == 2) {
+                    row.createCell(4).setCellValue("x");
+                } else {
+                    row.createCell(4).setCellValue(i + 0.5);
+                }
+                // errors are null
+                row.createCell(5).setCellFormula(i == 0 ? "1/0" : "" + i);
+            }
+            wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            wb.write(bos);
+        }
+
+        List<String> batches = new ArrayList<>();
+        try (OPCPackage xlsxPackage = OPCPackage.open(bos.toInputStream())) {
+            final XSSFReader reader = new XSSFReader(xlsxPackage);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(xlsxPackage);
+            ColumnarBatchHandler handler = new ColumnarBatchHandler(strings, 3, batch -> batches.add(dump(batch)));
+            try (InputStream stream = reader.getSheetsData().next()) {
+                final XMLReader sheetParser = XMLHelper.newXMLReader();
+                sheetParser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), null,
+                    strings, handler, new DataFormatter(), false));
+                sheetParser.parse(new InputSource(stream));
+            }
+        }
+
+        assertEquals(Arrays.asList(
+            "rows [0, 1, 2]|LONG [0, null, 20]|LONG [0, 1, 2]|STRING [even, odd, even]|BOOLEAN [true, false, true]" +
+                "|STRING [0.5, 1.5, x]|LONG [null, 1, 2]",
+            "rows [3, 6]|LONG [30, 40]|DOUBLE [2.5, 4.0]|STRING [odd, even]|BOOLEAN [false, true]" +
+                "|STRING [3.5, 4.5]|LONG [3, 4]"
+        ), batches);
+    }
+
+    @Test
+    void xlsb() throws Exception {
+        List<ColumnType> types = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("testVarious.xlsb"))) {
+            XSSFBReader r = new XSSFBReader(pkg);
+            XSSFBSharedStringsTable sst = new XSSFBSharedStringsTable(pkg);
+            ColumnarBatchHandler handler = new ColumnarBatchHandler(sst, 100, batch -> {
+                assertEquals(26, batch.getRowCount());
+                assertEquals(65, batch.getRowNum(25));
+                Column column = batch.getColumn(1);
+                types.add(column.getType());
+                for (int row : new int[]{0, 1, 2, 9, 13, 14}) {
+                    values.add(column.getString(row));
+                }
+                assertTrue(column.isNull(13));
+                assertFalse(column.isNull(14));
+            });
+            try (InputStream is = r.getSheetsData().next()) {
+                new XSSFBSheetHandler(is, r.getXSSFBStylesTable(), null, sst, handler, new DataFormatter()).parse();
+            }
+        }
+        assertEquals(Arrays.asList(ColumnType.STRING), types);
+        // the formula error is null, the numbers are converted to text
+        assertEquals(Arrays.asList("This is a string", "13", "13.1211231321", "42803", null, "0.5"), values);
+    }
+
+    @Test
+    void invalidBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ColumnarBatchHandler(null, 0, batch -> {}));
+    }
+
+    private static String dump(ColumnarBatch batch) {
+        StringBuilder sb = new StringBuilder("rows [");
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            sb.append(row > 0 ? ", " : "").append(batch.getRowNum(row));
+        }
+        sb.append("]");
+        for (int col = 0; col < batch.getColumnCount(); col++) {
+            Column column = batch.getColumn(col);
+            sb.append("|").append(column.getType()).append(" [");
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                sb.append(row > 0 ? ", " : "");
+                if (column.isNull(row)) {
+                    sb.append("null");
+                    continue;
+                }
+                switch (column.getType()) {
+                    case BOOLEAN:
+                        sb.append(column.getLongs()[row] != 0);
+                        break;
+                    case LONG:
+                        sb.append(column.getLongs()[row]);
+                        break;
+                    case DOUBLE:
+                        sb.append(column.getDoubles()[row]);
+                        break;
+                    default:
+                        sb.append(column.getString(row));
+                        break;
+                }
+            }
+            sb.append("]");
+        }
+        return sb.toString();
+    }
+}
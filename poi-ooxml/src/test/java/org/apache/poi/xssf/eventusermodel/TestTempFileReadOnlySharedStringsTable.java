@@ -0,0 +1,115 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link TempFileReadOnlySharedStringsTable}
+ */
+final class TestTempFileReadOnlySharedStringsTable {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @Test
+    void testParse() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("SampleSS.xlsx"))) {
+            List<PackagePart> parts = pkg.getPartsByName(Pattern.compile("/xl/sharedStrings.xml"));
+            assertEquals(1, parts.size());
+
+            SharedStringsTable stbl = new SharedStringsTable(parts.get(0));
+            try (TempFileReadOnlySharedStringsTable ttbl = new TempFileReadOnlySharedStringsTable(pkg)) {
+                assertEquals(stbl.getCount(), ttbl.getCount());
+                assertEquals(stbl.getUniqueCount(), ttbl.getUniqueCount());
+                for (int i = 0; i < stbl.getUniqueCount(); i++) {
+                    assertEquals(stbl.getItemAt(i).getString(), ttbl.getItemAt(i).getString());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testPhoneticRuns() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("51519.xlsx"))) {
+            try (TempFileReadOnlySharedStringsTable ttbl = new TempFileReadOnlySharedStringsTable(pkg, true)) {
+                assertEquals(49, ttbl.getUniqueCount());
+                assertEquals("コメント", ttbl.getItemAt(0).getString());
+                assertEquals("日本オラクル ニホン", ttbl.getItemAt(3).getString());
+            }
+            try (TempFileReadOnlySharedStringsTable ttbl = new TempFileReadOnlySharedStringsTable(pkg, false)) {
+                assertEquals("日本オラクル", ttbl.getItemAt(3).getString());
+            }
+        }
+    }
+
+    @Test
+    void testEmptySST() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("noSharedStringTable.xlsx"));
+             TempFileReadOnlySharedStringsTable ttbl = new TempFileReadOnlySharedStringsTable(pkg)) {
+            assertEquals(0, ttbl.getCount());
+            assertEquals(0, ttbl.getUniqueCount());
+            assertThrows(IndexOutOfBoundsException.class, () -> ttbl.getItemAt(0));
+        }
+    }
+
+    @Test
+    void testManyStrings() throws Exception {
+        SharedStringsTable sst = new SharedStringsTable();
+        int n = 20000;
+        for (int i = 0; i < n; i++) {
+            sst.addSharedStringItem(new XSSFRichTextString("String " + i + (i % 7 == 0 ? " ä€😀" : "")));
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        sst.writeTo(bos);
+
+        for (int cacheSize : new int[]{0, 16}) {
+            try (InputStream is = new ByteArrayInputStream(bos.toByteArray());
+                 TempFileReadOnlySharedStringsTable ttbl = new TempFileReadOnlySharedStringsTable(is, true, cacheSize)) {
+                assertEquals(n, ttbl.getUniqueCount());
+                for (int i = n - 1; i >= 0; i -= 3) {
+                    assertEquals(sst.getItemAt(i).getString(), ttbl.getString(i));
+                    assertEquals(sst.getItemAt(i).getString(), ttbl.getString(i));
+                }
+                assertThrows(IndexOutOfBoundsException.class, () -> ttbl.getItemAt(n));
+            }
+        }
+    }
+
+    @Test
+    void testClosed() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("SampleSS.xlsx"))) {
+            TempFileReadOnlySharedStringsTable ttbl = new TempFileReadOnlySharedStringsTable(pkg.getPartsByName(
+                Pattern.compile("/xl/sharedStrings.xml")).get(0), true, 0);
+            ttbl.close();
+            assertThrows(IllegalStateException.class, () -> ttbl.getItemAt(0));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.TypedSheetContentsHandler;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Tests for {@link XSSFParallelSheetReader}
+ */
+final class TestXSSFParallelSheetReader {
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void setUp() {
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void generatedSheet() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        int rows = 0;
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 2000; r += (r % 7 == 0) ? 3 : 1) {
+                Row row = sheet.createRow(r);
+                rows++;
+                row.createCell(0).setCellValue(r * 1.5);
+                row.createCell(1).setCellValue("text " + (r % 50));
+                row.createCell(3).setCellValue(r % 2 == 0);
+                row.createCell(4).setCellFormula("A" + (r + 1) + "*2");
+                row.createCell(5).setCellFormula("\"x\"&B" + (r + 1));
+                row.createCell(6).setCellFormula("1/0");
+            }
+            wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            wb.write(bos);
+        }
+
+        try (OPCPackage pkg = OPCPackage.open(bos.toInputStream())) {
+            XSSFReader reader = new XSSFReader(pkg);
+            for (boolean formulas : new boolean[]{false, true}) {
+                List<String> expected = new ArrayList<>();
+                try (InputStream is = reader.getSheetsData().next()) {
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), null,
+                        reader.getSharedStringsTable(), recorder(expected), new DataFormatter(), formulas));
+                    parser.parse(new InputSource(is));
+                }
+
+                for (int chunkSize : new int[]{1, 1000, XSSFParallelSheetReader.DEFAULT_CHUNK_SIZE}) {
+                    List<String> actual = new ArrayList<>();
+                    try (XSSFParallelSheetReader sheet = new XSSFParallelSheetReader(reader.getSheetsData().next(), chunkSize)) {
+                        if (chunkSize == 1) {
+                            // one chunk per row
+                            assertEquals(rows, sheet.getChunkCount());
+                        }
+                        sheet.read(executor, 2, formulas, recorder(actual));
+                    }
+                    assertEquals(expected, actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    void prefixAndImplicitRowNumbers() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<x:worksheet xmlns:x=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+            + "<x:sheetData>"
+            + "<x:row r=\"3\"><x:c r=\"A3\" t=\"inlineStr\"><x:is><x:t>a&lt;row b</x:t></x:is></x:c></x:row>"
+            + "<x:row><x:c><x:v>1</x:v></x:c><x:c t=\"b\"><x:v>1</x:v></x:c></x:row>"
+            + "<x:row\n/>"
+            + "<x:row r=\"9\"><x:c r=\"C9\" t=\"s\"><x:v>4</x:v></x:c></x:row>"
+            + "<x:row><x:c r=\"B10\" t=\"e\"><x:v>#N/A</x:v></x:c></x:row>"
+            + "</x:sheetData><x:rowBreaks count=\"0\"/></x:worksheet>";
+
+        List<String> actual = new ArrayList<>();
+        try (XSSFParallelSheetReader sheet = new XSSFParallelSheetReader(new ByteArrayInputStream(xml.getBytes(UTF_8)), 1)) {
+            assertEquals(5, sheet.getChunkCount());
+            sheet.read(executor, 3, false, recorder(actual));
+        }
+        List<String> expected = new ArrayList<>();
+        expected.add("start 2");
+        expected.add("2:0 string a<row b");
+        expected.add("end 2");
+        expected.add("start 3");
+        expected.add("3:0 number 1.0/0");
+        expected.add("3:1 boolean true");
+        expected.add("end 3");
+        expected.add("start 4");
+        expected.add("end 4");
+        expected.add("start 8");
+        expected.add("8:2 sst 4");
+        expected.add("end 8");
+        expected.add("start 9");
+        expected.add("9:1 error #N/A");
+        expected.add("end 9");
+        expected.add("end sheet");
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void noSheetData() throws Exception {
+        String xml = "<chartsheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"/>";
+        List<String> actual = new ArrayList<>();
+        try (XSSFParallelSheetReader sheet = new XSSFParallelSheetReader(new ByteArrayInputStream(xml.getBytes(UTF_8)))) {
+            assertEquals(0, sheet.getChunkCount());
+            sheet.read(executor, 1, false, recorder(actual));
+        }
+        assertTrue(actual.size() == 1 && actual.get(0).equals("end sheet"));
+    }
+
+    private static TypedSheetContentsHandler recorder(List<String> events) {
+        return new TypedSheetContentsHandler() {
+            @Override
+            public void startRow(int rowNum) {
+                events.add("start " + rowNum);
+            }
+
+            @Override
+            public void endRow(int rowNum) {
+                events.add("end " + rowNum);
+            }
+
+            @Override
+            public void numericCell(int rowNum, int column, double value, int styleIndex) {
+                events.add(rowNum + ":" + column + " number " + value + "/" + styleIndex);
+            }
+
+            @Override
+            public void booleanCell(int rowNum, int column, boolean value) {
+                events.add(rowNum + ":" + column + " boolean " + value);
+            }
+
+            @Override
+            public void sharedStringCell(int rowNum, int column, int sstIndex) {
+                events.add(rowNum + ":" + column + " sst " + sstIndex);
+            }
+
+            @Override
+            public void stringCell(int rowNum, int column, CharSequence value) {
+                events.add(rowNum + ":" + column + " string " + value);
+            }
+
+            @Override
+            public void errorCell(int rowNum, int column, CharSequence error) {
+                events.add(rowNum + ":" + column + " error " + error);
+            }
+
+            @Override
+            public void formulaCell(int rowNum, int column, CharSequence formula) {
+                events.add(rowNum + ":" + column + " formula " + formula);
+            }
+
+            @Override
+            public void endSheet() {
+                events.add("end sheet");
+            }
+        };
+    }
+}
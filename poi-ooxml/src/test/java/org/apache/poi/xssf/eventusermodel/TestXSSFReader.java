@@ -29,6 +29,9 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.poi.POIDataSamples;
@@ -37,9 +40,11 @@ import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.poifs.crypt.CryptoFunctions;
 import org.apache.poi.poifs.crypt.HashAlgorithm;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.Name;
 import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.XMLHelper;
@@ -49,6 +54,7 @@ import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.apache.poi.xssf.usermodel.XSSFShape;
 import org.apache.poi.xssf.usermodel.XSSFSimpleShape;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.xml.sax.InputSource;
@@ -82,6 +88,14 @@ public final class TestXSSFReader {
             SharedStrings sst2 = r.getSharedStringsTable();
             assertNotNull(sst2);
             assertTrue(sst2 instanceof ReadOnlySharedStringsTable, "instanceof ReadOnlySharedStringsTable");
+
+            assertFalse(r.useTempFileSharedStringsTable(), "useTempFileSharedStringsTable defaults to false");
+            r.setUseTempFileSharedStringsTable(true);
+            SharedStrings sst3 = r.getSharedStringsTable();
+            assertTrue(sst3 instanceof TempFileReadOnlySharedStringsTable, "instanceof TempFileReadOnlySharedStringsTable");
+            assertEquals(sst2.getUniqueCount(), sst3.getUniqueCount());
+            assertEquals(sst2.getItemAt(0).getString(), sst3.getItemAt(0).getString());
+            ((TempFileReadOnlySharedStringsTable)sst3).close();
         }
     }
 
@@ -411,6 +425,82 @@ public final class TestXSSFReader {
 
     }
 
+    @Test
+    void testProcessSheets() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            for (int s = 0; s < 8; s++) {
+                Sheet sheet = wb.createSheet("Sheet " + s);
+                for (int r = 0; r <= 100 * s; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(r);
+                    row.createCell(1).setCellValue("text " + (r % 10));
+                }
+            }
+            wb.write(bos);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (OPCPackage pkg = OPCPackage.open(bos.toInputStream())) {
+            XSSFReader r = new XSSFReader(pkg);
+            r.setUseReadOnlySharedStringsTable(true);
+            SharedStrings sst = r.getSharedStringsTable();
+
+            List<String> results = r.processSheets(executor, (index, sheetRef, part, sheetData) -> {
+                double sum = 0;
+                int texts = 0;
+                try (XSSFSheetStreamReader reader = new XSSFSheetStreamReader(sheetData, sst)) {
+                    while (reader.nextRow()) {
+                        while (reader.nextCell()) {
+                            if (reader.getCellType() == CellType.NUMERIC) {
+                                sum += reader.getNumericCellValue();
+                            } else if (reader.getStringCellValue().startsWith("text ")) {
+                                texts++;
+                            }
+                        }
+                    }
+                }
+                return index + ":" + sheetRef.getName() + ":" + sum + ":" + texts;
+            });
+
+            assertEquals(8, results.size());
+            for (int s = 0; s < 8; s++) {
+                int rows = 100 * s + 1;
+                double sum = (rows - 1) * rows / 2.0;
+                assertEquals(s + ":Sheet " + s + ":" + sum + ":" + rows, results.get(s));
+            }
+
+            IOException ex = assertThrows(IOException.class, () -> r.processSheets(executor, (index, sheetRef, part, sheetData) -> {
+                if (index == 3) {
+                    throw new IOException("failed " + sheetRef.getName());
+                }
+                return index;
+            }));
+            assertEquals("failed Sheet 3", ex.getMessage());
+
+            // the running tasks are neither interrupted nor abandoned on a failure
+            AtomicBoolean finished = new AtomicBoolean();
+            ex = assertThrows(IOException.class, () -> r.processSheets(executor, (index, sheetRef, part, sheetData) -> {
+                if (index == 0) {
+                    throw new IOException("failed " + sheetRef.getName());
+                }
+                if (index == 1) {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        throw new IOException("interrupted", e);
+                    }
+                    finished.set(true);
+                }
+                return index;
+            }));
+            assertEquals("failed Sheet 0", ex.getMessage());
+            assertTrue(finished.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private static String hash(XSSFReader reader) throws IOException {
         Iterable<InputStream> iter = () -> {
             try {
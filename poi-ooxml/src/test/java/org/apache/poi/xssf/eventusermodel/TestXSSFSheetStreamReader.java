@@ -0,0 +1,262 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class TestXSSFSheetStreamReader {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sample.xlsx", "InlineString.xlsx", "SampleSS.xlsx", "FormulaEvalTestData_Copy.xlsx", "56278.xlsx"})
+    void sampleFiles(String file) throws Exception {
+        compareWithUserModel(_ssTests.readFile(file));
+    }
+
+    @Test
+    void generatedWorkbook() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+            Sheet sheet = wb.createSheet();
+            for (int r = 0; r < 1000; r += (r % 7 == 0) ? 2 : 1) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r * 0.1);
+                row.createCell(2).setCellValue("text <" + r + "> & ä€😜_x000D_");
+                row.createCell(3).setCellValue(r % 2 == 0);
+                row.createCell(4).setCellErrorValue(FormulaError.DIV0.getCode());
+                row.createCell(5).setCellFormula("A" + (r + 1) + "*2");
+                row.createCell(6).setCellValue(" ");
+            }
+            wb.write(bos);
+        }
+        compareWithUserModel(bos.toByteArray());
+    }
+
+    @Test
+    void xmlSyntax() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!-- comment with <row> -->"
+            + "<x:worksheet xmlns:x=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+            + "<x:dimension ref=\"A1:C3\"/><x:sheetData>"
+            + "<x:row r='2' spans=\"1:3\" hidden=\"1\" ht=\"30.5\" customHeight=\"1\" s=\"2\" customFormat=\"1\" outlineLevel=\"1\"><x:c r=\"B2\" t=\"inlineStr\"><x:is><x:r><x:rPr><x:b/></x:rPr><x:t>a &amp; b</x:t></x:r>"
+            + "<x:r><x:t xml:space=\"preserve\"> &#x41;&#66;</x:t></x:r><x:rPh sb=\"0\" eb=\"1\"><x:t>ph</x:t></x:rPh></x:is></x:c>"
+            + "<x:c t=\"str\"><x:f>\"&lt;\"&amp;\"x\"</x:f><x:v><![CDATA[<x]]]>&gt;</x:v></x:c>"
+            + "<?pi data?><x:c r=\"E2\" s=\"3\"/></x:row>"
+            + "<x:row/>"
+            + "<x:row><x:c><x:v>-1.5E3</x:v></x:c></x:row>"
+            + "</x:sheetData><x:mergeCells count=\"1\"><x:mergeCell ref=\"A1:B1\"/></x:mergeCells></x:worksheet>";
+
+        try (XSSFSheetStreamReader reader = new XSSFSheetStreamReader(new ByteArrayInputStream(xml.getBytes(UTF_8)), null)) {
+            assertTrue(reader.nextRow());
+            assertEquals(1, reader.getRowNum());
+            assertTrue(reader.isRowHidden());
+            assertEquals(30.5, reader.getRowHeight(), 0);
+            assertEquals(2, reader.getRowStyleIndex());
+            assertEquals(1, reader.getRowOutlineLevel());
+            assertTrue(reader.nextCell());
+            assertEquals(1, reader.getColumn());
+            assertEquals(CellType.STRING, reader.getCellType());
+            assertEquals("a & b AB", reader.getStringCellValue());
+            assertEquals(-1, reader.getSharedStringIndex());
+
+            assertTrue(reader.nextCell());
+            assertEquals(2, reader.getColumn());
+            assertEquals(CellType.FORMULA, reader.getCellType());
+            assertEquals(CellType.STRING, reader.getCachedFormulaResultType());
+            assertEquals("\"<\"&\"x\"", reader.getCellFormula());
+            assertEquals("<x]>", reader.getStringCellValue());
+
+            assertTrue(reader.nextCell());
+            assertEquals(4, reader.getColumn());
+            assertEquals(3, reader.getStyleIndex());
+            assertEquals(CellType.BLANK, reader.getCellType());
+            assertEquals("", reader.getStringCellValue());
+            assertNull(reader.getCellFormula());
+            assertFalse(reader.nextCell());
+
+            assertTrue(reader.nextRow());
+            assertEquals(2, reader.getRowNum());
+            assertFalse(reader.isRowHidden());
+            assertEquals(-1, reader.getRowHeight(), 0);
+            assertEquals(-1, reader.getRowStyleIndex());
+            assertEquals(0, reader.getRowOutlineLevel());
+            assertFalse(reader.nextCell());
+
+            assertTrue(reader.nextRow());
+            assertEquals(3, reader.getRowNum());
+            assertTrue(reader.nextCell());
+            assertEquals(0, reader.getColumn());
+            assertEquals(-1500, reader.getNumericCellValue(), 0);
+            assertThrows(IllegalStateException.class, reader::getStringCellValue);
+            assertFalse(reader.nextCell());
+
+            assertFalse(reader.nextRow());
+            assertFalse(reader.nextRow());
+        }
+    }
+
+    @Test
+    void projection() throws Exception {
+        StringBuilder xml = new StringBuilder("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+        for (int r = 0; r < 20000; r++) {
+            xml.append("<row r=\"").append(r + 1).append("\">");
+            for (int c = 0; c < 5; c++) {
+                xml.append("<c r=\"").append((char)('A' + c)).append(r + 1).append("\"><v>").append(r * 10 + c).append("</v></c>");
+            }
+            xml.append("</row>");
+        }
+        xml.append("</sheetData></worksheet>");
+        byte[] data = xml.toString().getBytes(UTF_8);
+
+        AtomicLong bytesRead = new AtomicLong();
+        InputStream is = new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                int read = super.read(b, off, len);
+                bytesRead.addAndGet(Math.max(read, 0));
+                return read;
+            }
+        };
+        BitSet columns = new BitSet();
+        columns.set(1);
+        columns.set(3);
+        try (XSSFSheetStreamReader reader = new XSSFSheetStreamReader(is, null)) {
+            reader.setRowRange(100, 102);
+            reader.setColumns(columns);
+            for (int r = 100; r <= 102; r++) {
+                assertTrue(reader.nextRow());
+                assertEquals(r, reader.getRowNum());
+                assertTrue(reader.nextCell());
+                assertEquals(1, reader.getColumn());
+                assertEquals(r * 10 + 1, reader.getNumericCellValue(), 0);
+                assertTrue(reader.nextCell());
+                assertEquals(3, reader.getColumn());
+                assertEquals(r * 10 + 3, reader.getNumericCellValue(), 0);
+                assertFalse(reader.nextCell());
+            }
+            assertFalse(reader.nextRow());
+        }
+        // the reading stopped after the requested rows
+        assertTrue(bytesRead.get() < data.length / 4);
+
+        assertThrows(IllegalArgumentException.class, () -> new XSSFSheetStreamReader(new ByteArrayInputStream(data), null).setRowRange(5, 4));
+    }
+
+    @Test
+    void otherEncoding() throws Exception {
+        String xml = "﻿<?xml version=\"1.0\" encoding=\"UTF-16\"?>"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+            + "<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>ä€😜</t></is></c><c r=\"B1\" t=\"b\"><v>1</v></c></row>"
+            + "</sheetData></worksheet>";
+        try (XSSFSheetStreamReader reader = new XSSFSheetStreamReader(new ByteArrayInputStream(xml.getBytes(UTF_16LE)), null)) {
+            assertTrue(reader.nextRow());
+            assertTrue(reader.nextCell());
+            assertEquals("ä€😜", reader.getStringCellValue());
+            assertTrue(reader.nextCell());
+            assertTrue(reader.getBooleanCellValue());
+            assertFalse(reader.nextCell());
+            assertFalse(reader.nextRow());
+        }
+    }
+
+    private static void compareWithUserModel(byte[] bytes) throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(bytes));
+             OPCPackage pkg = OPCPackage.open(new ByteArrayInputStream(bytes))) {
+            XSSFReader xssfReader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+            while (iter.hasNext()) {
+                try (InputStream is = iter.next()) {
+                    XSSFSheet sheet = wb.getSheet(iter.getSheetName());
+                    compareSheet(sheet, new XSSFSheetStreamReader(is, strings));
+                }
+            }
+        }
+    }
+
+    private static void compareSheet(XSSFSheet sheet, XSSFSheetStreamReader reader) throws IOException {
+        int rows = 0;
+        while (reader.nextRow()) {
+            XSSFRow row = sheet.getRow(reader.getRowNum());
+            int cells = 0;
+            while (reader.nextCell()) {
+                XSSFCell cell = row.getCell(reader.getColumn());
+                String ref = cell.getReference();
+                assertEquals(cell.getCellType(), reader.getCellType(), ref);
+                assertEquals(cell.getCellStyle().getIndex(), reader.getStyleIndex(), ref);
+                CellType type = cell.getCellType();
+                if (type == CellType.FORMULA) {
+                    // the cells of shared formulas only refer to the formula of the master cell
+                    if (!reader.getCellFormula().isEmpty()) {
+                        assertEquals(cell.getCellFormula(), reader.getCellFormula(), ref);
+                    }
+                    type = cell.getCachedFormulaResultType();
+                    assertEquals(type, reader.getCachedFormulaResultType(), ref);
+                }
+                switch (type) {
+                    case NUMERIC:
+                        assertEquals(cell.getNumericCellValue(), reader.getNumericCellValue(), 0, ref);
+                        break;
+                    case STRING:
+                        assertEquals(cell.getStringCellValue(), reader.getStringCellValue(), ref);
+                        break;
+                    case BOOLEAN:
+                        assertEquals(cell.getBooleanCellValue(), reader.getBooleanCellValue(), ref);
+                        break;
+                    case ERROR:
+                        assertEquals(cell.getErrorCellString(), reader.getErrorCellString(), ref);
+                        break;
+                    default:
+                        break;
+                }
+                cells++;
+            }
+            assertEquals(row.getPhysicalNumberOfCells(), cells, "row " + row.getRowNum());
+            rows++;
+        }
+        assertEquals(sheet.getPhysicalNumberOfRows(), rows, sheet.getSheetName());
+    }
+}
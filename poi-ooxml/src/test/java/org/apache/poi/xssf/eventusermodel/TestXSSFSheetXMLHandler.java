@@ -16,20 +16,37 @@
 ==================================================================== */
 package org.apache.poi.xssf.eventusermodel;
 
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.poi.POIDataSamples;
 import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Drawing;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellAddress;
 import org.apache.poi.util.XMLHelper;
 import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.TypedSheetContentsHandler;
 import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.Test;
 import org.xml.sax.InputSource;
 import org.xml.sax.XMLReader;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class TestXSSFSheetXMLHandler {
     private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
@@ -100,4 +117,190 @@ class TestXSSFSheetXMLHandler {
             }
         }
     }
+
+    @Test
+    void testTypedHandler() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            CellStyle dateStyle = wb.createCellStyle();
+            dateStyle.setDataFormat(wb.createDataFormat().getFormat("yyyy-mm-dd"));
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue(1.25);
+            row.createCell(1).setCellValue("text");
+            row.createCell(2).setCellValue(true);
+            row.createCell(3).setCellFormula("1/0");
+            row.createCell(4).setCellFormula("\"a\"&\"b\"");
+            row.createCell(5).setCellValue(44197);
+            row.getCell(5).setCellStyle(dateStyle);
+            row.createCell(6).setCellFormula("2*3");
+            Drawing<?> drawing = sheet.createDrawingPatriarch();
+            ClientAnchor anchor = wb.getCreationHelper().createClientAnchor();
+            Comment comment = drawing.createCellComment(anchor);
+            comment.setString(wb.getCreationHelper().createRichTextString("note"));
+            row.getCell(0).setCellComment(comment);
+            wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            wb.write(bos);
+        }
+
+        List<String> events = new ArrayList<>();
+        TypedSheetContentsHandler handler = new TypedSheetContentsHandler() {
+            @Override
+            public void startRow(int rowNum) {
+                events.add("start " + rowNum);
+            }
+
+            @Override
+            public void endRow(int rowNum) {
+                events.add("end " + rowNum);
+            }
+
+            @Override
+            public void numericCell(int rowNum, int column, double value, int styleIndex) {
+                events.add(column + " number " + value + (styleIndex != 0 ? " styled" : ""));
+            }
+
+            @Override
+            public void booleanCell(int rowNum, int column, boolean value) {
+                events.add(column + " boolean " + value);
+            }
+
+            @Override
+            public void sharedStringCell(int rowNum, int column, int sstIndex) {
+                events.add(column + " sst " + sstIndex);
+            }
+
+            @Override
+            public void stringCell(int rowNum, int column, CharSequence value) {
+                events.add(column + " string " + value);
+            }
+
+            @Override
+            public void errorCell(int rowNum, int column, CharSequence error) {
+                events.add(column + " error " + error);
+            }
+
+            @Override
+            public boolean isFormatted(int column) {
+                return column == 5;
+            }
+
+            @Override
+            public void formattedCell(int rowNum, int column, String formattedValue) {
+                events.add(column + " formatted " + formattedValue);
+            }
+
+            @Override
+            public void comment(int rowNum, int column, XSSFComment comment) {
+                events.add(column + " comment " + comment.getString());
+            }
+        };
+
+        try (OPCPackage xlsxPackage = OPCPackage.open(bos.toInputStream())) {
+            final XSSFReader reader = new XSSFReader(xlsxPackage);
+            XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) reader.getSheetsData();
+            try (InputStream stream = iter.next()) {
+                final XMLReader sheetParser = XMLHelper.newXMLReader();
+                sheetParser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), iter.getSheetComments(),
+                    new ReadOnlySharedStringsTable(xlsxPackage), handler, new DataFormatter(), false));
+                sheetParser.parse(new InputSource(stream));
+            }
+        }
+
+        assertEquals(Arrays.asList("start 0", "0 number 1.25", "0 comment note", "1 sst 0", "2 boolean true",
+            "3 error #DIV/0!", "4 string ab", "5 formatted 2021-01-01", "6 number 6.0", "end 0"), events);
+    }
+
+    @Test
+    void testRowRangeAndColumns() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 10; r++) {
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < 4; c++) {
+                    if (r != 3 || c != 2) {
+                        row.createCell(c).setCellValue(r * 10 + c);
+                    }
+                }
+            }
+            Drawing<?> drawing = sheet.createDrawingPatriarch();
+            for (String ref : new String[]{"A3", "C4", "B5", "C9"}) {
+                ClientAnchor anchor = wb.getCreationHelper().createClientAnchor();
+                Comment comment = drawing.createCellComment(anchor);
+                comment.setString(wb.getCreationHelper().createRichTextString("note " + ref));
+                comment.setAddress(new CellAddress(ref));
+            }
+            wb.write(bos);
+        }
+
+        List<String> events = new ArrayList<>();
+        SheetContentsHandler handler = new SheetContentsHandler() {
+            @Override
+            public void startRow(int rowNum) {
+                events.add("start " + rowNum);
+            }
+
+            @Override
+            public void endRow(int rowNum) {
+                events.add("end " + rowNum);
+            }
+
+            @Override
+            public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+                events.add(cellReference + " " + formattedValue + (comment != null ? " " + comment.getString() : ""));
+            }
+        };
+
+        try (OPCPackage xlsxPackage = OPCPackage.open(bos.toInputStream())) {
+            final XSSFReader reader = new XSSFReader(xlsxPackage);
+            XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) reader.getSheetsData();
+            try (InputStream stream = iter.next()) {
+                XSSFSheetXMLHandler sheetHandler = new XSSFSheetXMLHandler(reader.getStylesTable(), iter.getSheetComments(),
+                    new ReadOnlySharedStringsTable(xlsxPackage), handler, new DataFormatter(), false);
+                BitSet columns = new BitSet();
+                columns.set(1, 3);
+                sheetHandler.setColumns(columns);
+                sheetHandler.setRowRange(2, 4);
+                final XMLReader sheetParser = XMLHelper.newXMLReader();
+                sheetParser.setContentHandler(sheetHandler);
+                sheetParser.parse(new InputSource(stream));
+            }
+        }
+
+        assertEquals(Arrays.asList("start 2", "B3 21", "C3 22", "end 2", "start 3", "B4 31", "C4 null note C4", "end 3",
+            "start 4", "B5 41 note B5", "C5 42", "end 4"), events);
+    }
+
+    @Test
+    void testParseDouble() {
+        String[] values = {"0", "-0", "0.", "-0.", "+0", "1", "1.", ".5", "-.5", "+3", "1.25", "0.1", "123456789012345",
+            "1234567890123456789", "0.000000000000000000001", "1.0000000000000000000000001", "1E-3", "-2.5e10",
+            "4.4e-324", "NaN", "Infinity", "3.141592653589793"};
+        for (String v : values) {
+            assertEquals(Double.parseDouble(v), XSSFSheetXMLHandler.parseDouble(v), v);
+            assertEquals(Double.parseDouble(v), XSSFSheetXMLHandler.parseDouble(new StringBuilder(v)), v);
+        }
+        Random rnd = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            String v = Double.toString(rnd.nextDouble() * Math.pow(10, rnd.nextInt(20) - 10));
+            assertEquals(Double.parseDouble(v), XSSFSheetXMLHandler.parseDouble(v), v);
+            v = Long.toString(rnd.nextLong() % 1_000_000_000_000L) + "." + rnd.nextInt(1000);
+            assertEquals(Double.parseDouble(v), XSSFSheetXMLHandler.parseDouble(v), v);
+        }
+        for (String v : new String[]{"", "-", "+", ".", "+.", "-.", "1.2.3", "abc"}) {
+            assertThrows(NumberFormatException.class, () -> XSSFSheetXMLHandler.parseDouble(v), v);
+        }
+    }
+
+    @Test
+    void testParseColumnAndIndex() {
+        assertEquals(0, XSSFSheetXMLHandler.parseColumn("A1"));
+        assertEquals(27, XSSFSheetXMLHandler.parseColumn("AB12"));
+        assertEquals(16383, XSSFSheetXMLHandler.parseColumn("XFD1048576"));
+        assertEquals(2, XSSFSheetXMLHandler.parseColumn("$C$3"));
+        assertEquals(123, XSSFSheetXMLHandler.parseIndex("123"));
+        assertEquals(-1, XSSFSheetXMLHandler.parseIndex("12a"));
+        assertEquals(-1, XSSFSheetXMLHandler.parseIndex(""));
+    }
 }
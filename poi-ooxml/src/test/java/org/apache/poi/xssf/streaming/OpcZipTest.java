@@ -17,17 +17,30 @@
 
 package org.apache.poi.xssf.streaming;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.util.IOUtils;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 class OpcZipTest {
     @Test
@@ -59,6 +72,63 @@ class OpcZipTest {
         }
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {Deflater.DEFAULT_COMPRESSION, Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION})
+    void parallelDeflate(int level) throws Exception {
+        // several blocks of repetitive data with back references across the block boundaries
+        byte[] large = createData(5 * ParallelDeflaterOutputStream.DEFAULT_BLOCK_SIZE + 123);
+        byte[] small = "<sheetData/>".getBytes(StandardCharsets.US_ASCII);
+        byte[] blockSized = createData(ParallelDeflaterOutputStream.DEFAULT_BLOCK_SIZE);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream()) {
+            try (OpcZipArchiveOutputStream zip = new OpcZipArchiveOutputStream(bos)) {
+                zip.setLevel(level);
+                zip.setDeflateExecutor(executor);
+                writeEntry(zip, "large.xml", large);
+                writeEntry(zip, "empty.xml", new byte[0]);
+                writeEntry(zip, "small.xml", small);
+                writeEntry(zip, "blockSized.xml", blockSized);
+            }
+
+            try (ZipFile zip = new ZipFile(new SeekableInMemoryByteChannel(bos.toByteArray()))) {
+                assertEntry(zip, "large.xml", large);
+                assertEntry(zip, "empty.xml", new byte[0]);
+                assertEntry(zip, "small.xml", small);
+                assertEntry(zip, "blockSized.xml", blockSized);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void writeEntry(OpcZipArchiveOutputStream zip, String name, byte[] data) throws Exception {
+        zip.putArchiveEntry(new ZipArchiveEntry(name));
+        // write in odd chunks to cover partially filled blocks
+        for (int off = 0; off < data.length; off += 10_000) {
+            zip.write(data, off, Math.min(10_000, data.length - off));
+        }
+        zip.closeArchiveEntry();
+    }
+
+    private static void assertEntry(ZipFile zip, String name, byte[] expected) throws Exception {
+        ZipArchiveEntry ze = zip.getEntry(name);
+        assertNotNull(ze);
+        assertEquals(expected.length, ze.getSize());
+        try (InputStream is = zip.getInputStream(ze)) {
+            assertArrayEquals(expected, IOUtils.toByteArray(is));
+        }
+    }
+
+    private static byte[] createData(int size) {
+        Random random = new Random(4711);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + (i % 1000 < 500 ? (i % 7) : random.nextInt(26)));
+        }
+        return data;
+    }
+
     private static Map<String, String> createContents() {
         Map<String, String> contents = new LinkedHashMap<>();
         for (int i = 0; i < 3; i++) {
@@ -20,13 +20,28 @@
 package org.apache.poi.xssf.streaming;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.poi.ss.tests.usermodel.BaseTestXSheet;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.SXSSFITestDataProvider;
@@ -35,6 +50,8 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 
 public final class TestSXSSFSheet extends BaseTestXSheet {
@@ -185,4 +202,178 @@ public final class TestSXSSFSheet extends BaseTestXSheet {
 
         wb.close();
     }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void rowPartitions(boolean useSharedStringsTable) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(null, 10, false, useSharedStringsTable)) {
+            SXSSFSheet sheet = wb.createSheet("partitions");
+            sheet.createRow(0).createCell(0).setCellValue("header");
+
+            // the partitions are created out of order and filled concurrently
+            List<Future<?>> producers = new ArrayList<>();
+            for (int p : new int[]{2, 0, 3, 1}) {
+                SXSSFRowPartition partition = sheet.createRowPartition(1 + p * 100, 100 + p * 100);
+                producers.add(executor.submit(() -> {
+                    for (int r = partition.getFirstRow(); r <= partition.getLastRow(); r++) {
+                        SXSSFRow row = partition.createRow(r);
+                        row.createCell(0).setCellValue("row" + r);
+                        row.createCell(1).setCellValue(r);
+                    }
+                    partition.close();
+                    return null;
+                }));
+            }
+
+            // rows after the partitions are kept in memory, until the partitions are closed
+            for (int r = 401; r < 450; r++) {
+                sheet.createRow(r).createCell(0).setCellValue("row" + r);
+            }
+
+            for (Future<?> producer : producers) {
+                producer.get();
+            }
+            sheet.createRow(450).createCell(0).setCellValue("row450");
+
+            try (XSSFWorkbook xwb = SXSSFITestDataProvider.instance.writeOutAndReadBack(wb)) {
+                XSSFSheet xs = xwb.getSheetAt(0);
+                assertEquals(451, xs.getPhysicalNumberOfRows());
+                assertEquals("header", xs.getRow(0).getCell(0).getStringCellValue());
+                int expected = 1;
+                for (Row row : xs) {
+                    if (row.getRowNum() == 0) {
+                        continue;
+                    }
+                    assertEquals(expected, row.getRowNum());
+                    assertEquals("row" + expected, row.getCell(0).getStringCellValue());
+                    if (expected <= 400) {
+                        assertEquals(expected, (int) row.getCell(1).getNumericCellValue());
+                    }
+                    expected++;
+                }
+                assertEquals(451, expected);
+            }
+            assertTrue(wb.dispose());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void invalidRowPartitions() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(2)) {
+            SXSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 5; r++) {
+                sheet.createRow(r);
+            }
+            // rows 0..2 are flushed, 3 and 4 are in memory
+            assertThrows(IllegalArgumentException.class, () -> sheet.createRowPartition(2, 10));
+            assertThrows(IllegalArgumentException.class, () -> sheet.createRowPartition(4, 10));
+            assertThrows(IllegalArgumentException.class, () -> sheet.createRowPartition(20, 10));
+
+            SXSSFRowPartition partition = sheet.createRowPartition(10, 19);
+            assertThrows(IllegalArgumentException.class, () -> sheet.createRowPartition(19, 30));
+            assertThrows(IllegalArgumentException.class, () -> sheet.createRow(15));
+            assertThrows(IllegalArgumentException.class, () -> partition.createRow(20));
+            SXSSFRow row = partition.createRow(12);
+
+            // partition rows can't be moved or removed, as the sheet rows aren't thread-safe
+            assertThrows(IllegalStateException.class, () -> row.setRowNum(13));
+            assertThrows(IllegalArgumentException.class, () -> sheet.removeRow(row));
+            assertEquals(12, row.getRowNum());
+            assertSame(row, partition.getRow(12));
+            assertNull(sheet.getRow(12));
+            sheet.getRow(3).setRowNum(5);
+            sheet.removeRow(sheet.getRow(5));
+
+            // the workbook can't be written, while the partition is open
+            assertThrows(IllegalStateException.class, () -> sheet.getWorksheetXMLInputStream());
+
+            partition.close();
+            assertThrows(IllegalStateException.class, () -> partition.createRow(13));
+            assertTrue(wb.dispose());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void writeColumnBatch(boolean useSharedStringsTable) throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(null, 10, false, useSharedStringsTable)) {
+            SXSSFSheet sheet = wb.createSheet();
+            CellStyle dateStyle = wb.createCellStyle();
+            dateStyle.setDataFormat(wb.createDataFormat().getFormat("yyyy-mm-dd hh:mm"));
+
+            sheet.createRow(0).createCell(0).setCellValue("header");
+
+            double[] numbers = new double[100];
+            long[] dates = new long[100];
+            String[] strings = new String[100];
+            SXSSFColumnBatch batch = new SXSSFColumnBatch(100)
+                .addNumericColumn(numbers, null)
+                .addDateColumn(dates, dateStyle)
+                .addStringColumn(strings, null);
+            int rownum = 1;
+            for (int b = 0; b < 3; b++) {
+                int filled = (b == 2) ? 42 : 100;
+                for (int i = 0; i < filled; i++) {
+                    int r = rownum + i;
+                    numbers[i] = r + 0.5;
+                    dates[i] = 1_600_000_000_000L + r * 3_600_000L;
+                    strings[i] = (r % 10 == 0) ? null : "s" + (r % 7);
+                }
+                numbers[0] = (b == 1) ? Double.NaN : numbers[0];
+                batch.setRowCount(filled);
+                sheet.writeRows(rownum, batch);
+                rownum += filled;
+            }
+            assertEquals(243, sheet.getPhysicalNumberOfRows());
+            assertThrows(IllegalArgumentException.class, () -> sheet.writeRows(100, batch));
+            assertThrows(IllegalArgumentException.class, () -> sheet.createRow(242));
+            sheet.createRow(243).createCell(0).setCellValue("footer");
+
+            try (XSSFWorkbook xwb = SXSSFITestDataProvider.instance.writeOutAndReadBack(wb)) {
+                XSSFSheet xs = xwb.getSheetAt(0);
+                assertEquals(243, xs.getLastRowNum());
+                assertEquals("header", xs.getRow(0).getCell(0).getStringCellValue());
+                assertEquals("footer", xs.getRow(243).getCell(0).getStringCellValue());
+                for (int r = 1; r < 243; r++) {
+                    Row row = xs.getRow(r);
+                    if (r == 101) {
+                        assertEquals(CellType.ERROR, row.getCell(0).getCellType());
+                    } else {
+                        assertEquals(r + 0.5, row.getCell(0).getNumericCellValue(), 0);
+                    }
+                    Cell date = row.getCell(1);
+                    assertEquals(DateUtil.getExcelDate(new Date(1_600_000_000_000L + r * 3_600_000L)), date.getNumericCellValue(), 1e-9);
+                    assertEquals("yyyy-mm-dd hh:mm", date.getCellStyle().getDataFormatString());
+                    if (r % 10 == 0) {
+                        assertNull(row.getCell(2));
+                        assertEquals(2, row.getLastCellNum());
+                    } else {
+                        assertEquals("s" + (r % 7), row.getCell(2).getStringCellValue());
+                    }
+                }
+            }
+            assertTrue(wb.dispose());
+        }
+    }
+
+    @Test
+    void writeColumnBatchValidation() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+            SXSSFSheet sheet = wb.createSheet();
+            sheet.createRow(5);
+            SXSSFColumnBatch batch = new SXSSFColumnBatch(10).addNumericColumn(new double[5], null);
+            assertThrows(IllegalArgumentException.class, () -> sheet.writeRows(6, batch));
+            batch.setRowCount(5);
+            assertThrows(IllegalArgumentException.class, () -> sheet.writeRows(5, batch));
+            // the existing rows are still in memory
+            assertNotNull(sheet.getRow(5));
+            sheet.writeRows(6, batch);
+            assertNull(sheet.getRow(5));
+            assertEquals(10, sheet.getLastFlushedRowNum());
+            assertTrue(wb.dispose());
+        }
+    }
 }
@@ -34,8 +34,17 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.poi.POIDataSamples;
 import org.apache.poi.common.usermodel.HyperlinkType;
@@ -50,6 +59,8 @@ import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.DefaultTempFileCreationStrategy;
+import org.apache.poi.util.TempFile;
 import org.apache.poi.xssf.SXSSFITestDataProvider;
 import org.apache.poi.xssf.XSSFTestDataSamples;
 import org.apache.poi.xssf.model.SharedStringsTable;
@@ -59,13 +70,17 @@ import org.apache.poi.xssf.usermodel.XSSFColor;
 import org.apache.poi.xssf.usermodel.XSSFFont;
 import org.apache.poi.xssf.usermodel.XSSFHyperlink;
 import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
 
 public final class TestSXSSFWorkbook extends BaseTestXWorkbook {
 
@@ -163,6 +178,96 @@ public final class TestSXSSFWorkbook extends BaseTestXWorkbook {
         }
     }
 
+    @Test
+    void useTempFileSharedStringsTable() throws Exception {
+        try (XSSFWorkbook template = new XSSFWorkbook()) {
+            template.createSheet("S1").createRow(0).createCell(0).setCellValue("existing");
+            try (SXSSFWorkbook wb = new SXSSFWorkbook(template, 10, false, SXSSFStringStorage.SHARED_TEMP_FILE)) {
+                SharedStringsTable sst = wb.getSharedStringSource();
+                assertTrue(sst instanceof TempFileSharedStringsTable);
+                assertEquals(1, sst.getUniqueCount());
+
+                // enough distinct strings to grow the hash index
+                Sheet sheet = wb.getSheetAt(0);
+                for (int i = 1; i <= 40_000; i++) {
+                    Row row = sheet.createRow(i);
+                    row.createCell(0).setCellValue("value " + i);
+                    row.createCell(1).setCellValue((i % 2 == 0) ? "even" : " odd <&> ");
+                    row.createCell(2).setCellValue("existing");
+                }
+                XSSFRichTextString rt = new XSSFRichTextString("rich text");
+                XSSFFont font = (XSSFFont)wb.createFont();
+                font.setBold(true);
+                rt.applyFont(0, 4, font);
+                sheet.createRow(40_001).createCell(0).setCellValue(rt);
+
+                try (XSSFWorkbook xssfWorkbook = SXSSFITestDataProvider.instance.writeOutAndReadBack(wb)) {
+                    assertEquals(40_004, sst.getUniqueCount());
+                    assertEquals(120_002, sst.getCount());
+                    assertTrue(wb.dispose());
+
+                    SharedStringsTable readSst = xssfWorkbook.getSharedStringSource();
+                    assertEquals(40_004, readSst.getUniqueCount());
+                    Sheet sheet1 = xssfWorkbook.getSheetAt(0);
+                    assertEquals("existing", sheet1.getRow(0).getCell(0).getStringCellValue());
+                    for (int i = 1; i <= 40_000; i++) {
+                        Row row = sheet1.getRow(i);
+                        assertEquals("value " + i, row.getCell(0).getStringCellValue());
+                        assertEquals((i % 2 == 0) ? "even" : " odd <&> ", row.getCell(1).getStringCellValue());
+                        assertEquals("existing", row.getCell(2).getStringCellValue());
+                    }
+                    XSSFRichTextString readRt = (XSSFRichTextString)sheet1.getRow(40_001).getCell(0).getRichStringCellValue();
+                    assertEquals("rich text", readRt.getString());
+                    assertTrue(readRt.getFontAtIndex(0).getBold());
+                }
+            }
+        }
+    }
+
+    @Test
+    void adaptiveSharedStrings() throws Exception {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(null, 10, false, SXSSFStringStorage.ADAPTIVE)) {
+            assertEquals(SXSSFStringStorage.ADAPTIVE, wb.getStringStorage());
+            SXSSFSheet sheet = wb.createSheet("S1");
+            final int rows = 5000;
+            for (int i = 0; i < rows; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue("id " + i);
+                row.createCell(1).setCellValue("state " + (i % 5));
+            }
+            SXSSFColumnBatch batch = new SXSSFColumnBatch(rows);
+            String[] ids = new String[rows];
+            String[] states = new String[rows];
+            for (int i = 0; i < rows; i++) {
+                ids[i] = "batch id " + i;
+                states[i] = "state " + (i % 3);
+            }
+            batch.addStringColumn(ids, null).addStringColumn(states, null);
+            sheet.writeRows(rows, batch);
+
+            try (XSSFWorkbook xssfWorkbook = SXSSFITestDataProvider.instance.writeOutAndReadBack(wb)) {
+                // the id column is only shared for the first window, the batch states are already in the table
+                assertEquals(StringColumnCardinality.WINDOW_SIZE + 5, wb.getSharedStringSource().getUniqueCount());
+                assertTrue(wb.dispose());
+
+                XSSFSheet sheet1 = xssfWorkbook.getSheetAt(0);
+                for (int i = 0; i < rows; i++) {
+                    XSSFRow row = sheet1.getRow(i);
+                    assertEquals("id " + i, row.getCell(0).getStringCellValue());
+                    assertEquals("state " + (i % 5), row.getCell(1).getStringCellValue());
+                    XSSFRow batchRow = sheet1.getRow(rows + i);
+                    assertEquals("batch id " + i, batchRow.getCell(0).getStringCellValue());
+                    assertEquals("state " + (i % 3), batchRow.getCell(1).getStringCellValue());
+                }
+                assertEquals(STCellType.S, sheet1.getRow(0).getCell(0).getCTCell().getT());
+                assertEquals(STCellType.INLINE_STR, sheet1.getRow(rows - 1).getCell(0).getCTCell().getT());
+                assertEquals(STCellType.S, sheet1.getRow(rows - 1).getCell(1).getCTCell().getT());
+                assertEquals(STCellType.INLINE_STR, sheet1.getRow(2 * rows - 1).getCell(0).getCTCell().getT());
+                assertEquals(STCellType.S, sheet1.getRow(2 * rows - 1).getCell(1).getCTCell().getT());
+            }
+        }
+    }
+
     @Test
     void useSharedStringsTableWithRichText() throws Exception {
         testUseSharedStringsTableWithRichText(false);
@@ -310,6 +415,124 @@ public final class TestSXSSFWorkbook extends BaseTestXWorkbook {
         }
     }
 
+    @ParameterizedTest
+    @EnumSource(value = Zip64Mode.class, names = {"Always", "AsNeeded"})
+    void sheetWriteExecutor(Zip64Mode zip64Mode) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+            wb.setZip64Mode(zip64Mode);
+            wb.setSheetWriteExecutor(executor);
+            assertSame(executor, wb.getSheetWriteExecutor());
+            populateData(wb);
+
+            try (XSSFWorkbook xwb = SXSSFITestDataProvider.instance.writeOutAndReadBack(wb)) {
+                assertEquals(5, xwb.getNumberOfSheets());
+                for (int i = 0; i < 5; i++) {
+                    Sheet sh = xwb.getSheetAt(i);
+                    assertEquals("sheet" + i, sh.getSheetName());
+                    for (int j = 0; j < 1000; j++) {
+                        Row row = sh.getRow(j);
+                        assertNotNull(row, "row[" + j + "]");
+                        Cell cell1 = row.getCell(0);
+                        assertEquals(new CellReference(cell1).formatAsString(), cell1.getStringCellValue());
+                        assertEquals(i, (int) row.getCell(1).getNumericCellValue());
+                        assertEquals(j, (int) row.getCell(2).getNumericCellValue());
+                    }
+                }
+            }
+            assertTrue(wb.dispose());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void sheetWriteExecutorInterrupted(@TempDir File tempDir) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy(tempDir));
+        try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+            populateData(wb);
+            // the sheets are compressed after the writer was interrupted while waiting for the first one
+            List<Runnable> pending = Collections.synchronizedList(new ArrayList<>());
+            wb.setSheetWriteExecutor(pending::add);
+            Thread writer = Thread.currentThread();
+            Thread interrupter = new Thread(() -> {
+                while (pending.size() < wb.getNumberOfSheets() || writer.getState() != Thread.State.WAITING) {
+                    Thread.yield();
+                }
+                writer.interrupt();
+                pending.forEach(executor::execute);
+            });
+            interrupter.start();
+            assertThrows(InterruptedIOException.class, () -> wb.write(NULL_OUTPUT_STREAM));
+            assertTrue(Thread.interrupted());
+            interrupter.join();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+            // the compressed sheets, which weren't written, have been removed
+            File[] leftovers = tempDir.listFiles((dir, name) -> name.startsWith("poi-sxssf-entry"));
+            assertNotNull(leftovers);
+            assertEquals(0, leftovers.length);
+            assertTrue(wb.dispose());
+        } finally {
+            executor.shutdownNow();
+            TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION})
+    void deflateExecutor(int level) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+            wb.setCompressionLevel(level);
+            wb.setDeflateExecutor(executor);
+            assertEquals(level, wb.getCompressionLevel());
+            assertSame(executor, wb.getDeflateExecutor());
+            populateData(wb);
+
+            try (XSSFWorkbook xwb = SXSSFITestDataProvider.instance.writeOutAndReadBack(wb)) {
+                assertEquals(5, xwb.getNumberOfSheets());
+                Sheet sh = xwb.getSheetAt(4);
+                assertEquals(999, sh.getLastRowNum());
+                assertEquals("sheet4!A1000", sh.getRow(999).getCell(0).getStringCellValue());
+            }
+            assertTrue(wb.dispose());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void invalidCompressionLevel() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+            assertEquals(Deflater.DEFAULT_COMPRESSION, wb.getCompressionLevel());
+            assertThrows(IllegalArgumentException.class, () -> wb.setCompressionLevel(10));
+            assertThrows(IllegalArgumentException.class, () -> wb.setCompressionLevel(-2));
+        }
+    }
+
+    @Test
+    void writeXSSFWorkbookWithParallelDeflate() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (XSSFWorkbook wb = new XSSFWorkbook();
+             UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream()) {
+            populateData(wb);
+            try (OpcZipArchiveOutputStream zos = new OpcZipArchiveOutputStream(bos)) {
+                zos.setLevel(Deflater.BEST_SPEED);
+                zos.setDeflateExecutor(executor);
+                wb.write(zos);
+            }
+            try (XSSFWorkbook xwb = new XSSFWorkbook(bos.toInputStream())) {
+                assertEquals(5, xwb.getNumberOfSheets());
+                assertEquals("sheet2!A1000", xwb.getSheetAt(2).getRow(999).getCell(0).getStringCellValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private static void populateData(Workbook wb) {
         for(int i = 0; i < 5; i++){
             Sheet sh = wb.createSheet("sheet" + i);
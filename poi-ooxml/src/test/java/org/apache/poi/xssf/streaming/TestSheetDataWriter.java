@@ -26,9 +26,16 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
 
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.LocaleUtil;
 import org.junit.jupiter.api.Test;
 
 public final class TestSheetDataWriter {
@@ -84,4 +91,70 @@ public final class TestSheetDataWriter {
             IOUtils.closeQuietly(writer);
         }
     }
+
+    @Test
+    void testWriteCellReference() throws IOException {
+        int[][] refs = { {0, 0}, {0, 25}, {0, 26}, {9, 51}, {99, 701}, {1048575, 702}, {1048575, 16383} };
+        for (int[] ref : refs) {
+            StringWriter sw = new StringWriter();
+            try (SheetDataWriter writer = new SheetDataWriter(sw)) {
+                writer.writeCellReference(ref[0], ref[1]);
+            }
+            assertEquals(new CellReference(ref[0], ref[1]).formatAsString(), sw.toString());
+        }
+    }
+
+    @Test
+    void testWriteDouble() throws IOException {
+        assertEquals("0", formatDouble(0));
+        assertEquals("-0.0", formatDouble(-0.0));
+        assertEquals("42", formatDouble(42));
+        assertEquals("-1.5", formatDouble(-1.5));
+        assertEquals("0.1", formatDouble(0.1));
+        assertEquals("12345678.9", formatDouble(12345678.9));
+        assertEquals("0.00001", formatDouble(1e-5));
+        assertEquals(Double.toString(0.1 + 0.2), formatDouble(0.1 + 0.2));
+        assertEquals(Double.toString(1e300), formatDouble(1e300));
+        assertEquals("NaN", formatDouble(Double.NaN));
+        assertEquals("-Infinity", formatDouble(Double.NEGATIVE_INFINITY));
+
+        Random rnd = new Random(4711);
+        for (int i = 0; i < 10000; i++) {
+            double[] values = {
+                rnd.nextDouble(), rnd.nextGaussian() * 1e6, Math.round(rnd.nextGaussian() * 1e6) / 100d,
+                Double.longBitsToDouble(rnd.nextLong())
+            };
+            for (double d : values) {
+                assertEquals(Double.valueOf(d), Double.valueOf(formatDouble(d)));
+            }
+        }
+    }
+
+    @Test
+    void testToExcelDate() {
+        Random rnd = new Random(4711);
+        for (String tzId : new String[]{"UTC", "Europe/Berlin", "America/New_York", "Asia/Kolkata"}) {
+            TimeZone tz = TimeZone.getTimeZone(tzId);
+            LocaleUtil.setUserTimeZone(tz);
+            try {
+                for (int i = 0; i < 2000; i++) {
+                    // between 1899 and 2100
+                    long millis = -2240524800000L + (long)(rnd.nextDouble() * 6340000000000L);
+                    Date date = new Date(millis);
+                    assertEquals(DateUtil.getExcelDate(date, false), SheetDataWriter.toExcelDate(millis, tz, false), 1e-9);
+                    assertEquals(DateUtil.getExcelDate(date, true), SheetDataWriter.toExcelDate(millis, tz, true), 1e-9);
+                }
+            } finally {
+                LocaleUtil.resetUserTimeZone();
+            }
+        }
+    }
+
+    private static String formatDouble(double value) throws IOException {
+        StringWriter sw = new StringWriter();
+        try (SheetDataWriter writer = new SheetDataWriter(sw)) {
+            writer.writeDouble(value);
+        }
+        return sw.toString();
+    }
 }
@@ -0,0 +1,265 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Drawing;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Row.MissingCellPolicy;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetVisibility;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestStreamingReadWorkbook {
+    private File file;
+
+    @BeforeEach
+    void createFile() throws Exception {
+        file = TempFile.createTempFile("streaming-read", ".xlsx");
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet("data");
+            CellStyle dateStyle = wb.createCellStyle();
+            dateStyle.setDataFormat(wb.createDataFormat().getFormat("yyyy-mm-dd"));
+            for (int r = 0; r < 50; r++) {
+                // leave gaps in the rows and cells
+                if (r % 7 == 3) {
+                    continue;
+                }
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r * 1.5);
+                row.createCell(1).setCellValue("text " + (r % 5));
+                row.createCell(2).setCellValue(r % 2 == 0);
+                row.createCell(4).setCellValue(40000 + r);
+                row.getCell(4).setCellStyle(dateStyle);
+                row.createCell(5).setCellFormula("A" + (r + 1) + "*2");
+                row.createCell(6).setCellFormula("1/0");
+                row.createCell(7).setCellStyle(dateStyle);
+            }
+            Drawing<?> drawing = sheet.createDrawingPatriarch();
+            ClientAnchor anchor = wb.getCreationHelper().createClientAnchor();
+            Comment comment = drawing.createCellComment(anchor);
+            comment.setString(wb.getCreationHelper().createRichTextString("note"));
+            sheet.getRow(1).getCell(1).setCellComment(comment);
+
+            // row and sheet properties
+            sheet.getRow(5).setZeroHeight(true);
+            sheet.getRow(6).setHeightInPoints(30);
+            sheet.getRow(8).setRowStyle(dateStyle);
+            sheet.groupRow(11, 12);
+            sheet.setColumnWidth(1, 5000);
+            sheet.setColumnHidden(3, true);
+            sheet.setDefaultColumnStyle(8, dateStyle);
+            sheet.groupColumn(5, 6);
+            sheet.setDefaultRowHeightInPoints(18);
+            sheet.setDisplayGridlines(false);
+            sheet.setRowSumsBelow(false);
+            sheet.setFitToPage(true);
+            sheet.addMergedRegion(CellRangeAddress.valueOf("J1:K2"));
+            wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+
+            wb.createSheet("hidden").createRow(0).createCell(0).setCellValue("x");
+            wb.setSheetVisibility(1, SheetVisibility.HIDDEN);
+
+            try (OutputStream os = new FileOutputStream(file)) {
+                wb.write(os);
+            }
+        }
+    }
+
+    @AfterEach
+    void deleteFile() {
+        assertTrue(file.delete());
+    }
+
+    @Test
+    void sameCellsAsXSSFWorkbook() throws Exception {
+        DataFormatter formatter = new DataFormatter();
+        try (XSSFWorkbook expected = new XSSFWorkbook(file);
+             StreamingReadWorkbook actual = new StreamingReadWorkbook(OPCPackage.open(file, PackageAccess.READ))) {
+            assertEquals(2, actual.getNumberOfSheets());
+            assertEquals("data", actual.getSheetName(0));
+            assertEquals(1, actual.getSheetIndex("HIDDEN"));
+            assertFalse(actual.isSheetHidden(0));
+            assertTrue(actual.isSheetHidden(1));
+
+            Iterator<Row> actualRows = actual.getSheetAt(0).iterator();
+            for (Row expectedRow : expected.getSheetAt(0)) {
+                Row actualRow = actualRows.next();
+                assertEquals(expectedRow.getRowNum(), actualRow.getRowNum());
+                assertEquals(expectedRow.getFirstCellNum(), actualRow.getFirstCellNum());
+                assertEquals(expectedRow.getLastCellNum(), actualRow.getLastCellNum());
+                assertEquals(expectedRow.getPhysicalNumberOfCells(), actualRow.getPhysicalNumberOfCells());
+                assertEquals(expectedRow.getZeroHeight(), actualRow.getZeroHeight());
+                assertEquals(expectedRow.getHeight(), actualRow.getHeight());
+                assertEquals(expectedRow.getHeightInPoints(), actualRow.getHeightInPoints(), 0);
+                assertEquals(expectedRow.isFormatted(), actualRow.isFormatted());
+                assertEquals(expectedRow.getOutlineLevel(), actualRow.getOutlineLevel());
+                if (expectedRow.isFormatted()) {
+                    assertEquals(expectedRow.getRowStyle().getIndex(), actualRow.getRowStyle().getIndex());
+                } else {
+                    assertNull(actualRow.getRowStyle());
+                }
+
+                Iterator<Cell> actualCells = actualRow.iterator();
+                for (Cell expectedCell : expectedRow) {
+                    Cell actualCell = actualCells.next();
+                    String ref = expectedCell.getAddress().formatAsString();
+                    assertEquals(expectedCell.getAddress(), actualCell.getAddress());
+                    assertEquals(expectedCell.getCellType(), actualCell.getCellType(), ref);
+                    assertEquals(expectedCell.toString(), actualCell.toString(), ref);
+                    assertEquals(formatter.formatCellValue(expectedCell), formatter.formatCellValue(actualCell), ref);
+                    assertEquals(expectedCell.getCellStyle().getDataFormatString(),
+                        actualCell.getCellStyle().getDataFormatString(), ref);
+                    if (expectedCell.getCellType() == CellType.FORMULA) {
+                        assertEquals(expectedCell.getCachedFormulaResultType(), actualCell.getCachedFormulaResultType());
+                    }
+                }
+                assertFalse(actualCells.hasNext());
+            }
+            assertFalse(actualRows.hasNext());
+        }
+    }
+
+    @Test
+    void sameSheetPropertiesAsXSSFWorkbook() throws Exception {
+        try (XSSFWorkbook expectedWb = new XSSFWorkbook(file);
+             StreamingReadWorkbook actualWb = new StreamingReadWorkbook(OPCPackage.open(file, PackageAccess.READ))) {
+            for (int i = 0; i < expectedWb.getNumberOfSheets(); i++) {
+                Sheet expected = expectedWb.getSheetAt(i);
+                Sheet actual = actualWb.getSheetAt(i);
+                assertEquals(expected.isSelected(), actual.isSelected());
+                assertEquals(expected.isRightToLeft(), actual.isRightToLeft());
+                assertEquals(expected.isDisplayGridlines(), actual.isDisplayGridlines());
+                assertEquals(expected.isDisplayZeros(), actual.isDisplayZeros());
+                assertEquals(expected.isDisplayFormulas(), actual.isDisplayFormulas());
+                assertEquals(expected.isDisplayRowColHeadings(), actual.isDisplayRowColHeadings());
+                assertEquals(expected.getAutobreaks(), actual.getAutobreaks());
+                assertEquals(expected.getDisplayGuts(), actual.getDisplayGuts());
+                assertEquals(expected.getFitToPage(), actual.getFitToPage());
+                assertEquals(expected.getRowSumsBelow(), actual.getRowSumsBelow());
+                assertEquals(expected.getRowSumsRight(), actual.getRowSumsRight());
+                assertEquals(expected.getDefaultRowHeight(), actual.getDefaultRowHeight());
+                assertEquals(expected.getDefaultRowHeightInPoints(), actual.getDefaultRowHeightInPoints(), 0);
+                assertEquals(expected.getDefaultColumnWidth(), actual.getDefaultColumnWidth());
+                assertEquals(expected.getTopRow(), actual.getTopRow());
+                assertEquals(expected.getLeftCol(), actual.getLeftCol());
+                for (int col = 0; col < 10; col++) {
+                    assertEquals(expected.getColumnWidth(col), actual.getColumnWidth(col));
+                    assertEquals(expected.getColumnWidthInPixels(col), actual.getColumnWidthInPixels(col), 0);
+                    assertEquals(expected.isColumnHidden(col), actual.isColumnHidden(col));
+                    assertEquals(expected.getColumnOutlineLevel(col), actual.getColumnOutlineLevel(col));
+                    assertEquals(expected.getColumnStyle(col).getIndex(), actual.getColumnStyle(col).getIndex());
+                }
+                assertEquals(expected.getCellComments().keySet(), actual.getCellComments().keySet());
+            }
+            // the values differ from the defaults
+            Sheet sheet = actualWb.getSheetAt(0);
+            assertTrue(sheet.isSelected());
+            assertFalse(sheet.isDisplayGridlines());
+            assertTrue(sheet.isColumnHidden(3));
+            assertEquals(1, sheet.getColumnOutlineLevel(5));
+            assertEquals(360, sheet.getDefaultRowHeight());
+            assertEquals("note", sheet.getCellComments().get(new CellAddress("B2")).getString().getString());
+            assertTrue(actualWb.getSheetAt(1).getCellComments().isEmpty());
+        }
+    }
+
+    @Test
+    void values() throws Exception {
+        try (Workbook wb = new StreamingReadWorkbook(OPCPackage.open(file, PackageAccess.READ), true)) {
+            Sheet sheet = wb.getSheet("data");
+            Row row = sheet.iterator().next();
+            assertEquals(0, row.getRowNum());
+            assertEquals(0.0, row.getCell(0).getNumericCellValue(), 0);
+            assertEquals("text 0", row.getCell(1).getStringCellValue());
+            assertTrue(row.getCell(2).getBooleanCellValue());
+            assertEquals(2009, row.getCell(4).getLocalDateTimeCellValue().getYear());
+            assertEquals("A1*2", row.getCell(5).getCellFormula());
+            assertEquals(FormulaError.DIV0.getCode(), row.getCell(6).getErrorCellValue());
+            assertThrows(IllegalStateException.class, () -> row.getCell(1).getNumericCellValue());
+
+            // missing and blank cells
+            assertNull(row.getCell(3));
+            assertEquals(CellType.BLANK, row.getCell(7).getCellType());
+            assertNull(row.getCell(7, MissingCellPolicy.RETURN_BLANK_AS_NULL));
+            assertEquals(CellType.BLANK, row.getCell(3, MissingCellPolicy.CREATE_NULL_AS_BLANK).getCellType());
+
+            // comments are loaded on demand
+            assertEquals("note", sheet.getCellComment(new CellAddress("B2")).getString().getString());
+            assertNull(row.getCell(1).getCellComment());
+
+            // every iteration starts a new pass over the sheet
+            int rows = 0;
+            int hiddenRows = 0;
+            for (Row r : sheet) {
+                assertNotNull(r.getCell(0));
+                rows++;
+                if (r.getZeroHeight()) {
+                    hiddenRows++;
+                }
+            }
+            assertEquals(43, rows);
+            assertEquals(1, hiddenRows);
+            assertEquals(Long.MAX_VALUE, sheet.spliterator().estimateSize());
+        }
+    }
+
+    @Test
+    void unsupported() throws Exception {
+        try (Workbook wb = new StreamingReadWorkbook(OPCPackage.open(file, PackageAccess.READ))) {
+            Sheet sheet = wb.getSheetAt(0);
+            assertThrows(UnsupportedOperationException.class, () -> sheet.getRow(0));
+            assertThrows(UnsupportedOperationException.class, () -> sheet.createRow(100));
+            // the merged regions follow the rows in the sheet part
+            assertThrows(UnsupportedOperationException.class, sheet::getMergedRegions);
+            assertThrows(UnsupportedOperationException.class, wb::createSheet);
+            Row row = sheet.iterator().next();
+            assertThrows(UnsupportedOperationException.class, () -> row.createCell(10));
+            assertThrows(UnsupportedOperationException.class, () -> row.getCell(0).setCellValue(1));
+            assertThrows(IllegalArgumentException.class, () -> wb.getSheetAt(2));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.junit.jupiter.api.Test;
+
+class TestTempFileSharedStringsTable {
+
+    @Test
+    void addAndRead() throws IOException {
+        try (TempFileSharedStringsTable sst = new TempFileSharedStringsTable(null, 2)) {
+            assertEquals(0, sst.addSharedStringItem(new XSSFRichTextString("a")));
+            assertEquals(1, sst.addSharedStringItem(new XSSFRichTextString(" b ")));
+            assertEquals(2, sst.addString("c"));
+            assertEquals(3, sst.addString("d"));
+            // "a" is not cached anymore and is found through the index
+            assertEquals(0, sst.addString("a"));
+            assertEquals(1, sst.addSharedStringItem(new XSSFRichTextString(" b ")));
+            assertEquals(6, sst.getCount());
+            assertEquals(4, sst.getUniqueCount());
+
+            assertEquals(" b ", sst.getItemAt(1).getString());
+            List<RichTextString> items = sst.getSharedStringItems();
+            assertEquals(4, items.size());
+            assertEquals("d", items.get(3).getString());
+            assertThrows(IndexOutOfBoundsException.class, () -> sst.getItemAt(4));
+        }
+    }
+
+    @Test
+    void manyStrings() throws IOException {
+        try (TempFileSharedStringsTable sst = new TempFileSharedStringsTable(null, 0)) {
+            final int size = 100_000;
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < size; i++) {
+                    assertEquals(i, sst.addString(Integer.toHexString(i * 31)));
+                }
+            }
+            // a long entry, which is larger than the write buffer
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 20_000; i++) {
+                sb.append("long ");
+            }
+            String longString = sb.toString();
+            assertEquals(size, sst.addString(longString));
+            assertEquals(size, sst.addString(longString));
+            assertEquals(size + 1, sst.getUniqueCount());
+            assertEquals(2 * size + 2, sst.getCount());
+            assertEquals(Integer.toHexString(31 * 12345), sst.getItemAt(12345).getString());
+            assertEquals(longString, sst.getItemAt(size).getString());
+        }
+    }
+
+    @Test
+    void writeTo() throws IOException {
+        try (SharedStringsTable template = new SharedStringsTable()) {
+            template.addSharedStringItem(new XSSFRichTextString("x"));
+            template.addSharedStringItem(new XSSFRichTextString("x"));
+            XSSFRichTextString rt = new XSSFRichTextString("rich");
+            rt.applyFont(0, 2, (short)1);
+            template.addSharedStringItem(rt);
+
+            TempFileSharedStringsTable sst = new TempFileSharedStringsTable(template);
+            assertEquals(2, sst.getUniqueCount());
+            assertEquals(0, sst.addString("x"));
+            assertEquals(2, sst.addString("y & z"));
+            assertTrue(sst.getItemAt(1).numFormattingRuns() > 0);
+
+            UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+            sst.writeTo(bos);
+            sst.close();
+            assertThrows(IllegalStateException.class, () -> sst.addString("x"));
+
+            SharedStringsTable read = new SharedStringsTable();
+            read.readFrom(bos.toInputStream());
+            assertEquals(5, read.getCount());
+            assertEquals(3, read.getUniqueCount());
+            assertEquals("x", read.getItemAt(0).getString());
+            assertEquals("rich", read.getItemAt(1).getString());
+            assertTrue(read.getItemAt(1).numFormattingRuns() > 0);
+            assertEquals("y & z", read.getItemAt(2).getString());
+        }
+    }
+}
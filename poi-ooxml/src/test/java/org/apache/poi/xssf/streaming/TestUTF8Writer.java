@@ -0,0 +1,113 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.junit.jupiter.api.Test;
+
+final class TestUTF8Writer {
+
+    @Test
+    void encodeLikeOutputStreamWriter() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        Random rnd = new Random(1234);
+        for (int i = 0; i < 100_000; i++) {
+            switch (rnd.nextInt(5)) {
+                case 0:
+                    sb.append((char) rnd.nextInt(0x80));
+                    break;
+                case 1:
+                    sb.append((char) (0x80 + rnd.nextInt(0x780)));
+                    break;
+                case 2:
+                    sb.append((char) (0x800 + rnd.nextInt(0xD000)));
+                    break;
+                default:
+                    sb.appendCodePoint(0x10000 + rnd.nextInt(0x100000));
+                    break;
+            }
+        }
+        String text = sb.toString();
+
+        // split the text at odd positions to cut surrogate pairs
+        assertArrayEquals(encode(text, 1), encodeUTF8Writer(text, 1));
+        assertArrayEquals(encode(text, 7), encodeUTF8Writer(text, 7));
+        assertArrayEquals(encode(text, 4099), encodeUTF8Writer(text, 4099));
+    }
+
+    @Test
+    void unpairedSurrogates() throws IOException {
+        String text = "a\uD835b\uDF4Ac𝝊\uDF4A\uD835";
+        assertArrayEquals(encode(text, text.length()), encodeUTF8Writer(text, text.length()));
+    }
+
+    @Test
+    void writeAfterClose() throws IOException {
+        Writer writer = new UTF8Writer(new UnsynchronizedByteArrayOutputStream());
+        writer.close();
+        // closing twice is allowed
+        writer.close();
+        assertThrows(IOException.class, () -> writer.write("a"));
+        assertThrows(IOException.class, writer::flush);
+    }
+
+    private static byte[] encode(String text, int chunk) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(bos, StandardCharsets.UTF_8)) {
+            write(writer, text, chunk);
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] encodeUTF8Writer(String text, int chunk) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (Writer writer = new UTF8Writer(bos)) {
+            write(writer, text, chunk);
+        }
+        return bos.toByteArray();
+    }
+
+    private static void write(Writer writer, String text, int chunk) throws IOException {
+        char[] chars = text.toCharArray();
+        for (int i = 0, n = 0; i < text.length(); i += chunk, n++) {
+            int len = Math.min(chunk, text.length() - i);
+            switch (n % 3) {
+                case 0:
+                    writer.write(text, i, len);
+                    break;
+                case 1:
+                    writer.write(chars, i, len);
+                    break;
+                default:
+                    for (int j = 0; j < len; j++) {
+                        writer.write(chars[i + j]);
+                    }
+                    break;
+            }
+        }
+    }
+}
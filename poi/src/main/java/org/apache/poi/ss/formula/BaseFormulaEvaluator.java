@@ -17,7 +17,13 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
@@ -34,6 +40,9 @@ import org.apache.poi.ss.usermodel.Workbook;
 public abstract class BaseFormulaEvaluator implements FormulaEvaluator, WorkbookEvaluatorProvider {
     protected final WorkbookEvaluator _bookEvaluator;
 
+    /** the formula cells of the dependency graph of {@link #evaluateDependents(Workbook, Collection)} */
+    private List<Cell> _dependencyGraphCells;
+
     protected BaseFormulaEvaluator(WorkbookEvaluator bookEvaluator) {
         this._bookEvaluator = bookEvaluator;
     }
@@ -281,6 +290,132 @@ public abstract class BaseFormulaEvaluator implements FormulaEvaluator, Workbook
         }
     }
 
+    /**
+     * Loops over all cells in all sheets of the supplied workbook and evaluates the formula cells
+     * like {@link #evaluateAllFormulaCells(Workbook)}, but evaluates independent formula cells
+     * in parallel in the given pool.<p>
+     *
+     * The formula cells are ordered into levels by the cells and areas they reference, so that
+     * the cells of one level only depend on cells of lower levels. Cells in circular references
+     * or depending on INDIRECT or OFFSET are evaluated sequentially after the other cells.
+     * The results are saved in the cells in the calling thread.
+     *
+     * @param wb the workbook to evaluate
+     * @param pool the pool to evaluate the formula cells in, or {@code null} to evaluate sequentially
+     *
+     * @since POI 5.2.3
+     */
+    public static void evaluateAllFormulaCells(Workbook wb, ForkJoinPool pool) {
+        FormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+        if (evaluator instanceof BaseFormulaEvaluator) {
+            evaluateAllFormulaCells(wb, (BaseFormulaEvaluator) evaluator, pool);
+        } else {
+            evaluateAllFormulaCells(wb, evaluator);
+        }
+    }
+
+    protected static void evaluateAllFormulaCells(Workbook wb, BaseFormulaEvaluator evaluator, ForkJoinPool pool) {
+        List<Cell> formulaCells = new ArrayList<>();
+        List<EvaluationCell> evalCells = new ArrayList<>();
+        collectFormulaCells(wb, evaluator.getEvaluationWorkbook(), formulaCells, evalCells);
+
+        evaluator._bookEvaluator.evaluateAll(evalCells, pool);
+
+        // the results are cached now, so this only stores them in the cells
+        for (Cell c : formulaCells) {
+            evaluator.evaluateFormulaCell(c);
+        }
+    }
+
+    private static void collectFormulaCells(Workbook wb, EvaluationWorkbook evalWorkbook,
+                                            List<Cell> formulaCells, List<EvaluationCell> evalCells) {
+        for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+            Sheet sheet = wb.getSheetAt(i);
+            // also builds the cell caches of the evaluation sheet, which are only read afterwards
+            EvaluationSheet evalSheet = evalWorkbook.getSheet(i);
+            evalSheet.getCell(0, 0);
+
+            for (Row r : sheet) {
+                for (Cell c : r) {
+                    if (c.getCellType() == CellType.FORMULA) {
+                        EvaluationCell evalCell = evalSheet.getCell(c.getRowIndex(), c.getColumnIndex());
+                        if (evalCell != null) {
+                            formulaCells.add(c);
+                            evalCells.add(evalCell);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Recalculates the formula cells, which depend on the given changed cells, and saves their results
+     * in the cells.<p>
+     *
+     * On the first call, the dependencies of all formula cells of the workbook are determined from
+     * the cells, areas and names referenced by the formulas, and all formula cells are evaluated.
+     * Subsequent calls only recalculate the transitive dependents of the changed cells and the cells
+     * using INDIRECT or OFFSET. When formulas are changed or the cached values are cleared, the
+     * dependencies are determined again on the next call.
+     *
+     * @param wb the workbook of this evaluator
+     * @param changedCells the cells, whose values were changed since the last evaluation
+     * @return the formula cells, whose values have changed, or all formula cells, if the dependencies
+     * were (re-)built
+     */
+    protected Set<Cell> evaluateDependents(Workbook wb, Collection<? extends Cell> changedCells) {
+        EvaluationWorkbook evalWorkbook = getEvaluationWorkbook();
+        List<EvaluationCell> changedEvalCells = new ArrayList<>(changedCells.size());
+        for (Cell cell : changedCells) {
+            EvaluationSheet evalSheet = evalWorkbook.getSheet(wb.getSheetIndex(cell.getSheet()));
+            EvaluationCell evalCell = evalSheet.getCell(cell.getRowIndex(), cell.getColumnIndex());
+            if (evalCell != null) {
+                _bookEvaluator.notifyUpdateCell(evalCell);
+                changedEvalCells.add(evalCell);
+            }
+        }
+
+        if (_dependencyGraphCells == null || !_bookEvaluator.hasDependencyGraph()) {
+            List<Cell> formulaCells = new ArrayList<>();
+            List<EvaluationCell> evalCells = new ArrayList<>();
+            collectFormulaCells(wb, evalWorkbook, formulaCells, evalCells);
+            _bookEvaluator.buildDependencyGraph(evalCells);
+            _dependencyGraphCells = formulaCells;
+            for (Cell c : formulaCells) {
+                evaluateFormulaCell(c);
+            }
+            return new LinkedHashSet<>(formulaCells);
+        }
+
+        Set<Cell> result = new LinkedHashSet<>();
+        for (int node : _bookEvaluator.evaluateDependents(changedEvalCells)) {
+            Cell c = _dependencyGraphCells.get(node);
+            evaluateFormulaCell(c);
+            result.add(c);
+        }
+        return result;
+    }
+
+    /**
+     * Whether to compile the formulas of the evaluated cells instead of interpreting their tokens
+     * on each evaluation. This speeds up the repeated evaluation of the same formulas with changed
+     * inputs, e.g. in combination with {@link #notifyUpdateCell(Cell)}.<p>
+     *
+     * The compiled formula of a cell is kept until {@link #notifyUpdateCell(Cell)} or
+     * {@link #clearAllCachedResultValues()} is called - changing a formula, e.g. with
+     * {@link Cell#setCellFormula(String)}, doesn't invalidate it. Callers must call
+     * {@link #notifyUpdateCell(Cell)} after changing a formula, otherwise the old compiled formula
+     * is evaluated.
+     *
+     * @param compile whether to compile the formulas, the default is {@code false}
+     *
+     * @since POI 5.2.3
+     */
+    public void setCompileFormulas(boolean compile) {
+        _bookEvaluator.setCompileFormulas(compile);
+    }
+
     @Override
     public void setIgnoreMissingWorkbooks(boolean ignore){
         _bookEvaluator.setIgnoreMissingWorkbooks(ignore);
@@ -32,7 +32,7 @@ abstract class CellCacheEntry implements ICacheEntry {
     public static final CellCacheEntry[] EMPTY_ARRAY = { };
 
     private final FormulaCellCacheEntrySet _consumingCells;
-    private ValueEval _value;
+    private volatile ValueEval _value;
 
 
     protected CellCacheEntry() {
@@ -0,0 +1,486 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.EvaluationException;
+import org.apache.poi.ss.formula.eval.FunctionEval;
+import org.apache.poi.ss.formula.eval.MissingArgEval;
+import org.apache.poi.ss.formula.eval.NotImplementedException;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.RefListEval;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.function.FunctionMetadataRegistry;
+import org.apache.poi.ss.formula.functions.ArrayFunction;
+import org.apache.poi.ss.formula.functions.ArrayMode;
+import org.apache.poi.ss.formula.functions.Function;
+import org.apache.poi.ss.formula.functions.IfFunc;
+import org.apache.poi.ss.formula.functions.NotImplementedFunction;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.AreaPtg;
+import org.apache.poi.ss.formula.ptg.ArrayPtg;
+import org.apache.poi.ss.formula.ptg.AttrPtg;
+import org.apache.poi.ss.formula.ptg.BoolPtg;
+import org.apache.poi.ss.formula.ptg.ControlPtg;
+import org.apache.poi.ss.formula.ptg.ErrPtg;
+import org.apache.poi.ss.formula.ptg.FuncVarPtg;
+import org.apache.poi.ss.formula.ptg.IntPtg;
+import org.apache.poi.ss.formula.ptg.MemAreaPtg;
+import org.apache.poi.ss.formula.ptg.MemErrPtg;
+import org.apache.poi.ss.formula.ptg.MemFuncPtg;
+import org.apache.poi.ss.formula.ptg.MissingArgPtg;
+import org.apache.poi.ss.formula.ptg.NumberPtg;
+import org.apache.poi.ss.formula.ptg.OperationPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Pxg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
+import org.apache.poi.ss.formula.ptg.StringPtg;
+import org.apache.poi.ss.formula.ptg.UnionPtg;
+import org.apache.poi.util.LittleEndianByteArrayOutputStream;
+
+/**
+ * A cell formula compiled from its RPN tokens to a tree of evaluation nodes, so that repeated
+ * evaluations don't need to interpret the tokens again.<p>
+ *
+ * References to the same sheet are compiled relative to the formula cell, where the reference
+ * itself is relative. So copied and shared formulas, which only differ by their relative
+ * references, share one compiled formula, see {@link #createKey(Ptg[], int, int)}.<p>
+ *
+ * The nodes follow the semantics of {@link WorkbookEvaluator#evaluateFormula(OperationEvaluationContext, Ptg[])},
+ * including the short-circuit evaluation of optimized IFs. Formulas with optimized CHOOSE tokens
+ * are not compiled.
+ */
+final class CompiledFormula {
+    private final Node _root;
+
+    private CompiledFormula(Node root) {
+        _root = root;
+    }
+
+    /**
+     * @param ptgs the tokens of the formula
+     * @param rowIndex the row of the formula cell
+     * @param columnIndex the column of the formula cell
+     * @return the compiled formula, or {@code null} if the tokens can't be compiled
+     */
+    static CompiledFormula compile(Ptg[] ptgs, int rowIndex, int columnIndex) {
+        List<Node> stack = new ArrayList<>();
+        // the stack sizes at the optimized IFs, to match them with their IF function
+        List<Integer> ifPositions = new ArrayList<>();
+        for (int i = 0; i < ptgs.length; i++) {
+            Ptg ptg = ptgs[i];
+            if (ptg instanceof AttrPtg) {
+                AttrPtg attrPtg = (AttrPtg) ptg;
+                if (attrPtg.isOptimizedChoose()) {
+                    return null;
+                }
+                if (attrPtg.isOptimizedIf()) {
+                    if (stack.isEmpty()) {
+                        return null;
+                    }
+                    ifPositions.add(stack.size() - 1);
+                    continue;
+                }
+                if (attrPtg.isSum()) {
+                    ptg = FuncVarPtg.SUM;
+                }
+            }
+            if (ptg instanceof ControlPtg || ptg instanceof MemFuncPtg
+                    || ptg instanceof MemAreaPtg || ptg instanceof MemErrPtg) {
+                continue;
+            }
+
+            if (ptg instanceof UnionPtg) {
+                if (stack.size() < 2) {
+                    return null;
+                }
+                Node right = stack.remove(stack.size() - 1);
+                Node left = stack.remove(stack.size() - 1);
+                stack.add(new UnionNode(left, right));
+                continue;
+            }
+
+            if (ptg instanceof OperationPtg) {
+                OperationPtg optg = (OperationPtg) ptg;
+                int numops = optg.getNumberOfOperands();
+                if (stack.size() < numops) {
+                    return null;
+                }
+                Node[] operands = new Node[numops];
+                for (int j = numops - 1; j >= 0; j--) {
+                    operands[j] = stack.remove(stack.size() - 1);
+                }
+                boolean arrayModeFunction = isArrayModeFunctionAhead(ptgs, i);
+                int position = stack.size();
+                if (isIf(optg) && !ifPositions.isEmpty() && ifPositions.get(ifPositions.size() - 1) == position) {
+                    ifPositions.remove(ifPositions.size() - 1);
+                    stack.add(new IfNode(optg, operands, arrayModeFunction));
+                } else {
+                    stack.add(new OperationNode(optg, operands, arrayModeFunction));
+                }
+                continue;
+            }
+
+            stack.add(createOperandNode(ptg, rowIndex, columnIndex));
+        }
+        return (stack.size() == 1 && ifPositions.isEmpty()) ? new CompiledFormula(stack.get(0)) : null;
+    }
+
+    /**
+     * Creates the key of the compiled formula: the tokens with relative references to the same sheet
+     * replaced by their offsets to the formula cell
+     */
+    static String createKey(Ptg[] ptgs, int rowIndex, int columnIndex) {
+        StringBuilder key = new StringBuilder(ptgs.length * 8);
+        for (Ptg ptg : ptgs) {
+            key.append(ptg.getClass().getSimpleName()).append('(');
+            if (ptg instanceof RefPtg) {
+                RefPtg ref = (RefPtg) ptg;
+                appendCoordinate(key, ref.getRow(), rowIndex, ref.isRowRelative());
+                appendCoordinate(key, ref.getColumn(), columnIndex, ref.isColRelative());
+            } else if (ptg instanceof AreaPtg) {
+                AreaPtg area = (AreaPtg) ptg;
+                appendCoordinate(key, area.getFirstRow(), rowIndex, area.isFirstRowRelative());
+                appendCoordinate(key, area.getFirstColumn(), columnIndex, area.isFirstColRelative());
+                appendCoordinate(key, area.getLastRow(), rowIndex, area.isLastRowRelative());
+                appendCoordinate(key, area.getLastColumn(), columnIndex, area.isLastColRelative());
+            } else if (ptg instanceof ArrayPtg || ptg instanceof Pxg) {
+                // the array values and the sheet names of these aren't written with the token
+                key.append(ptg.toFormulaString());
+            } else {
+                byte[] data = new byte[ptg.getSize()];
+                ptg.write(new LittleEndianByteArrayOutputStream(data, 0));
+                for (byte b : data) {
+                    key.append((char) (b & 0xFF));
+                }
+            }
+            key.append(')');
+        }
+        return key.toString();
+    }
+
+    private static void appendCoordinate(StringBuilder key, int value, int base, boolean relative) {
+        if (relative) {
+            key.append('r').append(value - base);
+        } else {
+            key.append('a').append(value);
+        }
+        key.append(',');
+    }
+
+    /**
+     * Evaluates the formula for the cell of the given context
+     *
+     * @param arrayFormulaGroup whether the formula cell is part of an array formula, which disables
+     *                          the short-circuit evaluation of IF
+     */
+    ValueEval evaluate(WorkbookEvaluator evaluator, OperationEvaluationContext ec, boolean arrayFormulaGroup) {
+        return _root.evaluate(new Context(evaluator, ec, arrayFormulaGroup));
+    }
+
+    private static boolean isIf(OperationPtg ptg) {
+        return ptg instanceof FuncVarPtg && ((FuncVarPtg) ptg).getFunctionIndex() == FunctionMetadataRegistry.FUNCTION_INDEX_IF;
+    }
+
+    /**
+     * Same check as in the interpreter: the array mode depends on the next variable argument function
+     */
+    private static boolean isArrayModeFunctionAhead(Ptg[] ptgs, int index) {
+        for (int i = index; i < ptgs.length; i++) {
+            if (ptgs[i] instanceof FuncVarPtg) {
+                try {
+                    return FunctionEval.getBasicFunction(((FuncVarPtg) ptgs[i]).getFunctionIndex()) instanceof ArrayMode;
+                } catch (NotImplementedException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Node createOperandNode(Ptg ptg, int rowIndex, int columnIndex) {
+        if (ptg instanceof IntPtg) {
+            return new ConstantNode(new NumberEval(((IntPtg) ptg).getValue()));
+        }
+        if (ptg instanceof NumberPtg) {
+            return new ConstantNode(new NumberEval(((NumberPtg) ptg).getValue()));
+        }
+        if (ptg instanceof StringPtg) {
+            return new ConstantNode(new StringEval(((StringPtg) ptg).getValue()));
+        }
+        if (ptg instanceof BoolPtg) {
+            return new ConstantNode(BoolEval.valueOf(((BoolPtg) ptg).getValue()));
+        }
+        if (ptg instanceof ErrPtg) {
+            return new ConstantNode(ErrorEval.valueOf(((ErrPtg) ptg).getErrorCode()));
+        }
+        if (ptg instanceof MissingArgPtg) {
+            return new ConstantNode(MissingArgEval.instance);
+        }
+        if (ptg instanceof RefPtg) {
+            RefPtg ref = (RefPtg) ptg;
+            return new RefNode(
+                    new Coordinate(ref.getRow(), rowIndex, ref.isRowRelative()),
+                    new Coordinate(ref.getColumn(), columnIndex, ref.isColRelative()));
+        }
+        if (ptg instanceof AreaPtg) {
+            AreaPtg area = (AreaPtg) ptg;
+            return new AreaNode(
+                    new Coordinate(area.getFirstRow(), rowIndex, area.isFirstRowRelative()),
+                    new Coordinate(area.getFirstColumn(), columnIndex, area.isFirstColRelative()),
+                    new Coordinate(area.getLastRow(), rowIndex, area.isLastRowRelative()),
+                    new Coordinate(area.getLastColumn(), columnIndex, area.isLastColRelative()));
+        }
+        // names, 3D references, arrays, ... are evaluated like in the interpreter
+        return new PtgNode(ptg);
+    }
+
+    /**
+     * The state of one evaluation
+     */
+    private static final class Context {
+        private final WorkbookEvaluator _evaluator;
+        private final OperationEvaluationContext _ec;
+        private final boolean _arrayFormulaGroup;
+
+        Context(WorkbookEvaluator evaluator, OperationEvaluationContext ec, boolean arrayFormulaGroup) {
+            _evaluator = evaluator;
+            _ec = ec;
+            _arrayFormulaGroup = arrayFormulaGroup;
+        }
+    }
+
+    /**
+     * A row or column of a reference, either absolute or as offset to the formula cell
+     */
+    private static final class Coordinate {
+        private final int _value;
+        private final boolean _relative;
+
+        Coordinate(int value, int base, boolean relative) {
+            _value = relative ? value - base : value;
+            _relative = relative;
+        }
+
+        int resolve(int base) {
+            return _relative ? base + _value : _value;
+        }
+    }
+
+    private abstract static class Node {
+        abstract ValueEval evaluate(Context context);
+    }
+
+    private static final class ConstantNode extends Node {
+        private final ValueEval _value;
+
+        ConstantNode(ValueEval value) {
+            _value = value;
+        }
+
+        @Override
+        ValueEval evaluate(Context context) {
+            return _value;
+        }
+    }
+
+    private static final class RefNode extends Node {
+        private final Coordinate _row;
+        private final Coordinate _column;
+
+        RefNode(Coordinate row, Coordinate column) {
+            _row = row;
+            _column = column;
+        }
+
+        @Override
+        ValueEval evaluate(Context context) {
+            OperationEvaluationContext ec = context._ec;
+            return ec.getRefEval(_row.resolve(ec.getRowIndex()), _column.resolve(ec.getColumnIndex()));
+        }
+    }
+
+    private static final class AreaNode extends Node {
+        private final Coordinate _firstRow;
+        private final Coordinate _firstColumn;
+        private final Coordinate _lastRow;
+        private final Coordinate _lastColumn;
+
+        AreaNode(Coordinate firstRow, Coordinate firstColumn, Coordinate lastRow, Coordinate lastColumn) {
+            _firstRow = firstRow;
+            _firstColumn = firstColumn;
+            _lastRow = lastRow;
+            _lastColumn = lastColumn;
+        }
+
+        @Override
+        ValueEval evaluate(Context context) {
+            OperationEvaluationContext ec = context._ec;
+            int row = ec.getRowIndex();
+            int column = ec.getColumnIndex();
+            return ec.getAreaEval(_firstRow.resolve(row), _firstColumn.resolve(column),
+                    _lastRow.resolve(row), _lastColumn.resolve(column));
+        }
+    }
+
+    private static final class PtgNode extends Node {
+        private final Ptg _ptg;
+
+        PtgNode(Ptg ptg) {
+            _ptg = ptg;
+        }
+
+        @Override
+        ValueEval evaluate(Context context) {
+            return context._evaluator.getEvalForPtg(_ptg, context._ec);
+        }
+    }
+
+    private static final class UnionNode extends Node {
+        private final Node _left;
+        private final Node _right;
+
+        UnionNode(Node left, Node right) {
+            _left = left;
+            _right = right;
+        }
+
+        @Override
+        ValueEval evaluate(Context context) {
+            ValueEval v1 = _left.evaluate(context);
+            ValueEval v2 = _right.evaluate(context);
+            return new RefListEval(v1, v2);
+        }
+    }
+
+    private static class OperationNode extends Node {
+        private final OperationPtg _ptg;
+        final Node[] _operands;
+        private final boolean _arrayModeFunction;
+        /** the function resolved at compile time, or {@code null} to resolve it on each evaluation */
+        private final Function _function;
+
+        OperationNode(OperationPtg ptg, Node[] operands, boolean arrayModeFunction) {
+            _ptg = ptg;
+            _operands = operands;
+            _arrayModeFunction = arrayModeFunction;
+            _function = resolveFunction(ptg);
+        }
+
+        private static Function resolveFunction(OperationPtg ptg) {
+            if (!(ptg instanceof AbstractFunctionPtg)) {
+                return null;
+            }
+            int functionIndex = ((AbstractFunctionPtg) ptg).getFunctionIndex();
+            try {
+                Function function = FunctionEval.getBasicFunction(functionIndex);
+                // not implemented functions can still be registered later on
+                return (function instanceof NotImplementedFunction) ? null : function;
+            } catch (NotImplementedException e) {
+                return null;
+            }
+        }
+
+        @Override
+        ValueEval evaluate(Context context) {
+            ValueEval[] ops = new ValueEval[_operands.length];
+            boolean areaArg = false;
+            for (int j = 0; j < ops.length; j++) {
+                ValueEval p = _operands[j].evaluate(context);
+                ops[j] = p;
+                if (p instanceof AreaEval) {
+                    areaArg = true;
+                }
+            }
+            return invoke(context, ops, areaArg && _arrayModeFunction);
+        }
+
+        boolean isArrayModeFunction() {
+            return _arrayModeFunction;
+        }
+
+        ValueEval invoke(Context context, ValueEval[] ops, boolean arrayMode) {
+            OperationEvaluationContext ec = context._ec;
+            ec.setArrayMode(arrayMode);
+            ValueEval result;
+            try {
+                if (_function == null) {
+                    result = OperationEvaluatorFactory.evaluate(_ptg, ops, ec);
+                } else {
+                    result = null;
+                    if (_function instanceof ArrayFunction) {
+                        result = OperationEvaluatorFactory.evaluateArrayFunction((ArrayFunction) _function, ops, ec);
+                    }
+                    if (result == null) {
+                        result = _function.evaluate(ops, ec.getRowIndex(), ec.getColumnIndex());
+                    }
+                }
+            } finally {
+                ec.setArrayMode(false);
+            }
+            if (result == null) {
+                throw new RuntimeException("Evaluation result must not be null");
+            }
+            return result;
+        }
+    }
+
+    /**
+     * An IF with the optimized tokens of the formula parser, which only evaluates the selected argument
+     */
+    private static final class IfNode extends OperationNode {
+        IfNode(OperationPtg ptg, Node[] operands, boolean arrayModeFunction) {
+            super(ptg, operands, arrayModeFunction);
+        }
+
+        @Override
+        ValueEval evaluate(Context context) {
+            if (context._arrayFormulaGroup) {
+                // the interpreter ignores the optimized tokens in array formulas
+                return super.evaluate(context);
+            }
+            OperationEvaluationContext ec = context._ec;
+            ValueEval arg0 = _operands[0].evaluate(context);
+            boolean predicate;
+            try {
+                predicate = IfFunc.evaluateFirstArg(arg0, ec.getRowIndex(), ec.getColumnIndex());
+            } catch (EvaluationException e) {
+                return e.getErrorEval();
+            }
+            if (predicate) {
+                return toBlank(_operands[1].evaluate(context));
+            }
+            if (_operands.length == 2) {
+                // without a false argument, the interpreter calls IF(arg0, FALSE)
+                return invoke(context, new ValueEval[]{ arg0, BoolEval.FALSE }, arg0 instanceof AreaEval && isArrayModeFunction());
+            }
+            return toBlank(_operands[2].evaluate(context));
+        }
+
+        private static ValueEval toBlank(ValueEval value) {
+            return (value == MissingArgEval.instance) ? BlankEval.instance : value;
+        }
+    }
+}
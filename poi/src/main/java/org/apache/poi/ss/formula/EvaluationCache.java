@@ -17,6 +17,9 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.poi.ss.formula.FormulaCellCache.IEntryOperation;
 import org.apache.poi.ss.formula.FormulaUsedBlankCellSet.BookSheetKey;
 import org.apache.poi.ss.formula.PlainCellCache.Loc;
@@ -32,11 +35,16 @@ import org.apache.poi.ss.usermodel.CellType;
  * Performance optimisation for {@link org.apache.poi.ss.usermodel.FormulaEvaluator}.
  * This class stores previously calculated values of already visited cells,
  * to avoid unnecessary re-calculation when the same cells are referenced multiple times
+ * <p>
+ * The cache can be used by several threads of a parallel recalculation: the entries are held
+ * in concurrent maps and the dependencies between the entries are only modified while holding
+ * the lock of this cache.
  */
 final class EvaluationCache {
 
     private final PlainCellCache _plainCellCache;
     private final FormulaCellCache _formulaCellCache;
+    private final Map<LookupIndexCacheEntry.Key, LookupIndexCacheEntry> _lookupIndexCache;
     /** only used for testing. <code>null</code> otherwise */
     final IEvaluationListener _evaluationListener;
 
@@ -44,9 +52,10 @@ final class EvaluationCache {
         _evaluationListener = evaluationListener;
         _plainCellCache = new PlainCellCache();
         _formulaCellCache = new FormulaCellCache();
+        _lookupIndexCache = new ConcurrentHashMap<>();
     }
 
-    public void notifyUpdateCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
+    public synchronized void notifyUpdateCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
         FormulaCellCacheEntry fcce = _formulaCellCache.get(cell);
 
         int rowIndex = cell.getRowIndex();
@@ -69,6 +78,8 @@ final class EvaluationCache {
             } else {
                 fcce.recurseClearCachedFormulaResults(_evaluationListener);
                 fcce.clearFormulaEntry();
+                // the formula itself may have changed
+                fcce.setCompiledFormula(null);
             }
             if (pcce == null) {
                 // was formula cell before - no change of type
@@ -117,6 +128,9 @@ final class EvaluationCache {
             final int rowIndex, final int columnIndex) {
         final BookSheetKey bsk = new BookSheetKey(bookIndex, sheetIndex);
         _formulaCellCache.applyOperation(entry -> entry.notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, _evaluationListener));
+        for (LookupIndexCacheEntry entry : _lookupIndexCache.values()) {
+            entry.notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, _evaluationListener);
+        }
     }
 
     public PlainValueCellCacheEntry getPlainValueEntry(int bookIndex, int sheetIndex,
@@ -124,9 +138,13 @@ final class EvaluationCache {
 
         Loc loc = new Loc(bookIndex, sheetIndex, rowIndex, columnIndex);
         PlainValueCellCacheEntry result = _plainCellCache.get(loc);
+        PlainValueCellCacheEntry created = null;
+        if (result == null) {
+            created = new PlainValueCellCacheEntry(value);
+            result = _plainCellCache.putIfAbsent(loc, created);
+        }
         if (result == null) {
-            result = new PlainValueCellCacheEntry(value);
-            _plainCellCache.put(loc, result);
+            result = created;
             if (_evaluationListener != null) {
                 _evaluationListener.onReadPlainValue(sheetIndex, rowIndex, columnIndex, result);
             }
@@ -168,27 +186,42 @@ final class EvaluationCache {
         throw new IllegalStateException("Unexpected value class (" + cls.getName() + ")");
     }
 
+    /**
+     * @return the cache entry of the lookup index of the given area
+     */
+    public LookupIndexCacheEntry getOrCreateLookupIndexEntry(int bookIndex, int sheetIndex,
+            int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        LookupIndexCacheEntry.Key key = new LookupIndexCacheEntry.Key(bookIndex, sheetIndex,
+                firstRow, firstColumn, lastRow, lastColumn);
+        return _lookupIndexCache.computeIfAbsent(key, k -> new LookupIndexCacheEntry());
+    }
+
     public FormulaCellCacheEntry getOrCreateFormulaCellEntry(EvaluationCell cell) {
         FormulaCellCacheEntry result = _formulaCellCache.get(cell);
-        if (result == null) {
+        return (result != null) ? result : _formulaCellCache.getOrCreate(cell);
+    }
 
-            result = new FormulaCellCacheEntry();
-            _formulaCellCache.put(cell, result);
+    /**
+     * Stores the result of a formula evaluation and links the entry with its input cells
+     */
+    void updateFormulaResult(CellEvaluationFrame frame, ValueEval result) {
+        synchronized (this) {
+            frame.updateFormulaResult(result);
         }
-        return result;
     }
 
     /**
      * Should be called whenever there are changes to input cells in the evaluated workbook.
      */
-    public void clear() {
+    public synchronized void clear() {
         if(_evaluationListener != null) {
             _evaluationListener.onClearWholeCache();
         }
         _plainCellCache.clear();
         _formulaCellCache.clear();
+        _lookupIndexCache.clear();
     }
-    public void notifyDeleteCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
+    public synchronized void notifyDeleteCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
 
         if (cell.getCellType() == CellType.FORMULA) {
             FormulaCellCacheEntry fcce = _formulaCellCache.remove(cell);
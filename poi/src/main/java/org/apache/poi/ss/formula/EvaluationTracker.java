@@ -88,7 +88,7 @@ final class EvaluationTracker {
             return;
         }
 
-        frame.updateFormulaResult(result);
+        _cache.updateFormulaResult(frame, result);
     }
 
     /**
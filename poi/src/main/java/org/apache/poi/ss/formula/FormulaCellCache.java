@@ -17,9 +17,9 @@
 
 package org.apache.poi.ss.formula;
 
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 final class FormulaCellCache {
 
@@ -31,7 +31,7 @@ final class FormulaCellCache {
 
     public FormulaCellCache() {
         // assumes the object returned by EvaluationCell.getIdentityKey() has a well behaved hashCode+equals
-        _formulaEntriesByCell = new HashMap<>();
+        _formulaEntriesByCell = new ConcurrentHashMap<>();
     }
 
     public CellCacheEntry[] getCacheEntries() {
@@ -52,6 +52,13 @@ final class FormulaCellCache {
         return _formulaEntriesByCell.get(cell.getIdentityKey());
     }
 
+    /**
+     * Atomically looks up or creates the entry of the given cell
+     */
+    public FormulaCellCacheEntry getOrCreate(EvaluationCell cell) {
+        return _formulaEntriesByCell.computeIfAbsent(cell.getIdentityKey(), k -> new FormulaCellCacheEntry());
+    }
+
     public void put(EvaluationCell cell, FormulaCellCacheEntry entry) {
         _formulaEntriesByCell.put(cell.getIdentityKey(), entry);
     }
@@ -29,16 +29,19 @@ import org.apache.poi.ss.formula.FormulaUsedBlankCellSet.BookSheetKey;
 /**
  * Stores the cached result of a formula evaluation, along with the set of sensitive input cells
  */
-final class FormulaCellCacheEntry extends CellCacheEntry {
+class FormulaCellCacheEntry extends CellCacheEntry {
     
     /**
      * Cells 'used' in the current evaluation of the formula corresponding to this cache entry
      *
      * If any of the following cells change, this cache entry needs to be cleared
      */
-    private CellCacheEntry[] _sensitiveInputCells;
+    private volatile CellCacheEntry[] _sensitiveInputCells;
 
-    private FormulaUsedBlankCellSet _usedBlankCellGroup;
+    private volatile FormulaUsedBlankCellSet _usedBlankCellGroup;
+
+    /** the compiled formula of the cell, or {@code null} if it isn't compiled (yet) */
+    private volatile CompiledFormula _compiledFormula;
 
     public FormulaCellCacheEntry() {
         // leave fields un-set
@@ -75,6 +78,14 @@ final class FormulaCellCacheEntry extends CellCacheEntry {
         _sensitiveInputCells = null;
         clearValue();
     }
+
+    public CompiledFormula getCompiledFormula() {
+        return _compiledFormula;
+    }
+
+    public void setCompiledFormula(CompiledFormula compiledFormula) {
+        _compiledFormula = compiledFormula;
+    }
     
     private void changeConsumingCells(CellCacheEntry[] usedCells) {
 
@@ -0,0 +1,567 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+import org.apache.poi.ss.formula.EvaluationWorkbook.ExternalSheet;
+import org.apache.poi.ss.formula.EvaluationWorkbook.ExternalSheetRange;
+import org.apache.poi.ss.formula.function.FunctionMetadataRegistry;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Pxg;
+import org.apache.poi.ss.formula.ptg.Pxg3D;
+import org.apache.poi.ss.formula.ptg.RefPtgBase;
+
+/**
+ * The dependencies between the formula cells of a workbook, as far as they can be determined
+ * from the parsed formula tokens, i.e. the cell and area references of the formulas and of the
+ * named ranges used by them.
+ * <p>
+ * The formula cells are assigned to levels: a cell of level 1 only references plain value cells,
+ * a cell of level n references formula cells of levels below n. So the cells of one level can be
+ * evaluated independently of each other, once the lower levels have been evaluated.
+ * <p>
+ * The precedents of cells using INDIRECT or OFFSET can't be determined statically and circular
+ * references can't be leveled. Those cells and all cells depending on them are assigned to the
+ * {@link #SEQUENTIAL_LEVEL}, which needs to be evaluated last and in a single thread.
+ * <p>
+ * Area references aren't expanded to edges to each formula cell in the area. The formula cells are
+ * indexed by column instead and the maximum level of the cells in a row range is looked up in
+ * a segment tree, so running totals like {@code SUM($A$1:A1000)} don't lead to quadratic effort.
+ * <p>
+ * For an incremental recalculation, the referenced areas can be indexed in addition, to look up the
+ * formula cells, which (transitively) depend on a set of changed cells.
+ */
+final class FormulaDependencyGraph {
+    /** the level of the cells, which need to be evaluated sequentially after the other levels */
+    static final int SEQUENTIAL_LEVEL = Integer.MAX_VALUE;
+
+    /** the references of a named range are resolved up to this nesting depth */
+    private static final int MAX_NAME_DEPTH = 32;
+
+    /** the function index of OFFSET, which like INDIRECT returns references determined at evaluation time */
+    private static final int FUNCTION_INDEX_OFFSET = 78;
+
+    private final EvaluationWorkbook _workbook;
+    private final int[] _sheetIndexes;
+    /** the formula cells by their sheet index and column */
+    private final Map<Integer, NavigableMap<Integer, FormulaColumn>> _columnsBySheet = new HashMap<>();
+    private final int[] _rowIndexes;
+    private final int[] _columnIndexes;
+    private final FormulaColumn[] _nodeColumns;
+    private final int[] _nodeRows;
+    private int[] _levels;
+    private boolean[] _dynamicNodes;
+    /** the referenced areas by sheet index, see {@link #indexDependents(Ptg[][])} */
+    private Map<Integer, AreaIndex> _areasBySheet;
+
+    /**
+     * @param workbook the workbook to resolve sheet references and names
+     * @param sheetIndexes the sheet indexes of the formula cells
+     * @param rowIndexes the row indexes of the formula cells
+     * @param columnIndexes the column indexes of the formula cells
+     */
+    FormulaDependencyGraph(EvaluationWorkbook workbook, int[] sheetIndexes, int[] rowIndexes, int[] columnIndexes) {
+        _workbook = workbook;
+        _sheetIndexes = sheetIndexes;
+        _rowIndexes = rowIndexes;
+        _columnIndexes = columnIndexes;
+        _nodeRows = new int[sheetIndexes.length];
+        _nodeColumns = new FormulaColumn[sheetIndexes.length];
+
+        Map<Long, List<Integer>> nodesByColumn = new HashMap<>();
+        for (int node = 0; node < sheetIndexes.length; node++) {
+            long key = ((long) sheetIndexes[node] << 32) | columnIndexes[node];
+            nodesByColumn.computeIfAbsent(key, k -> new ArrayList<>()).add(node);
+        }
+        for (Map.Entry<Long, List<Integer>> me : nodesByColumn.entrySet()) {
+            int sheetIndex = (int) (me.getKey() >>> 32);
+            int columnIndex = (int) (long) me.getKey();
+            FormulaColumn column = new FormulaColumn(me.getValue(), rowIndexes);
+            _columnsBySheet.computeIfAbsent(sheetIndex, k -> new TreeMap<>()).put(columnIndex, column);
+            for (int i = 0; i < column._nodes.length; i++) {
+                int node = column._nodes[i];
+                _nodeColumns[node] = column;
+                _nodeRows[node] = i;
+            }
+        }
+    }
+
+    /**
+     * Assigns the levels to the formula cells
+     *
+     * @param formulaTokens the parsed formulas of the cells
+     * @return the levels of the cells, starting with 1, or {@link #SEQUENTIAL_LEVEL}
+     */
+    int[] computeLevels(Ptg[][] formulaTokens) {
+        int nodeCount = _sheetIndexes.length;
+        int[] levels = new int[nodeCount];
+        _dynamicNodes = new boolean[nodeCount];
+        // iterative depth-first search, to cope with long chains of formulas
+        List<Frame> stack = new ArrayList<>();
+        for (int start = 0; start < nodeCount; start++) {
+            if (levels[start] != 0) {
+                continue;
+            }
+            stack.add(visit(start, formulaTokens, levels));
+            while (!stack.isEmpty()) {
+                Frame frame = stack.get(stack.size() - 1);
+                int child = frame.nextUnvisitedPrecedent();
+                if (child != -1) {
+                    stack.add(visit(child, formulaTokens, levels));
+                    continue;
+                }
+                _dynamicNodes[frame._node] = frame._dynamic;
+                int level = frame._dynamic ? SEQUENTIAL_LEVEL : frame.maxPrecedentLevel();
+                if (level != SEQUENTIAL_LEVEL) {
+                    level++;
+                }
+                levels[frame._node] = level;
+                _nodeColumns[frame._node].setLevel(_nodeRows[frame._node], level);
+                stack.remove(stack.size() - 1);
+            }
+        }
+        _levels = levels;
+        return levels;
+    }
+
+    private Frame visit(int node, Ptg[][] formulaTokens, int[] levels) {
+        // mark the node as visited - while it's on the stack, a reference to it is a circular reference
+        levels[node] = -1;
+        _nodeColumns[node].markVisited(_nodeRows[node]);
+        _nodeColumns[node].setLevel(_nodeRows[node], SEQUENTIAL_LEVEL);
+
+        Frame frame = new Frame(node);
+        addReferences(frame, formulaTokens[node], _sheetIndexes[node], 0, null);
+        return frame;
+    }
+
+    /**
+     * Indexes the areas referenced by the formula cells, so that {@link #getDirtyNodes(int[], int[], int[])}
+     * can look up their dependents. Requires the levels to be computed before.
+     *
+     * @param formulaTokens the parsed formulas of the cells
+     */
+    void indexDependents(Ptg[][] formulaTokens) {
+        Map<Integer, AreaIndex> areasBySheet = new HashMap<>();
+        for (int node = 0; node < formulaTokens.length; node++) {
+            final int dependent = node;
+            addReferences(new ReferenceSink() {
+                @Override
+                public void addArea(int sheetIndex, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                    areasBySheet.computeIfAbsent(sheetIndex, k -> new AreaIndex())
+                            .add(firstRow, lastRow, firstColumn, lastColumn, dependent);
+                }
+
+                @Override
+                public void setDynamic() {
+                    // already known from the leveling
+                }
+            }, formulaTokens[node], _sheetIndexes[node], 0, null);
+        }
+        for (AreaIndex index : areasBySheet.values()) {
+            index.build();
+        }
+        _areasBySheet = areasBySheet;
+    }
+
+    /**
+     * @return the formula cell at the given position or -1
+     */
+    int getNode(int sheetIndex, int rowIndex, int columnIndex) {
+        NavigableMap<Integer, FormulaColumn> columns = _columnsBySheet.get(sheetIndex);
+        FormulaColumn column = (columns == null) ? null : columns.get(columnIndex);
+        if (column == null) {
+            return -1;
+        }
+        int index = column.lowerBound(rowIndex);
+        return (index < column._rows.length && column._rows[index] == rowIndex) ? column._nodes[index] : -1;
+    }
+
+    /**
+     * Collects the formula cells, which need to be recalculated after the given cells were changed,
+     * i.e. their transitive dependents and the cells using INDIRECT or OFFSET with their dependents
+     *
+     * @return the formula cells in the order of their levels
+     */
+    int[] getDirtyNodes(int[] sheetIndexes, int[] rowIndexes, int[] columnIndexes) {
+        int nodeCount = _sheetIndexes.length;
+        boolean[] dirty = new boolean[nodeCount];
+        int[] queue = new int[nodeCount];
+        int queueSize = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (_dynamicNodes[node]) {
+                dirty[node] = true;
+                queue[queueSize++] = node;
+            }
+        }
+        for (int i = 0; i < sheetIndexes.length; i++) {
+            queueSize = addDependents(sheetIndexes[i], rowIndexes[i], columnIndexes[i], dirty, queue, queueSize);
+        }
+        for (int head = 0; head < queueSize; head++) {
+            int node = queue[head];
+            queueSize = addDependents(_sheetIndexes[node], _rowIndexes[node], _columnIndexes[node], dirty, queue, queueSize);
+        }
+
+        long[] sorted = new long[queueSize];
+        for (int i = 0; i < queueSize; i++) {
+            sorted[i] = ((long) _levels[queue[i]] << 32) | queue[i];
+        }
+        Arrays.sort(sorted);
+        int[] result = new int[queueSize];
+        for (int i = 0; i < queueSize; i++) {
+            result[i] = (int) sorted[i];
+        }
+        return result;
+    }
+
+    private int addDependents(int sheetIndex, int rowIndex, int columnIndex, boolean[] dirty, int[] queue, int queueSize) {
+        AreaIndex index = _areasBySheet.get(sheetIndex);
+        if (index == null) {
+            return queueSize;
+        }
+        int[] size = { queueSize };
+        index.forEachArea(rowIndex, columnIndex, node -> {
+            if (!dirty[node]) {
+                dirty[node] = true;
+                queue[size[0]++] = node;
+            }
+        });
+        return size[0];
+    }
+
+    private void addReferences(ReferenceSink sink, Ptg[] ptgs, int sheetIndex, int depth, Map<EvaluationName, Boolean> names) {
+        for (Ptg ptg : ptgs) {
+            if (ptg instanceof AbstractFunctionPtg) {
+                int functionIndex = ((AbstractFunctionPtg) ptg).getFunctionIndex();
+                if (functionIndex == FunctionMetadataRegistry.FUNCTION_INDEX_INDIRECT || functionIndex == FUNCTION_INDEX_OFFSET) {
+                    sink.setDynamic();
+                }
+            } else if (ptg instanceof AreaPtgBase) {
+                AreaPtgBase area = (AreaPtgBase) ptg;
+                addArea(sink, ptg, sheetIndex, area.getFirstRow(), area.getLastRow(),
+                        area.getFirstColumn(), area.getLastColumn());
+            } else if (ptg instanceof RefPtgBase) {
+                RefPtgBase ref = (RefPtgBase) ptg;
+                addArea(sink, ptg, sheetIndex, ref.getRow(), ref.getRow(), ref.getColumn(), ref.getColumn());
+            } else if (ptg instanceof NamePtg) {
+                EvaluationName name = _workbook.getName((NamePtg) ptg);
+                if (name == null || name.isFunctionName() || !name.hasFormula()) {
+                    continue;
+                }
+                if (depth >= MAX_NAME_DEPTH) {
+                    sink.setDynamic();
+                    continue;
+                }
+                Map<EvaluationName, Boolean> resolved = (names == null) ? new IdentityHashMap<>() : names;
+                if (resolved.put(name, Boolean.TRUE) == null) {
+                    addReferences(sink, name.getNameDefinition(), sheetIndex, depth + 1, resolved);
+                }
+            }
+        }
+    }
+
+    private void addArea(ReferenceSink sink, Ptg ptg, int sheetIndex, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+        int firstSheet = sheetIndex;
+        int lastSheet = sheetIndex;
+        ExternalSheet externalSheet = null;
+        boolean external = false;
+        if (ptg instanceof ExternSheetReferenceToken) {
+            externalSheet = _workbook.getExternalSheet(((ExternSheetReferenceToken) ptg).getExternSheetIndex());
+            external = true;
+        } else if (ptg instanceof Pxg) {
+            Pxg pxg = (Pxg) ptg;
+            String lastSheetName = (pxg instanceof Pxg3D) ? ((Pxg3D) pxg).getLastSheetName() : null;
+            externalSheet = _workbook.getExternalSheet(pxg.getSheetName(), lastSheetName, pxg.getExternalWorkbookNumber());
+            external = true;
+        }
+        if (external) {
+            if (externalSheet != null && externalSheet.getWorkbookName() != null) {
+                // references to other workbooks are plain values for this workbook
+                return;
+            }
+            // same resolution as in OperationEvaluationContext
+            firstSheet = (externalSheet == null) ? 0 : _workbook.getSheetIndex(externalSheet.getSheetName());
+            lastSheet = (externalSheet instanceof ExternalSheetRange)
+                    ? _workbook.getSheetIndex(((ExternalSheetRange) externalSheet).getLastSheetName())
+                    : firstSheet;
+        }
+        for (int sheet = firstSheet; sheet <= lastSheet; sheet++) {
+            sink.addArea(sheet, firstRow, lastRow, firstColumn, lastColumn);
+        }
+    }
+
+    /**
+     * Receives the resolved references of a formula
+     */
+    private interface ReferenceSink {
+        void addArea(int sheetIndex, int firstRow, int lastRow, int firstColumn, int lastColumn);
+
+        void setDynamic();
+    }
+
+    /**
+     * A formula cell on the stack of the depth-first search with the formula cells it references
+     */
+    private final class Frame implements ReferenceSink {
+        private final int _node;
+        private final List<FormulaColumn> _columns = new ArrayList<>();
+        private int[] _ranges = new int[8];
+        private int _rangeCount;
+        private int _current;
+        private boolean _dynamic;
+
+        Frame(int node) {
+            _node = node;
+        }
+
+        @Override
+        public void addArea(int sheetIndex, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+            NavigableMap<Integer, FormulaColumn> columns = _columnsBySheet.get(sheetIndex);
+            if (columns == null) {
+                return;
+            }
+            for (FormulaColumn column : columns.subMap(firstColumn, true, lastColumn, true).values()) {
+                int from = column.lowerBound(firstRow);
+                int to = column.lowerBound(lastRow + 1) - 1;
+                if (from <= to) {
+                    addRange(column, from, to);
+                }
+            }
+        }
+
+        @Override
+        public void setDynamic() {
+            _dynamic = true;
+        }
+
+        void addRange(FormulaColumn column, int from, int to) {
+            if (_rangeCount * 2 == _ranges.length) {
+                _ranges = Arrays.copyOf(_ranges, _ranges.length * 2);
+            }
+            _columns.add(column);
+            _ranges[_rangeCount * 2] = from;
+            _ranges[_rangeCount * 2 + 1] = to;
+            _rangeCount++;
+        }
+
+        /**
+         * @return the next referenced formula cell, which wasn't visited yet, or -1
+         */
+        int nextUnvisitedPrecedent() {
+            for (; _current < _rangeCount; _current++) {
+                FormulaColumn column = _columns.get(_current);
+                int index = column.nextUnvisited(_ranges[_current * 2]);
+                if (index <= _ranges[_current * 2 + 1]) {
+                    return column._nodes[index];
+                }
+            }
+            return -1;
+        }
+
+        int maxPrecedentLevel() {
+            int max = 0;
+            for (int i = 0; i < _rangeCount && max != SEQUENTIAL_LEVEL; i++) {
+                max = Math.max(max, _columns.get(i).maxLevel(_ranges[i * 2], _ranges[i * 2 + 1]));
+            }
+            return max;
+        }
+    }
+
+    /**
+     * The formula cells of one column of a sheet, sorted by their row
+     */
+    private static final class FormulaColumn {
+        private final int[] _rows;
+        private final int[] _nodes;
+        /** union-find like pointers to the next unvisited cell */
+        private final int[] _nextUnvisited;
+        /** segment tree with the maximum levels */
+        private final int[] _levels;
+
+        FormulaColumn(List<Integer> nodes, int[] rowIndexes) {
+            int size = nodes.size();
+            _nodes = new int[size];
+            _rows = new int[size];
+            long[] sorted = new long[size];
+            for (int i = 0; i < size; i++) {
+                int node = nodes.get(i);
+                sorted[i] = ((long) rowIndexes[node] << 32) | node;
+            }
+            Arrays.sort(sorted);
+            for (int i = 0; i < size; i++) {
+                _rows[i] = (int) (sorted[i] >>> 32);
+                _nodes[i] = (int) sorted[i];
+            }
+            _nextUnvisited = new int[size + 1];
+            for (int i = 0; i <= size; i++) {
+                _nextUnvisited[i] = i;
+            }
+            _levels = new int[2 * size];
+        }
+
+        /**
+         * @return the index of the first cell with a row index greater or equal to the given row
+         */
+        int lowerBound(int row) {
+            int index = Arrays.binarySearch(_rows, row);
+            return (index < 0) ? -index - 1 : index;
+        }
+
+        void markVisited(int index) {
+            _nextUnvisited[index] = index + 1;
+        }
+
+        int nextUnvisited(int index) {
+            int root = index;
+            while (_nextUnvisited[root] != root) {
+                root = _nextUnvisited[root];
+            }
+            // path compression
+            while (_nextUnvisited[index] != root) {
+                int next = _nextUnvisited[index];
+                _nextUnvisited[index] = root;
+                index = next;
+            }
+            return root;
+        }
+
+        void setLevel(int index, int level) {
+            int size = _nodes.length;
+            int pos = index + size;
+            _levels[pos] = level;
+            for (pos >>= 1; pos >= 1; pos >>= 1) {
+                _levels[pos] = Math.max(_levels[2 * pos], _levels[2 * pos + 1]);
+            }
+        }
+
+        int maxLevel(int from, int to) {
+            int size = _nodes.length;
+            int max = 0;
+            for (int lo = from + size, hi = to + size + 1; lo < hi; lo >>= 1, hi >>= 1) {
+                if ((lo & 1) == 1) {
+                    max = Math.max(max, _levels[lo++]);
+                }
+                if ((hi & 1) == 1) {
+                    max = Math.max(max, _levels[--hi]);
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * The areas referenced on one sheet, sorted by their first row and searched like an interval tree:
+     * each inner node of the implicit binary tree over the sorted areas holds the maximum last row
+     * of its subtree.
+     */
+    private static final class AreaIndex {
+        private int[] _firstRows = new int[16];
+        private int[] _lastRows = new int[16];
+        private int[] _firstColumns = new int[16];
+        private int[] _lastColumns = new int[16];
+        private int[] _nodes = new int[16];
+        private int[] _maxLastRows;
+        private int _size;
+
+        void add(int firstRow, int lastRow, int firstColumn, int lastColumn, int node) {
+            if (_size == _nodes.length) {
+                int length = _size * 2;
+                _firstRows = Arrays.copyOf(_firstRows, length);
+                _lastRows = Arrays.copyOf(_lastRows, length);
+                _firstColumns = Arrays.copyOf(_firstColumns, length);
+                _lastColumns = Arrays.copyOf(_lastColumns, length);
+                _nodes = Arrays.copyOf(_nodes, length);
+            }
+            _firstRows[_size] = firstRow;
+            _lastRows[_size] = lastRow;
+            _firstColumns[_size] = firstColumn;
+            _lastColumns[_size] = lastColumn;
+            _nodes[_size] = node;
+            _size++;
+        }
+
+        void build() {
+            Integer[] order = new Integer[_size];
+            for (int i = 0; i < _size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(_firstRows[a], _firstRows[b]));
+            _firstRows = permute(_firstRows, order);
+            _lastRows = permute(_lastRows, order);
+            _firstColumns = permute(_firstColumns, order);
+            _lastColumns = permute(_lastColumns, order);
+            _nodes = permute(_nodes, order);
+            _maxLastRows = new int[_size];
+            buildMax(0, _size);
+        }
+
+        private static int[] permute(int[] values, Integer[] order) {
+            int[] result = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                result[i] = values[order[i]];
+            }
+            return result;
+        }
+
+        private int buildMax(int from, int to) {
+            if (from >= to) {
+                return -1;
+            }
+            int mid = (from + to) >>> 1;
+            int max = Math.max(_lastRows[mid], Math.max(buildMax(from, mid), buildMax(mid + 1, to)));
+            _maxLastRows[mid] = max;
+            return max;
+        }
+
+        /**
+         * Calls the consumer with the formula cell of each area containing the given cell
+         */
+        void forEachArea(int rowIndex, int columnIndex, IntConsumer consumer) {
+            forEachArea(0, _size, rowIndex, columnIndex, consumer);
+        }
+
+        private void forEachArea(int from, int to, int rowIndex, int columnIndex, IntConsumer consumer) {
+            while (from < to) {
+                int mid = (from + to) >>> 1;
+                if (_maxLastRows[mid] < rowIndex) {
+                    return;
+                }
+                forEachArea(from, mid, rowIndex, columnIndex, consumer);
+                if (_firstRows[mid] > rowIndex) {
+                    return;
+                }
+                if (_lastRows[mid] >= rowIndex && _firstColumns[mid] <= columnIndex && columnIndex <= _lastColumns[mid]) {
+                    consumer.accept(_nodes[mid]);
+                }
+                from = mid + 1;
+            }
+        }
+    }
+}
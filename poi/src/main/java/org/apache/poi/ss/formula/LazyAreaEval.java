@@ -20,6 +20,7 @@ package org.apache.poi.ss.formula;
 import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.AreaEvalBase;
 import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.functions.LookupIndex;
 import org.apache.poi.ss.formula.ptg.AreaI;
 import org.apache.poi.ss.formula.ptg.AreaI.OffsetArea;
 import org.apache.poi.ss.util.CellReference;
@@ -113,4 +114,12 @@ final class LazyAreaEval extends AreaEvalBase {
         SheetRefEvaluator _sre = _evaluator.getSheetEvaluator(_evaluator.getFirstSheetIndex());
         return _sre.isRowHidden(getFirstRow() + rowIndex);
     }
+
+    @Override
+    public LookupIndex getLookupIndex() {
+        if (getFirstSheetIndex() != getLastSheetIndex() || getWidth() * getHeight() < LookupIndex.MIN_SIZE) {
+            return null;
+        }
+        return _evaluator.getSheetEvaluator(getFirstSheetIndex()).getLookupIndex(this);
+    }
 }
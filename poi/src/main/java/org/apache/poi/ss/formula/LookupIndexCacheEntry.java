@@ -0,0 +1,89 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+
+package org.apache.poi.ss.formula;
+
+import org.apache.poi.ss.formula.functions.LookupIndex;
+
+/**
+ * Caches the {@link LookupIndex} of an area.<p>
+ *
+ * The entry takes part in the dependency tracking like a formula cell: it is the consumer of
+ * all cells of the area, and the lookup formulas using the index are its consumers. So a
+ * change of any cell in the area drops the index and clears the results of these formulas.
+ */
+final class LookupIndexCacheEntry extends FormulaCellCacheEntry {
+
+    /**
+     * Identifies an area of a sheet
+     */
+    static final class Key {
+        private final long _bookSheet;
+        private final int _firstRow;
+        private final int _firstColumn;
+        private final int _lastRow;
+        private final int _lastColumn;
+
+        Key(int bookIndex, int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+            _bookSheet = PlainCellCache.Loc.toBookSheetColumn(bookIndex, sheetIndex, 0);
+            _firstRow = firstRow;
+            _firstColumn = firstColumn;
+            _lastRow = lastRow;
+            _lastColumn = lastColumn;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int)(_bookSheet ^ (_bookSheet >>> 32));
+            result = 31 * result + _firstRow;
+            result = 31 * result + _firstColumn;
+            result = 31 * result + _lastRow;
+            return 31 * result + _lastColumn;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return _bookSheet == other._bookSheet
+                    && _firstRow == other._firstRow && _firstColumn == other._firstColumn
+                    && _lastRow == other._lastRow && _lastColumn == other._lastColumn;
+        }
+    }
+
+    private volatile LookupIndex _lookupIndex;
+
+    /**
+     * @return the index, or {@code null} if it hasn't been built yet or was dropped
+     */
+    public LookupIndex getLookupIndex() {
+        return _lookupIndex;
+    }
+
+    public void setLookupIndex(LookupIndex lookupIndex) {
+        _lookupIndex = lookupIndex;
+    }
+
+    @Override
+    public void clearFormulaEntry() {
+        _lookupIndex = null;
+        super.clearFormulaEntry();
+    }
+}
@@ -17,8 +17,8 @@
 
 package org.apache.poi.ss.formula;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 final class PlainCellCache {
 
@@ -78,13 +78,21 @@ final class PlainCellCache {
     private Map<Loc, PlainValueCellCacheEntry> _plainValueEntriesByLoc;
 
     public PlainCellCache() {
-        _plainValueEntriesByLoc = new HashMap<>();
+        // concurrent, as the entries are looked up by the threads of a parallel recalculation
+        _plainValueEntriesByLoc = new ConcurrentHashMap<>();
     }
 
     public void put(Loc key, PlainValueCellCacheEntry cce) {
         _plainValueEntriesByLoc.put(key, cce);
     }
 
+    /**
+     * @return the existing entry or <code>null</code>, if the given entry was added
+     */
+    public PlainValueCellCacheEntry putIfAbsent(Loc key, PlainValueCellCacheEntry cce) {
+        return _plainValueEntriesByLoc.putIfAbsent(key, cce);
+    }
+
     public void clear() {
         _plainValueEntriesByLoc.clear();
     }
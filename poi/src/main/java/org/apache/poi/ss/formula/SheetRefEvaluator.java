@@ -17,7 +17,9 @@
 
 package org.apache.poi.ss.formula;
 
+import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.functions.LookupIndex;
 import org.apache.poi.ss.formula.ptg.FuncVarPtg;
 import org.apache.poi.ss.formula.ptg.Ptg;
 import org.apache.poi.ss.usermodel.CellType;
@@ -48,6 +50,14 @@ final class SheetRefEvaluator {
         return _bookEvaluator.evaluateReference(getSheet(), _sheetIndex, rowIndex, columnIndex, _tracker);
     }
 
+    /**
+     * @return the cached index of the values of the given area of this sheet, {@code null} if
+     * the area can't be indexed
+     */
+    public LookupIndex getLookupIndex(AreaEval area) {
+        return _bookEvaluator.getLookupIndex(_sheetIndex, area, _tracker);
+    }
+
     private EvaluationSheet getSheet() {
         if (_sheet == null) {
             _sheet = _bookEvaluator.getSheet(_sheetIndex);
@@ -19,6 +19,7 @@ package org.apache.poi.ss.formula;
 
 import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.functions.LookupIndex;
 import org.apache.poi.ss.formula.functions.Subtotal;
 
 /**
@@ -74,4 +75,15 @@ public interface TwoDEval extends ValueEval {
      */
     boolean isRowHidden(int rowIndex);
 
+    /**
+     * Exact match lookups over this area use the returned index instead of scanning the area.
+     * Calling this method makes the evaluated formula depend on all cells of the area.
+     *
+     * @return the cached index of the values of this area, or {@code null} if the area
+     * doesn't provide one
+     * @since POI 5.2.3
+     */
+    default LookupIndex getLookupIndex() {
+        return null;
+    }
 }
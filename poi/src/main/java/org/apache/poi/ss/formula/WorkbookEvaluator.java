@@ -17,13 +17,20 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Stack;
+import java.util.TimeZone;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -41,6 +48,7 @@ import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.util.CellRangeAddressBase;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.util.Internal;
+import org.apache.poi.util.LocaleUtil;
 
 import static org.apache.logging.log4j.util.Unbox.box;
 
@@ -72,6 +80,26 @@ public final class WorkbookEvaluator {
 
     private boolean _ignoreMissingWorkbooks;
 
+    /**
+     * whether the cell formulas are compiled, see {@link #setCompileFormulas(boolean)}
+     */
+    private boolean _compileFormulas;
+    /** the compiled formulas by their key, see {@link CompiledFormula#createKey(Ptg[], int, int)} */
+    private final Map<String, CompiledFormula> _compiledFormulas = new ConcurrentHashMap<>();
+
+    /**
+     * the formulas parsed upfront by {@link #evaluateAll(List, ForkJoinPool)}, or {@code null}
+     */
+    private volatile Map<EvaluationCell, Ptg[]> _preparsedFormulas;
+
+    /**
+     * the dependencies of the formula cells for {@link #evaluateDependents(List)}, or {@code null}
+     */
+    private FormulaDependencyGraph _dependencyGraph;
+    private List<EvaluationCell> _dependencyGraphCells;
+    /** the last evaluated values of the formula cells of the dependency graph */
+    private ValueEval[] _dependencyGraphValues;
+
     /**
      * whether print detailed messages about the next formula evaluation
      */
@@ -164,6 +192,8 @@ public final class WorkbookEvaluator {
      * of the evaluate~ methods of this class
      */
     public void clearAllCachedResultValues() {
+        _dependencyGraph = null;
+        _compiledFormulas.clear();
         _cache.clear();
         _sheetIndexesBySheet.clear();
         _workbook.clearAllCachedResultValues();
@@ -175,6 +205,10 @@ public final class WorkbookEvaluator {
      */
     public void notifyUpdateCell(EvaluationCell cell) {
         int sheetIndex = getSheetIndex(cell.getSheet());
+        if (cell.getCellType() == CellType.FORMULA || isDependencyGraphNode(sheetIndex, cell)) {
+            // the formulas changed, so the dependencies need to be determined again
+            _dependencyGraph = null;
+        }
         _cache.notifyUpdateCell(_workbookIx, sheetIndex, cell);
     }
 
@@ -184,20 +218,30 @@ public final class WorkbookEvaluator {
      */
     public void notifyDeleteCell(EvaluationCell cell) {
         int sheetIndex = getSheetIndex(cell.getSheet());
+        if (isDependencyGraphNode(sheetIndex, cell)) {
+            _dependencyGraph = null;
+        }
         _cache.notifyDeleteCell(_workbookIx, sheetIndex, cell);
     }
 
+    private boolean isDependencyGraphNode(int sheetIndex, EvaluationCell cell) {
+        FormulaDependencyGraph graph = _dependencyGraph;
+        return graph != null && graph.getNode(sheetIndex, cell.getRowIndex(), cell.getColumnIndex()) >= 0;
+    }
+
     private int getSheetIndex(EvaluationSheet sheet) {
-        Integer result = _sheetIndexesBySheet.get(sheet);
-        if (result == null) {
-            int sheetIndex = _workbook.getSheetIndex(sheet);
-            if (sheetIndex < 0) {
-                throw new RuntimeException("Specified sheet from a different book");
+        synchronized (_sheetIndexesBySheet) {
+            Integer result = _sheetIndexesBySheet.get(sheet);
+            if (result == null) {
+                int sheetIndex = _workbook.getSheetIndex(sheet);
+                if (sheetIndex < 0) {
+                    throw new RuntimeException("Specified sheet from a different book");
+                }
+                result = sheetIndex;
+                _sheetIndexesBySheet.put(sheet, result);
             }
-            result = sheetIndex;
-            _sheetIndexesBySheet.put(sheet, result);
+            return result;
         }
-        return result;
     }
 
     public ValueEval evaluate(EvaluationCell srcCell) {
@@ -211,16 +255,18 @@ public final class WorkbookEvaluator {
      * @return -1 if sheet with specified name does not exist
      */
     /* package */ int getSheetIndex(String sheetName) {
-        Integer result = _sheetIndexesByName.get(sheetName);
-        if (result == null) {
-            int sheetIndex = _workbook.getSheetIndex(sheetName);
-            if (sheetIndex < 0) {
-                return -1;
+        synchronized (_sheetIndexesByName) {
+            Integer result = _sheetIndexesByName.get(sheetName);
+            if (result == null) {
+                int sheetIndex = _workbook.getSheetIndex(sheetName);
+                if (sheetIndex < 0) {
+                    return -1;
+                }
+                result = sheetIndex;
+                _sheetIndexesByName.put(sheetName, result);
             }
-            result = sheetIndex;
-            _sheetIndexesByName.put(sheetName, result);
+            return result;
         }
-        return result;
     }
 
     /* package */ int getSheetIndexByExternIndex(int externSheetIndex) {
@@ -257,14 +303,13 @@ public final class WorkbookEvaluator {
 
             try {
 
-                Ptg[] ptgs = _workbook.getFormulaTokens(srcCell);
                 OperationEvaluationContext ec = new OperationEvaluationContext
                         (this, _workbook, sheetIndex, rowIndex, columnIndex, tracker);
                 if (evalListener == null) {
-                    result = evaluateFormula(ec, ptgs);
+                    result = evaluateFormulaCell(srcCell, cce, ec);
                 } else {
                     evalListener.onStartEvaluate(srcCell, cce);
-                    result = evaluateFormula(ec, ptgs);
+                    result = evaluateFormulaCell(srcCell, cce, ec);
                     evalListener.onEndEvaluate(cce, result);
                 }
 
@@ -319,6 +364,281 @@ public final class WorkbookEvaluator {
         return result;
     }
 
+    private ValueEval evaluateFormulaCell(EvaluationCell srcCell, FormulaCellCacheEntry cce, OperationEvaluationContext ec) {
+        if (!_compileFormulas || dbgEvaluationOutputForNextEval || dbgEvaluationOutputIndent > 0) {
+            return evaluateFormula(ec, getFormulaTokens(srcCell));
+        }
+        CompiledFormula compiled = cce.getCompiledFormula();
+        if (compiled == null) {
+            Ptg[] ptgs = getFormulaTokens(srcCell);
+            int rowIndex = srcCell.getRowIndex();
+            int columnIndex = srcCell.getColumnIndex();
+            String key = CompiledFormula.createKey(ptgs, rowIndex, columnIndex);
+            compiled = _compiledFormulas.get(key);
+            if (compiled == null) {
+                compiled = CompiledFormula.compile(ptgs, rowIndex, columnIndex);
+                if (compiled == null) {
+                    // not supported by the compiler, keep on interpreting the tokens
+                    return evaluateFormula(ec, ptgs);
+                }
+                _compiledFormulas.put(key, compiled);
+            }
+            cce.setCompiledFormula(compiled);
+        }
+
+        ValueEval value = compiled.evaluate(this, ec, srcCell.isPartOfArrayFormulaGroup());
+        return ec.isSingleValue() ? dereferenceResult(value, ec) : value;
+    }
+
+    /**
+     * Compiles the formulas of the evaluated cells to trees of evaluation nodes, which are kept with the
+     * cached results. Subsequent evaluations of the formula, e.g. after input cells have been changed,
+     * don't need to get the formula tokens and to interpret them again. Formulas, which differ only
+     * by their relative references, share the compiled form.<p>
+     *
+     * The compiled formula is kept until the cell is notified with {@link #notifyUpdateCell(EvaluationCell)}
+     * or the cache is cleared - changing the formula of the cell doesn't invalidate it. Callers must call
+     * {@link #notifyUpdateCell(EvaluationCell)} after changing a formula, otherwise the old compiled
+     * formula is evaluated.
+     *
+     * @param compileFormulas whether to compile the formulas, the default is {@code false}
+     */
+    public void setCompileFormulas(boolean compileFormulas) {
+        _compileFormulas = compileFormulas;
+    }
+
+    private Ptg[] getFormulaTokens(EvaluationCell srcCell) {
+        Map<EvaluationCell, Ptg[]> preparsed = _preparsedFormulas;
+        Ptg[] ptgs = (preparsed == null) ? null : preparsed.get(srcCell);
+        return (ptgs != null) ? ptgs : _workbook.getFormulaTokens(srcCell);
+    }
+
+    /**
+     * Evaluates the given formula cells and caches their results, so that subsequent calls of
+     * {@link #evaluate(EvaluationCell)} for them are cache hits.<p>
+     *
+     * The formula cells are leveled by their references (see {@link FormulaDependencyGraph}) and
+     * the cells of each level are evaluated in parallel in the given pool. Cells, which are part of
+     * circular references or depend on INDIRECT or OFFSET, are evaluated sequentially at the end.
+     * A cell, whose references were not captured by the leveling, is still evaluated correctly,
+     * because its precedents are evaluated recursively as usual.<p>
+     *
+     * The sheets of the cells need to be accessed before by the caller, so that the evaluation
+     * workbook has built its caches and is only read during the parallel evaluation.
+     *
+     * @param cells the formula cells to evaluate
+     * @param pool the pool to evaluate the levels in, or {@code null} to evaluate sequentially
+     */
+    /* package */ void evaluateAll(List<EvaluationCell> cells, ForkJoinPool pool) {
+        evaluateAll(cells, pool, false);
+    }
+
+    private FormulaDependencyGraph evaluateAll(List<EvaluationCell> cells, ForkJoinPool pool, boolean indexDependents) {
+        int count = cells.size();
+        int[] sheetIndexes = new int[count];
+        int[] rowIndexes = new int[count];
+        int[] columnIndexes = new int[count];
+        Ptg[][] formulaTokens = new Ptg[count][];
+        Map<EvaluationCell, Ptg[]> preparsed = new IdentityHashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            EvaluationCell cell = cells.get(i);
+            sheetIndexes[i] = getSheetIndex(cell.getSheet());
+            rowIndexes[i] = cell.getRowIndex();
+            columnIndexes[i] = cell.getColumnIndex();
+            // parse the formulas upfront, the formula parser uses the workbook in a non-thread-safe way
+            formulaTokens[i] = _workbook.getFormulaTokens(cell);
+            preparsed.put(cell, formulaTokens[i]);
+        }
+
+        FormulaDependencyGraph graph = new FormulaDependencyGraph(_workbook, sheetIndexes, rowIndexes, columnIndexes);
+        int[] levels = graph.computeLevels(formulaTokens);
+        if (indexDependents) {
+            graph.indexDependents(formulaTokens);
+        }
+
+        // bucket the cells by level, keeping the original order within a level
+        List<List<Integer>> cellsByLevel = new ArrayList<>();
+        List<Integer> sequentialCells = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (levels[i] == FormulaDependencyGraph.SEQUENTIAL_LEVEL) {
+                sequentialCells.add(i);
+                continue;
+            }
+            while (cellsByLevel.size() < levels[i]) {
+                cellsByLevel.add(new ArrayList<>());
+            }
+            cellsByLevel.get(levels[i] - 1).add(i);
+        }
+
+        // the debug output and the listener callbacks are not meant for concurrent evaluation
+        boolean parallel = pool != null && _evaluationListener == null && !dbgEvaluationOutputForNextEval;
+        _preparsedFormulas = preparsed;
+        try {
+            for (List<Integer> level : cellsByLevel) {
+                int[] indexes = level.stream().mapToInt(Integer::intValue).toArray();
+                if (parallel && indexes.length > PARALLEL_THRESHOLD) {
+                    pool.invoke(new LevelTask(cells, sheetIndexes, indexes, 0, indexes.length,
+                            LocaleUtil.getUserLocale(), LocaleUtil.getUserTimeZone()));
+                } else {
+                    for (int index : indexes) {
+                        evaluate(cells.get(index), sheetIndexes[index]);
+                    }
+                }
+            }
+            for (int index : sequentialCells) {
+                evaluate(cells.get(index), sheetIndexes[index]);
+            }
+        } finally {
+            _preparsedFormulas = null;
+        }
+        return graph;
+    }
+
+    /**
+     * Evaluates the given formula cells like {@link #evaluateAll(List, ForkJoinPool)} and keeps their
+     * dependencies for subsequent calls of {@link #evaluateDependents(List)}.<p>
+     *
+     * The dependency graph is dropped, when a formula cell is updated or deleted or when the cache is
+     * cleared, see {@link #hasDependencyGraph()}.
+     *
+     * @param cells all formula cells of the workbook
+     */
+    /* package */ void buildDependencyGraph(List<EvaluationCell> cells) {
+        FormulaDependencyGraph graph = evaluateAll(cells, null, true);
+        ValueEval[] values = new ValueEval[cells.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = evaluate(cells.get(i));
+        }
+        _dependencyGraphCells = cells;
+        _dependencyGraphValues = values;
+        _dependencyGraph = graph;
+    }
+
+    /**
+     * @return {@code true}, if the dependency graph is built and still matches the formulas of the workbook
+     */
+    /* package */ boolean hasDependencyGraph() {
+        return _dependencyGraph != null;
+    }
+
+    /**
+     * Recalculates the formula cells, which depend on the given cells. The changed cells need to be
+     * notified with {@link #notifyUpdateCell(EvaluationCell)} before, which also checks if the graph
+     * is still valid.
+     *
+     * @param changedCells the changed plain value cells
+     * @return the indexes of the formula cells of the dependency graph, whose value has changed
+     * @throws IllegalStateException if there's no dependency graph
+     */
+    /* package */ int[] evaluateDependents(List<EvaluationCell> changedCells) {
+        FormulaDependencyGraph graph = _dependencyGraph;
+        if (graph == null) {
+            throw new IllegalStateException("The dependency graph needs to be built first");
+        }
+        int count = changedCells.size();
+        int[] sheetIndexes = new int[count];
+        int[] rowIndexes = new int[count];
+        int[] columnIndexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            EvaluationCell cell = changedCells.get(i);
+            sheetIndexes[i] = getSheetIndex(cell.getSheet());
+            rowIndexes[i] = cell.getRowIndex();
+            columnIndexes[i] = cell.getColumnIndex();
+        }
+
+        int[] dirtyNodes = graph.getDirtyNodes(sheetIndexes, rowIndexes, columnIndexes);
+        int[] changedNodes = new int[dirtyNodes.length];
+        int changedCount = 0;
+        for (int node : dirtyNodes) {
+            ValueEval value = evaluate(_dependencyGraphCells.get(node));
+            if (!isSameValue(value, _dependencyGraphValues[node])) {
+                _dependencyGraphValues[node] = value;
+                changedNodes[changedCount++] = node;
+            }
+        }
+        Arrays.sort(changedNodes, 0, changedCount);
+        return Arrays.copyOf(changedNodes, changedCount);
+    }
+
+    private static boolean isSameValue(ValueEval a, ValueEval b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null || a.getClass() != b.getClass()) {
+            return false;
+        }
+        if (a instanceof NumericValueEval) {
+            return Double.compare(((NumericValueEval) a).getNumberValue(), ((NumericValueEval) b).getNumberValue()) == 0;
+        }
+        if (a instanceof StringValueEval) {
+            return ((StringValueEval) a).getStringValue().equals(((StringValueEval) b).getStringValue());
+        }
+        if (a instanceof BoolEval) {
+            return ((BoolEval) a).getBooleanValue() == ((BoolEval) b).getBooleanValue();
+        }
+        if (a instanceof ErrorEval) {
+            return ((ErrorEval) a).getErrorCode() == ((ErrorEval) b).getErrorCode();
+        }
+        return a.equals(b);
+    }
+
+    private ValueEval evaluate(EvaluationCell srcCell, int sheetIndex) {
+        return evaluateAny(srcCell, sheetIndex, srcCell.getRowIndex(), srcCell.getColumnIndex(), new EvaluationTracker(_cache));
+    }
+
+    /** levels up to this size are evaluated in the calling thread, as well as the chunks of larger levels */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    /**
+     * Evaluates a range of the cells of one level, by splitting it in halves until it's small enough
+     */
+    private final class LevelTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<EvaluationCell> _cells;
+        private final int[] _sheetIndexes;
+        private final int[] _indexes;
+        private final int _from;
+        private final int _to;
+        private final Locale _locale;
+        private final TimeZone _timeZone;
+
+        LevelTask(List<EvaluationCell> cells, int[] sheetIndexes, int[] indexes, int from, int to,
+                  Locale locale, TimeZone timeZone) {
+            _cells = cells;
+            _sheetIndexes = sheetIndexes;
+            _indexes = indexes;
+            _from = from;
+            _to = to;
+            _locale = locale;
+            _timeZone = timeZone;
+        }
+
+        @Override
+        protected void compute() {
+            if (_to - _from > PARALLEL_THRESHOLD) {
+                int mid = (_from + _to) >>> 1;
+                invokeAll(new LevelTask(_cells, _sheetIndexes, _indexes, _from, mid, _locale, _timeZone),
+                        new LevelTask(_cells, _sheetIndexes, _indexes, mid, _to, _locale, _timeZone));
+                return;
+            }
+            // the user locale and time zone are thread-locals, which need to be passed on to the worker threads
+            Locale oldLocale = LocaleUtil.getUserLocale();
+            TimeZone oldTimeZone = LocaleUtil.getUserTimeZone();
+            LocaleUtil.setUserLocale(_locale);
+            LocaleUtil.setUserTimeZone(_timeZone);
+            try {
+                for (int i = _from; i < _to; i++) {
+                    int index = _indexes[i];
+                    evaluate(_cells.get(index), _sheetIndexes[index]);
+                }
+            } finally {
+                LocaleUtil.setUserLocale(oldLocale);
+                LocaleUtil.setUserTimeZone(oldTimeZone);
+            }
+        }
+    }
+
     /**
      * Adds the current cell reference to the exception for easier debugging.
      * Would be nice to get the formula text as well, but that seems to require
@@ -668,7 +988,7 @@ public final class WorkbookEvaluator {
      * <p>
      * special Note: OperationPtg subtypes cannot be passed here!
      */
-    private ValueEval getEvalForPtg(Ptg ptg, OperationEvaluationContext ec) {
+    /* package */ ValueEval getEvalForPtg(Ptg ptg, OperationEvaluationContext ec) {
         //  consider converting all these (ptg instanceof XxxPtg) expressions to (ptg.getClass() == XxxPtg.class)
 
         if (ptg instanceof NamePtg) {
@@ -791,6 +1111,38 @@ public final class WorkbookEvaluator {
         return evaluateAny(cell, sheetIndex, rowIndex, columnIndex, tracker);
     }
 
+    /**
+     * Used by the lazy area evals to get the cached index of their values. The index is built on
+     * first use, with the cells of the area as its inputs, and the currently evaluated formula
+     * becomes dependent on it.
+     *
+     * @return the index, or {@code null} if it can't be built at the moment
+     */
+    /* package */ LookupIndex getLookupIndex(int sheetIndex, AreaEval area, EvaluationTracker tracker) {
+        LookupIndexCacheEntry entry = _cache.getOrCreateLookupIndexEntry(_workbookIx, sheetIndex,
+                area.getFirstRow(), area.getFirstColumn(), area.getLastRow(), area.getLastColumn());
+        LookupIndex index = entry.getLookupIndex();
+        if (index == null) {
+            if (!tracker.startEvaluate(entry)) {
+                // the index is being built, and one of the cells of the area looks it up
+                return null;
+            }
+            try {
+                index = LookupIndex.create(area);
+                if (index == null) {
+                    return null;
+                }
+                entry.setLookupIndex(index);
+                // the entry has no value of its own, but needs one to be treated as evaluated
+                tracker.updateCacheResult(BlankEval.instance);
+            } finally {
+                tracker.endEvaluate(entry);
+            }
+        }
+        tracker.acceptFormulaDependency(entry);
+        return index;
+    }
+
     public FreeRefFunction findUserDefinedFunction(String functionName) {
         return _udfFinder.findFunction(functionName);
     }
@@ -133,6 +133,11 @@ import org.apache.poi.ss.formula.functions.Countif.ErrorMatcher;
      */
     private static ValueEval aggregateMatchingCells(Aggregator aggregator, AreaEval sumRange, AreaEval[] ranges, I_MatchPredicate[] predicates)
             throws EvaluationException {
+        LookupIndex[] indexes = getLookupIndexes(sumRange, ranges);
+        if (indexes != null) {
+            return aggregateIndexedCells(aggregator, indexes, predicates);
+        }
+
         int height = ranges[0].getHeight();
         int width = ranges[0].getWidth();
 
@@ -167,6 +172,72 @@ import org.apache.poi.ss.formula.functions.Countif.ErrorMatcher;
         return aggregator.getResult();
     }
 
+    /**
+     * @return the lookup indexes of the criteria ranges, followed by the one of the sum range
+     * if used, or {@code null} if not all of the ranges have an index
+     */
+    private static LookupIndex[] getLookupIndexes(AreaEval sumRange, AreaEval[] ranges) {
+        LookupIndex[] indexes = new LookupIndex[sumRange == null ? ranges.length : ranges.length + 1];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = (i < ranges.length ? ranges[i] : sumRange).getLookupIndex();
+            if (indexes[i] == null) {
+                return null;
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Same as {@link #aggregateMatchingCells(Aggregator, AreaEval, AreaEval[], I_MatchPredicate[])},
+     * but works on the values held by the lookup indexes of the ranges. If there are equality
+     * criteria, only the cells matching the most selective of them are checked against the others.
+     *
+     * @param indexes  indexes of the criteria ranges, followed by the one of the sum range if used
+     */
+    private static ValueEval aggregateIndexedCells(Aggregator aggregator, LookupIndex[] indexes, I_MatchPredicate[] predicates)
+            throws EvaluationException {
+        int[] candidates = null;
+        int candidatesCriteria = -1;
+        for (int i = 0; i < predicates.length; i++) {
+            // Bugs 60858 and 56420 show predicate can be null
+            if (predicates[i] == null) {
+                return aggregator.getResult();
+            }
+            int[] positions = Countif.findIndexedMatches(predicates[i], indexes[i]);
+            if (positions != null && (candidates == null || positions.length < candidates.length)) {
+                candidates = positions;
+                candidatesCriteria = i;
+            }
+        }
+
+        LookupIndex sumIndex = indexes.length > predicates.length ? indexes[predicates.length] : null;
+        int size = candidates == null ? indexes[0].getSize() : candidates.length;
+        for (int k = 0; k < size; k++) {
+            int position = candidates == null ? k : candidates[k];
+
+            boolean matches = true;
+            for (int i = 0; i < predicates.length; i++) {
+                if (i != candidatesCriteria && !predicates[i].matches(indexes[i].getValue(position))) {
+                    matches = false;
+                    break;
+                }
+            }
+
+            if (matches) {
+                if (sumIndex != null) {
+                    ValueEval value = sumIndex.getValue(position);
+                    if (value instanceof ErrorEval) {
+                        throw new EvaluationException((ErrorEval)value);
+                    }
+                    aggregator.addValue(value);
+                } else {
+                    aggregator.addValue(null);
+                }
+            }
+        }
+        return aggregator.getResult();
+    }
+
     protected static AreaEval convertRangeArg(ValueEval eval) throws EvaluationException {
         if (eval instanceof AreaEval) {
             return (AreaEval) eval;
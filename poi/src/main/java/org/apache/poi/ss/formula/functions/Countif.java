@@ -20,6 +20,7 @@ package org.apache.poi.ss.formula.functions;
 import java.util.regex.Pattern;
 
 import org.apache.poi.ss.formula.ThreeDEval;
+import org.apache.poi.ss.formula.TwoDEval;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -165,6 +166,38 @@ public final class Countif extends Fixed2ArgFunction {
             return getClass().getName() + " [" + _operator.getRepresentation() + getValueText() + "]";
         }
         protected abstract String getValueText();
+
+        /**
+         * @return the number of values in the area matching this criteria, counted with the
+         * lookup index of the area, or -1 if the area has no index or the criteria can't be
+         * counted with it
+         */
+        final int countIndexedMatches(TwoDEval area) {
+            LookupIndex index = isIndexed() ? area.getLookupIndex() : null;
+            return index == null ? -1 : countIndexedMatches(index);
+        }
+        /**
+         * @return the ascending positions of the values in the index matching this criteria,
+         * or {@code null} if the criteria can't be looked up in the index
+         */
+        final int[] findIndexedMatches(LookupIndex index) {
+            return isIndexed() ? findMatchPositions(index) : null;
+        }
+        private boolean isIndexed() {
+            int code = getCode();
+            return (code == CmpOp.NONE || code == CmpOp.EQ) && getIndexKey() != null;
+        }
+        protected int countIndexedMatches(LookupIndex index) {
+            return index.getCount(getIndexKey());
+        }
+        protected int[] findMatchPositions(LookupIndex index) {
+            return index.getPositions(getIndexKey());
+        }
+        /**
+         * @return the value matched by the equality operator in a {@link LookupIndex},
+         * or {@code null} if the criteria can't be looked up in an index
+         */
+        protected abstract ValueEval getIndexKey();
     }
 
     private static final class NumberMatcher extends MatcherBase {
@@ -180,6 +213,33 @@ public final class Countif extends Fixed2ArgFunction {
             return String.valueOf(_value);
         }
 
+        @Override
+        protected ValueEval getIndexKey() {
+            return new NumberEval(_value);
+        }
+
+        @Override
+        protected int countIndexedMatches(LookupIndex index) {
+            // text that parses as the number matches as well
+            return super.countIndexedMatches(index) + index.getNumericTextPositions(_value).length;
+        }
+
+        @Override
+        protected int[] findMatchPositions(LookupIndex index) {
+            int[] numbers = super.findMatchPositions(index);
+            int[] numericText = index.getNumericTextPositions(_value);
+            if (numericText.length == 0) {
+                return numbers;
+            }
+            // merge the ascending positions
+            int[] result = new int[numbers.length + numericText.length];
+            for (int i = 0, j = 0, k = 0; k < result.length; k++) {
+                result[k] = (j == numericText.length || (i < numbers.length && numbers[i] < numericText[j]))
+                        ? numbers[i++] : numericText[j++];
+            }
+            return result;
+        }
+
         @Override
         public boolean matches(ValueEval x) {
             double testValue;
@@ -240,6 +300,11 @@ public final class Countif extends Fixed2ArgFunction {
             return value ? 1 : 0;
         }
 
+        @Override
+        protected ValueEval getIndexKey() {
+            return BoolEval.valueOf(_value == 1);
+        }
+
         @Override
         public boolean matches(ValueEval x) {
             int testValue;
@@ -293,6 +358,11 @@ public final class Countif extends Fixed2ArgFunction {
             return FormulaError.forInt(_value).getString();
         }
 
+        @Override
+        protected ValueEval getIndexKey() {
+            return ErrorEval.valueOf(_value);
+        }
+
         @Override
         public boolean matches(ValueEval x) {
             if(x instanceof ErrorEval) {
@@ -333,6 +403,12 @@ public final class Countif extends Fixed2ArgFunction {
             return _pattern.pattern();
         }
 
+        @Override
+        protected ValueEval getIndexKey() {
+            // the empty criteria also matches blank cells, which are not indexed
+            return _pattern == null && _value.length() > 0 ? new StringEval(_value) : null;
+        }
+
         @Override
         public boolean matches(ValueEval x) {
             if (x instanceof BlankEval) {
@@ -447,12 +523,27 @@ public final class Countif extends Fixed2ArgFunction {
         if (rangeArg instanceof RefEval) {
             return CountUtils.countMatchingCellsInRef((RefEval) rangeArg, criteriaPredicate);
         } else if (rangeArg instanceof ThreeDEval) {
+            if (rangeArg instanceof TwoDEval && criteriaPredicate instanceof MatcherBase) {
+                int count = ((MatcherBase) criteriaPredicate).countIndexedMatches((TwoDEval) rangeArg);
+                if (count >= 0) {
+                    return count;
+                }
+            }
             return CountUtils.countMatchingCellsInArea((ThreeDEval) rangeArg, criteriaPredicate);
         } else {
             throw new IllegalArgumentException("Bad range arg type (" + rangeArg.getClass().getName() + ")");
         }
     }
 
+    /**
+     * @return the ascending positions of the values in the index matching the criteria predicate,
+     * or {@code null} if the criteria can't be looked up in the index
+     */
+    /* package */ static int[] findIndexedMatches(I_MatchPredicate criteriaPredicate, LookupIndex index) {
+        return criteriaPredicate instanceof MatcherBase
+                ? ((MatcherBase) criteriaPredicate).findIndexedMatches(index) : null;
+    }
+
     /**
      * Creates a criteria predicate object for the supplied criteria arg
      * @return {@code null} if the arg evaluates to blank.
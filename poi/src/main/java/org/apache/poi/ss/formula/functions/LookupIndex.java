@@ -0,0 +1,234 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+
+package org.apache.poi.ss.formula.functions;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.formula.TwoDEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.OperandResolver;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.util.Internal;
+
+/**
+ * Hash index of the values of an area, so that the exact match lookups of VLOOKUP, HLOOKUP,
+ * MATCH, XLOOKUP, XMATCH and COUNTIF don't need to scan the whole area on every call.
+ * It also holds the values of the area, so that SUMIFS and related functions can evaluate their
+ * criteria without going through the evaluator for every cell.<p>
+ *
+ * Positions are zero based and run row by row through the area. Numbers, booleans and errors
+ * only match values of the same type, strings are compared case-insensitively like in
+ * {@link LookupUtils}. Blank cells are not indexed.<p>
+ *
+ * The formula evaluator caches the index of an area until one of its cells changes,
+ * see {@link TwoDEval#getLookupIndex()}.
+ *
+ * @since POI 5.2.3
+ */
+@Internal
+public final class LookupIndex {
+
+    /**
+     * Areas with fewer cells are always scanned, as building and caching an index for them
+     * doesn't pay off
+     */
+    public static final int MIN_SIZE = 16;
+
+    private static final int[] NO_POSITIONS = {};
+
+    /** collects the positions of a value while the index is built */
+    private static final class Positions {
+        private int[] _positions = new int[1];
+        private int _count;
+
+        void add(int position) {
+            if (_count == _positions.length) {
+                _positions = Arrays.copyOf(_positions, _count * 2);
+            }
+            _positions[_count++] = position;
+        }
+
+        int[] toArray() {
+            return _count == _positions.length ? _positions : Arrays.copyOf(_positions, _count);
+        }
+    }
+
+    private final ValueEval[] _values;
+    /** the ascending positions of each value - built on first use, as some users only need the values */
+    private volatile Map<Object, int[]> _positions;
+    /** positions of strings that parse as a number - only needed by COUNTIF, so built on demand */
+    private volatile Map<Double, int[]> _numericTextPositions;
+
+    private LookupIndex(ValueEval[] values) {
+        _values = values;
+    }
+
+    /**
+     * Reads all values of the given area
+     *
+     * @return the new index, or {@code null} if a value of the area is a circular reference
+     * error, as the area then can't be indexed without changing the results of the lookups
+     */
+    public static LookupIndex create(TwoDEval area) {
+        int width = area.getWidth();
+        int height = area.getHeight();
+        ValueEval[] values = new ValueEval[width * height];
+        int position = 0;
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                ValueEval value = area.getValue(r, c);
+                if (value == ErrorEval.CIRCULAR_REF_ERROR) {
+                    return null;
+                }
+                values[position++] = value;
+            }
+        }
+        return new LookupIndex(values);
+    }
+
+    /**
+     * @return the number of cells of the indexed area
+     */
+    public int getSize() {
+        return _values.length;
+    }
+
+    /**
+     * @param position zero based position in the area, counted row by row
+     * @return the value of the cell at the given position
+     */
+    public ValueEval getValue(int position) {
+        return _values[position];
+    }
+
+    /**
+     * @param value a {@link NumberEval}, {@link StringEval}, {@link BoolEval} or {@link ErrorEval}
+     * @return the lowest position of a value equal to the given value, -1 if there is none
+     */
+    public int getFirstIndex(ValueEval value) {
+        int[] positions = getPositions(value);
+        return positions.length == 0 ? -1 : positions[0];
+    }
+
+    /**
+     * @param value a {@link NumberEval}, {@link StringEval}, {@link BoolEval} or {@link ErrorEval}
+     * @return the number of values equal to the given value
+     */
+    public int getCount(ValueEval value) {
+        return getPositions(value).length;
+    }
+
+    /**
+     * @param value a {@link NumberEval}, {@link StringEval}, {@link BoolEval} or {@link ErrorEval}
+     * @return the ascending positions of the values equal to the given value, the array must not
+     * be modified
+     */
+    public int[] getPositions(ValueEval value) {
+        Map<Object, int[]> positions = _positions;
+        if (positions == null) {
+            Map<Object, Positions> collected = new HashMap<>();
+            for (int i = 0; i < _values.length; i++) {
+                Object key = toKey(_values[i]);
+                if (key != null) {
+                    collected.computeIfAbsent(key, k -> new Positions()).add(i);
+                }
+            }
+            positions = toArrays(collected);
+            _positions = positions;
+        }
+        return positions.getOrDefault(toKey(value), NO_POSITIONS);
+    }
+
+    /**
+     * @return the ascending positions of the strings which parse as a number equal to the given
+     * value, the array must not be modified
+     */
+    public int[] getNumericTextPositions(double value) {
+        Map<Double, int[]> positions = _numericTextPositions;
+        if (positions == null) {
+            Map<Double, Positions> collected = new HashMap<>();
+            for (int i = 0; i < _values.length; i++) {
+                if (_values[i] instanceof StringEval) {
+                    Double d = OperandResolver.parseDouble(((StringEval) _values[i]).getStringValue());
+                    if (d != null) {
+                        collected.computeIfAbsent(toNumericTextKey(d), k -> new Positions()).add(i);
+                    }
+                }
+            }
+            positions = toArrays(collected);
+            _numericTextPositions = positions;
+        }
+        return positions.getOrDefault(toNumericTextKey(value), NO_POSITIONS);
+    }
+
+    private static <K> Map<K, int[]> toArrays(Map<K, Positions> collected) {
+        Map<K, int[]> result = new HashMap<>(collected.size() * 4 / 3 + 1);
+        for (Map.Entry<K, Positions> entry : collected.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().toArray());
+        }
+        return result;
+    }
+    private static Double toNumericTextKey(double value) {
+        // COUNTIF compares parsed text with '==', so -0.0 and 0.0 are the same
+        return value + 0.0;
+    }
+
+    private static Object toKey(ValueEval value) {
+        Class<?> cls = value.getClass();
+        if (cls == NumberEval.class) {
+            // boxed, as Double.equals() agrees with the Double.compare() of the lookups
+            return ((NumberEval) value).getNumberValue();
+        }
+        if (cls == StringEval.class) {
+            return foldCase(((StringEval) value).getStringValue());
+        }
+        if (cls == BoolEval.class) {
+            return ((BoolEval) value).getBooleanValue();
+        }
+        if (cls == ErrorEval.class) {
+            // error evals are singletons
+            return value;
+        }
+        return null;
+    }
+
+    /**
+     * @return a string which is equal to the folded form of every string that is equal to
+     * the given one according to {@link String#compareToIgnoreCase(String)}
+     */
+    static String foldCase(String value) {
+        char[] chars = null;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            char folded = Character.toLowerCase(Character.toUpperCase(ch));
+            if (folded != ch) {
+                if (chars == null) {
+                    chars = value.toCharArray();
+                }
+                chars[i] = folded;
+            }
+        }
+        return chars == null ? value : new String(chars);
+    }
+}
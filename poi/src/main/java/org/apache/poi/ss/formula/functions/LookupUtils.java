@@ -110,6 +110,15 @@ public final class LookupUtils {
         ValueEval getItem(int index);
         int getSize();
 
+        /**
+         * @return the cached index of the items, or {@code null} if the vector doesn't provide one
+         * @see TwoDEval#getLookupIndex()
+         * @since POI 5.2.3
+         */
+        default LookupIndex getLookupIndex() {
+            return null;
+        }
+
         default Iterator<Integer> indexIterator() {
             return new Iterator<Integer>() {
                 private int pos = 0;
@@ -176,6 +185,15 @@ public final class LookupUtils {
         public int getSize() {
             return _size;
         }
+
+        @Override
+        public LookupIndex getLookupIndex() {
+            if (_size < LookupIndex.MIN_SIZE) {
+                return null;
+            }
+            TwoDEval row = _tableArray.getHeight() == 1 ? _tableArray : _tableArray.getRow(_rowIndex);
+            return row == null ? null : row.getLookupIndex();
+        }
     }
 
     private static final class ColumnVector implements ValueVector {
@@ -207,6 +225,15 @@ public final class LookupUtils {
         public int getSize() {
             return _size;
         }
+
+        @Override
+        public LookupIndex getLookupIndex() {
+            if (_size < LookupIndex.MIN_SIZE) {
+                return null;
+            }
+            TwoDEval column = _tableArray.getWidth() == 1 ? _tableArray : _tableArray.getColumn(_columnIndex);
+            return column == null ? null : column.getLookupIndex();
+        }
     }
 
     private static final class SheetVector implements ValueVector {
@@ -355,11 +382,13 @@ public final class LookupUtils {
 
     private static abstract class LookupValueComparerBase implements LookupValueComparer {
 
+        private final ValueEval _targetValue;
         private final Class<? extends ValueEval> _targetClass;
         protected LookupValueComparerBase(ValueEval targetValue) {
             if(targetValue == null) {
                 throw new RuntimeException("targetValue cannot be null");
             }
+            _targetValue = targetValue;
             _targetClass = targetValue.getClass();
         }
         @Override
@@ -378,6 +407,13 @@ public final class LookupUtils {
                     "]";
         }
         protected abstract CompareResult compareSameType(ValueEval other);
+        /**
+         * @return the value which is equal to exactly the values this comparer reports as
+         * {@code EQUAL} when looked up in a {@link LookupIndex}, or {@code null} if there is none
+         */
+        protected ValueEval getIndexKey() {
+            return _targetValue;
+        }
         /** used only for debug purposes */
         protected abstract String getValueAsString();
     }
@@ -415,6 +451,11 @@ public final class LookupUtils {
             return CompareResult.valueOf(_value.compareToIgnoreCase(stringValue));
         }
         @Override
+        protected ValueEval getIndexKey() {
+            // wildcard patterns can't be looked up in an index
+            return _wildCardPattern != null && (_isMatchFunction || !_matchExact) ? null : super.getIndexKey();
+        }
+        @Override
         protected String getValueAsString() {
             return _value;
         }
@@ -677,8 +718,8 @@ public final class LookupUtils {
      * @param matchMode
      * @return zero based index into the vector, -1 if value cannot be found
      */
-    private static int lookupFirstIndexOfValue(LookupValueComparer lookupComparer, ValueVector vector,
-                                               MatchMode matchMode) {
+    static int lookupFirstIndexOfValue(LookupValueComparer lookupComparer, ValueVector vector,
+                                       MatchMode matchMode) {
         return lookupIndexOfValue(lookupComparer, vector, matchMode, false);
     }
 
@@ -697,6 +738,17 @@ public final class LookupUtils {
 
     private static int lookupIndexOfValue(LookupValueComparer lookupComparer, ValueVector vector,
                                           MatchMode matchMode, boolean reverse) {
+        if (!reverse && lookupComparer instanceof LookupValueComparerBase) {
+            // an exact match is the first one found by the scan below, regardless of the match mode
+            ValueEval indexKey = ((LookupValueComparerBase) lookupComparer).getIndexKey();
+            LookupIndex index = indexKey == null ? null : vector.getLookupIndex();
+            if (index != null) {
+                int result = index.getFirstIndex(indexKey);
+                if (result >= 0 || matchMode == MatchMode.ExactMatch || matchMode == MatchMode.WildcardMatch) {
+                    return result;
+                }
+            }
+        }
         int bestMatchIdx = -1;
         ValueEval bestMatchEval = null;
         Iterator<Integer> idxIter = reverse ? vector.reverseIndexIterator() : vector.indexIterator();
@@ -30,6 +30,7 @@ import org.apache.poi.ss.formula.eval.StringEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.formula.functions.LookupUtils.CompareResult;
 import org.apache.poi.ss.formula.functions.LookupUtils.LookupValueComparer;
+import org.apache.poi.ss.formula.functions.LookupUtils.MatchMode;
 import org.apache.poi.ss.formula.functions.LookupUtils.ValueVector;
 
 /**
@@ -204,12 +205,11 @@ public final class Match extends Var2or3ArgFunction {
 
         int size = lookupRange.getSize();
         if(matchExact) {
-            for (int i = 0; i < size; i++) {
-                if(lookupComparer.compareTo(lookupRange.getItem(i)).isEqual()) {
-                    return i;
-                }
+            int index = LookupUtils.lookupFirstIndexOfValue(lookupComparer, lookupRange, MatchMode.ExactMatch);
+            if (index < 0) {
+                throw new EvaluationException(ErrorEval.NA);
             }
-            throw new EvaluationException(ErrorEval.NA);
+            return index;
         }
 
         if(findLargestLessThanOrEqual) {
@@ -211,6 +211,37 @@ public final class WorkbookFactory {
      *  input format
      */
     public static Workbook create(InputStream inp, String password) throws IOException, EncryptedDocumentException {
+        return create(inp, password, false);
+    }
+
+    /**
+     * Creates the appropriate HSSFWorkbook / XSSFWorkbook from
+     *  the given InputStream, which may be password protected.
+     *
+     * <p>In streaming mode, OOXML files are opened as a read-only workbook, which parses the rows
+     *  of its sheets only while they are iterated, so the sheets are not loaded into memory.
+     *  Note that the package itself is buffered in memory, so prefer
+     *  {@link #create(File, String, boolean, boolean)} where possible.
+     *  Other formats are opened as regular workbooks.</p>
+     *
+     * <p>Your input stream MUST either support mark/reset, or
+     *  be wrapped as a {@link BufferedInputStream}!</p>
+     *
+     *  @param inp The {@link InputStream} to read data from.
+     *  @param password The password that should be used or null if no password is necessary.
+     *  @param streaming If a read-only streaming workbook should be created for OOXML files
+     *
+     *  @return The created Workbook
+     *
+     *  @throws IOException if an error occurs while reading the data
+     *  @throws EncryptedDocumentException If the wrong password is given for a protected file
+     *  @throws EmptyFileException If the given data is empty
+     *  @throws RuntimeException a number of other runtime exceptions can be thrown, especially if there are problems with the
+     *  input format
+     *
+     *  @since POI 5.2.3
+     */
+    public static Workbook create(InputStream inp, String password, boolean streaming) throws IOException, EncryptedDocumentException {
         InputStream is = FileMagic.prepareToCheckMagic(inp);
         byte[] emptyFileCheck = new byte[1];
         is.mark(emptyFileCheck.length);
@@ -221,7 +252,7 @@ public final class WorkbookFactory {
 
         final FileMagic fm = FileMagic.valueOf(is);
         if (FileMagic.OOXML == fm) {
-            return wp(fm, w -> w.create(is));
+            return wp(fm, w -> streaming ? w.createStreaming(is) : w.create(is));
         }
 
         if (FileMagic.OLE2 != fm) {
@@ -232,7 +263,8 @@ public final class WorkbookFactory {
         DirectoryNode root = poifs.getRoot();
         boolean isOOXML = root.hasEntry(DEFAULT_POIFS_ENTRY) || root.hasEntry(OOXML_PACKAGE);
 
-        return wp(isOOXML ? FileMagic.OOXML : fm, w -> w.create(root, password));
+        return wp(isOOXML ? FileMagic.OOXML : fm,
+            w -> streaming ? w.createStreaming(root, password) : w.create(root, password));
     }
 
     /**
@@ -298,6 +330,37 @@ public final class WorkbookFactory {
      *  input format
      */
     public static Workbook create(File file, String password, boolean readOnly) throws IOException, EncryptedDocumentException {
+        return create(file, password, readOnly, false);
+    }
+
+    /**
+     * Creates the appropriate HSSFWorkbook / XSSFWorkbook from
+     *  the given File, which must exist and be readable, and
+     *  may be password protected
+     * <p>In streaming mode, OOXML files are opened as a read-only workbook, which parses the rows
+     *  of its sheets only while they are iterated, so big files can be read with constant memory.
+     *  Other formats are opened as regular read-only workbooks.
+     * <p>Note that in order to properly release resources the
+     *  Workbook should be closed after use.
+     *
+     *  @param file The file to read data from.
+     *  @param password The password that should be used or null if no password is necessary.
+     *  @param readOnly If the Workbook should be opened in read-only mode to avoid writing back
+     *      changes when the document is closed - streaming workbooks are always read-only
+     *  @param streaming If a read-only streaming workbook should be created for OOXML files
+     *
+     *  @return The created Workbook
+     *
+     *  @throws IOException if an error occurs while reading the data
+     *  @throws EncryptedDocumentException If the wrong password is given for a protected file
+     *  @throws EmptyFileException If the given data is empty
+     *  @throws RuntimeException a number of other runtime exceptions can be thrown, especially if there are problems with the
+     *  input format
+     *
+     *  @since POI 5.2.3
+     */
+    public static Workbook create(File file, String password, boolean readOnly, boolean streaming)
+    throws IOException, EncryptedDocumentException {
         if (!file.exists()) {
             throw new FileNotFoundException(file.toString());
         }
@@ -307,15 +370,18 @@ public final class WorkbookFactory {
         }
 
         FileMagic fm = FileMagic.valueOf(file);
+        ProviderMethod fun = streaming
+            ? w -> w.createStreaming(file, password)
+            : w -> w.create(file, password, readOnly);
         if (fm == FileMagic.OOXML) {
-            return wp(fm, w -> w.create(file, password, readOnly));
+            return wp(fm, fun);
         } else if (fm == FileMagic.OLE2) {
             final boolean ooxmlEnc;
             try (POIFSFileSystem fs = new POIFSFileSystem(file, true)) {
                 DirectoryNode root = fs.getRoot();
                 ooxmlEnc = root.hasEntry(DEFAULT_POIFS_ENTRY) || root.hasEntry(OOXML_PACKAGE);
             }
-            return wp(ooxmlEnc ? FileMagic.OOXML : fm, w -> w.create(file, password, readOnly));
+            return wp(ooxmlEnc ? FileMagic.OOXML : fm, fun);
         } else {
             throw new IOException("Can't open workbook - unsupported file type: "+fm);
         }
@@ -36,4 +36,34 @@ public interface WorkbookProvider {
     Workbook create(DirectoryNode root, String password) throws IOException;
 
     Workbook create(File file, String password, boolean readOnly) throws IOException;
+
+    /**
+     * Creates a read-only workbook, which streams the rows of its sheets instead of loading them.
+     * Providers without a streaming implementation return a regular workbook.
+     *
+     * @since POI 5.2.3
+     */
+    default Workbook createStreaming(InputStream inp) throws IOException {
+        return create(inp);
+    }
+
+    /**
+     * Creates a read-only workbook from an encrypted container, which streams the rows of its sheets.
+     * Providers without a streaming implementation return a regular workbook.
+     *
+     * @since POI 5.2.3
+     */
+    default Workbook createStreaming(DirectoryNode root, String password) throws IOException {
+        return create(root, password);
+    }
+
+    /**
+     * Creates a read-only workbook, which streams the rows of its sheets instead of loading them.
+     * Providers without a streaming implementation return a regular workbook opened in read-only mode.
+     *
+     * @since POI 5.2.3
+     */
+    default Workbook createStreaming(File file, String password) throws IOException {
+        return create(file, password, true);
+    }
 }
@@ -0,0 +1,342 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+
+package org.apache.poi.util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * A map with primitive int keys, which are kept in ascending order - a replacement for
+ * {@code TreeMap<Integer, V>} with far less memory and pointer chasing.
+ * <p>
+ * The keys and values are stored in two parallel arrays and looked up by binary search.
+ * Appending keys in ascending order - the usual case for rows and cells - is done in constant
+ * time, while inserting and removing in the middle needs to move the following entries.
+ * Per entry it takes 8 bytes (plus the spare capacity), compared to about 56 bytes of a
+ * {@code TreeMap} entry with its boxed key.
+ * <p>
+ * The iterators of the value views are fail-fast. This class is not thread-safe.
+ *
+ * @param <V> the type of the values
+ * @since POI 5.2.3
+ */
+@Internal
+public final class IntSortedMap<V> {
+    private static final int[] EMPTY_KEYS = {};
+    private static final Object[] EMPTY_VALUES = {};
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] keys = EMPTY_KEYS;
+    private Object[] values = EMPTY_VALUES;
+    private int size;
+    private int modCount;
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @return the value of the key or {@code null} if the key isn't mapped
+     */
+    public V get(int key) {
+        final int idx = indexOf(key);
+        return (idx < 0) ? null : valueAt(idx);
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return true, if the value is mapped - the values are compared by {@link Object#equals(Object)}
+     */
+    public boolean containsValue(Object value) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(value, values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Maps the key to the value
+     *
+     * @return the previous value of the key or {@code null}
+     */
+    public V put(int key, V value) {
+        // fast path for appending in ascending order
+        if (size == 0 || key > keys[size - 1]) {
+            insertAt(size, key, value);
+            return null;
+        }
+        final int idx = indexOf(key);
+        if (idx >= 0) {
+            final V prev = valueAt(idx);
+            values[idx] = value;
+            return prev;
+        }
+        insertAt(-(idx + 1), key, value);
+        return null;
+    }
+
+    /**
+     * Removes the key
+     *
+     * @return the removed value or {@code null} if the key wasn't mapped
+     */
+    public V remove(int key) {
+        final int idx = indexOf(key);
+        if (idx < 0) {
+            return null;
+        }
+        final V prev = valueAt(idx);
+        removeAt(idx);
+        return prev;
+    }
+
+    /**
+     * @return the lowest key
+     * @throws NoSuchElementException if the map is empty
+     */
+    public int firstKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return keys[0];
+    }
+
+    /**
+     * @return the highest key
+     * @throws NoSuchElementException if the map is empty
+     */
+    public int lastKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return keys[size - 1];
+    }
+
+    /**
+     * @return the number of keys, which are lower than the given key - this is the same as
+     *  {@code headMap(key).size()} of a {@code SortedMap}
+     */
+    public int countLowerKeys(int key) {
+        final int idx = indexOf(key);
+        return (idx < 0) ? -(idx + 1) : idx;
+    }
+
+    /**
+     * @param index the position of the entry, between 0 and {@link #size()} exclusive
+     * @return the key at the position
+     */
+    public int keyAt(int index) {
+        checkIndex(index);
+        return keys[index];
+    }
+
+    /**
+     * @param index the position of the entry, between 0 and {@link #size()} exclusive
+     * @return the value at the position
+     */
+    @SuppressWarnings("unchecked")
+    public V valueAt(int index) {
+        checkIndex(index);
+        return (V)values[index];
+    }
+
+    /**
+     * @return a view of the values in ascending key order - its iterator supports removal
+     */
+    public Collection<V> values() {
+        return new Values(Integer.MIN_VALUE, Integer.MAX_VALUE, true);
+    }
+
+    /**
+     * @param fromKey the lowest key (inclusive)
+     * @param toKey the highest key (exclusive)
+     * @return a view of the values of the key range in ascending key order - the same as
+     *  {@code subMap(fromKey, toKey).values()} of a {@code SortedMap}
+     */
+    public Collection<V> values(int fromKey, int toKey) {
+        if (fromKey > toKey) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return new Values(fromKey, toKey, false);
+    }
+
+    private int indexOf(int key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertAt(int idx, int key, V value) {
+        if (size == keys.length) {
+            final int capacity = Math.max(MIN_CAPACITY, size + (size >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        if (idx < size) {
+            System.arraycopy(keys, idx, keys, idx + 1, size - idx);
+            System.arraycopy(values, idx, values, idx + 1, size - idx);
+        }
+        keys[idx] = key;
+        values[idx] = value;
+        size++;
+        modCount++;
+    }
+
+    private void removeAt(int idx) {
+        final int moved = size - idx - 1;
+        if (moved > 0) {
+            System.arraycopy(keys, idx + 1, keys, idx, moved);
+            System.arraycopy(values, idx + 1, values, idx, moved);
+        }
+        values[--size] = null;
+        modCount++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private final class Values extends AbstractCollection<V> {
+        private final int fromKey;
+        private final int toKey;
+        private final boolean inclusiveTo;
+
+        Values(int fromKey, int toKey, boolean inclusiveTo) {
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+            this.inclusiveTo = inclusiveTo;
+        }
+
+        private int start() {
+            return countLowerKeys(fromKey);
+        }
+
+        private int end() {
+            final int idx = countLowerKeys(toKey);
+            return (inclusiveTo && idx < size && keys[idx] == toKey) ? idx + 1 : idx;
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator(start(), end());
+        }
+
+        @Override
+        public Spliterator<V> spliterator() {
+            // late-binding - the iterator is created on the first traversal
+            return Spliterators.spliterator(this, Spliterator.ORDERED);
+        }
+
+        @Override
+        public int size() {
+            return end() - start();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return start() == end();
+        }
+
+        @Override
+        public void clear() {
+            final int start = start(), end = end();
+            if (start == end) {
+                return;
+            }
+            System.arraycopy(keys, end, keys, start, size - end);
+            System.arraycopy(values, end, values, start, size - end);
+            final int newSize = size - (end - start);
+            Arrays.fill(values, newSize, size, null);
+            size = newSize;
+            modCount++;
+        }
+    }
+
+    private final class ValueIterator implements Iterator<V> {
+        private int next;
+        private int end;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        ValueIterator(int start, int end) {
+            this.next = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            checkForComodification();
+            if (next >= end) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return (V)values[last];
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            removeAt(last);
+            next = last;
+            end--;
+            last = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link CompiledFormula}
+ */
+class TestCompiledFormula {
+    private static final String[] FORMULAS = {
+        "A1*2+B1",
+        "IF(A1>0,1/A1,\"negative\")",
+        "IF(A1>5,\"big\")",
+        "IF(A1,,B1)",
+        "IF(A1<0,1,IF(B1<0,2,IF(#N/A,3)))",
+        "IF(A1=\"x\",1,2)",
+        "SUM(A1:B3)",
+        "SUM(A1:A3 A2:B2)",
+        "CHOOSE(2,A1,B1,C1)",
+        "Data!A1&\"-\"&Input",
+        "MAX({1,2;3,4})+COUNTIF(A1:B3,\">1\")",
+        "A1:A3 A2:B2",
+        "-A1%^2",
+        "INDIRECT(\"B\"&ROW())",
+        "ISERROR(1/0)",
+    };
+
+    @Test
+    void sameResultsAsInterpreter() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Sheet sheet = wb.createSheet("Sheet1");
+            Sheet data = wb.createSheet("Data");
+            data.createRow(0).createCell(0).setCellValue("data");
+            Name name = wb.createName();
+            name.setNameName("Input");
+            name.setRefersToFormula("Sheet1!$B$1");
+
+            Row row0 = sheet.createRow(0);
+            row0.createCell(0).setCellValue(4);
+            row0.createCell(1).setCellValue(-1);
+            sheet.createRow(1).createCell(1).setCellValue(2);
+            sheet.createRow(2).createCell(1).setCellValue(3);
+            sheet.getRow(1).createCell(0).setCellValue(0);
+            sheet.getRow(2).createCell(0).setCellValue(-2);
+            for (int i = 0; i < FORMULAS.length; i++) {
+                sheet.getRow(0).createCell(3 + i).setCellFormula(FORMULAS[i]);
+            }
+            sheet.setArrayFormula("IF(A1:A3>0,A1:A3,-A1:A3)", CellRangeAddress.valueOf("C5:C7"));
+
+            HSSFFormulaEvaluator interpreter = wb.getCreationHelper().createFormulaEvaluator();
+            HSSFFormulaEvaluator compiler = wb.getCreationHelper().createFormulaEvaluator();
+            compiler.setCompileFormulas(true);
+
+            for (double a1 : new double[]{ 4, 0, -3, 7 }) {
+                row0.getCell(0).setCellValue(a1);
+                interpreter.notifyUpdateCell(row0.getCell(0));
+                compiler.notifyUpdateCell(row0.getCell(0));
+                for (Row row : sheet) {
+                    for (Cell cell : row) {
+                        if (cell.getCellType() == CellType.FORMULA) {
+                            CellValue expected = interpreter.evaluate(cell);
+                            CellValue actual = compiler.evaluate(cell);
+                            assertEquals(expected.formatAsString(), actual.formatAsString(),
+                                    cell.getAddress() + " " + cell.getCellFormula() + " with A1=" + a1);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void notifiedFormulaChange() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Row row = wb.createSheet().createRow(0);
+            row.createCell(0).setCellValue(2);
+            Cell formula = row.createCell(1);
+            formula.setCellFormula("A1*3");
+
+            HSSFFormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+            evaluator.setCompileFormulas(true);
+            assertEquals(6, evaluator.evaluate(formula).getNumberValue(), 0);
+
+            row.getCell(0).setCellValue(5);
+            evaluator.notifyUpdateCell(row.getCell(0));
+            assertEquals(15, evaluator.evaluate(formula).getNumberValue(), 0);
+
+            formula.setCellFormula("A1+3");
+            evaluator.notifySetFormula(formula);
+            assertEquals(8, evaluator.evaluate(formula).getNumberValue(), 0);
+        }
+    }
+
+    @Test
+    void keysOfCopiedFormulas() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Sheet sheet = wb.createSheet();
+            for (int r = 0; r < 3; r++) {
+                int n = r + 1;
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellFormula("B" + n + "*$C$1+SUM(B$1:B" + n + ")");
+                row.createCell(1).setCellFormula("$C$" + n);
+            }
+            EvaluationWorkbook evalWorkbook = HSSFEvaluationWorkbook.create(wb);
+            String key1 = key(evalWorkbook, 0, 0);
+            assertEquals(key1, key(evalWorkbook, 1, 0));
+            assertEquals(key1, key(evalWorkbook, 2, 0));
+            // absolute references differ
+            assertNotEquals(key(evalWorkbook, 0, 1), key(evalWorkbook, 1, 1));
+
+            assertNotNull(CompiledFormula.compile(tokens(evalWorkbook, 0, 0), 0, 0));
+        }
+    }
+
+    private static String key(EvaluationWorkbook evalWorkbook, int row, int column) {
+        return CompiledFormula.createKey(tokens(evalWorkbook, row, column), row, column);
+    }
+
+    private static Ptg[] tokens(EvaluationWorkbook evalWorkbook, int row, int column) {
+        return evalWorkbook.getFormulaTokens(evalWorkbook.getSheet(0).getCell(row, column));
+    }
+}
@@ -0,0 +1,288 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link FormulaDependencyGraph} and the parallel evaluation of {@link WorkbookEvaluator}
+ */
+class TestFormulaDependencyGraph {
+    private static final int ROWS = 300;
+
+    @Test
+    void levels() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Sheet sheet = wb.createSheet("Sheet1");
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue(1);
+            row.createCell(1).setCellFormula("A1*2");
+            row.createCell(2).setCellFormula("B1+B2");
+            row.createCell(3).setCellFormula("SUM(B1:C5)");
+            row.createCell(4).setCellFormula("E2+1");
+            row.createCell(5).setCellFormula("INDIRECT(\"A1\")");
+            row.createCell(6).setCellFormula("F1+A1");
+            row = sheet.createRow(1);
+            row.createCell(1).setCellFormula("A1+1");
+            row.createCell(4).setCellFormula("E1+1");
+
+            int[] levels = computeLevels(wb);
+            // B1, C1, D1, E1, F1, G1, B2, E2
+            assertEquals(1, levels[0]);
+            assertEquals(2, levels[1]);
+            assertEquals(3, levels[2]);
+            assertEquals(FormulaDependencyGraph.SEQUENTIAL_LEVEL, levels[3]);
+            assertEquals(FormulaDependencyGraph.SEQUENTIAL_LEVEL, levels[4]);
+            assertEquals(FormulaDependencyGraph.SEQUENTIAL_LEVEL, levels[5]);
+            assertEquals(1, levels[6]);
+            assertEquals(FormulaDependencyGraph.SEQUENTIAL_LEVEL, levels[7]);
+        }
+    }
+
+    @Test
+    void levelsOfSheetReferencesAndNames() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Sheet sheet1 = wb.createSheet("Sheet1");
+            Sheet sheet2 = wb.createSheet("Sheet2");
+            Name name = wb.createName();
+            name.setNameName("Total");
+            name.setRefersToFormula("Sheet2!$A$1");
+
+            sheet1.createRow(0).createCell(0).setCellValue(1);
+            sheet1.getRow(0).createCell(1).setCellFormula("Total*2");
+            sheet2.createRow(0).createCell(0).setCellFormula("Sheet1!A1+1");
+
+            int[] levels = computeLevels(wb);
+            // Sheet1!B1, Sheet2!A1
+            assertEquals(2, levels[0]);
+            assertEquals(1, levels[1]);
+        }
+    }
+
+    @Test
+    void parallelEvaluationMatchesSequential() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (HSSFWorkbook sequential = createWorkbook(); HSSFWorkbook parallel = createWorkbook()) {
+            HSSFFormulaEvaluator.evaluateAllFormulaCells(sequential);
+            parallel.getCreationHelper().createFormulaEvaluator().evaluateAll(pool);
+
+            for (int s = 0; s < sequential.getNumberOfSheets(); s++) {
+                for (Row row : sequential.getSheetAt(s)) {
+                    for (Cell expected : row) {
+                        if (expected.getCellType() != CellType.FORMULA) {
+                            continue;
+                        }
+                        Cell actual = parallel.getSheetAt(s).getRow(row.getRowNum()).getCell(expected.getColumnIndex());
+                        String ref = expected.getAddress().formatAsString();
+                        assertEquals(expected.getCachedFormulaResultType(), actual.getCachedFormulaResultType(), ref);
+                        switch (expected.getCachedFormulaResultType()) {
+                            case NUMERIC:
+                                assertEquals(expected.getNumericCellValue(), actual.getNumericCellValue(), 0, ref);
+                                break;
+                            case ERROR:
+                                assertEquals(expected.getErrorCellValue(), actual.getErrorCellValue(), ref);
+                                break;
+                            default:
+                                assertEquals(expected.getStringCellValue(), actual.getStringCellValue(), ref);
+                                break;
+                        }
+                    }
+                }
+            }
+            Cell total = parallel.getSheet("Summary").getRow(0).getCell(0);
+            assertEquals(ROWS * (ROWS + 1) / 2.0 * 2, total.getNumericCellValue(), 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void evaluateDependents() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Sheet sheet = wb.createSheet("Sheet1");
+            for (int r = 0; r < 10; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r + 1);
+                row.createCell(1).setCellFormula("A" + (r + 1) + "*2");
+            }
+            Row row = sheet.getRow(0);
+            row.createCell(2).setCellFormula("SUM(B1:B10)");
+            row.createCell(3).setCellFormula("C1>100");
+            row.createCell(4).setCellFormula("B2+B3");
+            row.createCell(5).setCellFormula("INDIRECT(\"A1\")");
+            Sheet other = wb.createSheet("Sheet2");
+            other.createRow(0).createCell(0).setCellFormula("Sheet1!C1/2");
+
+            HSSFFormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+            assertEquals(15, evaluator.evaluateDependents(new ArrayList<>()).size());
+            assertEquals(110, sheet.getRow(0).getCell(2).getNumericCellValue(), 0);
+
+            // B5, C1 and Sheet2!A1 change, D1 stays true, E1 isn't affected, F1 is always recalculated
+            Cell a5 = sheet.getRow(4).getCell(0);
+            a5.setCellValue(6);
+            assertEquals(cells("Sheet1!B5", "Sheet1!C1", "Sheet2!A1"), refs(evaluator.evaluateDependents(Arrays.asList(a5))));
+            assertEquals(112, sheet.getRow(0).getCell(2).getNumericCellValue(), 0);
+            assertEquals(56, other.getRow(0).getCell(0).getNumericCellValue(), 0);
+
+            Cell a1 = sheet.getRow(0).getCell(0);
+            a1.setCellValue(-200);
+            assertEquals(cells("Sheet1!B1", "Sheet1!C1", "Sheet1!D1", "Sheet1!F1", "Sheet2!A1"),
+                    refs(evaluator.evaluateDependents(Arrays.asList(a1))));
+            assertEquals(-200, sheet.getRow(0).getCell(5).getNumericCellValue(), 0);
+
+            // a changed formula leads to a rebuild and a full recalculation
+            Cell e1 = sheet.getRow(0).getCell(4);
+            e1.setCellFormula("B2-B3");
+            assertEquals(15, evaluator.evaluateDependents(Arrays.asList(e1)).size());
+            assertEquals(-2, e1.getNumericCellValue(), 0);
+
+            a5.setCellValue(5);
+            Set<Cell> changed = evaluator.evaluateDependents(Arrays.asList(a5));
+            assertEquals(cells("Sheet1!B5", "Sheet1!C1", "Sheet2!A1"), refs(changed));
+
+            // the incremental results match a full recalculation
+            for (Cell c : changed) {
+                double value = c.getNumericCellValue();
+                evaluator.clearAllCachedResultValues();
+                evaluator.evaluateFormulaCell(c);
+                assertEquals(c.getNumericCellValue(), value, 0);
+            }
+        }
+    }
+
+    @Test
+    void dirtyNodesOfChains() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Sheet sheet = wb.createSheet("Sheet1");
+            sheet.createRow(0).createCell(0).setCellValue(1);
+            sheet.getRow(0).createCell(1).setCellFormula("A1");
+            for (int r = 1; r < ROWS; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(1);
+                row.createCell(1).setCellFormula("B" + r + "+A" + (r + 1));
+                row.createCell(2).setCellFormula("SUM($A$1:A" + (r + 1) + ")");
+            }
+
+            HSSFFormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+            evaluator.evaluateDependents(new ArrayList<>());
+
+            // the running totals from row 100 and the chain from row 100 depend on A100
+            Cell a100 = sheet.getRow(99).getCell(0);
+            a100.setCellValue(2);
+            Set<Cell> changed = evaluator.evaluateDependents(Arrays.asList(a100));
+            assertEquals(2 * (ROWS - 99), changed.size());
+            assertTrue(changed.stream().allMatch(c -> c.getRowIndex() >= 99));
+            assertEquals(ROWS + 1, sheet.getRow(ROWS - 1).getCell(1).getNumericCellValue(), 0);
+            assertEquals(ROWS + 1, sheet.getRow(ROWS - 1).getCell(2).getNumericCellValue(), 0);
+        }
+    }
+
+    private static Set<String> cells(String... refs) {
+        return new HashSet<>(Arrays.asList(refs));
+    }
+
+    private static Set<String> refs(Set<Cell> cells) {
+        return cells.stream()
+                .map(c -> c.getSheet().getSheetName() + "!" + c.getAddress().formatAsString())
+                .collect(Collectors.toSet());
+    }
+
+    private static int[] computeLevels(HSSFWorkbook wb) {
+        EvaluationWorkbook evalWorkbook = HSSFEvaluationWorkbook.create(wb);
+        List<Integer> sheets = new ArrayList<>();
+        List<Cell> cells = new ArrayList<>();
+        for (int s = 0; s < wb.getNumberOfSheets(); s++) {
+            for (Row row : wb.getSheetAt(s)) {
+                for (Cell cell : row) {
+                    if (cell.getCellType() == CellType.FORMULA) {
+                        sheets.add(s);
+                        cells.add(cell);
+                    }
+                }
+            }
+        }
+        int count = cells.size();
+        int[] sheetIndexes = new int[count];
+        int[] rowIndexes = new int[count];
+        int[] columnIndexes = new int[count];
+        Ptg[][] formulaTokens = new Ptg[count][];
+        for (int i = 0; i < count; i++) {
+            Cell cell = cells.get(i);
+            sheetIndexes[i] = sheets.get(i);
+            rowIndexes[i] = cell.getRowIndex();
+            columnIndexes[i] = cell.getColumnIndex();
+            formulaTokens[i] = evalWorkbook.getFormulaTokens(
+                    evalWorkbook.getSheet(sheetIndexes[i]).getCell(rowIndexes[i], columnIndexes[i]));
+        }
+        return new FormulaDependencyGraph(evalWorkbook, sheetIndexes, rowIndexes, columnIndexes)
+                .computeLevels(formulaTokens);
+    }
+
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Sheet data = wb.createSheet("Data");
+        for (int r = 0; r < ROWS; r++) {
+            Row row = data.createRow(r);
+            int n = r + 1;
+            row.createCell(0).setCellValue(n);
+            // independent cells
+            row.createCell(1).setCellFormula("A" + n + "*2");
+            // a chain and running totals over it
+            row.createCell(2).setCellFormula(r == 0 ? "B1" : "C" + r + "+A" + n);
+            row.createCell(3).setCellFormula("SUM($B$1:B" + n + ")");
+            row.createCell(4).setCellFormula("IF(MOD(A" + n + ",2)=0,\"even\",D" + n + "/0)");
+            row.createCell(5).setCellFormula("INDIRECT(\"D" + n + "\")+1");
+        }
+        // a circular reference
+        data.getRow(0).createCell(6).setCellFormula("G2+1");
+        data.getRow(1).createCell(6).setCellFormula("G1+1");
+        data.getRow(2).createCell(6).setCellFormula("G1*2");
+
+        Name name = wb.createName();
+        name.setNameName("Doubled");
+        name.setRefersToFormula("Data!$B$1:$B$" + ROWS);
+
+        Sheet summary = wb.createSheet("Summary");
+        summary.createRow(0).createCell(0).setCellFormula("SUM(Doubled)");
+        summary.getRow(0).createCell(1).setCellFormula("Data!D" + ROWS + "-A1");
+        summary.getRow(0).createCell(2).setCellFormula("MAX(Data!C1:F" + ROWS + ")");
+        return wb;
+    }
+}
@@ -0,0 +1,217 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+
+package org.apache.poi.ss.formula.functions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the lookups and criteria which use a {@link LookupIndex}
+ */
+final class TestLookupIndex {
+
+    @Test
+    void foldCase() {
+        assertEquals(LookupIndex.foldCase("Straße"), LookupIndex.foldCase("STRAßE"));
+        assertEquals("abc", LookupIndex.foldCase("aBC"));
+        String lower = "abc";
+        assertEquals(lower, LookupIndex.foldCase(lower));
+    }
+
+    @Test
+    void indexedLookupsFollowChanges() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Sheet sheet = wb.createSheet();
+            // A1:A99 hold key0..key98, A100 stays blank
+            for (int i = 0; i < 99; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue("key" + i);
+                row.createCell(1).setCellValue(i);
+            }
+            sheet.getRow(9).getCell(0).setCellValue("dup");
+            sheet.getRow(19).getCell(0).setCellValue("DUP");
+            sheet.getRow(7).getCell(0).setCellValue(7);
+            sheet.getRow(29).getCell(0).setCellValue("7");
+            sheet.getRow(39).getCell(0).setCellValue(true);
+            sheet.getRow(40).getCell(1).setCellValue("a");
+            Cell formulaInArea = sheet.getRow(49).getCell(0);
+            formulaInArea.setCellFormula("B41&\"x\"");
+
+            Row formulas = sheet.getRow(0);
+            Cell vlookup = formulas.createCell(3);
+            vlookup.setCellFormula("VLOOKUP(\"Dup\",A1:B100,2,FALSE)");
+            Cell matchNumber = formulas.createCell(5);
+            matchNumber.setCellFormula("MATCH(7,A1:A100,0)");
+            Cell matchWildcard = formulas.createCell(6);
+            matchWildcard.setCellFormula("MATCH(\"du*\",A1:A100,0)");
+            Cell matchBoolean = formulas.createCell(7);
+            matchBoolean.setCellFormula("MATCH(TRUE,A1:A100,0)");
+            Cell matchFormula = formulas.createCell(8);
+            matchFormula.setCellFormula("MATCH(\"ax\",A1:A100,0)");
+            Cell matchNew = formulas.createCell(9);
+            matchNew.setCellFormula("MATCH(\"new\",A1:A100,0)");
+            Cell countString = formulas.createCell(10);
+            countString.setCellFormula("COUNTIF(A1:A100,\"dup\")");
+            Cell countNumber = formulas.createCell(11);
+            countNumber.setCellFormula("COUNTIF(A1:A100,7)");
+            Cell countRange = formulas.createCell(12);
+            countRange.setCellFormula("COUNTIF(A1:B100,\">90\")");
+
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+            assertNumber(9, fe.evaluate(vlookup));
+            assertNumber(8, fe.evaluate(matchNumber));
+            assertNumber(10, fe.evaluate(matchWildcard));
+            assertNumber(40, fe.evaluate(matchBoolean));
+            assertNumber(50, fe.evaluate(matchFormula));
+            assertError(fe.evaluate(matchNew));
+            assertNumber(2, fe.evaluate(countString));
+            // the text "7" is counted as well
+            assertNumber(2, fe.evaluate(countNumber));
+            assertNumber(8, fe.evaluate(countRange));
+
+            // a plain value of the area changes
+            sheet.getRow(4).getCell(0).setCellValue("dUp");
+            fe.notifyUpdateCell(sheet.getRow(4).getCell(0));
+            assertNumber(4, fe.evaluate(vlookup));
+            assertNumber(5, fe.evaluate(matchWildcard));
+            assertNumber(3, fe.evaluate(countString));
+
+            // a blank cell of the area gets a value
+            Cell blank = sheet.createRow(99).createCell(0);
+            blank.setCellValue("new");
+            fe.notifyUpdateCell(blank);
+            assertNumber(100, fe.evaluate(matchNew));
+
+            // the value of a formula cell in the area changes
+            Cell input = sheet.getRow(40).getCell(1);
+            input.setCellValue("b");
+            fe.notifyUpdateCell(input);
+            assertError(fe.evaluate(matchFormula));
+            matchFormula.setCellFormula("MATCH(\"bX\",A1:A100,0)");
+            fe.notifyUpdateCell(matchFormula);
+            assertNumber(50, fe.evaluate(matchFormula));
+
+            // a value of the area is removed
+            Cell removed = sheet.getRow(7).getCell(0);
+            fe.notifyDeleteCell(removed);
+            sheet.getRow(7).removeCell(removed);
+            assertNumber(1, fe.evaluate(countNumber));
+            assertError(fe.evaluate(matchNumber));
+
+            // lookups evaluated from scratch give the same results
+            fe.clearAllCachedResultValues();
+            assertNumber(4, fe.evaluate(vlookup));
+            assertNumber(100, fe.evaluate(matchNew));
+            assertNumber(3, fe.evaluate(countString));
+            assertNumber(1, fe.evaluate(countNumber));
+        }
+    }
+
+    @Test
+    void indexedCriteria() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Sheet sheet = wb.createSheet();
+            for (int i = 0; i < 200; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(i % 10 == 1 ? "CAT1" : "cat" + (i % 5));
+                if (i == 31) {
+                    row.createCell(1).setCellValue("1");
+                } else {
+                    row.createCell(1).setCellValue(i % 3);
+                }
+                if (i % 50 != 16) {
+                    row.createCell(2).setCellValue(i * 1.5);
+                }
+            }
+            Row formulas = sheet.getRow(0);
+            Cell sumifs = formulas.createCell(4);
+            sumifs.setCellFormula("SUMIFS(C1:C200,A1:A200,\"cat1\",B1:B200,1)");
+            Cell countifs = formulas.createCell(5);
+            countifs.setCellFormula("COUNTIFS(A1:A200,\"CAT2\",B1:B200,\">0\")");
+            Cell averageifs = formulas.createCell(6);
+            averageifs.setCellFormula("AVERAGEIFS(C1:C200,B1:B200,2)");
+            Cell maxifs = formulas.createCell(7);
+            maxifs.setCellFormula("MAXIFS(C1:C200,A1:A200,\"cat*\",B1:B200,\"<2\")");
+            Cell minifs = formulas.createCell(8);
+            minifs.setCellFormula("MINIFS(C1:C200,A1:A200,\"<>cat3\",B1:B200,0)");
+
+            double sum = 0, average = 0, max = 0, min = Double.MAX_VALUE;
+            int count = 0, averageCount = 0;
+            for (int i = 0; i < 200; i++) {
+                double c = i % 50 != 16 ? i * 1.5 : 0;
+                // the text "1" matches the number 1
+                int b = i == 31 ? 1 : i % 3;
+                if (i % 5 == 1 && b == 1) {
+                    sum += c;
+                }
+                if (i % 5 == 2 && i != 31 && b > 0) {
+                    count++;
+                }
+                if (b == 2 && i % 50 != 16) {
+                    average += c;
+                    averageCount++;
+                }
+                if (i != 31 && b < 2) {
+                    max = Math.max(max, c);
+                }
+                if (i % 5 != 3 && i != 31 && b == 0) {
+                    min = Math.min(min, c);
+                }
+            }
+
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+            assertNumber(sum, fe.evaluate(sumifs));
+            assertNumber(count, fe.evaluate(countifs));
+            assertNumber(average / averageCount, fe.evaluate(averageifs));
+            assertNumber(max, fe.evaluate(maxifs));
+            assertNumber(min, fe.evaluate(minifs));
+
+            // a matching value of the sum range changes
+            Cell value = sheet.getRow(1).getCell(2);
+            value.setCellValue(100);
+            fe.notifyUpdateCell(value);
+            assertNumber(sum - 1.5 + 100, fe.evaluate(sumifs));
+
+            // an error in the sum range only matters for the matching cells
+            Cell error = sheet.getRow(2).getCell(2);
+            error.setCellErrorValue(FormulaError.DIV0.getCode());
+            fe.notifyUpdateCell(error);
+            assertNumber(sum - 1.5 + 100, fe.evaluate(sumifs));
+            assertEquals(FormulaError.DIV0.getCode(), fe.evaluate(averageifs).getErrorValue());
+        }
+    }
+
+    private static void assertNumber(double expected, CellValue actual) {
+        assertEquals(expected, actual.getNumberValue(), 0.0, actual.formatAsString());
+    }
+
+    private static void assertError(CellValue actual) {
+        assertEquals(FormulaError.NA.getCode(), actual.getErrorValue(), actual.formatAsString());
+    }
+}
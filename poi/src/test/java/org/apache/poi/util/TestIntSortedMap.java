@@ -0,0 +1,139 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+
+package org.apache.poi.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+final class TestIntSortedMap {
+
+    @Test
+    void putGetRemove() {
+        IntSortedMap<String> map = new IntSortedMap<>();
+        assertTrue(map.isEmpty());
+        assertThrows(NoSuchElementException.class, map::firstKey);
+        assertThrows(NoSuchElementException.class, map::lastKey);
+
+        assertNull(map.put(5, "five"));
+        assertNull(map.put(1, "one"));
+        assertNull(map.put(9, "nine"));
+        assertEquals("five", map.put(5, "FIVE"));
+        assertEquals(3, map.size());
+        assertEquals(1, map.firstKey());
+        assertEquals(9, map.lastKey());
+        assertEquals("FIVE", map.get(5));
+        assertNull(map.get(4));
+        assertTrue(map.containsKey(9));
+        assertTrue(map.containsValue("one"));
+        assertFalse(map.containsValue("five"));
+        assertEquals(1, map.countLowerKeys(5));
+        assertEquals(2, map.countLowerKeys(6));
+        assertEquals(3, map.countLowerKeys(100));
+        assertEquals(9, map.keyAt(2));
+        assertEquals("one", map.valueAt(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> map.valueAt(3));
+
+        assertEquals("one", map.remove(1));
+        assertNull(map.remove(1));
+        assertEquals(5, map.firstKey());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(5));
+    }
+
+    @Test
+    void sameOrderAsTreeMap() {
+        Random random = new Random(1234);
+        IntSortedMap<Integer> map = new IntSortedMap<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+        assertEquals(new ArrayList<>(expected.subMap(100, 1500).values()), new ArrayList<>(map.values(100, 1500)));
+        assertEquals(expected.subMap(100, 1500).size(), map.values(100, 1500).size());
+        assertEquals(expected.headMap(777).size(), map.countLowerKeys(777));
+    }
+
+    @Test
+    void valuesView() {
+        IntSortedMap<String> map = new IntSortedMap<>();
+        for (int i = 0; i < 10; i++) {
+            map.put(i * 2, "v" + (i * 2));
+        }
+        assertTrue(map.values(7, 8).isEmpty());
+        assertEquals(2, map.values(7, 11).size());
+
+        // remove via the iterator
+        for (Iterator<String> it = map.values().iterator(); it.hasNext(); ) {
+            String v = it.next();
+            if (v.equals("v4") || v.equals("v6")) {
+                it.remove();
+            }
+        }
+        assertEquals(8, map.size());
+        assertEquals("v8", map.get(8));
+        assertNull(map.get(4));
+
+        // clear a range
+        map.values(10, 15).clear();
+        List<String> remaining = new ArrayList<>(map.values());
+        assertEquals("[v0, v2, v8, v16, v18]", remaining.toString());
+
+        Spliterator<String> split = map.values().spliterator();
+        assertTrue(split.hasCharacteristics(Spliterator.ORDERED));
+        split.tryAdvance(v -> assertEquals("v0", v));
+    }
+
+    @Test
+    void failFastIterators() {
+        IntSortedMap<String> map = new IntSortedMap<>();
+        map.put(1, "one");
+        map.put(2, "two");
+
+        Iterator<String> it = map.values().iterator();
+        Spliterator<String> split = map.values().spliterator();
+        it.next();
+        split.tryAdvance(v -> {});
+        map.put(3, "three");
+
+        assertThrows(ConcurrentModificationException.class, it::next);
+        assertThrows(ConcurrentModificationException.class, () -> split.tryAdvance(v -> {}));
+    }
+}